@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.toolkit.meter;
+
+/**
+ * ExponentialHistogram is a histogram with a fixed log-linear bucket layout. Every power of two between
+ * 2^minExponent and 2^(maxExponent + 1) is split into 2^subBucketBits linear sub buckets, and one extra bucket
+ * starting at zero collects the values lower than 2^minExponent. Compare to {@link Histogram}, the bucket of a value is
+ * found in constant time and concurrent recording doesn't contend on the same counters.
+ *
+ * The source code of this class doesn't include the implementation, all logic are injected from its activation.
+ */
+public class ExponentialHistogram extends BaseMeter {
+
+    protected ExponentialHistogram(MeterId meterId, int minExponent, int maxExponent, int subBucketBits) {
+        super(meterId);
+    }
+
+    /**
+     * Add value into the histogram, automatic analyze what bucket count need to be increment [step1, step2)
+     */
+    public void addValue(double value) {
+    }
+
+    public static class Builder extends BaseBuilder<Builder, ExponentialHistogram> {
+        private int minExponent = 0;
+        private int maxExponent = 20;
+        private int subBucketBits = 2;
+
+        public Builder(String name) {
+            super(name);
+        }
+
+        public Builder(MeterId meterId) {
+            super(meterId);
+        }
+
+        /**
+         * Set the range of the buckets as powers of two, default is [2^0, 2^21)
+         */
+        public Builder exponents(int minExponent, int maxExponent) {
+            this.minExponent = minExponent;
+            this.maxExponent = maxExponent;
+            return this;
+        }
+
+        /**
+         * Set how many linear sub buckets every power of two is split into, as 2^subBucketBits. Default is 2.
+         */
+        public Builder subBucketBits(int subBucketBits) {
+            this.subBucketBits = subBucketBits;
+            return this;
+        }
+
+        /**
+         * Split every power of two into 32 sub buckets, the relative error of every bucket is under 3.2%
+         */
+        public Builder highResolution() {
+            return subBucketBits(5);
+        }
+
+        @Override
+        protected MeterId.MeterType getType() {
+            return MeterId.MeterType.HISTOGRAM;
+        }
+
+        @Override
+        protected ExponentialHistogram create() {
+            if (minExponent > maxExponent) {
+                throw new IllegalArgumentException("Min exponent must not be bigger than max exponent");
+            }
+            if (subBucketBits < 0 || subBucketBits > 8) {
+                throw new IllegalArgumentException("Sub bucket bits must be in [0, 8]");
+            }
+
+            return new ExponentialHistogram(meterId, minExponent, maxExponent, subBucketBits);
+        }
+    }
+
+}
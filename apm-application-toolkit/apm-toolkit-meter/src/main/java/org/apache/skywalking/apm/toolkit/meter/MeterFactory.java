@@ -64,4 +64,18 @@ public class MeterFactory {
         return new Histogram.Builder(meterId);
     }
 
+    /**
+     * Create an exponential histogram builder by name
+     */
+    public static ExponentialHistogram.Builder exponentialHistogram(String name) {
+        return new ExponentialHistogram.Builder(name);
+    }
+
+    /**
+     * Create an exponential histogram builder by meterId
+     */
+    public static ExponentialHistogram.Builder exponentialHistogram(MeterId meterId) {
+        return new ExponentialHistogram.Builder(meterId);
+    }
+
 }
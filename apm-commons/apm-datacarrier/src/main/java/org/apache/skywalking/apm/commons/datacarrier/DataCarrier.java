@@ -20,6 +20,7 @@ package org.apache.skywalking.apm.commons.datacarrier;
 
 import java.util.Properties;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.Channels;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.ConsumeDriver;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.ConsumerPool;
@@ -49,16 +50,29 @@ public class DataCarrier<T> {
     }
 
     public DataCarrier(String name, String envPrefix, int channelSize, int bufferSize, BufferStrategy strategy) {
+        this(name, envPrefix, channelSize, bufferSize, strategy, BufferType.DEFAULT);
+    }
+
+    public DataCarrier(String name,
+                       String envPrefix,
+                       int channelSize,
+                       int bufferSize,
+                       BufferStrategy strategy,
+                       BufferType type) {
         this.name = name;
         bufferSize = EnvUtil.getInt(envPrefix + "_BUFFER_SIZE", bufferSize);
         channelSize = EnvUtil.getInt(envPrefix + "_CHANNEL_SIZE", channelSize);
-        channels = new Channels<>(channelSize, bufferSize, new SimpleRollingPartitioner<T>(), strategy);
+        channels = new Channels<>(channelSize, bufferSize, new SimpleRollingPartitioner<T>(), strategy, type);
     }
 
     public DataCarrier(int channelSize, int bufferSize, BufferStrategy strategy) {
         this("DEFAULT", "DEFAULT", channelSize, bufferSize, strategy);
     }
 
+    public DataCarrier(int channelSize, int bufferSize, BufferStrategy strategy, BufferType type) {
+        this("DEFAULT", "DEFAULT", channelSize, bufferSize, strategy, type);
+    }
+
     /**
      * set a new IDataPartitioner. It will cover the current one or default one.(Default is {@link
      * SimpleRollingPartitioner}
@@ -71,6 +85,19 @@ public class DataCarrier<T> {
         return this;
     }
 
+    /**
+     * Wake up the consumer threads as soon as the given count of data has been produced since their last consuming,
+     * rather than waiting for the end of the consume cycle. Then the consume cycle works as the max linger of the data,
+     * and could be set longer to keep idle consumers parked.
+     *
+     * @param signalWatermark count of data to wake up the consumers. Non-positive means off, which is the default.
+     * @return DataCarrier instance for chain
+     */
+    public DataCarrier setSignalWatermark(int signalWatermark) {
+        this.channels.setSignalWatermark(signalWatermark);
+        return this;
+    }
+
     /**
      * produce data to buffer, using the given {@link BufferStrategy}.
      *
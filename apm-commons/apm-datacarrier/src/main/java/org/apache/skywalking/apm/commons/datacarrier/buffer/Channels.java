@@ -18,6 +18,10 @@
 
 package org.apache.skywalking.apm.commons.datacarrier.buffer;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 import org.apache.skywalking.apm.commons.datacarrier.partition.IDataPartitioner;
 
 /**
@@ -29,13 +33,38 @@ public class Channels<T> {
     private IDataPartitioner<T> dataPartitioner;
     private final BufferStrategy strategy;
     private final long size;
+    /**
+     * Unpark the consumer threads once this count of data has been saved since the last consuming. Non-positive means
+     * off, the consumers only wake up per consume cycle.
+     */
+    private volatile int signalWatermark = 0;
+    /**
+     * Counted by the producers without contending on a single value.
+     */
+    private final LongAdder savedSinceLastConsume = new LongAdder();
+    /**
+     * The consumers have been signalled since the last consuming, then the producers stop signalling them.
+     */
+    private volatile boolean signalled = false;
+    private final List<Thread> consumerThreads = new CopyOnWriteArrayList<>();
 
     public Channels(int channelSize, int bufferSize, IDataPartitioner<T> partitioner, BufferStrategy strategy) {
+        this(channelSize, bufferSize, partitioner, strategy, BufferType.DEFAULT);
+    }
+
+    public Channels(int channelSize,
+                    int bufferSize,
+                    IDataPartitioner<T> partitioner,
+                    BufferStrategy strategy,
+                    BufferType type) {
         this.dataPartitioner = partitioner;
         this.strategy = strategy;
         bufferChannels = new QueueBuffer[channelSize];
         for (int i = 0; i < channelSize; i++) {
-            if (BufferStrategy.BLOCKING.equals(strategy)) {
+            if (BufferType.RING.equals(type)) {
+                final int index = i;
+                bufferChannels[i] = new RingBuffer<>(bufferSize, strategy, () -> dataPartitioner.contended(index));
+            } else if (BufferStrategy.BLOCKING.equals(strategy)) {
                 bufferChannels[i] = new ArrayBlockingQueueBuffer<>(bufferSize, strategy);
             } else {
                 bufferChannels[i] = new Buffer<>(bufferSize, strategy);
@@ -56,12 +85,58 @@ public class Channels<T> {
         }
         for (; retryCountDown > 0; retryCountDown--) {
             if (bufferChannels[index].save(data)) {
+                if (signalWatermark > 0) {
+                    countSaved();
+                }
                 return true;
             }
+            index = dataPartitioner.repartition(bufferChannels.length, data, index);
         }
         return false;
     }
 
+    private void countSaved() {
+        savedSinceLastConsume.increment();
+        if (!signalled && savedSinceLastConsume.sum() >= signalWatermark) {
+            signalled = true;
+            signalConsumers();
+        }
+    }
+
+    private void signalConsumers() {
+        for (Thread consumerThread : consumerThreads) {
+            LockSupport.unpark(consumerThread);
+        }
+    }
+
+    /**
+     * Set the count of saved data to wake up the consumers. Non-positive means off.
+     */
+    public void setSignalWatermark(int signalWatermark) {
+        this.signalWatermark = signalWatermark;
+    }
+
+    /**
+     * Register a thread to be unparked when the signal watermark is reached.
+     */
+    public void addConsumerThread(Thread consumerThread) {
+        consumerThreads.add(consumerThread);
+    }
+
+    public void removeConsumerThread(Thread consumerThread) {
+        consumerThreads.remove(consumerThread);
+    }
+
+    /**
+     * Notify that the consumer is going to obtain the data, the count towards the signal watermark restarts.
+     */
+    public void beforeConsume() {
+        if (signalWatermark > 0) {
+            savedSinceLastConsume.reset();
+            signalled = false;
+        }
+    }
+
     public void setPartitioner(IDataPartitioner<T> dataPartitioner) {
         this.dataPartitioner = dataPartitioner;
     }
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.buffer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free ring queue for multiple producers and a single consumer.
+ * <p>
+ * Every slot owns a sequence number. A producer claims a position by CAS on the tail, writes the element, then
+ * publishes it by lazily setting the slot sequence to {@code position + 1}. The consumer only reads the slots whose
+ * sequence says they have been published, and hands them back to producers by setting the sequence to {@code position
+ * + capacity}. So an element is never overridden before it has been consumed, and {@link #obtain(List)} only walks the
+ * published range instead of the whole array.
+ * <p>
+ * The capacity is rounded up to the power of 2. {@link #obtain(List)} must be called by one thread at a time, which is
+ * guaranteed by {@link org.apache.skywalking.apm.commons.datacarrier.consumer.ConsumeDriver} and {@link
+ * org.apache.skywalking.apm.commons.datacarrier.consumer.BulkConsumePool}, as a channel belongs to one consumer thread
+ * only.
+ */
+public class RingBuffer<T> implements QueueBuffer<T> {
+    /**
+     * Keep the tail in its own pair of cache lines, padded by 128 bytes on both sides, the same as {@link
+     * org.apache.skywalking.apm.commons.datacarrier.common.AtomicRangeInteger}.
+     */
+    private static final int TAIL_OFFSET = 16;
+    private static final long BLOCKING_PARK_NANOS = 100_000L;
+
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLongArray tail;
+    private final int mask;
+    private BufferStrategy strategy;
+    /**
+     * Run when a producer loses the race for a position to another producer, nullable.
+     */
+    private final Runnable contentionListener;
+    /**
+     * Only accessed by the consumer thread.
+     */
+    private long head;
+
+    RingBuffer(int bufferSize, BufferStrategy strategy) {
+        this(bufferSize, strategy, null);
+    }
+
+    RingBuffer(int bufferSize, BufferStrategy strategy, Runnable contentionListener) {
+        int capacity = capacityFor(bufferSize);
+        this.buffer = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.tail = new AtomicLongArray(TAIL_OFFSET * 2 + 1);
+        this.mask = capacity - 1;
+        this.strategy = strategy;
+        this.contentionListener = contentionListener;
+    }
+
+    static int capacityFor(int bufferSize) {
+        if (bufferSize <= 1) {
+            return 1;
+        }
+        int highest = Integer.highestOneBit(bufferSize - 1) << 1;
+        if (highest <= 0) {
+            throw new IllegalArgumentException("buffer size " + bufferSize + " is too large for a ring buffer");
+        }
+        return highest;
+    }
+
+    @Override
+    public void setStrategy(BufferStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    @Override
+    public boolean save(T data) {
+        long position = tail.get(TAIL_OFFSET);
+        boolean contended = false;
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(TAIL_OFFSET, position, position + 1)) {
+                    buffer[index] = data;
+                    sequences.lazySet(index, position + 1);
+                    if (contended && contentionListener != null) {
+                        contentionListener.run();
+                    }
+                    return true;
+                }
+                contended = true;
+                position = tail.get(TAIL_OFFSET);
+            } else if (difference < 0) {
+                // The slot of the previous round has not been consumed, the ring is full.
+                if (BufferStrategy.IF_POSSIBLE.equals(strategy)) {
+                    return false;
+                }
+                LockSupport.parkNanos(BLOCKING_PARK_NANOS);
+                position = tail.get(TAIL_OFFSET);
+            } else {
+                // Another producer has claimed this position.
+                contended = true;
+                position = tail.get(TAIL_OFFSET);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void obtain(List<T> consumeList) {
+        final int capacity = buffer.length;
+        long position = head;
+        for (int i = 0; i < capacity; i++) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) {
+                // Not published yet.
+                break;
+            }
+            consumeList.add((T) buffer[index]);
+            buffer[index] = null;
+            sequences.lazySet(index, position + capacity);
+            position++;
+        }
+        head = position;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return buffer.length;
+    }
+}
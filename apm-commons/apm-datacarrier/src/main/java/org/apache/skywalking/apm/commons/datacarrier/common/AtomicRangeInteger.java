@@ -25,13 +25,17 @@ public class AtomicRangeInteger extends Number implements Serializable {
     private static final long serialVersionUID = -4099792402691141643L;
     private AtomicIntegerArray values;
 
-    private static final int VALUE_OFFSET = 15;
+    /**
+     * The value is padded by 32 ints, 128 bytes, on both sides, against the false sharing with the other channels,
+     * including the adjacent cache line prefetched in pairs.
+     */
+    private static final int VALUE_OFFSET = 32;
 
     private int startValue;
     private int endValue;
 
     public AtomicRangeInteger(int startValue, int maxValue) {
-        this.values = new AtomicIntegerArray(31);
+        this.values = new AtomicIntegerArray(VALUE_OFFSET * 2 + 1);
         this.values.set(VALUE_OFFSET, startValue);
         this.startValue = startValue;
         this.endValue = maxValue - 1;
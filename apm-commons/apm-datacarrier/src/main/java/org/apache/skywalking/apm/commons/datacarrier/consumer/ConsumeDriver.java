@@ -41,7 +41,7 @@ public class ConsumeDriver<T> implements IDriver {
         for (int i = 0; i < num; i++) {
             consumerThreads[i] = new ConsumerThread(
                 "DataCarrier." + name + ".Consumer." + i + ".Thread", getNewConsumerInstance(consumerClass, properties),
-                consumeCycle
+                consumeCycle, channels
             );
             consumerThreads[i].setDaemon(true);
         }
@@ -52,7 +52,7 @@ public class ConsumeDriver<T> implements IDriver {
         prototype.init(new Properties());
         for (int i = 0; i < num; i++) {
             consumerThreads[i] = new ConsumerThread(
-                "DataCarrier." + name + ".Consumer." + i + ".Thread", prototype, consumeCycle);
+                "DataCarrier." + name + ".Consumer." + i + ".Thread", prototype, consumeCycle, channels);
             consumerThreads[i].setDaemon(true);
         }
 
@@ -90,6 +90,7 @@ public class ConsumeDriver<T> implements IDriver {
         try {
             this.allocateBuffer2Thread();
             for (ConsumerThread consumerThread : consumerThreads) {
+                this.channels.addConsumerThread(consumerThread);
                 consumerThread.start();
             }
             running = true;
@@ -128,6 +129,7 @@ public class ConsumeDriver<T> implements IDriver {
         try {
             this.running = false;
             for (ConsumerThread consumerThread : consumerThreads) {
+                this.channels.removeConsumerThread(consumerThread);
                 consumerThread.shutdown();
             }
         } finally {
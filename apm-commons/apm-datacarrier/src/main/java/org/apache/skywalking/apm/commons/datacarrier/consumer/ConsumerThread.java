@@ -20,7 +20,10 @@ package org.apache.skywalking.apm.commons.datacarrier.consumer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.Buffer;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.Channels;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.QueueBuffer;
 
 public class ConsumerThread<T> extends Thread {
@@ -28,13 +31,15 @@ public class ConsumerThread<T> extends Thread {
     private IConsumer<T> consumer;
     private List<DataSource> dataSources;
     private long consumeCycle;
+    private Channels<T> channels;
 
-    ConsumerThread(String threadName, IConsumer<T> consumer, long consumeCycle) {
+    ConsumerThread(String threadName, IConsumer<T> consumer, long consumeCycle, Channels<T> channels) {
         super(threadName);
         this.consumer = consumer;
         running = false;
         dataSources = new ArrayList<DataSource>(1);
         this.consumeCycle = consumeCycle;
+        this.channels = channels;
     }
 
     /**
@@ -51,10 +56,10 @@ public class ConsumerThread<T> extends Thread {
         final List<T> consumeList = new ArrayList<T>(1500);
         while (running) {
             if (!consume(consumeList)) {
-                try {
-                    Thread.sleep(consumeCycle);
-                } catch (InterruptedException e) {
-                }
+                // Parked until the consume cycle elapses, or the producers signal the watermark of the channels.
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(consumeCycle));
+                // Ignore the interruption, the same as sleep.
+                Thread.interrupted();
             }
         }
 
@@ -66,6 +71,7 @@ public class ConsumerThread<T> extends Thread {
     }
 
     private boolean consume(List<T> consumeList) {
+        channels.beforeConsume();
         for (DataSource dataSource : dataSources) {
             dataSource.obtain(consumeList);
         }
@@ -86,6 +92,7 @@ public class ConsumerThread<T> extends Thread {
 
     void shutdown() {
         running = false;
+        LockSupport.unpark(this);
     }
 
     /**
@@ -20,6 +20,8 @@ package org.apache.skywalking.apm.commons.datacarrier.consumer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.Channels;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.QueueBuffer;
 
@@ -53,10 +55,10 @@ public class MultipleChannelsConsumer extends Thread {
             }
 
             if (!hasData) {
-                try {
-                    Thread.sleep(consumeCycle);
-                } catch (InterruptedException e) {
-                }
+                // Parked until the consume cycle elapses, or the producers signal the watermark of any target.
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(consumeCycle));
+                // Ignore the interruption, the same as sleep.
+                Thread.interrupted();
             }
         }
 
@@ -70,6 +72,7 @@ public class MultipleChannelsConsumer extends Thread {
     }
 
     private boolean consume(Group target, List consumeList) {
+        target.channels.beforeConsume();
         for (int i = 0; i < target.channels.getChannelSize(); i++) {
             QueueBuffer buffer = target.channels.getBuffer(i);
             buffer.obtain(consumeList);
@@ -102,6 +105,7 @@ public class MultipleChannelsConsumer extends Thread {
         newList.add(group);
         consumeTargets = newList;
         size += channels.size();
+        channels.addConsumerThread(this);
     }
 
     public long size() {
@@ -110,6 +114,10 @@ public class MultipleChannelsConsumer extends Thread {
 
     void shutdown() {
         running = false;
+        for (Group target : consumeTargets) {
+            target.channels.removeConsumerThread(this);
+        }
+        LockSupport.unpark(this);
     }
 
     private static class Group {
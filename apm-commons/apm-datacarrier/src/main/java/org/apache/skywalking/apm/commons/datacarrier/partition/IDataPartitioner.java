@@ -19,6 +19,7 @@
 package org.apache.skywalking.apm.commons.datacarrier.partition;
 
 import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType;
 
 public interface IDataPartitioner<T> {
     int partition(int total, T data);
@@ -29,4 +30,21 @@ public interface IDataPartitioner<T> {
      * Less or equal 1, means not support retry.
      */
     int maxRetryCount();
+
+    /**
+     * Notify the partitioner that the data can't be saved into the channel of the given index, as the channel is
+     * full.
+     *
+     * @return the index of the channel to retry. By default, retry the same channel.
+     */
+    default int repartition(int total, T data, int failedIndex) {
+        return failedIndex;
+    }
+
+    /**
+     * Notify the partitioner that the current thread lost a race against another producer of the channel of the given
+     * index, the data is still saved into the channel. Only reported by the {@link BufferType#RING} buffers.
+     */
+    default void contended(int index) {
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.partition;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Assign every producer thread to a channel by a thread local probe, and move the thread to another channel by
+ * rehashing its probe when the channel is contended or full, the same way as {@link
+ * java.util.concurrent.atomic.LongAdder} spreads the threads over its cells. So threads don't collide on a channel just
+ * because of their ids, and the collided ones spread out at runtime. The contention is reported by the failed CAS of
+ * the {@link org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType#RING} buffers only, the other buffers
+ * rehash when full.
+ */
+public class ProducerStripedPartitioner<T> implements IDataPartitioner<T> {
+    /**
+     * Shared by all partitioners, a thread keeps its probe across the DataCarriers.
+     */
+    private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(() -> new int[] {initialProbe()});
+
+    @Override
+    public int partition(int total, T data) {
+        return (PROBE.get()[0] & Integer.MAX_VALUE) % total;
+    }
+
+    @Override
+    public int maxRetryCount() {
+        return 3;
+    }
+
+    @Override
+    public int repartition(int total, T data, int failedIndex) {
+        return (advanceProbe() & Integer.MAX_VALUE) % total;
+    }
+
+    /**
+     * The data has been saved, move the thread to another channel from the next data.
+     */
+    @Override
+    public void contended(int index) {
+        advanceProbe();
+    }
+
+    private static int advanceProbe() {
+        int[] probe = PROBE.get();
+        int h = probe[0];
+        // xorshift, see java.util.concurrent.ThreadLocalRandom#advanceProbe
+        h ^= h << 13;
+        h ^= h >>> 17;
+        h ^= h << 5;
+        probe[0] = h;
+        return h;
+    }
+
+    /**
+     * @return the recommended channel size for this partitioner, which is the number of available processors.
+     */
+    public static int recommendChannelSize() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    private static int initialProbe() {
+        int probe = ThreadLocalRandom.current().nextInt();
+        // Zero would never be changed by xorshift.
+        return probe == 0 ? 1 : probe;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.buffer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.skywalking.apm.commons.datacarrier.SampleData;
+import org.apache.skywalking.apm.commons.datacarrier.partition.SimpleRollingPartitioner;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RingBufferTest {
+    @Test
+    public void testCapacity() {
+        Assert.assertEquals(1, RingBuffer.capacityFor(1));
+        Assert.assertEquals(128, RingBuffer.capacityFor(100));
+        Assert.assertEquals(128, RingBuffer.capacityFor(128));
+        Assert.assertEquals(512, RingBuffer.capacityFor(300));
+    }
+
+    @Test
+    public void testIfPossibleSave() {
+        RingBuffer<SampleData> buffer = new RingBuffer<>(4, BufferStrategy.IF_POSSIBLE);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(buffer.save(new SampleData().setIntValue(i)));
+        }
+        Assert.assertFalse(buffer.save(new SampleData().setIntValue(4)));
+
+        List<SampleData> result = new ArrayList<>();
+        buffer.obtain(result);
+        Assert.assertEquals(4, result.size());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(i, result.get(i).getIntValue());
+        }
+
+        result.clear();
+        buffer.obtain(result);
+        Assert.assertEquals(0, result.size());
+
+        // The slots are reusable in the next round.
+        Assert.assertTrue(buffer.save(new SampleData().setIntValue(5)));
+        buffer.obtain(result);
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(5, result.get(0).getIntValue());
+    }
+
+    @Test
+    public void testConcurrentProduce() throws InterruptedException {
+        final int producers = 4;
+        final int countPerProducer = 20000;
+        final RingBuffer<SampleData> buffer = new RingBuffer<>(256, BufferStrategy.BLOCKING);
+        final CountDownLatch latch = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            new Thread(() -> {
+                for (int i = 0; i < countPerProducer; i++) {
+                    buffer.save(new SampleData().setIntValue(producer * countPerProducer + i));
+                }
+                latch.countDown();
+            }).start();
+        }
+
+        Set<Integer> received = new HashSet<>();
+        List<SampleData> result = new ArrayList<>();
+        while (received.size() < producers * countPerProducer) {
+            buffer.obtain(result);
+            for (SampleData data : result) {
+                Assert.assertTrue(received.add(data.getIntValue()));
+            }
+            result.clear();
+        }
+        latch.await();
+
+        buffer.obtain(result);
+        Assert.assertEquals(0, result.size());
+    }
+
+    @Test
+    public void testReportContention() throws InterruptedException {
+        final int producers = 4;
+        final int countPerProducer = 20000;
+        final AtomicInteger contended = new AtomicInteger();
+        final RingBuffer<SampleData> buffer = new RingBuffer<>(
+            producers * countPerProducer, BufferStrategy.IF_POSSIBLE, contended::incrementAndGet);
+        // A single producer is never contended.
+        Assert.assertTrue(buffer.save(new SampleData()));
+        Assert.assertEquals(0, contended.get());
+        buffer.obtain(new ArrayList<>());
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch latch = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ignored) {
+                }
+                for (int i = 0; i < countPerProducer; i++) {
+                    Assert.assertTrue(buffer.save(new SampleData()));
+                }
+                latch.countDown();
+            }).start();
+        }
+        start.countDown();
+        latch.await();
+
+        List<SampleData> result = new ArrayList<>();
+        buffer.obtain(result);
+        Assert.assertEquals(producers * countPerProducer, result.size());
+        // At most once per saved data, and never for the uncontended saves.
+        Assert.assertTrue(contended.get() <= producers * countPerProducer);
+    }
+
+    @Test
+    public void testCreateRingChannels() {
+        Channels<SampleData> channels = new Channels<>(
+            2, 100, new SimpleRollingPartitioner<>(), BufferStrategy.IF_POSSIBLE, BufferType.RING);
+        Assert.assertTrue(channels.getBuffer(0) instanceof RingBuffer);
+        Assert.assertEquals(128, channels.getBuffer(0).getBufferSize());
+    }
+}
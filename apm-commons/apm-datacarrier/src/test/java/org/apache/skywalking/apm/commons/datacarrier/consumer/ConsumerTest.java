@@ -22,9 +22,12 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
 import org.apache.skywalking.apm.commons.datacarrier.SampleData;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.Channels;
 import org.junit.Assert;
 import org.junit.Test;
 import org.powermock.api.support.membermodification.MemberModifier;
@@ -99,6 +102,73 @@ public class ConsumerTest {
         Assert.assertTrue(IS_OCCUR_ERROR);
     }
 
+    @Test
+    public void testSignalWatermark() throws InterruptedException, IllegalAccessException {
+        final DataCarrier<SampleData> carrier = new DataCarrier<SampleData>(2, 100);
+        carrier.setSignalWatermark(10);
+        final CountDownLatch idle = new CountDownLatch(1);
+        final CountDownLatch consumed = new CountDownLatch(10);
+        carrier.consume(new IConsumer<SampleData>() {
+            @Override
+            public void init(final Properties properties) {
+
+            }
+
+            @Override
+            public void consume(List<SampleData> data) {
+                for (SampleData ignored : data) {
+                    consumed.countDown();
+                }
+            }
+
+            @Override
+            public void nothingToConsume() {
+                idle.countDown();
+            }
+
+            @Override
+            public void onError(List<SampleData> data, Throwable t) {
+
+            }
+
+            @Override
+            public void onExit() {
+
+            }
+        }, 1, 60 * 1000L);
+
+        // The consumer is going to park with a long consume cycle.
+        Assert.assertTrue(idle.await(10, TimeUnit.SECONDS));
+        final Channels<SampleData> channels = getChannels(carrier);
+        for (int i = 0; i < 9; i++) {
+            Assert.assertTrue(carrier.produce(new SampleData().setName("data" + i)));
+        }
+        Assert.assertFalse((Boolean) MemberModifier.field(Channels.class, "signalled").get(channels));
+
+        // Only the signal wakes up the consumer before the consume cycle elapses.
+        Assert.assertTrue(carrier.produce(new SampleData().setName("data9")));
+        Assert.assertTrue((Boolean) MemberModifier.field(Channels.class, "signalled").get(channels));
+        Assert.assertTrue(consumed.await(10, TimeUnit.SECONDS));
+
+        carrier.shutdownConsumers();
+    }
+
+    @Test
+    public void testRemoveBulkConsumerThreads() throws Exception {
+        final DataCarrier<SampleData> carrier = new DataCarrier<SampleData>(2, 100);
+        final BulkConsumePool pool = new BulkConsumePool("test-pool", 2, 20);
+        carrier.consume(pool, new SampleConsumer());
+        final Channels<SampleData> channels = getChannels(carrier);
+        Assert.assertEquals(1, ((List) MemberModifier.field(Channels.class, "consumerThreads").get(channels)).size());
+
+        carrier.shutdownConsumers();
+        Assert.assertEquals(0, ((List) MemberModifier.field(Channels.class, "consumerThreads").get(channels)).size());
+    }
+
+    private Channels<SampleData> getChannels(DataCarrier<SampleData> carrier) throws IllegalAccessException {
+        return (Channels<SampleData>) MemberModifier.field(DataCarrier.class, "channels").get(carrier);
+    }
+
     class SampleConsumer2 implements IConsumer<SampleData> {
         public int i = 1;
 
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.partition;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.skywalking.apm.commons.datacarrier.SampleData;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProducerStripedPartitionerTest {
+    @Test
+    public void testPartition() {
+        ProducerStripedPartitioner<SampleData> partitioner = new ProducerStripedPartitioner<SampleData>();
+        int partition = partitioner.partition(10, new SampleData());
+        Assert.assertTrue(partition >= 0 && partition < 10);
+        Assert.assertEquals(partition, partitioner.partition(10, new SampleData()));
+        Assert.assertEquals(partition, partitioner.partition(10, new SampleData()));
+    }
+
+    @Test
+    public void testRepartition() {
+        ProducerStripedPartitioner<SampleData> partitioner = new ProducerStripedPartitioner<SampleData>();
+        Set<Integer> partitions = new HashSet<Integer>();
+        int partition = partitioner.partition(10, new SampleData());
+        partitions.add(partition);
+        for (int i = 0; i < 100; i++) {
+            partition = partitioner.repartition(10, new SampleData(), partition);
+            Assert.assertTrue(partition >= 0 && partition < 10);
+            // The thread sticks to the new channel.
+            Assert.assertEquals(partition, partitioner.partition(10, new SampleData()));
+            partitions.add(partition);
+        }
+        Assert.assertTrue(partitions.size() > 1);
+    }
+
+    @Test
+    public void testMoveOnContended() {
+        ProducerStripedPartitioner<SampleData> partitioner = new ProducerStripedPartitioner<SampleData>();
+        Set<Integer> partitions = new HashSet<Integer>();
+        for (int i = 0; i < 100; i++) {
+            int partition = partitioner.partition(10, new SampleData());
+            partitions.add(partition);
+            partitioner.contended(partition);
+        }
+        Assert.assertTrue(partitions.size() > 1);
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.skywalking.apm.agent.core.base64;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * A wrapper of {@link java.util.Base64} with convenient conversion methods between {@code byte[]} and {@code String}
@@ -26,6 +27,15 @@ import java.nio.charset.StandardCharsets;
 public final class Base64 {
     private static final java.util.Base64.Decoder DECODER = java.util.Base64.getDecoder();
     private static final java.util.Base64.Encoder ENCODER = java.util.Base64.getEncoder();
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final int[] DECODE_TABLE = new int[128];
+
+    static {
+        Arrays.fill(DECODE_TABLE, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE_TABLE[ALPHABET[i]] = i;
+        }
+    }
 
     private Base64() {
     }
@@ -38,4 +48,154 @@ public final class Base64 {
         return ENCODER.encodeToString(text.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * @return the length of {@link #encode(String)}, without encoding.
+     */
+    public static int encodedLength(String text) {
+        return (utf8Length(text) + 2) / 3 * 4;
+    }
+
+    /**
+     * Encode the UTF-8 bytes of the text into the target directly, the same as {@link #encode(String)}, without the
+     * intermediate arrays. The target must have {@link #encodedLength(String)} chars from the offset.
+     *
+     * @return the offset after the encoded chars.
+     */
+    public static int encode(String text, char[] target, int offset) {
+        int bits = 0;
+        int count = 0;
+        int position = offset;
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            int bytes;
+            int byteCount;
+            if (c < 0x80) {
+                bytes = c;
+                byteCount = 1;
+            } else if (c < 0x800) {
+                bytes = (0xC0 | c >> 6) << 8 | (0x80 | c & 0x3F);
+                byteCount = 2;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    final int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    bytes = (0xF0 | codePoint >> 18) << 24 | (0x80 | codePoint >> 12 & 0x3F) << 16
+                        | (0x80 | codePoint >> 6 & 0x3F) << 8 | (0x80 | codePoint & 0x3F);
+                    byteCount = 4;
+                } else {
+                    // Malformed, replaced the same as String#getBytes.
+                    bytes = '?';
+                    byteCount = 1;
+                }
+            } else {
+                bytes = (0xE0 | c >> 12) << 16 | (0x80 | c >> 6 & 0x3F) << 8 | (0x80 | c & 0x3F);
+                byteCount = 3;
+            }
+            for (int shift = (byteCount - 1) * 8; shift >= 0; shift -= 8) {
+                bits = bits << 8 | bytes >>> shift & 0xFF;
+                if (++count == 3) {
+                    target[position++] = ALPHABET[bits >>> 18 & 0x3F];
+                    target[position++] = ALPHABET[bits >>> 12 & 0x3F];
+                    target[position++] = ALPHABET[bits >>> 6 & 0x3F];
+                    target[position++] = ALPHABET[bits & 0x3F];
+                    bits = 0;
+                    count = 0;
+                }
+            }
+        }
+        if (count == 1) {
+            target[position++] = ALPHABET[bits >>> 2 & 0x3F];
+            target[position++] = ALPHABET[bits << 4 & 0x3F];
+            target[position++] = '=';
+            target[position++] = '=';
+        } else if (count == 2) {
+            target[position++] = ALPHABET[bits >>> 10 & 0x3F];
+            target[position++] = ALPHABET[bits >>> 4 & 0x3F];
+            target[position++] = ALPHABET[bits << 2 & 0x3F];
+            target[position++] = '=';
+        }
+        return position;
+    }
+
+    /**
+     * @return the max length of the bytes decoded from the given length of chars.
+     */
+    public static int decodedMaxLength(int encodedLength) {
+        return (encodedLength + 3) / 4 * 3;
+    }
+
+    /**
+     * Decode the chars in [start, end) of the text into the target directly, as {@link #decode2UTFString(String)}
+     * does, without the intermediate substring and arrays. The padding is optional. The target must have {@link
+     * #decodedMaxLength(int)} bytes.
+     *
+     * @return the length of decoded bytes.
+     * @throws IllegalArgumentException if the chars are not in valid Base64 scheme.
+     */
+    public static int decode(String text, int start, int end, byte[] target) {
+        int bits = 0;
+        int count = 0;
+        int position = 0;
+        int i = start;
+        for (; i < end; i++) {
+            final char c = text.charAt(i);
+            final int value = c < 128 ? DECODE_TABLE[c] : -1;
+            if (value < 0) {
+                if (c == '=') {
+                    break;
+                }
+                throw new IllegalArgumentException("Illegal base64 character " + Integer.toString(c, 16));
+            }
+            bits = bits << 6 | value;
+            if (++count == 4) {
+                target[position++] = (byte) (bits >> 16);
+                target[position++] = (byte) (bits >> 8);
+                target[position++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+        if (count == 1) {
+            throw new IllegalArgumentException("Last unit does not have enough valid bits");
+        }
+        int padding = 0;
+        if (i < end) {
+            // Reached the padding, which must fill the last unit.
+            padding = end - i;
+            if (count == 0 || count + padding != 4 || (padding == 2 && text.charAt(i + 1) != '=')) {
+                throw new IllegalArgumentException("Illegal base64 padding");
+            }
+        }
+        if (count == 2) {
+            target[position++] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            target[position++] = (byte) (bits >> 10);
+            target[position++] = (byte) (bits >> 2);
+        }
+        return position;
+    }
+
+    private static int utf8Length(String text) {
+        int utf8Length = 0;
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (c < 0x80) {
+                utf8Length++;
+            } else if (c < 0x800) {
+                utf8Length += 2;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    utf8Length += 4;
+                    i++;
+                } else {
+                    utf8Length++;
+                }
+            } else {
+                utf8Length += 3;
+            }
+        }
+        return utf8Length;
+    }
+
 }
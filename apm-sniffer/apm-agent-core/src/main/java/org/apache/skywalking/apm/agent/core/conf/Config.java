@@ -28,6 +28,7 @@ import org.apache.skywalking.apm.agent.core.logging.core.LogOutput;
 import org.apache.skywalking.apm.agent.core.logging.core.ResolverType;
 import org.apache.skywalking.apm.agent.core.logging.core.WriterFactory;
 import org.apache.skywalking.apm.agent.core.plugin.bytebuddy.ClassCacheMode;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType;
 import org.apache.skywalking.apm.util.Length;
 
 /**
@@ -60,6 +61,19 @@ public class Config {
          */
         public static int SAMPLE_N_PER_3_SECS = -1;
 
+        /**
+         * The target total of the sampled {@link TraceSegment}s per second, shared by the operation names of the first
+         * spans through token buckets. Negative or zero means off, by default. It replaces {@link
+         * #SAMPLE_N_PER_3_SECS} when on.
+         */
+        public static int ADAPTIVE_SAMPLING_TARGET_RATE = -1;
+
+        /**
+         * The max count of the operation names having their own token buckets in the adaptive sampling. The others
+         * share one bucket, until the least recently used names are evicted.
+         */
+        public static int ADAPTIVE_SAMPLING_MAX_ENDPOINTS = 1000;
+
         /**
          * If the operation name of the first span is included in this set, this segment should be ignored.
          * Multiple values should be separated by `,`.
@@ -96,6 +110,12 @@ public class Config {
          */
         public static ClassCacheMode CLASS_CACHE_MODE = ClassCacheMode.MEMORY;
 
+        /**
+         * The archive file of the classes not instrumented, in the PERSISTENT class cache mode. Default is
+         * `class-cache/class-cache.archive` in the agent folder.
+         */
+        public static String CLASS_CACHE_ARCHIVE = "";
+
         /**
          * The identifier of the instance
          */
@@ -140,6 +160,12 @@ public class Config {
          */
         public static boolean KEEP_TRACING = false;
 
+        /**
+         * If true, the trace and segment ids are generated as two longs, and formatted as 32 hex chars only when
+         * they are read, such as propagated or reported. Otherwise, they are `UUID.threadId.timestamp+seq` strings.
+         */
+        public static boolean COMPACT_GLOBAL_ID = false;
+
         /**
          * Force open TLS for gRPC channel if true.
          */
@@ -190,6 +216,11 @@ public class Config {
          * How long grpc client will timeout in sending data to upstream.
          */
         public static int GRPC_UPSTREAM_TIMEOUT = 30;
+        /**
+         * How many trace segment streams could be in flight to upstream at the same time. The consumer doesn't wait
+         * for the backend to acknowledge a stream, until this limit is reached.
+         */
+        public static int GRPC_UPSTREAM_CONCURRENCY = 2;
         /**
          * Get profile task list interval
          */
@@ -230,6 +261,25 @@ public class Config {
          * Snapshot transport to backend buffer size
          */
         public static int SNAPSHOT_TRANSPORT_BUFFER_SIZE = 500;
+
+        /**
+         * If true, dump the stacks of all the profiling threads at once through the {@link
+         * java.lang.management.ThreadMXBean}, intern the frames into the frame dictionary of the task, and skip the
+         * stacks identical to the previous snapshot of the same segment.
+         */
+        public static boolean BATCH_DUMP = false;
+
+        /**
+         * If true, the snapshots dumped in batch are sent in the compact encoding, the frames of a task are sent once
+         * as a dictionary, and each snapshot only carries the frames changed from the previous one of the same
+         * segment. Fallback to the uncompressed snapshots if the backend doesn't support it.
+         */
+        public static boolean SNAPSHOT_COMPACT_ENCODING = false;
+
+        /**
+         * Max bytes of a compact snapshot message
+         */
+        public static int SNAPSHOT_MESSAGE_MAX_BYTES = 256 * 1024;
     }
 
     public static class Meter {
@@ -247,6 +297,19 @@ public class Config {
          * Max size of the meter count, using {@link org.apache.skywalking.apm.agent.core.meter.MeterId} as identity
          */
         public static Integer MAX_METER_SIZE = 500;
+
+        /**
+         * If true, only the meters changed since the last report are sent, the gauges are always sent. The counters
+         * and histograms without any new value are skipped.
+         */
+        public static boolean REPORT_UPDATED_ONLY = false;
+
+        /**
+         * Max count of the meters in one {@link org.apache.skywalking.apm.network.language.agent.v3.MeterDataCollection}
+         * message. The meters are sent in batch through the `collectBatch` method when it is bigger than 1, otherwise
+         * one by one.
+         */
+        public static int MAX_BATCH_SIZE = 0;
     }
 
     public static class Jvm {
@@ -264,9 +327,91 @@ public class Config {
     }
 
     public static class Buffer {
+        /**
+         * Non-positive means the number of available processors.
+         */
         public static int CHANNEL_SIZE = 5;
 
         public static int BUFFER_SIZE = 300;
+
+        /**
+         * The queue implementation of the trace segment and log buffers. DEFAULT: the legacy array buffer. RING: the
+         * lock-free multiple producers single consumer ring, whose size is rounded up to the power of 2.
+         */
+        public static BufferType TYPE = BufferType.DEFAULT;
+
+        /**
+         * Wake up the consumer of the trace segment and log buffers once this count of data is buffered. Non-positive
+         * means off, the consumer only polls the buffers every {@link #MAX_LINGER} millis.
+         */
+        public static int SIGNAL_WATERMARK = 0;
+
+        /**
+         * The max time(millis) the buffered data waits for the consumer, as the consumer parks this long when the
+         * buffers are empty. Recommend to increase it when {@link #SIGNAL_WATERMARK} is on, to save CPU of idle agents.
+         */
+        public static long MAX_LINGER = 20;
+
+        /**
+         * If true, the producer threads of the trace segment and log buffers are assigned to channels by thread local
+         * probes, and move to other channels when the channel is full, or contended with the ring buffers. Otherwise,
+         * the data rolls over the channels.
+         */
+        public static boolean STRIPED_PARTITION = false;
+    }
+
+    public static class Spill {
+        /**
+         * If true, the trace segments, logs and meters are spilled to the local disk while the gRPC channel is
+         * disconnected, and replayed after reconnected.
+         */
+        public static boolean ENABLE = false;
+
+        /**
+         * Spill files directory. Default is blank string, means, use "{theSkywalkingAgentJarDir}/spill". Every sender
+         * has its own sub directory.
+         */
+        public static String DIR = "";
+
+        /**
+         * The max size of the spill files of one sender, in bytes. The oldest file is deleted when exceeded.
+         */
+        public static long MAX_SIZE = 100 * 1024 * 1024;
+
+        /**
+         * The size of every memory-mapped spill file, in bytes. A record larger than this is abandoned.
+         */
+        public static int SEGMENT_SIZE = 8 * 1024 * 1024;
+
+        /**
+         * The max records replayed per second by one sender, to avoid overwhelming the backend after reconnected.
+         */
+        public static int REPLAY_RATE = 500;
+    }
+
+    public static class TailSampling {
+        /**
+         * If true, the traces not sampled by {@link Agent#SAMPLE_N_PER_3_SECS} are still recorded, and decided to be
+         * kept or dropped when finished. The slow ones, the failed ones, and the others of the same traces are kept.
+         */
+        public static boolean ACTIVE = false;
+
+        /**
+         * The segment lasting this long or longer is kept, in milliseconds.
+         */
+        public static int SLOW_THRESHOLD = 1000;
+
+        /**
+         * The max estimated size of the finished segments held for the rest of their traces, in bytes. The oldest
+         * held segment is dropped when exceeded.
+         */
+        public static long BUFFER_SIZE = 10 * 1024 * 1024;
+
+        /**
+         * The max time a finished segment is held for the rest of its trace, and a kept trace is remembered to keep
+         * its segments finished later, in milliseconds.
+         */
+        public static int HOLD_TIME = 10000;
     }
 
     public static class Logging {
@@ -295,6 +440,18 @@ public class Config {
          */
         public static int MAX_HISTORY_FILES = -1;
 
+        /**
+         * If true, the log file is appended through a memory-mapped region of {@link #MAX_FILE_SIZE} bytes, and rolled
+         * before the log which doesn't fit, so no log file is larger than {@link #MAX_FILE_SIZE}.
+         */
+        public static boolean MEMORY_MAPPED = false;
+
+        /**
+         * If true, the history log files are compressed by gzip in the background. Only works with {@link
+         * #MEMORY_MAPPED}.
+         */
+        public static boolean COMPRESS_HISTORY_FILES = false;
+
         /**
          * The log level. Default is debug.
          */
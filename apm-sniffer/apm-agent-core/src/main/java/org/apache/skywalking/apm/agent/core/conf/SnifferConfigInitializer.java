@@ -34,6 +34,7 @@ import org.apache.skywalking.apm.agent.core.logging.api.ILog;
 import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
 import org.apache.skywalking.apm.agent.core.logging.core.JsonLogResolver;
 import org.apache.skywalking.apm.agent.core.logging.core.PatternLogResolver;
+import org.apache.skywalking.apm.commons.datacarrier.partition.ProducerStripedPartitioner;
 import org.apache.skywalking.apm.util.ConfigInitializer;
 import org.apache.skywalking.apm.util.PropertyPlaceholderHelper;
 import org.apache.skywalking.apm.util.StringUtil;
@@ -109,6 +110,11 @@ public class SnifferConfigInitializer {
             );
             Config.Plugin.PEER_MAX_LENGTH = 200;
         }
+        if (Config.Buffer.CHANNEL_SIZE <= 0) {
+            Config.Buffer.CHANNEL_SIZE = ProducerStripedPartitioner.recommendChannelSize();
+            LOGGER.info(
+                "Buffer channel size is set to the number of available processors: {}.", Config.Buffer.CHANNEL_SIZE);
+        }
 
         IS_INIT_COMPLETED = true;
     }
@@ -22,7 +22,6 @@ import java.io.Serializable;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
-import org.apache.skywalking.apm.agent.core.base64.Base64;
 import org.apache.skywalking.apm.agent.core.conf.Constants;
 import org.apache.skywalking.apm.util.StringUtil;
 
@@ -59,6 +58,12 @@ public class ContextCarrier implements Serializable {
      */
     @Getter
     private String addressUsedAtClient;
+    /**
+     * The sample flag. False means the upstream context is recorded, but not decided to be kept yet, by the tail
+     * sampling.
+     */
+    @Getter
+    private boolean sampled = true;
     /**
      * The extension context contains the optional context to enhance the analysis in some certain scenarios.
      */
@@ -113,17 +118,7 @@ public class ContextCarrier implements Serializable {
      */
     String serialize(HeaderVersion version) {
         if (this.isValid(version)) {
-            return StringUtil.join(
-                '-',
-                "1",
-                Base64.encode(this.getTraceId()),
-                Base64.encode(this.getTraceSegmentId()),
-                this.getSpanId() + "",
-                Base64.encode(this.getParentService()),
-                Base64.encode(this.getParentServiceInstance()),
-                Base64.encode(this.getParentEndpoint()),
-                Base64.encode(this.getAddressUsedAtClient())
-            );
+            return SW8HeaderCodec.encode(this);
         }
         return "";
     }
@@ -138,21 +133,7 @@ public class ContextCarrier implements Serializable {
             return this;
         }
         if (HeaderVersion.v3.equals(version)) {
-            String[] parts = text.split("-", 8);
-            if (parts.length == 8) {
-                try {
-                    // parts[0] is sample flag, always trace if header exists.
-                    this.traceId = Base64.decode2UTFString(parts[1]);
-                    this.traceSegmentId = Base64.decode2UTFString(parts[2]);
-                    this.spanId = Integer.parseInt(parts[3]);
-                    this.parentService = Base64.decode2UTFString(parts[4]);
-                    this.parentServiceInstance = Base64.decode2UTFString(parts[5]);
-                    this.parentEndpoint = Base64.decode2UTFString(parts[6]);
-                    this.addressUsedAtClient = Base64.decode2UTFString(parts[7]);
-                } catch (IllegalArgumentException ignored) {
-
-                }
-            }
+            SW8HeaderCodec.decode(text, this);
         }
         return this;
     }
@@ -21,6 +21,7 @@ package org.apache.skywalking.apm.agent.core.context;
 import java.util.Objects;
 import org.apache.skywalking.apm.agent.core.boot.BootService;
 import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
+import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.context.trace.AbstractSpan;
 import org.apache.skywalking.apm.agent.core.context.trace.TraceSegment;
 import org.apache.skywalking.apm.agent.core.logging.api.ILog;
@@ -98,9 +99,13 @@ public class ContextManager implements BootService {
         AbstractTracerContext context;
         operationName = StringUtil.cut(operationName, OPERATION_NAME_THRESHOLD);
         if (carrier != null && carrier.isValid()) {
-            SamplingService samplingService = ServiceManager.INSTANCE.findService(SamplingService.class);
-            samplingService.forceSampled();
-            context = getOrCreate(operationName, true);
+            // The upstream undecided by the tail sampling doesn't force sampling.
+            boolean forceSampling = carrier.isSampled() || !Config.TailSampling.ACTIVE;
+            if (forceSampling) {
+                SamplingService samplingService = ServiceManager.INSTANCE.findService(SamplingService.class);
+                samplingService.forceSampled();
+            }
+            context = getOrCreate(operationName, forceSampling);
             span = context.createEntrySpan(operationName);
             context.extract(carrier);
         } else {
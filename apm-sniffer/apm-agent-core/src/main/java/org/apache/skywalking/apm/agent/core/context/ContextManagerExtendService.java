@@ -89,6 +89,8 @@ public class ContextManagerExtendService implements BootService, GRPCChannelList
             SamplingService samplingService = ServiceManager.INSTANCE.findService(SamplingService.class);
             if (forceSampling || samplingService.trySampling(operationName)) {
                 context = new TracingContext(operationName, spanLimitWatcher);
+            } else if (Config.TailSampling.ACTIVE) {
+                context = new TracingContext(operationName, spanLimitWatcher, false);
             } else {
                 context = new IgnoredTracerContext();
             }
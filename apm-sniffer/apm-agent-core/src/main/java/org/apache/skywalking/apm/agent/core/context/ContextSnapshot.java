@@ -18,7 +18,9 @@
 
 package org.apache.skywalking.apm.agent.core.context;
 
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.Setter;
 import org.apache.skywalking.apm.agent.core.context.ids.DistributedTraceId;
 
 /**
@@ -34,6 +36,12 @@ public class ContextSnapshot {
 
     private CorrelationContext correlationContext;
     private ExtensionContext extensionContext;
+    /**
+     * The sample flag. False means the parent context is recorded, but not decided to be kept yet, by the tail
+     * sampling.
+     */
+    @Setter(AccessLevel.PACKAGE)
+    private boolean sampled = true;
 
     ContextSnapshot(String traceSegmentId,
                     int spanId,
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.skywalking.apm.agent.core.base64.Base64;
+
+/**
+ * Encode and decode the sw8 header value in a single pass, through the reusable per-thread buffers.
+ * <p>
+ * The parent service, instance and endpoint are the same in most of the headers one agent sends or receives, so their
+ * Base64 forms and decoded strings are cached, rather than being encoded or decoded every time.
+ */
+final class SW8HeaderCodec {
+    private static final char SEPARATOR = '-';
+    private static final int PARTS = 8;
+    private static final int MAX_CACHED_ENDPOINTS = 1000;
+    /**
+     * The buffer grown over this size is released after use, rather than being retained by the thread.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 4096;
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private static final EncodedCache SERVICE_ENCODED = new EncodedCache();
+    private static final EncodedCache INSTANCE_ENCODED = new EncodedCache();
+    private static final Map<String, char[]> ENDPOINT_ENCODED = new ConcurrentHashMap<>();
+
+    private static final DecodedCache SERVICE_DECODED = new DecodedCache();
+    private static final DecodedCache INSTANCE_DECODED = new DecodedCache();
+
+    private SW8HeaderCodec() {
+    }
+
+    /**
+     * The equivalent of joining the sample flag, and the Base64 of traceId, segmentId, spanId, parentService,
+     * parentServiceInstance, parentEndpoint and addressUsedAtClient with '-'.
+     */
+    static String encode(ContextCarrier carrier) {
+        final String traceId = carrier.getTraceId();
+        final String segmentId = carrier.getTraceSegmentId();
+        final int spanId = carrier.getSpanId();
+        final char[] service = SERVICE_ENCODED.get(carrier.getParentService());
+        final char[] instance = INSTANCE_ENCODED.get(carrier.getParentServiceInstance());
+        final char[] endpoint = encodeEndpoint(carrier.getParentEndpoint());
+        final String address = carrier.getAddressUsedAtClient();
+
+        final int length = 1 + PARTS - 1
+            + Base64.encodedLength(traceId)
+            + Base64.encodedLength(segmentId)
+            + digits(spanId)
+            + service.length
+            + instance.length
+            + endpoint.length
+            + Base64.encodedLength(address);
+
+        final Buffers buffers = BUFFERS.get();
+        final char[] buffer = buffers.chars(length);
+        int position = 0;
+        buffer[position++] = carrier.isSampled() ? '1' : '0';
+        buffer[position++] = SEPARATOR;
+        position = Base64.encode(traceId, buffer, position);
+        buffer[position++] = SEPARATOR;
+        position = Base64.encode(segmentId, buffer, position);
+        buffer[position++] = SEPARATOR;
+        position = writeDigits(spanId, buffer, position);
+        buffer[position++] = SEPARATOR;
+        position = append(service, buffer, position);
+        buffer[position++] = SEPARATOR;
+        position = append(instance, buffer, position);
+        buffer[position++] = SEPARATOR;
+        position = append(endpoint, buffer, position);
+        buffer[position++] = SEPARATOR;
+        position = Base64.encode(address, buffer, position);
+
+        final String value = new String(buffer, 0, position);
+        buffers.release();
+        return value;
+    }
+
+    /**
+     * Decode the v3 header value into the carrier. The carrier is untouched when the value is malformed.
+     */
+    static void decode(String text, ContextCarrier carrier) {
+        final int[] separators = BUFFERS.get().separators;
+        int found = 0;
+        int index = text.indexOf(SEPARATOR);
+        while (index >= 0 && found < PARTS - 1) {
+            separators[found++] = index;
+            index = text.indexOf(SEPARATOR, index + 1);
+        }
+        if (found < PARTS - 1) {
+            return;
+        }
+        try {
+            // The first part is sample flag, 0 means the upstream may drop the trace.
+            final boolean sampled = separators[0] != 1 || text.charAt(0) != '0';
+            final String traceId = decode(text, separators[0] + 1, separators[1]);
+            final String segmentId = decode(text, separators[1] + 1, separators[2]);
+            final int spanId = parseSpanId(text, separators[2] + 1, separators[3]);
+            final String service = SERVICE_DECODED.get(text, separators[3] + 1, separators[4]);
+            final String instance = INSTANCE_DECODED.get(text, separators[4] + 1, separators[5]);
+            final String endpoint = decode(text, separators[5] + 1, separators[6]);
+            final String address = decode(text, separators[6] + 1, text.length());
+
+            carrier.setTraceId(traceId);
+            carrier.setTraceSegmentId(segmentId);
+            carrier.setSpanId(spanId);
+            carrier.setParentService(service);
+            carrier.setParentServiceInstance(instance);
+            carrier.setParentEndpoint(endpoint);
+            carrier.setAddressUsedAtClient(address);
+            carrier.setSampled(sampled);
+        } catch (IllegalArgumentException ignored) {
+        } finally {
+            BUFFERS.get().release();
+        }
+    }
+
+    /**
+     * The equivalent of joining the Base64 of every key and value, as key:value, with ','.
+     */
+    static String encodeCorrelation(Map<String, String> data) {
+        int length = data.size() * 2 - 1;
+        for (Map.Entry<String, String> entry : data.entrySet()) {
+            length += Base64.encodedLength(entry.getKey()) + Base64.encodedLength(entry.getValue());
+        }
+
+        final Buffers buffers = BUFFERS.get();
+        final char[] buffer = buffers.chars(length);
+        int position = 0;
+        for (Map.Entry<String, String> entry : data.entrySet()) {
+            if (position > 0) {
+                buffer[position++] = ',';
+            }
+            position = Base64.encode(entry.getKey(), buffer, position);
+            buffer[position++] = ':';
+            position = Base64.encode(entry.getValue(), buffer, position);
+        }
+
+        final String value = new String(buffer, 0, position);
+        buffers.release();
+        return value;
+    }
+
+    private static String decode(String text, int start, int end) {
+        final byte[] buffer = BUFFERS.get().bytes(Base64.decodedMaxLength(end - start));
+        final int length = Base64.decode(text, start, end, buffer);
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static char[] encodeEndpoint(String endpoint) {
+        char[] encoded = ENDPOINT_ENCODED.get(endpoint);
+        if (encoded == null) {
+            encoded = encode(endpoint);
+            if (ENDPOINT_ENCODED.size() < MAX_CACHED_ENDPOINTS) {
+                ENDPOINT_ENCODED.put(endpoint, encoded);
+            }
+        }
+        return encoded;
+    }
+
+    private static char[] encode(String text) {
+        final char[] encoded = new char[Base64.encodedLength(text)];
+        Base64.encode(text, encoded, 0);
+        return encoded;
+    }
+
+    private static int append(char[] source, char[] target, int offset) {
+        System.arraycopy(source, 0, target, offset, source.length);
+        return offset + source.length;
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static int writeDigits(int value, char[] target, int offset) {
+        final int end = offset + digits(value);
+        int position = end;
+        do {
+            target[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        while (value > 0);
+        return end;
+    }
+
+    /**
+     * The span id is never negative in a valid header, so the digits only.
+     *
+     * @throws NumberFormatException if the text is not a non-negative int.
+     */
+    private static int parseSpanId(String text, int start, int end) {
+        if (start == end || end - start > 10) {
+            throw new NumberFormatException("Illegal span id: " + text.substring(start, end));
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Illegal span id: " + text.substring(start, end));
+            }
+            value = value * 10 + (c - '0');
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Illegal span id: " + text.substring(start, end));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Keep the Base64 form of the last encoded text.
+     */
+    private static class EncodedCache {
+        private volatile Entry last = new Entry("", new char[0]);
+
+        char[] get(String text) {
+            final Entry entry = last;
+            if (entry.text.equals(text)) {
+                return entry.encoded;
+            }
+            final char[] encoded = encode(text);
+            last = new Entry(text, encoded);
+            return encoded;
+        }
+
+        private static class Entry {
+            private final String text;
+            private final char[] encoded;
+
+            private Entry(String text, char[] encoded) {
+                this.text = text;
+                this.encoded = encoded;
+            }
+        }
+    }
+
+    /**
+     * Keep the decoded string of the last decoded Base64 text.
+     */
+    private static class DecodedCache {
+        private volatile Entry last = new Entry("", "");
+
+        String get(String text, int start, int end) {
+            final Entry entry = last;
+            final int length = end - start;
+            if (entry.encoded.length() == length && entry.encoded.regionMatches(0, text, start, length)) {
+                return entry.decoded;
+            }
+            final String decoded = decode(text, start, end);
+            last = new Entry(text.substring(start, end), decoded);
+            return decoded;
+        }
+
+        private static class Entry {
+            private final String encoded;
+            private final String decoded;
+
+            private Entry(String encoded, String decoded) {
+                this.encoded = encoded;
+                this.decoded = decoded;
+            }
+        }
+    }
+
+    private static class Buffers {
+        private final int[] separators = new int[PARTS - 1];
+        private char[] chars = new char[256];
+        private byte[] bytes = new byte[256];
+
+        char[] chars(int length) {
+            if (chars.length < length) {
+                chars = new char[length];
+            }
+            return chars;
+        }
+
+        byte[] bytes(int length) {
+            if (bytes.length < length) {
+                bytes = new byte[length];
+            }
+            return bytes;
+        }
+
+        void release() {
+            if (chars.length > MAX_RETAINED_BUFFER_SIZE) {
+                chars = new char[256];
+            }
+            if (bytes.length > MAX_RETAINED_BUFFER_SIZE) {
+                bytes = new byte[256];
+            }
+        }
+    }
+}
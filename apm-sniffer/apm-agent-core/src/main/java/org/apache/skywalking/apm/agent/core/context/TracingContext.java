@@ -18,6 +18,7 @@
 
 package org.apache.skywalking.apm.agent.core.context;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
@@ -43,6 +44,7 @@ import org.apache.skywalking.apm.agent.core.logging.api.ILog;
 import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
 import org.apache.skywalking.apm.agent.core.profile.ProfileStatusReference;
 import org.apache.skywalking.apm.agent.core.profile.ProfileTaskExecutionService;
+import org.apache.skywalking.apm.agent.core.sampling.TailSamplingService;
 import org.apache.skywalking.apm.util.StringUtil;
 
 /**
@@ -71,11 +73,21 @@ public class TracingContext implements AbstractTracerContext {
     private TraceSegment segment;
 
     /**
-     * Active spans stored in a Stack, usually called 'ActiveSpanStack'. This {@link LinkedList} is the in-memory
-     * storage-structure. <p> I use {@link LinkedList#removeLast()}, {@link LinkedList#addLast(Object)} and {@link
-     * LinkedList#getLast()} instead of {@link #pop()}, {@link #push(AbstractSpan)}, {@link #peek()}
+     * The depth of 'ActiveSpanStack' and the count of spans of the recent finished contexts, as the initial capacity of
+     * {@link #activeSpanStack} and the spans of {@link #segment}. They are updated without synchronization, as only
+     * estimations.
      */
-    private LinkedList<AbstractSpan> activeSpanStack = new LinkedList<>();
+    private static volatile int ESTIMATED_STACK_DEPTH = 8;
+    private static volatile int ESTIMATED_SPAN_COUNT = 8;
+
+    /**
+     * Active spans stored in a Stack, usually called 'ActiveSpanStack'. This array is the in-memory storage-structure,
+     * grown on demand, to avoid allocating a node per span. <p> Use {@link #pop()}, {@link #push(AbstractSpan)}, {@link
+     * #peek()} to operate it.
+     */
+    private AbstractSpan[] activeSpanStack = new AbstractSpan[ESTIMATED_STACK_DEPTH];
+    private int activeSpanStackDepth = 0;
+    private int maxActiveSpanStackDepth = 0;
     /**
      * @since 7.0.0 SkyWalking support lazy injection through {@link ExitTypeSpan#inject(ContextCarrier)}. Due to that,
      * the {@link #activeSpanStack} could be blank by then, this is a pointer forever to the first span, even the main
@@ -114,11 +126,25 @@ public class TracingContext implements AbstractTracerContext {
     //CDS watcher
     private final SpanLimitWatcher spanLimitWatcher;
 
+    /**
+     * False if this context is recorded for {@link TailSamplingService} without being sampled, which is decided when
+     * finished, unless a sampled carrier is extracted.
+     */
+    private boolean sampled;
+
     /**
      * Initialize all fields with default value.
      */
     TracingContext(String firstOPName, SpanLimitWatcher spanLimitWatcher) {
-        this.segment = new TraceSegment();
+        this(firstOPName, spanLimitWatcher, true);
+    }
+
+    /**
+     * @param sampled false if this context is recorded for {@link TailSamplingService} only.
+     */
+    TracingContext(String firstOPName, SpanLimitWatcher spanLimitWatcher, boolean sampled) {
+        this.sampled = sampled;
+        this.segment = new TraceSegment(ESTIMATED_SPAN_COUNT);
         this.spanIdGenerator = 0;
         isRunningInAsyncMode = false;
         createTime = System.currentTimeMillis();
@@ -128,8 +154,7 @@ public class TracingContext implements AbstractTracerContext {
         if (PROFILE_TASK_EXECUTION_SERVICE == null) {
             PROFILE_TASK_EXECUTION_SERVICE = ServiceManager.INSTANCE.findService(ProfileTaskExecutionService.class);
         }
-        this.profileStatus = PROFILE_TASK_EXECUTION_SERVICE.addProfiling(
-            this, segment.getTraceSegmentId(), firstOPName);
+        this.profileStatus = PROFILE_TASK_EXECUTION_SERVICE.addProfiling(this, firstOPName);
 
         this.correlationContext = new CorrelationContext();
         this.extensionContext = new ExtensionContext();
@@ -175,6 +200,7 @@ public class TracingContext implements AbstractTracerContext {
         carrier.setParentServiceInstance(Config.Agent.INSTANCE_NAME);
         carrier.setParentEndpoint(first().getOperationName());
         carrier.setAddressUsedAtClient(peer);
+        carrier.setSampled(sampled);
 
         this.correlationContext.inject(carrier);
         this.extensionContext.inject(carrier);
@@ -189,6 +215,10 @@ public class TracingContext implements AbstractTracerContext {
     public void extract(ContextCarrier carrier) {
         TraceSegmentRef ref = new TraceSegmentRef(carrier);
         this.segment.ref(ref);
+        if (carrier.isSampled()) {
+            // The upstream keeps the trace, keep this segment too.
+            this.sampled = true;
+        }
         this.segment.relatedGlobalTrace(new PropagatedTraceId(carrier.getTraceId()));
         AbstractSpan span = this.activeSpan();
         if (span instanceof EntrySpan) {
@@ -214,6 +244,7 @@ public class TracingContext implements AbstractTracerContext {
             this.correlationContext,
             this.extensionContext
         );
+        snapshot.setSampled(sampled);
 
         return snapshot;
     }
@@ -230,6 +261,10 @@ public class TracingContext implements AbstractTracerContext {
             this.segment.ref(segmentRef);
             this.activeSpan().ref(segmentRef);
             this.segment.relatedGlobalTrace(snapshot.getTraceId());
+            if (snapshot.isSampled()) {
+                // The parent thread keeps the trace, keep this segment too.
+                this.sampled = true;
+            }
             this.correlationContext.continued(snapshot);
             this.extensionContext.continued(snapshot);
             this.extensionContext.handle(this.activeSpan());
@@ -378,7 +413,7 @@ public class TracingContext implements AbstractTracerContext {
 
         finish();
 
-        return activeSpanStack.isEmpty();
+        return activeSpanStackDepth == 0;
     }
 
     @Override
@@ -419,7 +454,7 @@ public class TracingContext implements AbstractTracerContext {
             return;
         }
 
-        PROFILE_TASK_EXECUTION_SERVICE.profilingRecheck(this, segment.getTraceSegmentId(), operationName);
+        PROFILE_TASK_EXECUTION_SERVICE.profilingRecheck(this, operationName);
     }
 
     /**
@@ -431,7 +466,7 @@ public class TracingContext implements AbstractTracerContext {
             asyncFinishLock.lock();
         }
         try {
-            boolean isFinishedInMainThread = activeSpanStack.isEmpty() && running;
+            boolean isFinishedInMainThread = activeSpanStackDepth == 0 && running;
             if (isFinishedInMainThread) {
                 /*
                  * Notify after tracing finished in the main thread.
@@ -441,7 +476,12 @@ public class TracingContext implements AbstractTracerContext {
 
             if (isFinishedInMainThread && (!isRunningInAsyncMode || asyncSpanCounter == 0)) {
                 TraceSegment finishedSegment = segment.finish(isLimitMechanismWorking());
-                TracingContext.ListenerManager.notifyFinish(finishedSegment);
+                updateEstimation(maxActiveSpanStackDepth, Math.min(spanIdGenerator, spanLimitWatcher.getSpanLimit()));
+                if (sampled && !Config.TailSampling.ACTIVE) {
+                    TracingContext.ListenerManager.notifyFinish(finishedSegment);
+                } else {
+                    tailSample(finishedSegment);
+                }
                 running = false;
             }
         } finally {
@@ -451,6 +491,19 @@ public class TracingContext implements AbstractTracerContext {
         }
     }
 
+    /**
+     * Let {@link TailSamplingService} decide whether to report the finished segment, and the held ones of the same
+     * trace.
+     */
+    private void tailSample(TraceSegment finishedSegment) {
+        final TailSamplingService tailSamplingService = ServiceManager.INSTANCE.findService(TailSamplingService.class);
+        final boolean keep = sampled
+            || tailSamplingService.isInteresting(finishedSegment, System.currentTimeMillis() - createTime);
+        for (TraceSegment segment : tailSamplingService.decide(finishedSegment, keep)) {
+            TracingContext.ListenerManager.notifyFinish(segment);
+        }
+    }
+
     /**
      * The <code>ListenerManager</code> represents an event notify for every registered listener, which are notified
      * when the <code>TracingContext</code> finished, and {@link #segment} is ready for further process.
@@ -514,7 +567,9 @@ public class TracingContext implements AbstractTracerContext {
      * @return the top element of 'ActiveSpanStack', and remove it.
      */
     private AbstractSpan pop() {
-        return activeSpanStack.removeLast();
+        AbstractSpan span = activeSpanStack[--activeSpanStackDepth];
+        activeSpanStack[activeSpanStackDepth] = null;
+        return span;
     }
 
     /**
@@ -526,7 +581,13 @@ public class TracingContext implements AbstractTracerContext {
         if (firstSpan == null) {
             firstSpan = span;
         }
-        activeSpanStack.addLast(span);
+        if (activeSpanStackDepth == activeSpanStack.length) {
+            activeSpanStack = Arrays.copyOf(activeSpanStack, activeSpanStack.length << 1);
+        }
+        activeSpanStack[activeSpanStackDepth++] = span;
+        if (activeSpanStackDepth > maxActiveSpanStackDepth) {
+            maxActiveSpanStackDepth = activeSpanStackDepth;
+        }
         this.extensionContext.handle(span);
         return span;
     }
@@ -535,10 +596,27 @@ public class TracingContext implements AbstractTracerContext {
      * @return the top element of 'ActiveSpanStack' only.
      */
     private AbstractSpan peek() {
-        if (activeSpanStack.isEmpty()) {
+        if (activeSpanStackDepth == 0) {
             return null;
         }
-        return activeSpanStack.getLast();
+        return activeSpanStack[activeSpanStackDepth - 1];
+    }
+
+    /**
+     * Move the estimations an eighth of the way towards the finished context. Skip the write if nothing changes, to
+     * avoid contending the shared fields in the steady state.
+     */
+    private static void updateEstimation(int stackDepth, int spanCount) {
+        int estimatedStackDepth = ESTIMATED_STACK_DEPTH;
+        int newStackDepth = Math.max(1, (estimatedStackDepth * 7 + stackDepth + 7) >> 3);
+        if (newStackDepth != estimatedStackDepth) {
+            ESTIMATED_STACK_DEPTH = newStackDepth;
+        }
+        int estimatedSpanCount = ESTIMATED_SPAN_COUNT;
+        int newSpanCount = Math.max(1, (estimatedSpanCount * 7 + spanCount + 7) >> 3);
+        if (newSpanCount != estimatedSpanCount) {
+            ESTIMATED_SPAN_COUNT = newSpanCount;
+        }
     }
 
     private AbstractSpan first() {
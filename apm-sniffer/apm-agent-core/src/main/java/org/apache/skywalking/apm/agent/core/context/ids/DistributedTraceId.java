@@ -18,10 +18,7 @@
 
 package org.apache.skywalking.apm.agent.core.context.ids;
 
-import lombok.EqualsAndHashCode;
-import lombok.Getter;
-import lombok.RequiredArgsConstructor;
-import lombok.ToString;
+import java.util.Objects;
 
 /**
  * The <code>DistributedTraceId</code> presents a distributed call chain.
@@ -31,13 +28,53 @@ import lombok.ToString;
  * such as: Service : http://www.skywalking.com/cust/query, all the remote, called behind this service, rest remote, db
  * executions, are using the same <code>DistributedTraceId</code> even in different JVM.
  * <p>
- * The <code>DistributedTraceId</code> contains only one string, and can NOT be reset, creating a new instance is the
- * only option.
+ * The <code>DistributedTraceId</code> contains only one id, a string or a {@link GlobalId}, and can NOT be reset,
+ * creating a new instance is the only option.
  */
-@RequiredArgsConstructor
-@ToString
-@EqualsAndHashCode
 public abstract class DistributedTraceId {
-    @Getter
     private final String id;
+    private final GlobalId globalId;
+
+    public DistributedTraceId(String id) {
+        this.id = id;
+        this.globalId = null;
+    }
+
+    protected DistributedTraceId(GlobalId globalId) {
+        this.id = null;
+        this.globalId = globalId;
+    }
+
+    public String getId() {
+        return id != null ? id : globalId.toString();
+    }
+
+    /**
+     * @return the generated id, or null if this id is propagated.
+     */
+    public GlobalId getGlobalId() {
+        return globalId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DistributedTraceId)) {
+            return false;
+        }
+        return Objects.equals(getId(), ((DistributedTraceId) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        final String id = getId();
+        return 59 + (id == null ? 43 : id.hashCode());
+    }
+
+    @Override
+    public String toString() {
+        return "DistributedTraceId(id=" + getId() + ")";
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.ids;
+
+/**
+ * The id generated by {@link GlobalIdGenerator}. In the compact mode, it is two longs, formatted as 32 lower case hex
+ * chars when {@link #toString()} is called the first time. Otherwise, it is the string generated already.
+ */
+public final class GlobalId {
+    /**
+     * The length of the formatted compact id.
+     */
+    public static final int COMPACT_LENGTH = 32;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<char[]> FORMAT_BUFFER = ThreadLocal.withInitial(() -> new char[COMPACT_LENGTH]);
+
+    private final long high;
+    private final long low;
+    private final boolean compact;
+    private String text;
+
+    GlobalId(long high, long low) {
+        this.high = high;
+        this.low = low;
+        this.compact = true;
+    }
+
+    GlobalId(String text) {
+        this.high = 0;
+        this.low = 0;
+        this.compact = false;
+        this.text = text;
+    }
+
+    /**
+     * @return true if this id is two longs, generated in the compact mode.
+     */
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * Write the formatted id as ASCII bytes, without formatting it as a string. Only available in the compact mode.
+     *
+     * @return the offset after the written bytes.
+     */
+    public int writeTo(byte[] target, int offset) {
+        for (int i = 0; i < 16; i++) {
+            target[offset + i] = (byte) HEX[(int) (high >>> (60 - i * 4)) & 0xF];
+            target[offset + 16 + i] = (byte) HEX[(int) (low >>> (60 - i * 4)) & 0xF];
+        }
+        return offset + COMPACT_LENGTH;
+    }
+
+    @Override
+    public String toString() {
+        String text = this.text;
+        if (text == null) {
+            final char[] buffer = FORMAT_BUFFER.get();
+            for (int i = 0; i < 16; i++) {
+                buffer[i] = HEX[(int) (high >>> (60 - i * 4)) & 0xF];
+                buffer[16 + i] = HEX[(int) (low >>> (60 - i * 4)) & 0xF];
+            }
+            text = new String(buffer);
+            // Racing threads format the same text.
+            this.text = text;
+        }
+        return text;
+    }
+}
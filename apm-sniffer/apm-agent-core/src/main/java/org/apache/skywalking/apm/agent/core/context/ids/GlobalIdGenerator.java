@@ -20,10 +20,13 @@ package org.apache.skywalking.apm.agent.core.context.ids;
 
 import java.util.UUID;
 
+import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.util.StringUtil;
 
 public final class GlobalIdGenerator {
-    private static final String PROCESS_ID = UUID.randomUUID().toString().replaceAll("-", "");
+    private static final UUID PROCESS_UUID = UUID.randomUUID();
+    private static final String PROCESS_ID = PROCESS_UUID.toString().replaceAll("-", "");
+    private static final long PROCESS_HASH = PROCESS_UUID.getMostSignificantBits() ^ PROCESS_UUID.getLeastSignificantBits();
     private static final ThreadLocal<IDContext> THREAD_ID_SEQUENCE = ThreadLocal.withInitial(
         () -> new IDContext(System.currentTimeMillis(), (short) 0));
 
@@ -43,12 +46,31 @@ public final class GlobalIdGenerator {
      * @return unique id to represent a trace or segment
      */
     public static String generate() {
-        return StringUtil.join(
+        return generateId().toString();
+    }
+
+    /**
+     * Generate a new id, the same as {@link #generate()}, unless {@link Config.Agent#COMPACT_GLOBAL_ID} is true.
+     * <p>
+     * In the compact mode, the id is two longs, without any string until it is read. The first one is the process
+     * hash plus the thread id, which is unique among the threads. The second one is the timestamp, measured in
+     * milliseconds, shifted by 14 bits, plus the seq in the current thread, between 0(included) and 9999(included).
+     *
+     * @return unique id to represent a trace or segment
+     */
+    public static GlobalId generateId() {
+        if (Config.Agent.COMPACT_GLOBAL_ID) {
+            return new GlobalId(
+                PROCESS_HASH + Thread.currentThread().getId(),
+                THREAD_ID_SEQUENCE.get().nextCompactSeq()
+            );
+        }
+        return new GlobalId(StringUtil.join(
             '.',
             PROCESS_ID,
             String.valueOf(Thread.currentThread().getId()),
             String.valueOf(THREAD_ID_SEQUENCE.get().nextSeq())
-        );
+        ));
     }
 
     private static class IDContext {
@@ -68,6 +90,10 @@ public final class GlobalIdGenerator {
             return timestamp() * 10000 + nextThreadSeq();
         }
 
+        private long nextCompactSeq() {
+            return timestamp() << 14 | nextThreadSeq();
+        }
+
         private long timestamp() {
             long currentTimeMillis = System.currentTimeMillis();
 
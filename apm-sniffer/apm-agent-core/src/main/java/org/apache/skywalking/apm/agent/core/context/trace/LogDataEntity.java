@@ -41,6 +41,10 @@ public class LogDataEntity {
         return logs;
     }
 
+    public long getTimestamp() {
+        return timestamp;
+    }
+
     public static class Builder {
         protected List<KeyValuePair> logs;
 
@@ -18,10 +18,11 @@
 
 package org.apache.skywalking.apm.agent.core.context.trace;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.context.ids.DistributedTraceId;
+import org.apache.skywalking.apm.agent.core.context.ids.GlobalId;
 import org.apache.skywalking.apm.agent.core.context.ids.GlobalIdGenerator;
 import org.apache.skywalking.apm.agent.core.context.ids.NewDistributedTraceId;
 import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
@@ -35,7 +36,7 @@ public class TraceSegment {
     /**
      * The id of this trace segment. Every segment has its unique-global-id.
      */
-    private String traceSegmentId;
+    private final GlobalId traceSegmentId;
 
     /**
      * The refs of parent trace segments, except the primary one. For most RPC call, {@link #ref} contains only one
@@ -69,8 +70,17 @@ public class TraceSegment {
      * Create a default/empty trace segment, with current time as start time, and generate a new segment id.
      */
     public TraceSegment() {
-        this.traceSegmentId = GlobalIdGenerator.generate();
-        this.spans = new LinkedList<>();
+        this(10);
+    }
+
+    /**
+     * Create a default/empty trace segment, with current time as start time, and generate a new segment id.
+     *
+     * @param expectedSpanCount the initial capacity of the finished spans.
+     */
+    public TraceSegment(int expectedSpanCount) {
+        this.traceSegmentId = GlobalIdGenerator.generateId();
+        this.spans = new ArrayList<>(expectedSpanCount);
         this.relatedGlobalTraceId = new NewDistributedTraceId();
         this.createTime = System.currentTimeMillis();
     }
@@ -112,6 +122,10 @@ public class TraceSegment {
     }
 
     public String getTraceSegmentId() {
+        return traceSegmentId.toString();
+    }
+
+    GlobalId traceSegmentId() {
         return traceSegmentId;
     }
 
@@ -126,6 +140,50 @@ public class TraceSegment {
         return relatedGlobalTraceId;
     }
 
+    List<AbstractTracingSpan> spans() {
+        return spans;
+    }
+
+    /**
+     * @return true if any finished span is in error status.
+     */
+    public boolean isErrorOccurred() {
+        for (int i = 0; i < spans.size(); i++) {
+            if (spans.get(i).errorOccurred) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Estimate the retained size of the finished spans roughly, by the count of spans, tags, logs and refs, rather than
+     * walking through the strings.
+     *
+     * @return the estimated size in bytes.
+     */
+    public long estimateSize() {
+        long size = 128;
+        for (int i = 0; i < spans.size(); i++) {
+            final AbstractTracingSpan span = spans.get(i);
+            size += 256;
+            if (span.tags != null) {
+                size += span.tags.size() * 96L;
+            }
+            if (span.logs != null) {
+                size += span.logs.size() * 512L;
+            }
+            if (span.refs != null) {
+                size += span.refs.size() * 256L;
+            }
+        }
+        return size;
+    }
+
+    boolean isSizeLimited() {
+        return isSizeLimited;
+    }
+
     public boolean isSingleSpanSegment() {
         return this.spans != null && this.spans.size() == 1;
     }
@@ -139,7 +197,8 @@ public class TraceSegment {
     }
 
     /**
-     * This is a high CPU cost method, only called when sending to collector or test cases.
+     * This is a high CPU cost method, only called in test cases. The reporters use {@link TraceSegmentSerializer} to
+     * get the same bytes without building the message.
      *
      * @return the segment as GRPC service parameter
      */
@@ -149,7 +208,7 @@ public class TraceSegment {
         /*
          * Trace Segment
          */
-        traceSegmentBuilder.setTraceSegmentId(this.traceSegmentId);
+        traceSegmentBuilder.setTraceSegmentId(getTraceSegmentId());
         // Don't serialize TraceSegmentReference
 
         // SpanObject
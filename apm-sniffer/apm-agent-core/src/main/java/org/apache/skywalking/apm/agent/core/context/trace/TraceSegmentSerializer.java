@@ -0,0 +1,326 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.trace;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.context.ids.DistributedTraceId;
+import org.apache.skywalking.apm.agent.core.context.ids.GlobalId;
+import org.apache.skywalking.apm.agent.core.context.util.KeyValuePair;
+import org.apache.skywalking.apm.agent.core.context.util.TagValuePair;
+import org.apache.skywalking.apm.agent.core.dictionary.DictionaryUtil;
+import org.apache.skywalking.apm.network.language.agent.v3.RefType;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanType;
+
+/**
+ * Serialize the finished {@link TraceSegment} into the wire format of {@link SegmentObject} directly, without building
+ * the {@link TraceSegment#transform()} message graph. The output is the same as {@code transform().toByteArray()}.
+ * <p>
+ * The sizes of the spans are computed once into a reused array, then the segment is written into a byte array of the
+ * exact size. This is not thread safe, every consumer thread should hold its own instance.
+ */
+public class TraceSegmentSerializer {
+    private static final int LENGTH_DELIMITED = WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+    private int[] spanSizes = new int[16];
+    private final byte[] idBuffer = new byte[GlobalId.COMPACT_LENGTH];
+
+    /**
+     * @return the serialized {@link SegmentObject} of the segment.
+     */
+    public byte[] serialize(TraceSegment segment) {
+        final List<AbstractTracingSpan> spans = segment.spans();
+        if (spanSizes.length < spans.size()) {
+            spanSizes = Arrays.copyOf(spanSizes, Math.max(spans.size(), spanSizes.length << 1));
+        }
+
+        final DistributedTraceId traceId = segment.getRelatedGlobalTrace();
+        final GlobalId segmentId = segment.traceSegmentId();
+        int size = computeIdSize(1, traceId) + computeIdSize(2, segmentId);
+        for (int i = 0; i < spans.size(); i++) {
+            int spanSize = computeSpanSize(spans.get(i));
+            spanSizes[i] = spanSize;
+            size += CodedOutputStream.computeTagSize(3) + CodedOutputStream.computeUInt32SizeNoTag(spanSize) + spanSize;
+        }
+        size += computeStringSize(4, Config.Agent.SERVICE_NAME);
+        size += computeStringSize(5, Config.Agent.INSTANCE_NAME);
+        if (segment.isSizeLimited()) {
+            size += CodedOutputStream.computeBoolSize(6, true);
+        }
+
+        final byte[] result = new byte[size];
+        final CodedOutputStream output = CodedOutputStream.newInstance(result);
+        try {
+            writeId(output, 1, traceId);
+            writeId(output, 2, segmentId);
+            for (int i = 0; i < spans.size(); i++) {
+                output.writeTag(3, LENGTH_DELIMITED);
+                output.writeUInt32NoTag(spanSizes[i]);
+                writeSpan(output, spans.get(i));
+            }
+            writeString(output, 4, Config.Agent.SERVICE_NAME);
+            writeString(output, 5, Config.Agent.INSTANCE_NAME);
+            if (segment.isSizeLimited()) {
+                output.writeBool(6, true);
+            }
+            output.checkNoSpaceLeft();
+        } catch (IOException e) {
+            // Writing into an array of the computed size never fails, except a wrong size.
+            throw new IllegalStateException("Serialize trace segment " + segment.getTraceSegmentId() + " fail.", e);
+        }
+        return result;
+    }
+
+    private static int computeSpanSize(AbstractTracingSpan span) {
+        int size = 0;
+        if (span.spanId != 0) {
+            size += CodedOutputStream.computeInt32Size(1, span.spanId);
+        }
+        if (span.parentSpanId != 0) {
+            size += CodedOutputStream.computeInt32Size(2, span.parentSpanId);
+        }
+        if (span.startTime != 0) {
+            size += CodedOutputStream.computeInt64Size(3, span.startTime);
+        }
+        if (span.endTime != 0) {
+            size += CodedOutputStream.computeInt64Size(4, span.endTime);
+        }
+        if (span.refs != null) {
+            for (TraceSegmentRef ref : span.refs) {
+                size += computeMessageSize(5, computeRefSize(ref));
+            }
+        }
+        size += computeStringSize(6, span.operationName);
+        size += computeStringSize(7, peerOf(span));
+        int spanType = spanTypeOf(span);
+        if (spanType != 0) {
+            size += CodedOutputStream.computeEnumSize(8, spanType);
+        }
+        if (span.layer != null && span.layer.getCode() != 0) {
+            size += CodedOutputStream.computeEnumSize(9, span.layer.getCode());
+        }
+        if (span.componentId != DictionaryUtil.nullValue()) {
+            size += CodedOutputStream.computeInt32Size(10, span.componentId);
+        }
+        if (span.errorOccurred) {
+            size += CodedOutputStream.computeBoolSize(11, true);
+        }
+        if (span.tags != null) {
+            for (TagValuePair tag : span.tags) {
+                size += computeMessageSize(12, computeKeyValueSize(tag.getKey().key(), tag.getValue()));
+            }
+        }
+        if (span.logs != null) {
+            for (LogDataEntity log : span.logs) {
+                size += computeMessageSize(13, computeLogSize(log));
+            }
+        }
+        if (span.skipAnalysis) {
+            size += CodedOutputStream.computeBoolSize(14, true);
+        }
+        return size;
+    }
+
+    private static void writeSpan(CodedOutputStream output, AbstractTracingSpan span) throws IOException {
+        if (span.spanId != 0) {
+            output.writeInt32(1, span.spanId);
+        }
+        if (span.parentSpanId != 0) {
+            output.writeInt32(2, span.parentSpanId);
+        }
+        if (span.startTime != 0) {
+            output.writeInt64(3, span.startTime);
+        }
+        if (span.endTime != 0) {
+            output.writeInt64(4, span.endTime);
+        }
+        if (span.refs != null) {
+            for (TraceSegmentRef ref : span.refs) {
+                output.writeTag(5, LENGTH_DELIMITED);
+                output.writeUInt32NoTag(computeRefSize(ref));
+                writeRef(output, ref);
+            }
+        }
+        writeString(output, 6, span.operationName);
+        writeString(output, 7, peerOf(span));
+        int spanType = spanTypeOf(span);
+        if (spanType != 0) {
+            output.writeEnum(8, spanType);
+        }
+        if (span.layer != null && span.layer.getCode() != 0) {
+            output.writeEnum(9, span.layer.getCode());
+        }
+        if (span.componentId != DictionaryUtil.nullValue()) {
+            output.writeInt32(10, span.componentId);
+        }
+        if (span.errorOccurred) {
+            output.writeBool(11, true);
+        }
+        if (span.tags != null) {
+            for (TagValuePair tag : span.tags) {
+                writeKeyValue(output, 12, tag.getKey().key(), tag.getValue());
+            }
+        }
+        if (span.logs != null) {
+            for (LogDataEntity log : span.logs) {
+                output.writeTag(13, LENGTH_DELIMITED);
+                output.writeUInt32NoTag(computeLogSize(log));
+                if (log.getTimestamp() != 0) {
+                    output.writeInt64(1, log.getTimestamp());
+                }
+                for (KeyValuePair data : log.getLogs()) {
+                    writeKeyValue(output, 2, data.getKey(), data.getValue());
+                }
+            }
+        }
+        if (span.skipAnalysis) {
+            output.writeBool(14, true);
+        }
+    }
+
+    private static int computeRefSize(TraceSegmentRef ref) {
+        int size = 0;
+        if (TraceSegmentRef.SegmentRefType.CROSS_THREAD.equals(ref.getType())) {
+            size += CodedOutputStream.computeEnumSize(1, RefType.CrossThread_VALUE);
+        }
+        size += computeStringSize(2, ref.getTraceId());
+        size += computeStringSize(3, ref.getTraceSegmentId());
+        if (ref.getSpanId() != 0) {
+            size += CodedOutputStream.computeInt32Size(4, ref.getSpanId());
+        }
+        size += computeStringSize(5, ref.getParentService());
+        size += computeStringSize(6, ref.getParentServiceInstance());
+        size += computeStringSize(7, ref.getParentEndpoint());
+        size += computeStringSize(8, ref.getAddressUsedAtClient());
+        return size;
+    }
+
+    private static void writeRef(CodedOutputStream output, TraceSegmentRef ref) throws IOException {
+        if (TraceSegmentRef.SegmentRefType.CROSS_THREAD.equals(ref.getType())) {
+            output.writeEnum(1, RefType.CrossThread_VALUE);
+        }
+        writeString(output, 2, ref.getTraceId());
+        writeString(output, 3, ref.getTraceSegmentId());
+        if (ref.getSpanId() != 0) {
+            output.writeInt32(4, ref.getSpanId());
+        }
+        writeString(output, 5, ref.getParentService());
+        writeString(output, 6, ref.getParentServiceInstance());
+        writeString(output, 7, ref.getParentEndpoint());
+        writeString(output, 8, ref.getAddressUsedAtClient());
+    }
+
+    private static int computeLogSize(LogDataEntity log) {
+        int size = 0;
+        if (log.getTimestamp() != 0) {
+            size += CodedOutputStream.computeInt64Size(1, log.getTimestamp());
+        }
+        for (KeyValuePair data : log.getLogs()) {
+            size += computeMessageSize(2, computeKeyValueSize(data.getKey(), data.getValue()));
+        }
+        return size;
+    }
+
+    private static int computeKeyValueSize(String key, String value) {
+        return computeStringSize(1, key) + computeStringSize(2, value);
+    }
+
+    private static void writeKeyValue(CodedOutputStream output, int fieldNumber, String key,
+                                      String value) throws IOException {
+        output.writeTag(fieldNumber, LENGTH_DELIMITED);
+        output.writeUInt32NoTag(computeKeyValueSize(key, value));
+        writeString(output, 1, key);
+        writeString(output, 2, value);
+    }
+
+    private static int spanTypeOf(AbstractTracingSpan span) {
+        if (span.isEntry()) {
+            return SpanType.Entry_VALUE;
+        } else if (span.isExit()) {
+            return SpanType.Exit_VALUE;
+        }
+        return SpanType.Local_VALUE;
+    }
+
+    private static String peerOf(AbstractTracingSpan span) {
+        return span instanceof StackBasedTracingSpan ? ((StackBasedTracingSpan) span).peer : null;
+    }
+
+    private static int computeMessageSize(int fieldNumber, int messageSize) {
+        return CodedOutputStream.computeTagSize(fieldNumber) + CodedOutputStream.computeUInt32SizeNoTag(
+            messageSize) + messageSize;
+    }
+
+    /**
+     * The empty string is the default value in proto3, which is not on the wire.
+     */
+    private static int computeIdSize(int fieldNumber, DistributedTraceId id) {
+        final GlobalId globalId = id.getGlobalId();
+        return globalId != null ? computeIdSize(fieldNumber, globalId) : computeStringSize(fieldNumber, id.getId());
+    }
+
+    private static int computeIdSize(int fieldNumber, GlobalId id) {
+        if (id.isCompact()) {
+            return CodedOutputStream.computeTagSize(fieldNumber)
+                + CodedOutputStream.computeUInt32SizeNoTag(GlobalId.COMPACT_LENGTH) + GlobalId.COMPACT_LENGTH;
+        }
+        return computeStringSize(fieldNumber, id.toString());
+    }
+
+    private void writeId(CodedOutputStream output, int fieldNumber, DistributedTraceId id) throws IOException {
+        final GlobalId globalId = id.getGlobalId();
+        if (globalId != null) {
+            writeId(output, fieldNumber, globalId);
+        } else {
+            writeString(output, fieldNumber, id.getId());
+        }
+    }
+
+    /**
+     * Write the compact id as the ASCII bytes of its formatted text, the same wire format of a string, without
+     * formatting the string.
+     */
+    private void writeId(CodedOutputStream output, int fieldNumber, GlobalId id) throws IOException {
+        if (id.isCompact()) {
+            id.writeTo(idBuffer, 0);
+            output.writeByteArray(fieldNumber, idBuffer, 0, GlobalId.COMPACT_LENGTH);
+        } else {
+            writeString(output, fieldNumber, id.toString());
+        }
+    }
+
+    private static int computeStringSize(int fieldNumber, String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        return CodedOutputStream.computeStringSize(fieldNumber, value);
+    }
+
+    private static void writeString(CodedOutputStream output, int fieldNumber, String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        output.writeString(fieldNumber, value);
+    }
+}
@@ -18,8 +18,12 @@
 
 package org.apache.skywalking.apm.agent.core.jvm;
 
+import io.grpc.CallOptions;
 import io.grpc.Channel;
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.ClientCalls;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import org.apache.skywalking.apm.agent.core.boot.BootService;
@@ -32,6 +36,8 @@ import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
 import org.apache.skywalking.apm.agent.core.remote.GRPCChannelListener;
 import org.apache.skywalking.apm.agent.core.remote.GRPCChannelManager;
 import org.apache.skywalking.apm.agent.core.remote.GRPCChannelStatus;
+import org.apache.skywalking.apm.agent.core.remote.SerializedMessageMarshaller;
+import org.apache.skywalking.apm.agent.core.remote.SpillQueue;
 import org.apache.skywalking.apm.network.common.v3.Commands;
 import org.apache.skywalking.apm.network.language.agent.v3.JVMMetric;
 import org.apache.skywalking.apm.network.language.agent.v3.JVMMetricCollection;
@@ -42,11 +48,19 @@ import static org.apache.skywalking.apm.agent.core.conf.Config.Collector.GRPC_UP
 @DefaultImplementor
 public class JVMMetricsSender implements BootService, Runnable, GRPCChannelListener {
     private static final ILog LOGGER = LogManager.getLogger(JVMMetricsSender.class);
+    /**
+     * The same method as {@link JVMMetricReportServiceGrpc#getCollectMethod()}, replaying the spilled collections as
+     * they are.
+     */
+    private static final MethodDescriptor<byte[], Commands> COLLECT_SERIALIZED_METHOD =
+        SerializedMessageMarshaller.serializedMethodOf(JVMMetricReportServiceGrpc.getCollectMethod());
 
     private volatile GRPCChannelStatus status = GRPCChannelStatus.DISCONNECT;
     private volatile JVMMetricReportServiceGrpc.JVMMetricReportServiceBlockingStub stub = null;
+    private volatile Channel channel;
 
     private LinkedBlockingQueue<JVMMetric> queue;
+    private volatile SpillQueue spillQueue;
 
     @Override
     public void prepare() {
@@ -56,7 +70,7 @@ public class JVMMetricsSender implements BootService, Runnable, GRPCChannelListe
 
     @Override
     public void boot() {
-
+        spillQueue = SpillQueue.create("jvm");
     }
 
     public void offer(JVMMetric metric) {
@@ -82,10 +96,59 @@ public class JVMMetricsSender implements BootService, Runnable, GRPCChannelListe
                                             .collect(builder.build());
                     ServiceManager.INSTANCE.findService(CommandService.class).receiveCommand(commands);
                 }
+                replay();
             } catch (Throwable t) {
                 LOGGER.error(t, "send JVM metrics to Collector fail.");
                 ServiceManager.INSTANCE.findService(GRPCChannelManager.class).reportError(t);
             }
+        } else {
+            spill();
+        }
+    }
+
+    /**
+     * Move the buffered metrics into the spill queue, rather than dropping the oldest when the buffer is full.
+     */
+    private void spill() {
+        final SpillQueue spillQueue = this.spillQueue;
+        if (spillQueue == null || queue.isEmpty()) {
+            return;
+        }
+        LinkedList<JVMMetric> buffer = new LinkedList<>();
+        queue.drainTo(buffer);
+        JVMMetricCollection collection = JVMMetricCollection.newBuilder()
+                                                            .addAllMetrics(buffer)
+                                                            .setService(Config.Agent.SERVICE_NAME)
+                                                            .setServiceInstance(Config.Agent.INSTANCE_NAME)
+                                                            .build();
+        if (!spillQueue.offer(collection.toByteArray())) {
+            LOGGER.warn("{} JVM metrics have been abandoned, cause by failing to spill.", buffer.size());
+        }
+    }
+
+    /**
+     * Send the spilled collections as they are, the ones not sent are spilled again if one fails.
+     */
+    private void replay() {
+        final SpillQueue spillQueue = this.spillQueue;
+        if (spillQueue == null || spillQueue.isEmpty()) {
+            return;
+        }
+        final List<byte[]> records = spillQueue.poll(Config.Spill.REPLAY_RATE);
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                ClientCalls.blockingUnaryCall(
+                    channel, COLLECT_SERIALIZED_METHOD,
+                    CallOptions.DEFAULT.withDeadlineAfter(GRPC_UPSTREAM_TIMEOUT, TimeUnit.SECONDS), records.get(i)
+                );
+            } catch (RuntimeException e) {
+                for (byte[] record : records.subList(i, records.size())) {
+                    if (!spillQueue.offer(record)) {
+                        LOGGER.warn("The replayed JVM metrics have been abandoned, cause by failing to spill.");
+                    }
+                }
+                throw e;
+            }
         }
     }
 
@@ -94,6 +157,7 @@ public class JVMMetricsSender implements BootService, Runnable, GRPCChannelListe
         if (GRPCChannelStatus.CONNECTED.equals(status)) {
             Channel channel = ServiceManager.INSTANCE.findService(GRPCChannelManager.class).getChannel();
             stub = JVMMetricReportServiceGrpc.newBlockingStub(channel);
+            this.channel = channel;
         }
         this.status = status;
     }
@@ -105,6 +169,8 @@ public class JVMMetricsSender implements BootService, Runnable, GRPCChannelListe
 
     @Override
     public void shutdown() {
-
+        if (spillQueue != null) {
+            spillQueue.close();
+        }
     }
 }
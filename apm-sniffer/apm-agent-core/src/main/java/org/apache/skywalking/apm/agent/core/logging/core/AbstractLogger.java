@@ -32,7 +32,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
 
 /**
  * An abstract class to simplify the real implementation of the loggers.
@@ -41,6 +40,12 @@ import java.util.regex.Matcher;
  */
 public abstract class AbstractLogger implements ILog {
     public static final Map<String, Class<? extends Converter>> DEFAULT_CONVERTER_MAP = new HashMap<>();
+    /**
+     * The builders larger than this are not kept for reusing.
+     */
+    private static final int MAX_REUSABLE_BUILDER_SIZE = 4096;
+    private static final ThreadLocal<StringBuilder> MESSAGE_BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+    private static final ThreadLocal<StringBuilder> OUTPUT_BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(512));
     protected List<Converter> converters = new ArrayList<>();
 
     static {
@@ -186,25 +191,58 @@ public abstract class AbstractLogger implements ILog {
         if (message == null) {
             return message;
         }
-        int startSize = 0;
-        int parametersIndex = 0;
-        int index;
-        String tmpMessage = message;
-        while ((index = message.indexOf("{}", startSize)) != -1) {
-            if (parametersIndex >= parameters.length) {
-                break;
+        int index = message.indexOf("{}");
+        if (index == -1 || parameters == null || parameters.length == 0) {
+            return message;
+        }
+        final StringBuilder builder = reusableBuilder(MESSAGE_BUILDER);
+        try {
+            int start = 0;
+            int parametersIndex = 0;
+            while (index != -1 && parametersIndex < parameters.length) {
+                builder.append(message, start, index).append(parameters[parametersIndex++]);
+                start = index + 2;
+                index = message.indexOf("{}", start);
             }
-            /**
-             * @Fix the Illegal group reference issue
-             */
-            tmpMessage = tmpMessage.replaceFirst("\\{\\}", Matcher.quoteReplacement(String.valueOf(parameters[parametersIndex++])));
-            startSize = index + 2;
+            return builder.append(message, start, message.length()).toString();
+        } finally {
+            release(MESSAGE_BUILDER, builder);
         }
-        return tmpMessage;
     }
 
     protected void logger(LogLevel level, String message, Throwable e) {
-        WriterFactory.getLogWriter().write(this.format(level, message, e));
+        final StringBuilder output = reusableBuilder(OUTPUT_BUILDER);
+        try {
+            this.format(level, message, e, output);
+            WriterFactory.getLogWriter().write(output);
+        } finally {
+            release(OUTPUT_BUILDER, output);
+        }
+    }
+
+    /**
+     * Append the log to the output, the loggers could override it to format without the temporary strings.
+     */
+    protected void format(LogLevel level, String message, Throwable e, StringBuilder output) {
+        output.append(this.format(level, message, e));
+    }
+
+    /**
+     * @return the builder of the current thread, or a new one if it's in use, when logging in the logging.
+     */
+    private static StringBuilder reusableBuilder(ThreadLocal<StringBuilder> reusable) {
+        final StringBuilder builder = reusable.get();
+        return builder.length() == 0 ? builder : new StringBuilder();
+    }
+
+    private static void release(ThreadLocal<StringBuilder> reusable, StringBuilder builder) {
+        if (builder.capacity() > MAX_REUSABLE_BUILDER_SIZE) {
+            if (reusable.get() == builder) {
+                reusable.remove();
+            }
+            return;
+        }
+        builder.setLength(0);
     }
 
     /**
@@ -26,5 +26,12 @@ public interface Converter {
 
     String convert(LogEvent logEvent);
 
+    /**
+     * Append the converted log event to the output, override it to avoid the temporary string.
+     */
+    default void append(LogEvent logEvent, StringBuilder output) {
+        output.append(convert(logEvent));
+    }
+
     String getKey();
 }
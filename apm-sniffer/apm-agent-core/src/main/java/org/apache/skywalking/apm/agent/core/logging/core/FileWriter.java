@@ -19,34 +19,36 @@
 package org.apache.skywalking.apm.agent.core.logging.core;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import org.apache.skywalking.apm.agent.core.boot.DefaultNamedThreadFactory;
 import org.apache.skywalking.apm.agent.core.conf.Config;
-import org.apache.skywalking.apm.agent.core.conf.Constants;
 import org.apache.skywalking.apm.util.RunnableWithExceptionProtection;
 
 /**
- * The <code>FileWriter</code> support async file output, by using a queue as buffer.
+ * The <code>FileWriter</code> support async file output, by using a {@link LogRecordRing} as buffer. The writer thread
+ * copies the records into a direct buffer, written to the file channel in batch.
  */
 public class FileWriter implements IWriter {
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
     private static FileWriter INSTANCE;
     private static final Object CREATE_LOCK = new Object();
-    private FileOutputStream fileOutputStream;
-    private ArrayBlockingQueue logBuffer;
-    private volatile int fileSize;
+    private FileChannel fileChannel;
+    private final LogRecordRing ring = new LogRecordRing(LogRecordRing.DEFAULT_SIZE);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private volatile long fileSize;
     private Pattern filenamePattern = Pattern.compile(Config.Logging.FILE_NAME + "\\.\\d{4}_\\d{2}_\\d{2}_\\d{2}_\\d{2}_\\d{2}");
 
     public static FileWriter get() {
@@ -61,25 +63,11 @@ public class FileWriter implements IWriter {
     }
 
     private FileWriter() {
-        logBuffer = new ArrayBlockingQueue(1024);
-        final ArrayList<String> outputLogs = new ArrayList<String>(200);
         Executors.newSingleThreadScheduledExecutor(new DefaultNamedThreadFactory("LogFileWriter"))
                  .scheduleAtFixedRate(new RunnableWithExceptionProtection(new Runnable() {
                      @Override
                      public void run() {
-                         try {
-                             logBuffer.drainTo(outputLogs);
-                             for (String log : outputLogs) {
-                                 writeToFile(log + Constants.LINE_SEPARATOR);
-                             }
-                             try {
-                                 fileOutputStream.flush();
-                             } catch (IOException e) {
-                                 e.printStackTrace();
-                             }
-                         } finally {
-                             outputLogs.clear();
-                         }
+                         writeRecords();
                      }
                  }, new RunnableWithExceptionProtection.CallbackWhenException() {
                      @Override
@@ -88,14 +76,27 @@ public class FileWriter implements IWriter {
                  }), 0, 1, TimeUnit.SECONDS);
     }
 
+    private void writeRecords() {
+        ring.drain(this::writeToFile);
+        flush();
+    }
+
     /**
-     * @param message to be written into the file.
+     * @param bytes of the log to be written into the file, including the line separator.
      */
-    private void writeToFile(String message) {
+    private void writeToFile(byte[] bytes, int length) {
         if (prepareWriteStream()) {
             try {
-                fileOutputStream.write(message.getBytes());
-                fileSize += message.length();
+                int offset = 0;
+                while (offset < length) {
+                    if (!writeBuffer.hasRemaining()) {
+                        flushWriteBuffer();
+                    }
+                    int size = Math.min(length - offset, writeBuffer.remaining());
+                    writeBuffer.put(bytes, offset, size);
+                    offset += size;
+                }
+                fileSize += length;
             } catch (IOException e) {
                 e.printStackTrace();
             } finally {
@@ -104,19 +105,41 @@ public class FileWriter implements IWriter {
         }
     }
 
+    private void flush() {
+        if (fileChannel == null) {
+            return;
+        }
+        try {
+            flushWriteBuffer();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void flushWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        try {
+            while (writeBuffer.hasRemaining()) {
+                fileChannel.write(writeBuffer);
+            }
+        } finally {
+            writeBuffer.clear();
+        }
+    }
+
     private void switchFile() {
         if (fileSize > Config.Logging.MAX_FILE_SIZE) {
             forceExecute(new Callable() {
                 @Override
                 public Object call() throws Exception {
-                    fileOutputStream.flush();
+                    flushWriteBuffer();
                     return null;
                 }
             });
             forceExecute(new Callable() {
                 @Override
                 public Object call() throws Exception {
-                    fileOutputStream.close();
+                    fileChannel.close();
                     return null;
                 }
             });
@@ -131,7 +154,7 @@ public class FileWriter implements IWriter {
             forceExecute(new Callable() {
                 @Override
                 public Object call() throws Exception {
-                    fileOutputStream = null;
+                    fileChannel = null;
                     return null;
                 }
             });
@@ -192,7 +215,7 @@ public class FileWriter implements IWriter {
      * @return true if stream is prepared ready.
      */
     private boolean prepareWriteStream() {
-        if (fileOutputStream != null) {
+        if (fileChannel != null) {
             return true;
         }
         File logFilePath = new File(Config.Logging.DIR);
@@ -202,13 +225,16 @@ public class FileWriter implements IWriter {
             System.err.println("Log dir(" + Config.Logging.DIR + ") is not a directory.");
         }
         try {
-            fileOutputStream = new FileOutputStream(new File(logFilePath, Config.Logging.FILE_NAME), true);
-            fileSize = Long.valueOf(new File(logFilePath, Config.Logging.FILE_NAME).length()).intValue();
-        } catch (FileNotFoundException e) {
+            fileChannel = FileChannel.open(
+                new File(logFilePath, Config.Logging.FILE_NAME).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND
+            );
+            fileSize = fileChannel.size();
+        } catch (IOException e) {
             e.printStackTrace();
         }
 
-        return fileOutputStream != null;
+        return fileChannel != null;
     }
 
     /**
@@ -218,6 +244,16 @@ public class FileWriter implements IWriter {
      */
     @Override
     public void write(String message) {
-        logBuffer.offer(message);
+        write((CharSequence) message);
+    }
+
+    /**
+     * Encode the log into a free record of the ring, discard it if there is no free record.
+     *
+     * @param message to log
+     */
+    @Override
+    public void write(CharSequence message) {
+        ring.offer(message);
     }
 }
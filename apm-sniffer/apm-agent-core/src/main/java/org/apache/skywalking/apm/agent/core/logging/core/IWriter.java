@@ -20,4 +20,11 @@ package org.apache.skywalking.apm.agent.core.logging.core;
 
 public interface IWriter {
     void write(String message);
+
+    /**
+     * Write the log in the reusable buffer, the implementation must not hold the message after returned.
+     */
+    default void write(CharSequence message) {
+        write(message.toString());
+    }
 }
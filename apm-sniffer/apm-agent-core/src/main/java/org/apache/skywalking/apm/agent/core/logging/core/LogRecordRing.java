@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.logging.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.skywalking.apm.agent.core.conf.Constants;
+
+/**
+ * A ring of the preallocated log records. The logging threads encode the logs into the records in UTF-8 directly, and
+ * the single writer thread consumes them in order. The logs are discarded when the ring is full.
+ */
+class LogRecordRing {
+    /**
+     * Same as the capacity of the former log queue.
+     */
+    static final int DEFAULT_SIZE = 1024;
+    private static final int RECORD_INITIAL_CAPACITY = 256;
+    /**
+     * The records larger than this are not kept for reusing.
+     */
+    private static final int RECORD_MAX_REUSABLE_CAPACITY = 16 * 1024;
+    private static final byte[] LINE_SEPARATOR = Constants.LINE_SEPARATOR.getBytes();
+
+    interface RecordConsumer {
+        /**
+         * @param bytes of the log, including the line separator, only valid in this call.
+         */
+        void accept(byte[] bytes, int length);
+    }
+
+    private final Record[] ring;
+    private final int mask;
+    // the sequence of the next record to claim by the logging threads
+    private final AtomicLong claimSequence = new AtomicLong();
+    // the sequence of the next record to consume by the writer thread
+    private volatile long consumeSequence;
+
+    /**
+     * @param size of the ring, must be the power of 2.
+     */
+    LogRecordRing(int size) {
+        ring = new Record[size];
+        mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Record(i - size);
+        }
+    }
+
+    /**
+     * Encode the log into a free record of the ring.
+     *
+     * @return false if there is no free record, the log is discarded.
+     */
+    boolean offer(CharSequence message) {
+        long sequence;
+        do {
+            sequence = claimSequence.get();
+            if (sequence - consumeSequence >= ring.length) {
+                return false;
+            }
+        } while (!claimSequence.compareAndSet(sequence, sequence + 1));
+
+        final Record record = ring[(int) sequence & mask];
+        record.encode(message);
+        // publish to the writer thread
+        record.sequence = sequence;
+        return true;
+    }
+
+    /**
+     * Consume the published records in order, till the first unpublished one. Only called by the writer thread.
+     */
+    void drain(RecordConsumer consumer) {
+        long sequence = consumeSequence;
+        Record record;
+        while ((record = ring[(int) sequence & mask]).sequence == sequence) {
+            try {
+                consumer.accept(record.bytes, record.length);
+            } finally {
+                record.release();
+                // free the record for the logging threads
+                consumeSequence = ++sequence;
+            }
+        }
+    }
+
+    private static class Record {
+        private volatile long sequence;
+        private byte[] bytes = new byte[RECORD_INITIAL_CAPACITY];
+        private int length;
+
+        private Record(long sequence) {
+            this.sequence = sequence;
+        }
+
+        /**
+         * Encode the message in UTF-8 with the line separator, the unpaired surrogate is encoded as '?'.
+         */
+        private void encode(CharSequence message) {
+            final int charCount = message.length();
+            final int maxLength = charCount * 3 + LINE_SEPARATOR.length;
+            if (bytes.length < maxLength) {
+                bytes = new byte[maxLength];
+            }
+            int position = 0;
+            for (int i = 0; i < charCount; i++) {
+                char c = message.charAt(i);
+                if (c < 0x80) {
+                    bytes[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[position++] = (byte) (0xC0 | (c >> 6));
+                    bytes[position++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    if (Character.isHighSurrogate(c) && i + 1 < charCount
+                        && Character.isLowSurrogate(message.charAt(i + 1))) {
+                        int codePoint = Character.toCodePoint(c, message.charAt(++i));
+                        bytes[position++] = (byte) (0xF0 | (codePoint >> 18));
+                        bytes[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                        bytes[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                        bytes[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                    } else {
+                        bytes[position++] = '?';
+                    }
+                } else {
+                    bytes[position++] = (byte) (0xE0 | (c >> 12));
+                    bytes[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[position++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            System.arraycopy(LINE_SEPARATOR, 0, bytes, position, LINE_SEPARATOR.length);
+            length = position + LINE_SEPARATOR.length;
+        }
+
+        private void release() {
+            if (bytes.length > RECORD_MAX_REUSABLE_CAPACITY) {
+                bytes = new byte[RECORD_INITIAL_CAPACITY];
+            }
+        }
+    }
+}
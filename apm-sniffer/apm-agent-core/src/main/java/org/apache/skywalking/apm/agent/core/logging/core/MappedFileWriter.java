@@ -0,0 +1,387 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.logging.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+import org.apache.skywalking.apm.agent.core.boot.DefaultNamedThreadFactory;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.util.RunnableWithExceptionProtection;
+
+/**
+ * The <code>MappedFileWriter</code> appends the logs from a {@link LogRecordRing} through a memory-mapped region of
+ * {@link Config.Logging#MAX_FILE_SIZE} bytes. The file is rolled before the log which doesn't fit in the region, so no
+ * log file is larger than the max size, and a log is split only if it is larger than a whole file. The unused part of
+ * the region is truncated when rolled or shutdown, and found back by the trailing zeros after a crash.
+ * <p>
+ * The history files are indexed in memory since loaded, so the expired ones are removed without listing the directory.
+ * The history files are compressed by gzip in the background if {@link Config.Logging#COMPRESS_HISTORY_FILES}.
+ */
+public class MappedFileWriter implements IWriter {
+    private static MappedFileWriter INSTANCE;
+    private static final Object CREATE_LOCK = new Object();
+    private static final String GZIP_SUFFIX = ".gz";
+    /**
+     * The order of the history file names without the gzip suffix, the oldest first. The files rolled in the same
+     * second are ordered by the index.
+     */
+    static final Comparator<String> HISTORY_ORDER = Comparator.comparing(MappedFileWriter::rolledTime)
+                                                              .thenComparingInt(MappedFileWriter::rolledIndex);
+    private static final int ROLLED_TIME_LENGTH = ".yyyy_MM_dd_HH_mm_ss".length();
+
+    private final LogRecordRing ring = new LogRecordRing(LogRecordRing.DEFAULT_SIZE);
+    private final SimpleDateFormat historyDateFormat = new SimpleDateFormat(".yyyy_MM_dd_HH_mm_ss");
+    private final Pattern historyFilenamePattern = Pattern.compile(
+        Pattern.quote(Config.Logging.FILE_NAME) + "\\.\\d{4}_\\d{2}_\\d{2}_\\d{2}_\\d{2}_\\d{2}(\\.\\d+)?(\\.gz)?");
+    // history files without the gzip suffix, the oldest first, null before loaded
+    private ArrayDeque<File> historyFiles;
+    // compress and delete the history files in order
+    private volatile ExecutorService historyExecutor;
+
+    private FileChannel fileChannel;
+    private MappedByteBuffer mappedBuffer;
+    private volatile boolean closed;
+
+    public static MappedFileWriter get() {
+        if (INSTANCE == null) {
+            synchronized (CREATE_LOCK) {
+                if (INSTANCE == null) {
+                    INSTANCE = new MappedFileWriter();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    MappedFileWriter() {
+        Executors.newSingleThreadScheduledExecutor(new DefaultNamedThreadFactory("LogFileWriter"))
+                 .scheduleAtFixedRate(new RunnableWithExceptionProtection(
+                     this::writeRecords,
+                     t -> {
+                     }
+                 ), 0, 1, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "LogFileWriterShutdown"));
+    }
+
+    synchronized void writeRecords() {
+        if (!closed) {
+            ring.drain(this::writeToFile);
+        }
+    }
+
+    /**
+     * Write the buffered logs, and truncate the unused part of the current file.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        ring.drain(this::writeToFile);
+        closed = true;
+        if (mappedBuffer != null) {
+            closeFile();
+        }
+    }
+
+    /**
+     * @param bytes of the log to be written into the file, including the line separator.
+     */
+    private void writeToFile(byte[] bytes, int length) {
+        int offset = 0;
+        while (offset < length) {
+            if (!prepareMappedFile()) {
+                return;
+            }
+            final int remaining = mappedBuffer.remaining();
+            if (remaining < length - offset && mappedBuffer.position() > 0) {
+                // keep the log in one file
+                if (!rollFile()) {
+                    return;
+                }
+                continue;
+            }
+            final int size = Math.min(remaining, length - offset);
+            mappedBuffer.put(bytes, offset, size);
+            offset += size;
+            if (!mappedBuffer.hasRemaining() && !rollFile()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if the mapped region is prepared ready.
+     */
+    private boolean prepareMappedFile() {
+        if (mappedBuffer != null) {
+            return true;
+        }
+        File logFilePath = new File(Config.Logging.DIR);
+        if (!logFilePath.exists()) {
+            logFilePath.mkdirs();
+        } else if (!logFilePath.isDirectory()) {
+            System.err.println("Log dir(" + Config.Logging.DIR + ") is not a directory.");
+        }
+        if (historyFiles == null) {
+            loadHistoryFiles(logFilePath);
+        }
+
+        final int maxFileSize = Config.Logging.MAX_FILE_SIZE;
+        try {
+            fileChannel = FileChannel.open(
+                new File(logFilePath, Config.Logging.FILE_NAME).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+            );
+            final long size = fileChannel.size();
+            if (size > maxFileSize) {
+                // written by the other writer, or with a larger max size
+                closeFileChannel();
+                return archive() && prepareMappedFile();
+            }
+            mappedBuffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, maxFileSize);
+            // the unused part is truncated when closed, so only the region not closed after a crash has trailing zeros
+            mappedBuffer.position(size == maxFileSize ? findEnd(mappedBuffer) : (int) size);
+        } catch (IOException e) {
+            e.printStackTrace();
+            closeFileChannel();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the position after the last non-zero byte, the trailing zeros are the unused part of the region.
+     */
+    private static int findEnd(MappedByteBuffer buffer) {
+        int end = buffer.limit();
+        while (end > 0 && buffer.get(end - 1) == 0) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * @return false if the current file can't be archived, the log should be discarded.
+     */
+    private boolean rollFile() {
+        closeFile();
+        return archive();
+    }
+
+    /**
+     * Unmap the region, and truncate the unused part.
+     */
+    private void closeFile() {
+        final int end = mappedBuffer.position();
+        unmap(mappedBuffer);
+        mappedBuffer = null;
+        try {
+            fileChannel.truncate(end);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        closeFileChannel();
+    }
+
+    private void closeFileChannel() {
+        if (fileChannel != null) {
+            try {
+                fileChannel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            fileChannel = null;
+        }
+    }
+
+    /**
+     * Rename the current file as the latest history file, then compress it and delete the expired ones.
+     *
+     * @return false if fail to rename the current file.
+     */
+    private boolean archive() {
+        final File historyFile = nextHistoryFile();
+        if (!new File(Config.Logging.DIR, Config.Logging.FILE_NAME).renameTo(historyFile)) {
+            System.err.println("Fail to archive the log file as " + historyFile + ".");
+            return false;
+        }
+        historyFiles.addLast(historyFile);
+        if (Config.Logging.COMPRESS_HISTORY_FILES) {
+            historyExecutor().execute(() -> compress(historyFile));
+        }
+        deleteExpiredFiles();
+        return true;
+    }
+
+    /**
+     * @return the history file named by the time of now, with an index if there is a file of the same name.
+     */
+    private File nextHistoryFile() {
+        final String name = Config.Logging.FILE_NAME + historyDateFormat.format(new Date());
+        File historyFile = new File(Config.Logging.DIR, name);
+        for (int index = 1; historyFile.exists() || new File(historyFile.getPath() + GZIP_SUFFIX).exists()
+            || historyFile.equals(historyFiles.peekLast()); index++) {
+            historyFile = new File(Config.Logging.DIR, name + "." + index);
+        }
+        return historyFile;
+    }
+
+    /**
+     * List the history files only once, ordered by the names, the oldest first.
+     */
+    private void loadHistoryFiles(File logFilePath) {
+        historyFiles = new ArrayDeque<>();
+        final String[] names = logFilePath.list((dir, name) -> historyFilenamePattern.matcher(name).matches());
+        if (names == null) {
+            return;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].endsWith(GZIP_SUFFIX)) {
+                names[i] = names[i].substring(0, names[i].length() - GZIP_SUFFIX.length());
+            }
+        }
+        Arrays.sort(names, HISTORY_ORDER);
+        String last = null;
+        for (String name : names) {
+            if (!name.equals(last)) {
+                historyFiles.addLast(new File(logFilePath, name));
+            }
+            last = name;
+        }
+        deleteExpiredFiles();
+    }
+
+    private static String rolledTime(String name) {
+        final int start = Config.Logging.FILE_NAME.length();
+        return name.substring(start, start + ROLLED_TIME_LENGTH);
+    }
+
+    private static int rolledIndex(String name) {
+        final int start = Config.Logging.FILE_NAME.length() + ROLLED_TIME_LENGTH;
+        return start < name.length() ? Integer.parseInt(name.substring(start + 1)) : 0;
+    }
+
+    private void deleteExpiredFiles() {
+        if (Config.Logging.MAX_HISTORY_FILES <= 0) {
+            return;
+        }
+        while (historyFiles.size() > Config.Logging.MAX_HISTORY_FILES) {
+            final File expiredFile = historyFiles.pollFirst();
+            if (Config.Logging.COMPRESS_HISTORY_FILES) {
+                // after the compression of it
+                historyExecutor().execute(() -> delete(expiredFile));
+            } else {
+                delete(expiredFile);
+            }
+        }
+    }
+
+    private static void delete(File historyFile) {
+        historyFile.delete();
+        new File(historyFile.getPath() + GZIP_SUFFIX).delete();
+    }
+
+    private static void compress(File historyFile) {
+        if (!historyFile.exists()) {
+            return;
+        }
+        final File compressedFile = new File(historyFile.getPath() + GZIP_SUFFIX);
+        final byte[] buffer = new byte[64 * 1024];
+        try (InputStream input = new FileInputStream(historyFile);
+             OutputStream output = new GZIPOutputStream(new FileOutputStream(compressedFile), buffer.length)) {
+            int size;
+            while ((size = input.read(buffer)) != -1) {
+                output.write(buffer, 0, size);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            compressedFile.delete();
+            return;
+        }
+        historyFile.delete();
+    }
+
+    private ExecutorService historyExecutor() {
+        if (historyExecutor == null) {
+            historyExecutor = Executors.newSingleThreadExecutor(new DefaultNamedThreadFactory("LogFileCompressor"));
+        }
+        return historyExecutor;
+    }
+
+    /**
+     * Release the mapped region now, rather than waiting for the GC, otherwise the file can't be truncated on some
+     * platforms. Leave it to the GC if not supported.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            try {
+                // Java 9+
+                final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException e) {
+                // Java 8
+                final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Throwable ignored) {
+        }
+    }
+
+    /**
+     * Write log to the ring.
+     *
+     * @param message to log
+     */
+    @Override
+    public void write(String message) {
+        write((CharSequence) message);
+    }
+
+    @Override
+    public void write(CharSequence message) {
+        ring.offer(message);
+    }
+}
@@ -28,6 +28,8 @@ import org.apache.skywalking.apm.util.StringUtil;
  */
 public class PatternLogger extends AbstractLogger {
     public static final String DEFAULT_PATTERN = "%level %timestamp %thread %class : %msg %throwable";
+    private static final ThreadLocal<LogEvent> LOG_EVENT = ThreadLocal.withInitial(
+        () -> new LogEvent(null, null, null, null));
 
     private String pattern;
 
@@ -54,11 +56,30 @@ public class PatternLogger extends AbstractLogger {
 
     @Override
     protected String format(LogLevel level, String message, Throwable t) {
-        LogEvent logEvent = new LogEvent(level, message, t, targetClass);
         StringBuilder stringBuilder = new StringBuilder();
-        for (Converter converter : this.converters) {
-            stringBuilder.append(converter.convert(logEvent));
-        }
+        format(level, message, t, stringBuilder);
         return stringBuilder.toString();
     }
+
+    @Override
+    protected void format(LogLevel level, String message, Throwable t, StringBuilder output) {
+        LogEvent logEvent = LOG_EVENT.get();
+        if (logEvent.getLevel() != null) {
+            // logging in the logging
+            logEvent = new LogEvent(null, null, null, null);
+        }
+        logEvent.setLevel(level);
+        logEvent.setMessage(message);
+        logEvent.setThrowable(t);
+        logEvent.setTargetClass(targetClass);
+        try {
+            for (Converter converter : this.converters) {
+                converter.append(logEvent, output);
+            }
+        } finally {
+            logEvent.setLevel(null);
+            logEvent.setMessage(null);
+            logEvent.setThrowable(null);
+        }
+    }
 }
@@ -43,7 +43,7 @@ public class WriterFactory {
                             e.printStackTrace();
                         }
                     }
-                    WRITER = FileWriter.get();
+                    WRITER = Config.Logging.MEMORY_MAPPED ? MappedFileWriter.get() : FileWriter.get();
                 } else {
                     return SystemOutWriter.INSTANCE;
                 }
@@ -25,17 +25,53 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
- * The Converter is used to return a now date with format.
+ * The Converter is used to return a now date with format. The formatted date till the second is cached, only the
+ * millis are appended for each log.
  */
 public class DateConverter implements Converter {
 
+    private static volatile FormattedSecond FORMATTED_SECOND = new FormattedSecond(-1, "");
+
     @Override
     public String convert(LogEvent logEvent) {
-        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss:SSS").format(new Date());
+        StringBuilder output = new StringBuilder(23);
+        append(logEvent, output);
+        return output.toString();
+    }
+
+    @Override
+    public void append(LogEvent logEvent, StringBuilder output) {
+        final long now = System.currentTimeMillis();
+        final long second = now / 1000;
+        FormattedSecond formattedSecond = FORMATTED_SECOND;
+        if (formattedSecond.second != second) {
+            formattedSecond = new FormattedSecond(
+                second, new SimpleDateFormat("yyyy-MM-dd HH:mm:ss:").format(new Date(second * 1000)));
+            FORMATTED_SECOND = formattedSecond;
+        }
+        output.append(formattedSecond.formatted);
+        final int millis = (int) (now - second * 1000);
+        if (millis < 100) {
+            output.append('0');
+        }
+        if (millis < 10) {
+            output.append('0');
+        }
+        output.append(millis);
     }
 
     @Override
     public String getKey() {
         return "@timestamp";
     }
+
+    private static class FormattedSecond {
+        private final long second;
+        private final String formatted;
+
+        private FormattedSecond(long second, String formatted) {
+            this.second = second;
+            this.formatted = formatted;
+        }
+    }
 }
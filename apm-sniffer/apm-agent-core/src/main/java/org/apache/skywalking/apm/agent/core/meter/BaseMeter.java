@@ -30,10 +30,35 @@ import org.apache.skywalking.apm.network.language.agent.v3.MeterData;
 public abstract class BaseMeter {
     protected final MeterId meterId;
 
+    // Set when the value changes, cleared by the report. New meters are reported at least once.
+    private volatile boolean updated = true;
+
     public BaseMeter(MeterId meterId) {
         this.meterId = meterId;
     }
 
+    /**
+     * Mark the value of this meter has been changed since the last report. The flag is read before written, so the
+     * hot meters don't write the shared cache line on every change.
+     */
+    protected void markUpdated() {
+        if (!updated) {
+            updated = true;
+        }
+    }
+
+    /**
+     * Check whether this meter has been changed since the last report, and clear the flag. It must be called before
+     * {@link #transform()}, then the changes happen during the transforming are reported again next time.
+     */
+    public boolean checkAndResetUpdated() {
+        if (!updated) {
+            return false;
+        }
+        updated = false;
+        return true;
+    }
+
     /**
      * Get meter name
      */
@@ -42,6 +42,7 @@ public class Counter extends BaseMeter {
 
     public void increment(double count) {
         this.count.add(count);
+        markUpdated();
     }
 
     public double get() {
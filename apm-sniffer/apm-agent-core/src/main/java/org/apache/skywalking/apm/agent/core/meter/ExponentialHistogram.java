@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.meter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.apache.skywalking.apm.network.language.agent.v3.MeterBucketValue;
+import org.apache.skywalking.apm.network.language.agent.v3.MeterData;
+import org.apache.skywalking.apm.network.language.agent.v3.MeterHistogram;
+
+/**
+ * ExponentialHistogram is a histogram with a fixed log-linear bucket layout. Every power of two between
+ * 2^minExponent and 2^(maxExponent + 1) is split into 2^subBucketBits linear sub buckets, and one extra bucket
+ * starting at zero collects the values lower than 2^minExponent. Values bigger than the last bucket are counted into
+ * it, negative values are ignored, same as {@link Histogram} does with the values lower than its min value.
+ *
+ * The bucket of a value is read from the exponent and the highest mantissa bits of its IEEE-754 representation, so
+ * {@link #addValue(double)} is constant time whatever the bucket count is. With zero sub bucket bits the buckets are
+ * the powers of two; the high resolution mode uses {@link #HIGH_RESOLUTION_SUB_BUCKET_BITS}, which keeps the relative
+ * error of every bucket under 3.2%, like a HDR histogram does.
+ *
+ * The counts are kept in a striped long array, one row of cells per stripe. The recording thread picks the row by its
+ * thread id, which spreads the concurrent writers over different cache lines, and {@link #transform()} merges all the
+ * rows.
+ */
+public class ExponentialHistogram extends BaseMeter {
+    public static final int DEFAULT_MIN_EXPONENT = 0;
+    public static final int DEFAULT_MAX_EXPONENT = 20;
+    public static final int DEFAULT_SUB_BUCKET_BITS = 2;
+    public static final int HIGH_RESOLUTION_SUB_BUCKET_BITS = 5;
+    public static final int MAX_SUB_BUCKET_BITS = 8;
+
+    private static final int MAX_STRIPES = 16;
+    // 8 longs are one cache line, used to keep the rows of different stripes apart
+    private static final int CACHE_LINE_LONGS = 8;
+    private static final int MANTISSA_BITS = 52;
+    private static final int EXPONENT_BIAS = 1023;
+
+    private final int minExponent;
+    private final int maxExponent;
+    private final int subBucketBits;
+    private final int subBucketShift;
+    private final int subBucketMask;
+    private final int bucketCount;
+    private final double[] bucketBounds;
+
+    private final int stripeMask;
+    private final int stripeStride;
+    private final AtomicLongArray cells;
+
+    /**
+     * @param meterId       as the unique id of this meter instance
+     * @param minExponent   values lower than 2^minExponent are counted into the first bucket, starting at zero
+     * @param maxExponent   the last power of two split into sub buckets, 2^(maxExponent + 1) is the upper bound
+     * @param subBucketBits every power of two is split into 2^subBucketBits linear sub buckets
+     */
+    public ExponentialHistogram(MeterId meterId, int minExponent, int maxExponent, int subBucketBits) {
+        this(meterId, minExponent, maxExponent, subBucketBits, defaultStripes());
+    }
+
+    ExponentialHistogram(MeterId meterId, int minExponent, int maxExponent, int subBucketBits, int stripes) {
+        super(meterId);
+        if (minExponent < -EXPONENT_BIAS + 1 || maxExponent > EXPONENT_BIAS || minExponent > maxExponent) {
+            throw new IllegalArgumentException(
+                "Illegal exponent range [" + minExponent + ", " + maxExponent + "]");
+        }
+        if (subBucketBits < 0 || subBucketBits > MAX_SUB_BUCKET_BITS) {
+            throw new IllegalArgumentException(
+                "Sub bucket bits must be in [0, " + MAX_SUB_BUCKET_BITS + "], but was " + subBucketBits);
+        }
+        if (stripes < 1 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Stripes must be a positive power of two, but was " + stripes);
+        }
+        this.minExponent = minExponent;
+        this.maxExponent = maxExponent;
+        this.subBucketBits = subBucketBits;
+        this.subBucketShift = MANTISSA_BITS - subBucketBits;
+        this.subBucketMask = (1 << subBucketBits) - 1;
+        this.bucketCount = 1 + ((maxExponent - minExponent + 1) << subBucketBits);
+        this.bucketBounds = initBucketBounds();
+
+        this.stripeMask = stripes - 1;
+        this.stripeStride = (bucketCount + CACHE_LINE_LONGS - 1) / CACHE_LINE_LONGS * CACHE_LINE_LONGS
+            + CACHE_LINE_LONGS;
+        this.cells = new AtomicLongArray(stripes * stripeStride);
+    }
+
+    /**
+     * Add value into the histogram, the bucket is found by the exponent and mantissa of the value [step1, step2)
+     */
+    public void addValue(double value) {
+        final int index = findBucket(value);
+        if (index < 0) {
+            return;
+        }
+        cells.getAndIncrement(stripe() * stripeStride + index);
+        markUpdated();
+    }
+
+    /**
+     * @return the bucket index of the value, or -1 if it should be ignored
+     */
+    int findBucket(double value) {
+        // also filter the NaN
+        if (!(value >= 0)) {
+            return -1;
+        }
+        final long bits = Double.doubleToRawLongBits(value);
+        final int exponent = (int) ((bits >>> MANTISSA_BITS) & 0x7FF) - EXPONENT_BIAS;
+        if (exponent < minExponent) {
+            return 0;
+        }
+        if (exponent > maxExponent) {
+            return bucketCount - 1;
+        }
+        final int subBucket = (int) (bits >>> subBucketShift) & subBucketMask;
+        return 1 + ((exponent - minExponent) << subBucketBits | subBucket);
+    }
+
+    private int stripe() {
+        if (stripeMask == 0) {
+            return 0;
+        }
+        final long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 32) & stripeMask;
+    }
+
+    private double[] initBucketBounds() {
+        final double[] bounds = new double[bucketCount];
+        bounds[0] = 0;
+        for (int i = 1; i < bucketCount; i++) {
+            final int exponent = minExponent + ((i - 1) >> subBucketBits);
+            final int subBucket = (i - 1) & subBucketMask;
+            bounds[i] = Math.scalb(1 + (double) subBucket / (1 << subBucketBits), exponent);
+        }
+        return bounds;
+    }
+
+    /**
+     * @return the lower bounds of all buckets, in ascending order
+     */
+    public double[] getBucketBounds() {
+        return bucketBounds.clone();
+    }
+
+    public int getMinExponent() {
+        return minExponent;
+    }
+
+    public int getMaxExponent() {
+        return maxExponent;
+    }
+
+    public int getSubBucketBits() {
+        return subBucketBits;
+    }
+
+    @Override
+    public MeterData.Builder transform() {
+        final MeterData.Builder builder = MeterData.newBuilder();
+
+        // merge all stripes
+        final int stripes = stripeMask + 1;
+        final List<MeterBucketValue> values = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            long count = 0;
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                count += cells.get(stripe * stripeStride + i);
+            }
+            values.add(MeterBucketValue.newBuilder().setBucket(bucketBounds[i]).setCount(count).build());
+        }
+
+        return builder.setHistogram(MeterHistogram.newBuilder()
+                                                  .setName(getName())
+                                                  .addAllLabels(transformTags())
+                                                  .addAllValues(values)
+                                                  .build());
+    }
+
+    private static int defaultStripes() {
+        final int processors = Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES);
+        return Integer.highestOneBit(Math.max(processors, 1) * 2 - 1);
+    }
+
+    public static class Builder extends AbstractBuilder<Builder, ExponentialHistogram> {
+        private int minExponent = DEFAULT_MIN_EXPONENT;
+        private int maxExponent = DEFAULT_MAX_EXPONENT;
+        private int subBucketBits = DEFAULT_SUB_BUCKET_BITS;
+
+        /**
+         * Build a new meter build, meter name is required
+         */
+        public Builder(String name) {
+            super(name);
+        }
+
+        /**
+         * Set the range of the buckets as powers of two, default is [2^0, 2^21)
+         */
+        public Builder exponents(int minExponent, int maxExponent) {
+            this.minExponent = minExponent;
+            this.maxExponent = maxExponent;
+            return this;
+        }
+
+        /**
+         * Set how many linear sub buckets every power of two is split into, as 2^subBucketBits. Default is 2.
+         */
+        public Builder subBucketBits(int subBucketBits) {
+            this.subBucketBits = subBucketBits;
+            return this;
+        }
+
+        /**
+         * Split every power of two into 2^{@link #HIGH_RESOLUTION_SUB_BUCKET_BITS} sub buckets
+         */
+        public Builder highResolution() {
+            return subBucketBits(HIGH_RESOLUTION_SUB_BUCKET_BITS);
+        }
+
+        @Override
+        protected MeterType getType() {
+            return MeterType.HISTOGRAM;
+        }
+
+        @Override
+        protected ExponentialHistogram create(MeterId meterId) {
+            return new ExponentialHistogram(meterId, minExponent, maxExponent, subBucketBits);
+        }
+    }
+}
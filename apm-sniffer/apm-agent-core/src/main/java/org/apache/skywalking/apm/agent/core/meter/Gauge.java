@@ -45,6 +45,14 @@ public class Gauge extends BaseMeter {
         return data == null ? 0 : data;
     }
 
+    /**
+     * The value of gauge is supplied when reporting, so it is always treated as updated
+     */
+    @Override
+    public boolean checkAndResetUpdated() {
+        return true;
+    }
+
     @Override
     public MeterData.Builder transform() {
         double count;
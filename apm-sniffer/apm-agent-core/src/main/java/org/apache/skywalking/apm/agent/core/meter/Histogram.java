@@ -55,6 +55,7 @@ public class Histogram extends BaseMeter {
         }
 
         bucket.increment(1L);
+        markUpdated();
     }
 
     /**
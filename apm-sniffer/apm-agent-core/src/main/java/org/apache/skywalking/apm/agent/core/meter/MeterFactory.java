@@ -51,4 +51,12 @@ public class MeterFactory {
         return new Histogram.Builder(name);
     }
 
+    /**
+     * Create an exponential histogram builder by given meter name
+     * @param name meter name
+     */
+    public static ExponentialHistogram.Builder exponentialHistogram(String name) {
+        return new ExponentialHistogram.Builder(name);
+    }
+
 }
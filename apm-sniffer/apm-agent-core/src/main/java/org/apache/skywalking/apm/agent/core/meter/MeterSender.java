@@ -18,12 +18,21 @@
 
 package org.apache.skywalking.apm.agent.core.meter;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import io.grpc.CallOptions;
 import io.grpc.Channel;
+import io.grpc.MethodDescriptor;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCalls;
 import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import org.apache.skywalking.apm.agent.core.boot.BootService;
 import org.apache.skywalking.apm.agent.core.boot.DefaultImplementor;
@@ -35,8 +44,11 @@ import org.apache.skywalking.apm.agent.core.remote.GRPCChannelListener;
 import org.apache.skywalking.apm.agent.core.remote.GRPCChannelManager;
 import org.apache.skywalking.apm.agent.core.remote.GRPCChannelStatus;
 import org.apache.skywalking.apm.agent.core.remote.GRPCStreamServiceStatus;
+import org.apache.skywalking.apm.agent.core.remote.SerializedMessageMarshaller;
+import org.apache.skywalking.apm.agent.core.remote.SpillQueue;
 import org.apache.skywalking.apm.network.common.v3.Commands;
 import org.apache.skywalking.apm.network.language.agent.v3.MeterData;
+import org.apache.skywalking.apm.network.language.agent.v3.MeterDataCollection;
 import org.apache.skywalking.apm.network.language.agent.v3.MeterReportServiceGrpc;
 
 import static org.apache.skywalking.apm.agent.core.conf.Config.Collector.GRPC_UPSTREAM_TIMEOUT;
@@ -47,9 +59,19 @@ import static org.apache.skywalking.apm.agent.core.conf.Config.Collector.GRPC_UP
 @DefaultImplementor
 public class MeterSender implements BootService, GRPCChannelListener {
     private static final ILog LOGGER = LogManager.getLogger(MeterSender.class);
+    /**
+     * The same methods as {@link MeterReportServiceGrpc#getCollectMethod()} and {@link
+     * MeterReportServiceGrpc#getCollectBatchMethod()}, replaying the spilled meters as they are.
+     */
+    private static final MethodDescriptor<byte[], Commands> COLLECT_SERIALIZED_METHOD =
+        SerializedMessageMarshaller.serializedMethodOf(MeterReportServiceGrpc.getCollectMethod());
+    private static final MethodDescriptor<byte[], Commands> COLLECT_BATCH_SERIALIZED_METHOD =
+        SerializedMessageMarshaller.serializedMethodOf(MeterReportServiceGrpc.getCollectBatchMethod());
 
     private volatile GRPCChannelStatus status = GRPCChannelStatus.DISCONNECT;
-    private volatile MeterReportServiceGrpc.MeterReportServiceStub meterReportServiceStub;
+    private volatile Channel channel;
+    private volatile SpillQueue spillQueue;
+    private volatile boolean batchUnsupported = false;
 
     @Override
     public void prepare() {
@@ -58,56 +80,195 @@ public class MeterSender implements BootService, GRPCChannelListener {
 
     @Override
     public void boot() {
-
+        spillQueue = SpillQueue.create("meter");
     }
 
     public void send(Map<MeterId, BaseMeter> meterMap, MeterService meterService) {
         if (status == GRPCChannelStatus.CONNECTED) {
-            StreamObserver<MeterData> reportStreamObserver = null;
-            final GRPCStreamServiceStatus status = new GRPCStreamServiceStatus(false);
-            try {
-                reportStreamObserver = meterReportServiceStub.withDeadlineAfter(
-                    GRPC_UPSTREAM_TIMEOUT, TimeUnit.SECONDS
-                ).collect(new StreamObserver<Commands>() {
-                    @Override
-                    public void onNext(Commands commands) {
-                    }
+            // the updated flags are reset by the transform, so the period is kept until it is acknowledged
+            final List<MeterData> period = new ArrayList<>();
+            transform(meterMap, period::add);
+            if (report(meterService, period)) {
+                replay(meterService);
+            } else {
+                spill(period::forEach);
+            }
+        } else {
+            spill(consumer -> transform(meterMap, consumer));
+        }
+    }
 
-                    @Override
-                    public void onError(Throwable throwable) {
-                        status.finished();
-                        if (LOGGER.isErrorEnable()) {
-                            LOGGER.error(throwable, "Send meters to collector fail with a grpc internal exception.");
-                        }
-                        ServiceManager.INSTANCE.findService(GRPCChannelManager.class).reportError(throwable);
-                    }
+    /**
+     * Report the meters of this period. If the backend doesn't support the batch, the same period is sent again one by
+     * one.
+     *
+     * @return true if the collector acknowledges the meters.
+     */
+    private boolean report(MeterService meterService, List<MeterData> period) {
+        final boolean batch = isBatch();
+        if (report(meterService, period::forEach)) {
+            return true;
+        }
+        return batch && batchUnsupported && report(meterService, period::forEach);
+    }
 
-                    @Override
-                    public void onCompleted() {
-                        status.finished();
-                    }
-                });
-
-                final StreamObserver<MeterData> reporter = reportStreamObserver;
-                transform(meterMap, meterData -> reporter.onNext(meterData));
-            } catch (Throwable e) {
-                if (!(e instanceof StatusRuntimeException)) {
-                    LOGGER.error(e, "Report meters to backend fail.");
-                    return;
+    /**
+     * Keep the meters of this period as the serialized {@link MeterDataCollection}s of the max batch size, or as one
+     * collection if not in batch. Every collection starts with the service info and the timestamp of the period, so it
+     * can be replayed alone, either as a collection in batch, or as the meters of one stream.
+     */
+    private void spill(Consumer<Consumer<MeterData>> meters) {
+        final SpillQueue spillQueue = this.spillQueue;
+        if (spillQueue == null) {
+            return;
+        }
+        final BatchCollector collector = new BatchCollector(
+            collection -> {
+                if (!spillQueue.offer(collection.toByteArray())) {
+                    LOGGER.warn("The meters of this period have been abandoned, cause by failing to spill.");
+                }
+            },
+            Config.Meter.MAX_BATCH_SIZE > 1 ? Config.Meter.MAX_BATCH_SIZE : Integer.MAX_VALUE
+        );
+        meters.accept(collector);
+        collector.flush();
+    }
+
+    /**
+     * Replay the spilled collections as they are. In batch, they are packed into one stream. Otherwise, every
+     * collection takes one stream, as the backend reads only one timestamp per stream, and its meters are sent without
+     * parsing them. The records are spilled again if the report fails.
+     */
+    private void replay(MeterService meterService) {
+        final SpillQueue spillQueue = this.spillQueue;
+        if (spillQueue == null || spillQueue.isEmpty()) {
+            return;
+        }
+        final List<byte[]> records = spillQueue.poll(Config.Spill.REPLAY_RATE);
+        if (isBatch()) {
+            if (!report(meterService, true, COLLECT_BATCH_SERIALIZED_METHOD, reporter -> {
+                for (byte[] record : records) {
+                    reporter.onNext(record);
+                }
+            })) {
+                respill(records);
+            }
+            return;
+        }
+        for (int i = 0; i < records.size(); i++) {
+            final byte[] record = records.get(i);
+            if (!report(meterService, false, COLLECT_SERIALIZED_METHOD, reporter -> split(record, reporter))) {
+                respill(records.subList(i, records.size()));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Send the serialized meters of the collection one by one.
+     */
+    private void split(byte[] collection, StreamObserver<byte[]> reporter) {
+        try {
+            final CodedInputStream input = CodedInputStream.newInstance(collection);
+            while (!input.isAtEnd()) {
+                final int tag = input.readTag();
+                if (WireFormat.getTagFieldNumber(tag) == MeterDataCollection.METERDATA_FIELD_NUMBER) {
+                    reporter.onNext(input.readByteArray());
+                } else if (!input.skipField(tag)) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Abandon the rest of broken spilled meters.");
+        }
+    }
+
+    private void respill(List<byte[]> records) {
+        for (byte[] record : records) {
+            if (!spillQueue.offer(record)) {
+                LOGGER.warn("The replayed meters of one period have been abandoned, cause by failing to spill.");
+            }
+        }
+    }
+
+    private boolean isBatch() {
+        return Config.Meter.MAX_BATCH_SIZE > 1 && !batchUnsupported;
+    }
+
+    /**
+     * @return true if the collector acknowledges the meters.
+     */
+    private boolean report(MeterService meterService, Consumer<Consumer<MeterData>> meters) {
+        if (isBatch()) {
+            return report(meterService, true, MeterReportServiceGrpc.getCollectBatchMethod(), reporter -> {
+                final BatchCollector collector = new BatchCollector(reporter::onNext, Config.Meter.MAX_BATCH_SIZE);
+                meters.accept(collector);
+                collector.flush();
+            });
+        }
+        return report(
+            meterService, false, MeterReportServiceGrpc.getCollectMethod(), reporter -> meters.accept(reporter::onNext));
+    }
+
+    /**
+     * @return true if the collector acknowledges the messages.
+     */
+    private <T> boolean report(MeterService meterService, boolean batch, MethodDescriptor<T, Commands> method,
+                               Consumer<StreamObserver<T>> messages) {
+        StreamObserver<T> reportStreamObserver = null;
+        final GRPCStreamServiceStatus status = new GRPCStreamServiceStatus(false);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        try {
+            final StreamObserver<Commands> commandsObserver = new StreamObserver<Commands>() {
+                @Override
+                public void onNext(Commands commands) {
                 }
-                final StatusRuntimeException statusRuntimeException = (StatusRuntimeException) e;
-                if (statusRuntimeException.getStatus().getCode() == Status.Code.UNIMPLEMENTED) {
-                    LOGGER.warn("Backend doesn't support meter, it will be disabled");
 
-                    meterService.shutdown();
+                @Override
+                public void onError(Throwable throwable) {
+                    failed.set(true);
+                    status.finished();
+                    if (batch && Status.fromThrowable(throwable).getCode() == Status.Code.UNIMPLEMENTED) {
+                        LOGGER.warn("Backend doesn't support reporting meters in batch, report them one by one.");
+                        batchUnsupported = true;
+                        return;
+                    }
+                    if (LOGGER.isErrorEnable()) {
+                        LOGGER.error(throwable, "Send meters to collector fail with a grpc internal exception.");
+                    }
+                    ServiceManager.INSTANCE.findService(GRPCChannelManager.class).reportError(throwable);
                 }
-            } finally {
-                if (reportStreamObserver != null) {
-                    reportStreamObserver.onCompleted();
+
+                @Override
+                public void onCompleted() {
+                    status.finished();
                 }
-                status.wait4Finish();
+            };
+
+            reportStreamObserver = ClientCalls.asyncClientStreamingCall(
+                channel.newCall(method, CallOptions.DEFAULT.withDeadlineAfter(GRPC_UPSTREAM_TIMEOUT, TimeUnit.SECONDS)),
+                commandsObserver
+            );
+            messages.accept(reportStreamObserver);
+        } catch (Throwable e) {
+            failed.set(true);
+            if (!(e instanceof StatusRuntimeException)) {
+                LOGGER.error(e, "Report meters to backend fail.");
+                return false;
             }
+            final StatusRuntimeException statusRuntimeException = (StatusRuntimeException) e;
+            if (statusRuntimeException.getStatus().getCode() == Status.Code.UNIMPLEMENTED) {
+                LOGGER.warn("Backend doesn't support meter, it will be disabled");
+
+                meterService.shutdown();
+            }
+        } finally {
+            if (reportStreamObserver != null) {
+                reportStreamObserver.onCompleted();
+            }
+            status.wait4Finish();
         }
+        return !failed.get();
     }
 
     protected void transform(final Map<MeterId, BaseMeter> meterMap,
@@ -115,6 +276,10 @@ public class MeterSender implements BootService, GRPCChannelListener {
         // build and report meters
         boolean hasSendMachineInfo = false;
         for (BaseMeter meter : meterMap.values()) {
+            // clear the updated flag before reading the value
+            if (Config.Meter.REPORT_UPDATED_ONLY && !meter.checkAndResetUpdated()) {
+                continue;
+            }
             final MeterData.Builder dataBuilder = meter.transform();
             if (dataBuilder == null) {
                 continue;
@@ -139,17 +304,61 @@ public class MeterSender implements BootService, GRPCChannelListener {
 
     @Override
     public void shutdown() {
-
+        if (spillQueue != null) {
+            spillQueue.close();
+        }
     }
 
     @Override
     public void statusChanged(final GRPCChannelStatus status) {
         if (GRPCChannelStatus.CONNECTED.equals(status)) {
-            Channel channel = ServiceManager.INSTANCE.findService(GRPCChannelManager.class).getChannel();
-            meterReportServiceStub = MeterReportServiceGrpc.newStub(channel);
+            channel = ServiceManager.INSTANCE.findService(GRPCChannelManager.class).getChannel();
         } else {
-            meterReportServiceStub = null;
+            channel = null;
         }
         this.status = status;
     }
+
+    /**
+     * Collect the meters into the {@link MeterDataCollection} messages of the max size. The backend reads the service
+     * info from the first meter of each collection, so it is copied into the first meter of every collection.
+     */
+    private static class BatchCollector implements Consumer<MeterData> {
+        private final Consumer<MeterDataCollection> reporter;
+        private final int maxBatchSize;
+        private final MeterDataCollection.Builder collection = MeterDataCollection.newBuilder();
+        private MeterData serviceInfo;
+
+        private BatchCollector(Consumer<MeterDataCollection> reporter, int maxBatchSize) {
+            this.reporter = reporter;
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        @Override
+        public void accept(MeterData meterData) {
+            if (!meterData.getService().isEmpty()) {
+                // a new period, which has its own timestamp
+                flush();
+                serviceInfo = meterData;
+            } else if (collection.getMeterDataCount() == 0 && serviceInfo != null) {
+                meterData = meterData.toBuilder()
+                                     .setService(serviceInfo.getService())
+                                     .setServiceInstance(serviceInfo.getServiceInstance())
+                                     .setTimestamp(serviceInfo.getTimestamp())
+                                     .build();
+            }
+            collection.addMeterData(meterData);
+            if (collection.getMeterDataCount() >= maxBatchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (collection.getMeterDataCount() == 0) {
+                return;
+            }
+            reporter.accept(collection.build());
+            collection.clear();
+        }
+    }
 }
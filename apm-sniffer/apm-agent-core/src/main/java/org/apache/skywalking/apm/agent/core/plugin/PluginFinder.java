@@ -19,6 +19,9 @@
 package org.apache.skywalking.apm.agent.core.plugin;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -27,10 +30,15 @@ import net.bytebuddy.description.NamedElement;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 import org.apache.skywalking.apm.agent.core.plugin.bytebuddy.AbstractJunction;
+import org.apache.skywalking.apm.agent.core.plugin.match.ClassAnnotationMatch;
 import org.apache.skywalking.apm.agent.core.plugin.match.ClassMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.HierarchyMatch;
 import org.apache.skywalking.apm.agent.core.plugin.match.IndirectMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.MultiClassNameMatch;
 import org.apache.skywalking.apm.agent.core.plugin.match.NameMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.PrefixMatch;
 import org.apache.skywalking.apm.agent.core.plugin.match.ProtectiveShieldMatcher;
+import org.apache.skywalking.apm.agent.core.plugin.match.RegexMatch;
 
 import static net.bytebuddy.matcher.ElementMatchers.isInterface;
 import static net.bytebuddy.matcher.ElementMatchers.not;
@@ -43,6 +51,9 @@ public class PluginFinder {
     private final Map<String, LinkedList<AbstractClassEnhancePluginDefine>> nameMatchDefine = new HashMap<String, LinkedList<AbstractClassEnhancePluginDefine>>();
     private final List<AbstractClassEnhancePluginDefine> signatureMatchDefine = new ArrayList<AbstractClassEnhancePluginDefine>();
     private final List<AbstractClassEnhancePluginDefine> bootstrapClassMatchDefine = new ArrayList<AbstractClassEnhancePluginDefine>();
+    private final PluginMatchIndex signatureMatchIndex;
+    private final List<String> matchDescriptions = new ArrayList<String>();
+    private boolean matchedByNameOnly = true;
 
     public PluginFinder(List<AbstractClassEnhancePluginDefine> plugins) {
         for (AbstractClassEnhancePluginDefine plugin : plugins) {
@@ -51,6 +62,7 @@ public class PluginFinder {
             if (match == null) {
                 continue;
             }
+            matchDescriptions.add(plugin.getClass().getName() + "=" + describe(match));
 
             if (match instanceof NameMatch) {
                 NameMatch nameMatch = (NameMatch) match;
@@ -62,12 +74,35 @@ public class PluginFinder {
                 pluginDefines.add(plugin);
             } else {
                 signatureMatchDefine.add(plugin);
+                if (!(match instanceof MultiClassNameMatch || match instanceof PrefixMatch
+                    || match instanceof RegexMatch)) {
+                    matchedByNameOnly = false;
+                }
             }
 
             if (plugin.isBootstrapInstrumentation()) {
                 bootstrapClassMatchDefine.add(plugin);
             }
         }
+        signatureMatchIndex = new PluginMatchIndex(signatureMatchDefine);
+        Collections.sort(matchDescriptions);
+    }
+
+    private static String describe(ClassMatch match) {
+        if (match instanceof NameMatch) {
+            return ((NameMatch) match).getClassName();
+        } else if (match instanceof HierarchyMatch) {
+            return "hierarchy" + Arrays.toString(((HierarchyMatch) match).getParentTypes());
+        } else if (match instanceof ClassAnnotationMatch) {
+            return "annotation" + Arrays.toString(((ClassAnnotationMatch) match).getAnnotations());
+        } else if (match instanceof MultiClassNameMatch) {
+            return "names" + ((MultiClassNameMatch) match).getClassNames();
+        } else if (match instanceof PrefixMatch) {
+            return "prefix" + Arrays.toString(((PrefixMatch) match).getPrefixes());
+        } else if (match instanceof RegexMatch) {
+            return "regex" + Arrays.toString(((RegexMatch) match).getRegexExpressions());
+        }
+        return match.getClass().getName();
     }
 
     public List<AbstractClassEnhancePluginDefine> find(TypeDescription typeDescription) {
@@ -77,11 +112,9 @@ public class PluginFinder {
             matchedPlugins.addAll(nameMatchDefine.get(typeName));
         }
 
-        for (AbstractClassEnhancePluginDefine pluginDefine : signatureMatchDefine) {
-            IndirectMatch match = (IndirectMatch) pluginDefine.enhanceClass();
-            if (match.isMatch(typeDescription)) {
-                matchedPlugins.add(pluginDefine);
-            }
+        final BitSet matched = signatureMatchIndex.match(typeDescription);
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            matchedPlugins.add(signatureMatchDefine.get(i));
         }
 
         return matchedPlugins;
@@ -95,15 +128,34 @@ public class PluginFinder {
             }
         };
         judge = judge.and(not(isInterface()));
-        for (AbstractClassEnhancePluginDefine define : signatureMatchDefine) {
-            ClassMatch match = define.enhanceClass();
-            if (match instanceof IndirectMatch) {
-                judge = judge.or(((IndirectMatch) match).buildJunction());
+        // the hierarchy, annotation, class names and prefix matches are evaluated by the index in one pass
+        judge = judge.or(new AbstractJunction<TypeDescription>() {
+            @Override
+            public boolean matches(TypeDescription target) {
+                return signatureMatchIndex.matchesIndexed(target);
             }
+        });
+        for (IndirectMatch match : signatureMatchIndex.getOthers()) {
+            judge = judge.or(match.buildJunction());
         }
         return new ProtectiveShieldMatcher(judge);
     }
 
+    /**
+     * @return the sorted descriptions of the class matches of all plugins, which decide the classes to be enhanced.
+     */
+    public List<String> getMatchDescriptions() {
+        return matchDescriptions;
+    }
+
+    /**
+     * @return true if all plugins match the classes by their names, then whether a class is enhanced doesn't depend on
+     * its super types or annotations, which may be changed by the other jars.
+     */
+    public boolean isMatchedByNameOnly() {
+        return matchedByNameOnly;
+    }
+
     public List<AbstractClassEnhancePluginDefine> getBootstrapClassMatchDefine() {
         return bootstrapClassMatchDefine;
     }
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import org.apache.skywalking.apm.agent.core.plugin.match.ClassAnnotationMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.HierarchyMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.IndirectMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.MultiClassNameMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.PrefixMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.SuperTypeNames;
+
+/**
+ * The index of the plugins with {@link IndirectMatch}, to find all matched plugins of a type in one pass, rather than
+ * evaluating the matches one by one.
+ *
+ * <ul>
+ * <li>{@link HierarchyMatch}es are indexed by their first parent type, and looked up by the super type names of the
+ * type, resolved once by {@link SuperTypeNames}.</li>
+ * <li>{@link ClassAnnotationMatch}es are indexed by their first annotation, and looked up by the declared annotations.</li>
+ * <li>{@link MultiClassNameMatch}es are indexed by the class names.</li>
+ * <li>{@link PrefixMatch}es are checked by all prefixes in a flat array.</li>
+ * <li>Others, such as the regex and logical matches, are evaluated one by one.</li>
+ * </ul>
+ *
+ * The matched plugins are identified by their positions in the given list, so the order of the plugins is kept. The
+ * matches are taken once from {@link AbstractClassEnhancePluginDefine#enhanceClass()}, which builds a new one in most
+ * plugins.
+ */
+class PluginMatchIndex {
+    private final IndirectMatch[] matches;
+
+    private final Map<String, List<Integer>> hierarchyIndex = new HashMap<String, List<Integer>>();
+    private final Map<String, List<Integer>> annotationIndex = new HashMap<String, List<Integer>>();
+    private final Map<String, List<Integer>> classNameIndex = new HashMap<String, List<Integer>>();
+    private final List<String> prefixes = new ArrayList<String>();
+    private final List<Integer> prefixPlugins = new ArrayList<Integer>();
+    private final List<Integer> others = new ArrayList<Integer>();
+
+    // the plugins never match an interface, as their junctions declared
+    private final BitSet classOnly = new BitSet();
+
+    PluginMatchIndex(List<AbstractClassEnhancePluginDefine> plugins) {
+        this.matches = new IndirectMatch[plugins.size()];
+        for (int i = 0; i < plugins.size(); i++) {
+            final IndirectMatch match = (IndirectMatch) plugins.get(i).enhanceClass();
+            matches[i] = match;
+            if (match instanceof HierarchyMatch) {
+                index(hierarchyIndex, ((HierarchyMatch) match).getParentTypes()[0], i);
+                classOnly.set(i);
+            } else if (match instanceof ClassAnnotationMatch) {
+                index(annotationIndex, ((ClassAnnotationMatch) match).getAnnotations()[0], i);
+                classOnly.set(i);
+            } else if (match instanceof MultiClassNameMatch) {
+                for (String className : ((MultiClassNameMatch) match).getClassNames()) {
+                    index(classNameIndex, className, i);
+                }
+            } else if (match instanceof PrefixMatch) {
+                for (String prefix : ((PrefixMatch) match).getPrefixes()) {
+                    prefixes.add(prefix);
+                    prefixPlugins.add(i);
+                }
+            } else {
+                others.add(i);
+            }
+        }
+    }
+
+    private static void index(Map<String, List<Integer>> index, String key, int plugin) {
+        List<Integer> indexed = index.get(key);
+        if (indexed == null) {
+            indexed = new ArrayList<Integer>(1);
+            index.put(key, indexed);
+        }
+        if (!indexed.contains(plugin)) {
+            indexed.add(plugin);
+        }
+    }
+
+    /**
+     * @return the positions of all matched plugins, same as {@link IndirectMatch#isMatch(TypeDescription)} of every
+     * plugin returns.
+     */
+    BitSet match(TypeDescription typeDescription) {
+        final BitSet matched = matchIndexed(typeDescription);
+        for (Integer plugin : others) {
+            if (matches[plugin].isMatch(typeDescription)) {
+                matched.set(plugin);
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Whether any indexed plugin matches the type, the same as the junctions of their matches. The other plugins are
+     * not included, they are matched by their own junctions.
+     */
+    boolean matchesIndexed(TypeDescription typeDescription) {
+        final BitSet matched = matchIndexed(typeDescription);
+        if (!matched.isEmpty() && typeDescription.isInterface()) {
+            matched.andNot(classOnly);
+        }
+        return !matched.isEmpty();
+    }
+
+    /**
+     * @return the matches of the plugins not indexed
+     */
+    List<IndirectMatch> getOthers() {
+        final List<IndirectMatch> otherMatches = new ArrayList<IndirectMatch>(others.size());
+        for (Integer plugin : others) {
+            otherMatches.add(matches[plugin]);
+        }
+        return otherMatches;
+    }
+
+    private BitSet matchIndexed(TypeDescription typeDescription) {
+        final BitSet matched = new BitSet(matches.length);
+
+        final List<Integer> byClassName = classNameIndex.get(typeDescription.getTypeName());
+        if (byClassName != null) {
+            for (Integer plugin : byClassName) {
+                matched.set(plugin);
+            }
+        }
+
+        if (!prefixes.isEmpty()) {
+            final String name = typeDescription.getName();
+            for (int i = 0; i < prefixes.size(); i++) {
+                if (name.startsWith(prefixes.get(i))) {
+                    matched.set(prefixPlugins.get(i));
+                }
+            }
+        }
+
+        if (!annotationIndex.isEmpty()) {
+            for (AnnotationDescription annotation : typeDescription.getDeclaredAnnotations()) {
+                final List<Integer> byAnnotation = annotationIndex.get(annotation.getAnnotationType().getActualName());
+                if (byAnnotation == null) {
+                    continue;
+                }
+                for (Integer plugin : byAnnotation) {
+                    if (!matched.get(plugin) && matches[plugin].isMatch(typeDescription)) {
+                        matched.set(plugin);
+                    }
+                }
+            }
+        }
+
+        if (!hierarchyIndex.isEmpty()) {
+            final Set<String> superTypeNames = SuperTypeNames.resolve(typeDescription);
+            for (String superTypeName : superTypeNames) {
+                final List<Integer> byHierarchy = hierarchyIndex.get(superTypeName);
+                if (byHierarchy == null) {
+                    continue;
+                }
+                for (Integer plugin : byHierarchy) {
+                    if (((HierarchyMatch) matches[plugin]).isMatch(superTypeNames)) {
+                        matched.set(plugin);
+                    }
+                }
+            }
+        }
+
+        return matched;
+    }
+}
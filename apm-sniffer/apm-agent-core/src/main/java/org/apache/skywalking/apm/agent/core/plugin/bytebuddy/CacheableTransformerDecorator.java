@@ -20,13 +20,19 @@ package org.apache.skywalking.apm.agent.core.plugin.bytebuddy;
 
 import net.bytebuddy.agent.builder.AgentBuilder;
 import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.utility.JavaModule;
 import net.bytebuddy.utility.RandomString;
 import org.apache.skywalking.apm.agent.core.boot.AgentPackageNotFoundException;
 import org.apache.skywalking.apm.agent.core.boot.AgentPackagePath;
+import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.logging.api.ILog;
 import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
+import org.apache.skywalking.apm.agent.core.plugin.PluginFinder;
+import org.apache.skywalking.apm.agent.core.plugin.match.SuperTypeNames;
 import org.apache.skywalking.apm.agent.core.util.FileUtils;
 import org.apache.skywalking.apm.agent.core.util.IOUtils;
+import org.apache.skywalking.apm.util.StringUtil;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -34,7 +40,10 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.instrument.IllegalClassFormatException;
+import java.nio.charset.StandardCharsets;
 import java.security.ProtectionDomain;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -43,6 +52,12 @@ import java.util.concurrent.ConcurrentHashMap;
  * and automatically load the previously generated bytecode during the second retransform,
  * to solve the problem that ByteBuddy generates auxiliary classes with different random names every time.
  * Allow other javaagent to enhance those classes that enhanced by SkyWalking agent.
+ *
+ * In the {@link ClassCacheMode#PERSISTENT} mode, the classes not enhanced are also archived by a {@link
+ * PersistentClassCache}, then they are skipped without being parsed and matched by ByteBuddy after restart. Only the
+ * classes reported as ignored by the {@link #getListener() listener} are archived, never the failed ones. Unless all
+ * plugins match the classes by their names, a class is archived only if its super types are all from the JDK, as the
+ * hierarchy and annotation matches depend on the super types in the other jars, which may be upgraded after restart.
  */
 public class CacheableTransformerDecorator implements AgentBuilder.TransformerDecorator {
 
@@ -50,10 +65,65 @@ public class CacheableTransformerDecorator implements AgentBuilder.TransformerDe
 
     private final ClassCacheMode cacheMode;
     private ClassCacheResolver cacheResolver;
+    private PersistentClassCache persistentCache;
+    private boolean matchedByNameOnly;
+    /**
+     * The outcome of the class in transforming on the current thread, reported by the {@link #getListener()
+     * listener}.
+     */
+    private final ThreadLocal<Outcome> outcome = new ThreadLocal<>();
 
     public CacheableTransformerDecorator(ClassCacheMode cacheMode) throws IOException {
+        this(cacheMode, Collections.<String>emptyList(), true);
+    }
+
+    /**
+     * @param matchDescriptions the class matches of all activated plugins, see {@link
+     *                          PluginFinder#getMatchDescriptions()}. They decide which classes are enhanced in the
+     *                          {@link ClassCacheMode#PERSISTENT} mode.
+     * @param matchedByNameOnly true if all plugins match the classes by their names, see {@link
+     *                          PluginFinder#isMatchedByNameOnly()}.
+     */
+    public CacheableTransformerDecorator(ClassCacheMode cacheMode, List<String> matchDescriptions,
+                                         boolean matchedByNameOnly) throws IOException {
         this.cacheMode = cacheMode;
+        this.matchedByNameOnly = matchedByNameOnly;
         initClassCache();
+        if (this.cacheMode.equals(ClassCacheMode.PERSISTENT)) {
+            persistentCache = new PersistentClassCache(getArchiveFile(), fingerprint(matchDescriptions));
+            Runtime.getRuntime().addShutdownHook(new Thread(persistentCache::flush, "ClassCacheArchiveFlush"));
+        }
+    }
+
+    CacheableTransformerDecorator(PersistentClassCache persistentCache, boolean matchedByNameOnly) {
+        this.cacheMode = ClassCacheMode.PERSISTENT;
+        this.cacheResolver = new MemoryCacheResolver();
+        this.persistentCache = persistentCache;
+        this.matchedByNameOnly = matchedByNameOnly;
+    }
+
+    private static File getArchiveFile() throws IOException {
+        if (StringUtil.isNotEmpty(Config.Agent.CLASS_CACHE_ARCHIVE)) {
+            return new File(Config.Agent.CLASS_CACHE_ARCHIVE);
+        }
+        try {
+            return new File(AgentPackagePath.getPath(), "class-cache/class-cache.archive");
+        } catch (AgentPackageNotFoundException e) {
+            throw new IOException("Can't find the root path for creating the class cache archive.");
+        }
+    }
+
+    /**
+     * The fingerprint of the agent version, the JDK version and the class matches of all plugins
+     */
+    static long fingerprint(List<String> matchDescriptions) {
+        final String version = CacheableTransformerDecorator.class.getPackage().getImplementationVersion();
+        final StringBuilder fingerprint = new StringBuilder(version == null ? "UNKNOWN" : version);
+        fingerprint.append('\n').append(System.getProperty("java.version"));
+        for (String match : matchDescriptions) {
+            fingerprint.append('\n').append(match);
+        }
+        return PersistentClassCache.digest("fingerprint", fingerprint.toString().getBytes(StandardCharsets.UTF_8));
     }
 
     private void initClassCache() throws IOException {
@@ -90,9 +160,28 @@ public class CacheableTransformerDecorator implements AgentBuilder.TransformerDe
                     return classCache;
                 }
 
+                // skip the class not enhanced before, only for the first load
+                long digest = 0;
+                int length = 0;
+                final boolean archivable = persistentCache != null && classBeingRedefined == null && className != null;
+                if (archivable) {
+                    digest = PersistentClassCache.digest(className, classfileBuffer);
+                    length = classfileBuffer.length;
+                    if (persistentCache.isUnenhanced(digest, length)) {
+                        return null;
+                    }
+                }
+
                 //transform class
+                outcome.remove();
                 classfileBuffer = classFileTransformer.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
 
+                // archive only the class matched by no plugin, a failed transformation may succeed after restart
+                if (archivable && classfileBuffer == null && outcome.get() == Outcome.IGNORED) {
+                    persistentCache.markUnenhanced(digest, length);
+                }
+                outcome.remove();
+
                 // save to cache
                 if (classfileBuffer != null) {
                     cacheResolver.putClassCache(loader, className, classfileBuffer);
@@ -103,6 +192,52 @@ public class CacheableTransformerDecorator implements AgentBuilder.TransformerDe
         };
     }
 
+    /**
+     * @return the listener to register to the agent builder, which reports whether a class is ignored by all plugins or
+     * fails to transform.
+     */
+    public AgentBuilder.Listener getListener() {
+        return new AgentBuilder.Listener.Adapter() {
+            @Override
+            public void onIgnored(TypeDescription typeDescription, ClassLoader classLoader, JavaModule module,
+                                  boolean loaded) {
+                if (outcome.get() == null) {
+                    outcome.set(isArchivable(typeDescription) ? Outcome.IGNORED : Outcome.UNARCHIVABLE);
+                }
+            }
+
+            @Override
+            public void onError(String typeName, ClassLoader classLoader, JavaModule module, boolean loaded,
+                                Throwable throwable) {
+                outcome.set(Outcome.ERROR);
+            }
+        };
+    }
+
+    /**
+     * @return true if the class would still be ignored after restart, as long as its bytes are the same.
+     */
+    private boolean isArchivable(TypeDescription typeDescription) {
+        if (matchedByNameOnly) {
+            return true;
+        }
+        try {
+            for (String superType : SuperTypeNames.resolve(typeDescription)) {
+                if (!superType.startsWith("java.")) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (Throwable t) {
+            // the super types can't be resolved
+            return false;
+        }
+    }
+
+    private enum Outcome {
+        IGNORED, UNARCHIVABLE, ERROR
+    }
+
     private static String getClassLoaderHash(ClassLoader loader) {
         String classloader;
         if (loader != null) {
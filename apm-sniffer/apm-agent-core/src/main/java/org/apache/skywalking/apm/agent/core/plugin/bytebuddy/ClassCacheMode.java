@@ -22,5 +22,10 @@ package org.apache.skywalking.apm.agent.core.plugin.bytebuddy;
  * ByteBuddy class cache mode
  */
 public enum ClassCacheMode {
-    FILE, MEMORY
+    FILE, MEMORY,
+    /**
+     * Cache the instrumented classes to memory, and archive the classes not instrumented to a file kept across the
+     * restarts, see {@link PersistentClassCache}
+     */
+    PERSISTENT
 }
@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.bytebuddy;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.skywalking.apm.agent.core.logging.api.ILog;
+import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
+
+/**
+ * A single file archive of the classes seen without being enhanced, shared by the restarts of the application.
+ *
+ * A class is identified by a 64 bits digest of its name and bytes, together with the length of the bytes. The archive
+ * is only valid for the same fingerprint, built from the agent version and the activated plugins, as these decide
+ * which classes are enhanced. Its layout is
+ * <pre>
+ * int magic, int format version, long fingerprint, int count,
+ * count * (long digest, int length), sorted by the digest
+ * </pre>
+ * The archive is memory mapped and looked up by binary search. The classes found during this run are kept in memory,
+ * and merged into a new archive by {@link #flush()}, which replaces the old one by an atomic move.
+ *
+ * The enhanced classes are never archived, their enhancement always runs, because the enhanced bytes depend on the
+ * runtime initialization of the interceptors.
+ */
+public class PersistentClassCache {
+    private static final ILog LOGGER = LogManager.getLogger(PersistentClassCache.class);
+
+    private static final int MAGIC = 0x53574343;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+    private static final int ENTRY_SIZE = 8 + 4;
+    static final int MAX_ENTRIES = 1 << 20;
+
+    private final File archive;
+    private final long fingerprint;
+    private final MappedByteBuffer mapped;
+    private final int archivedCount;
+    private final Map<Long, Integer> discovered = new ConcurrentHashMap<Long, Integer>();
+
+    public PersistentClassCache(File archive, long fingerprint) {
+        this.archive = archive;
+        this.fingerprint = fingerprint;
+
+        MappedByteBuffer buffer = null;
+        int count = 0;
+        if (archive.isFile()) {
+            try (RandomAccessFile file = new RandomAccessFile(archive, "r")) {
+                final FileChannel channel = file.getChannel();
+                if (channel.size() >= HEADER_SIZE) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    count = readHeader(buffer, channel.size());
+                }
+            } catch (IOException e) {
+                LOGGER.warn(e, "Can't read the class cache archive {}, ignore it.", archive);
+            }
+        }
+        this.mapped = count > 0 ? buffer : null;
+        this.archivedCount = count;
+    }
+
+    /**
+     * @return the count of the archived entries, or 0 if the archive doesn't match this fingerprint
+     */
+    private int readHeader(MappedByteBuffer buffer, long size) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            LOGGER.warn("Ignore the class cache archive {} in unknown format.", archive);
+            return 0;
+        }
+        if (buffer.getLong(8) != fingerprint) {
+            LOGGER.info("Ignore the class cache archive {} of the different agent version or plugins.", archive);
+            return 0;
+        }
+        final int count = buffer.getInt(16);
+        if (count < 0 || HEADER_SIZE + (long) count * ENTRY_SIZE > size) {
+            LOGGER.warn("Ignore the broken class cache archive {}.", archive);
+            return 0;
+        }
+        return count;
+    }
+
+    /**
+     * @return true if the class has been seen without being enhanced
+     */
+    public boolean isUnenhanced(long digest, int length) {
+        final Integer discoveredLength = discovered.get(digest);
+        if (discoveredLength != null) {
+            return discoveredLength == length;
+        }
+        if (mapped == null) {
+            return false;
+        }
+
+        int low = 0;
+        int high = archivedCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final long midDigest = mapped.getLong(HEADER_SIZE + mid * ENTRY_SIZE);
+            if (midDigest < digest) {
+                low = mid + 1;
+            } else if (midDigest > digest) {
+                high = mid - 1;
+            } else {
+                return mapped.getInt(HEADER_SIZE + mid * ENTRY_SIZE + 8) == length;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Record the class seen without being enhanced, it is archived by the next {@link #flush()}.
+     */
+    public void markUnenhanced(long digest, int length) {
+        if (archivedCount + discovered.size() < MAX_ENTRIES) {
+            discovered.put(digest, length);
+        }
+    }
+
+    /**
+     * Merge the classes found in this run into the archive. Nothing happens if there is no new class.
+     */
+    public synchronized void flush() {
+        if (discovered.isEmpty()) {
+            return;
+        }
+
+        final int discoveredCount = discovered.size();
+        final long[] digests = new long[archivedCount + discoveredCount];
+        final int[] lengths = new int[digests.length];
+        int count = 0;
+        for (int i = 0; i < archivedCount; i++) {
+            digests[count] = mapped.getLong(HEADER_SIZE + i * ENTRY_SIZE);
+            lengths[count++] = mapped.getInt(HEADER_SIZE + i * ENTRY_SIZE + 8);
+        }
+        final long[] newDigests = new long[discoveredCount];
+        int newCount = 0;
+        for (Long digest : discovered.keySet()) {
+            if (newCount < newDigests.length) {
+                newDigests[newCount++] = digest;
+            }
+        }
+        Arrays.sort(newDigests, 0, newCount);
+        for (int i = 0; i < newCount; i++) {
+            digests[count] = newDigests[i];
+            lengths[count++] = discovered.get(newDigests[i]);
+        }
+        count = sortAndDistinct(digests, lengths, count, archivedCount);
+
+        final File dir = archive.getAbsoluteFile().getParentFile();
+        File temp = null;
+        try {
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Can't create the folder " + dir);
+            }
+            temp = File.createTempFile(archive.getName(), ".tmp", dir);
+            try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeLong(fingerprint);
+                output.writeInt(count);
+                for (int i = 0; i < count; i++) {
+                    output.writeLong(digests[i]);
+                    output.writeInt(lengths[i]);
+                }
+            }
+            Files.move(temp.toPath(), archive.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            discovered.clear();
+        } catch (IOException e) {
+            LOGGER.warn(e, "Can't write the class cache archive {}.", archive);
+            if (temp != null && temp.exists() && !temp.delete()) {
+                temp.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Merge the two sorted runs, [0, mid) and [mid, count), and remove the duplicated digests.
+     *
+     * @return the count of the merged entries
+     */
+    private static int sortAndDistinct(long[] digests, int[] lengths, int count, int mid) {
+        final long[] mergedDigests = new long[count];
+        final int[] mergedLengths = new int[count];
+        int merged = 0;
+        int left = 0;
+        int right = mid;
+        while (left < mid || right < count) {
+            final int next;
+            if (right >= count || (left < mid && digests[left] <= digests[right])) {
+                next = left++;
+            } else {
+                next = right++;
+            }
+            if (merged > 0 && mergedDigests[merged - 1] == digests[next]) {
+                continue;
+            }
+            mergedDigests[merged] = digests[next];
+            mergedLengths[merged++] = lengths[next];
+        }
+        System.arraycopy(mergedDigests, 0, digests, 0, merged);
+        System.arraycopy(mergedLengths, 0, lengths, 0, merged);
+        return merged;
+    }
+
+    /**
+     * A 64 bits digest of the class name and bytes, mixed 8 bytes a time.
+     */
+    public static long digest(String className, byte[] bytes) {
+        long hash = 0x9E3779B97F4A7C15L ^ bytes.length;
+        int i = 0;
+        for (; i + 8 <= bytes.length; i += 8) {
+            long k = (bytes[i] & 0xFFL)
+                | (bytes[i + 1] & 0xFFL) << 8
+                | (bytes[i + 2] & 0xFFL) << 16
+                | (bytes[i + 3] & 0xFFL) << 24
+                | (bytes[i + 4] & 0xFFL) << 32
+                | (bytes[i + 5] & 0xFFL) << 40
+                | (bytes[i + 6] & 0xFFL) << 48
+                | (bytes[i + 7] & 0xFFL) << 56;
+            hash = Long.rotateLeft(hash ^ mix(k), 27) * 0x87C37B91114253D5L + 0x52DCE729;
+        }
+        long tail = 0;
+        for (int shift = 0; i < bytes.length; i++, shift += 8) {
+            tail |= (bytes[i] & 0xFFL) << shift;
+        }
+        hash = Long.rotateLeft(hash ^ mix(tail), 31) * 0x4CF5AD432745937FL;
+        hash ^= mix(className.hashCode() * 0x9E3779B97F4A7C15L + className.length());
+        return fmix(hash);
+    }
+
+    private static long mix(long k) {
+        k *= 0x87C37B91114253D5L;
+        k = Long.rotateLeft(k, 31);
+        return k * 0x4CF5AD432745937FL;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.v3;
+
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.implementation.FieldAccessor;
+import net.bytebuddy.implementation.MethodDelegation;
+import net.bytebuddy.implementation.SuperMethodCall;
+import org.apache.skywalking.apm.agent.core.plugin.AbstractClassEnhancePluginDefine;
+import org.apache.skywalking.apm.agent.core.plugin.EnhanceContext;
+import org.apache.skywalking.apm.agent.core.plugin.PluginException;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.ConstructorInterceptPoint;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.EnhanceException;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.InstanceMethodsInterceptPoint;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.StaticMethodsInterceptPoint;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.ConstructorInter;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.v2.InstanceMethodsInterceptV2Point;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.v2.StaticMethodsInterceptV2Point;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.v3.InstanceMethodsInterceptV3Point;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.v3.StaticMethodsInterceptV3Point;
+import org.apache.skywalking.apm.agent.core.plugin.loader.InterceptorInstanceLoader;
+import org.apache.skywalking.apm.util.StringUtil;
+
+import static net.bytebuddy.jar.asm.Opcodes.ACC_PRIVATE;
+import static net.bytebuddy.jar.asm.Opcodes.ACC_VOLATILE;
+import static net.bytebuddy.matcher.ElementMatchers.isAbstract;
+import static net.bytebuddy.matcher.ElementMatchers.isMethod;
+import static net.bytebuddy.matcher.ElementMatchers.isStatic;
+import static net.bytebuddy.matcher.ElementMatchers.not;
+
+/**
+ * This class controls all enhance operations of the v3 interceptors. Constructors are intercepted as {@link
+ * ConstructorInterceptPoint} does in the other versions, while {@link InstanceMethodsInterceptV3Point} and {@link
+ * StaticMethodsInterceptV3Point} are woven by {@link Advice} inlined into the target methods. Compared with the method
+ * delegation of v1 and v2, no argument array, super call or result object is allocated unless the interceptor accepts
+ * the invocation, and the method metadata is resolved once per method.
+ * <p>
+ * As the advice is inlined, only the methods declared by the enhanced class are intercepted, and the bootstrap classes
+ * are not supported.
+ */
+public abstract class ClassEnhancePluginDefineV3 extends AbstractClassEnhancePluginDefine {
+
+    @Override
+    protected DynamicType.Builder<?> enhanceClass(TypeDescription typeDescription,
+                                                  DynamicType.Builder<?> newClassBuilder,
+                                                  ClassLoader classLoader) throws PluginException {
+        StaticMethodsInterceptV3Point[] staticMethodsInterceptV3Points = getStaticMethodsInterceptV3Points();
+        String enhanceOriginClassName = typeDescription.getTypeName();
+        if (staticMethodsInterceptV3Points == null || staticMethodsInterceptV3Points.length == 0) {
+            return newClassBuilder;
+        }
+        checkBootstrapInstrumentation(enhanceOriginClassName);
+
+        for (StaticMethodsInterceptV3Point staticMethodsInterceptV3Point : staticMethodsInterceptV3Points) {
+            String interceptor = staticMethodsInterceptV3Point.getMethodsInterceptorV3();
+            if (StringUtil.isEmpty(interceptor)) {
+                throw new EnhanceException(
+                    "no StaticMethodsAroundInterceptorV3 define to enhance class " + enhanceOriginClassName);
+            }
+            newClassBuilder = newClassBuilder.visit(
+                Advice.withCustomMapping()
+                      .bind(MethodSiteId.class, new MethodSiteBinder(loadInterceptor(interceptor, classLoader)))
+                      .to(StaticMethodsAdvice.class)
+                      .on(isMethod().and(isStatic())
+                                    .and(staticMethodsInterceptV3Point.getMethodsMatcher())));
+        }
+
+        return newClassBuilder;
+    }
+
+    @Override
+    protected DynamicType.Builder<?> enhanceInstance(TypeDescription typeDescription,
+                                                     DynamicType.Builder<?> newClassBuilder, ClassLoader classLoader,
+                                                     EnhanceContext context) throws PluginException {
+        ConstructorInterceptPoint[] constructorInterceptPoints = getConstructorsInterceptPoints();
+        InstanceMethodsInterceptV3Point[] instanceMethodsInterceptV3Points = getInstanceMethodsInterceptV3Points();
+        String enhanceOriginClassName = typeDescription.getTypeName();
+
+        boolean existedConstructorInterceptPoint = constructorInterceptPoints != null
+            && constructorInterceptPoints.length > 0;
+        boolean existedMethodsInterceptV3Points = instanceMethodsInterceptV3Points != null
+            && instanceMethodsInterceptV3Points.length > 0;
+
+        if (!existedConstructorInterceptPoint && !existedMethodsInterceptV3Points) {
+            return newClassBuilder;
+        }
+        checkBootstrapInstrumentation(enhanceOriginClassName);
+
+        if (!typeDescription.isAssignableTo(EnhancedInstance.class)) {
+            if (!context.isObjectExtended()) {
+                newClassBuilder = newClassBuilder.defineField(
+                    CONTEXT_ATTR_NAME, Object.class, ACC_PRIVATE | ACC_VOLATILE)
+                                                 .implement(EnhancedInstance.class)
+                                                 .intercept(FieldAccessor.ofField(CONTEXT_ATTR_NAME));
+                context.extendObjectCompleted();
+            }
+        }
+
+        if (existedConstructorInterceptPoint) {
+            for (ConstructorInterceptPoint constructorInterceptPoint : constructorInterceptPoints) {
+                newClassBuilder = newClassBuilder.constructor(constructorInterceptPoint.getConstructorMatcher())
+                                                 .intercept(SuperMethodCall.INSTANCE.andThen(
+                                                     MethodDelegation.withDefaultConfiguration()
+                                                                     .to(new ConstructorInter(
+                                                                         constructorInterceptPoint.getConstructorInterceptor(),
+                                                                         classLoader))));
+            }
+        }
+
+        if (existedMethodsInterceptV3Points) {
+            for (InstanceMethodsInterceptV3Point instanceMethodsInterceptV3Point : instanceMethodsInterceptV3Points) {
+                String interceptor = instanceMethodsInterceptV3Point.getMethodsInterceptorV3();
+                if (StringUtil.isEmpty(interceptor)) {
+                    throw new EnhanceException(
+                        "no InstanceMethodsAroundInterceptorV3 define to enhance class " + enhanceOriginClassName);
+                }
+                newClassBuilder = newClassBuilder.visit(
+                    Advice.withCustomMapping()
+                          .bind(MethodSiteId.class, new MethodSiteBinder(loadInterceptor(interceptor, classLoader)))
+                          .to(InstMethodsAdvice.class)
+                          .on(isMethod().and(not(isStatic()))
+                                        .and(not(isAbstract()))
+                                        .and(instanceMethodsInterceptV3Point.getMethodsMatcher())));
+            }
+        }
+
+        return newClassBuilder;
+    }
+
+    private void checkBootstrapInstrumentation(String enhanceOriginClassName) throws EnhanceException {
+        if (isBootstrapInstrumentation()) {
+            throw new EnhanceException(
+                "v3 interceptors can't enhance the bootstrap class " + enhanceOriginClassName);
+        }
+    }
+
+    private Object loadInterceptor(String interceptor, ClassLoader classLoader) {
+        try {
+            return InterceptorInstanceLoader.load(interceptor, classLoader);
+        } catch (Throwable t) {
+            throw new PluginException("Can't create " + interceptor + ".", t);
+        }
+    }
+
+    /**
+     * Instance methods intercept v3 point. See {@link InstanceMethodsInterceptV3Point}
+     *
+     * @return collections of {@link InstanceMethodsInterceptV3Point}
+     */
+    public abstract InstanceMethodsInterceptV3Point[] getInstanceMethodsInterceptV3Points();
+
+    /**
+     * Static methods intercept v3 point. See {@link StaticMethodsInterceptV3Point}
+     *
+     * @return collections of {@link StaticMethodsInterceptV3Point}
+     */
+    public abstract StaticMethodsInterceptV3Point[] getStaticMethodsInterceptV3Points();
+
+    @Override
+    public InstanceMethodsInterceptPoint[] getInstanceMethodsInterceptPoints() {
+        return null;
+    }
+
+    @Override
+    public InstanceMethodsInterceptV2Point[] getInstanceMethodsInterceptV2Points() {
+        return null;
+    }
+
+    @Override
+    public StaticMethodsInterceptPoint[] getStaticMethodsInterceptPoints() {
+        return null;
+    }
+
+    @Override
+    public StaticMethodsInterceptV2Point[] getStaticMethodsInterceptV2Points() {
+        return null;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.v3;
+
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.ConstructorInterceptPoint;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.v3.InstanceMethodsInterceptV3Point;
+
+/**
+ * Plugins, which only need enhance class static methods by v3 interceptors. Just override {@link
+ * ClassEnhancePluginDefineV3#getConstructorsInterceptPoints} and {@link
+ * ClassEnhancePluginDefineV3#getInstanceMethodsInterceptV3Points}, and return NULL, which means nothing to enhance.
+ */
+public abstract class ClassStaticMethodsEnhancePluginDefineV3 extends ClassEnhancePluginDefineV3 {
+
+    /**
+     * @return null, means enhance no constructors.
+     */
+    @Override
+    public ConstructorInterceptPoint[] getConstructorsInterceptPoints() {
+        return null;
+    }
+
+    /**
+     * @return null, means enhance no v3 instance methods.
+     */
+    @Override
+    public InstanceMethodsInterceptV3Point[] getInstanceMethodsInterceptV3Points() {
+        return null;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.v3;
+
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+
+/**
+ * The advice inlined into the instance methods of {@link InstanceMethodsAroundInterceptorV3}. The arguments array is
+ * only built inside the branch taken when the interceptor accepts the invocation, and the return value is only boxed
+ * in the same case.
+ */
+public class InstMethodsAdvice {
+    @Advice.OnMethodEnter
+    public static MethodSite.Invocation enter(@MethodSiteId int siteId, @Advice.This Object obj,
+                                              @Advice.Origin Class<?> clazz,
+                                              @Advice.AllArguments Object[] allArguments) {
+        MethodSite site = MethodSite.get(siteId);
+        if (site.shouldIntercept((EnhancedInstance) obj)) {
+            return site.beforeMethod((EnhancedInstance) obj, clazz, allArguments);
+        }
+        return null;
+    }
+
+    @Advice.OnMethodExit(onThrowable = Throwable.class)
+    public static void exit(@MethodSiteId int siteId, @Advice.This Object obj,
+                            @Advice.Enter MethodSite.Invocation invocation,
+                            @Advice.Return(readOnly = false, typing = Assigner.Typing.DYNAMIC) Object ret,
+                            @Advice.Thrown Throwable thrown) {
+        if (invocation != null) {
+            ret = MethodSite.get(siteId).afterMethod((EnhancedInstance) obj, invocation, ret, thrown);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.v3;
+
+import java.lang.reflect.Method;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+
+/**
+ * A v3 interceptor, which intercept method's invocation through advice inlined into the target method. The target
+ * methods will be defined in {@link ClassEnhancePluginDefineV3}'s subclass, most likely in {@link
+ * ClassInstanceMethodsEnhancePluginDefineV3}.
+ * <p>
+ * {@link #shouldIntercept(EnhancedInstance)} is checked first on every invocation. Only when it returns true, the
+ * arguments are boxed into an array and the other callbacks are called, so a site that is not traced allocates
+ * nothing. The given method and argument types are resolved once per site and shared, don't modify them.
+ */
+public interface InstanceMethodsAroundInterceptorV3 {
+    /**
+     * called before everything else, without any allocation. Such as return {@code ContextManager.isActive()} for an
+     * exit span interceptor.
+     *
+     * @return false, if this invocation should not be intercepted at all.
+     */
+    boolean shouldIntercept(EnhancedInstance objInst);
+
+    /**
+     * called before target method invocation.
+     *
+     * @return the context propagated to {@link #afterMethod} and {@link #handleMethodException}, could be null.
+     */
+    Object beforeMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                        Class<?>[] argumentsTypes) throws Throwable;
+
+    /**
+     * called after target method invocation. Even method's invocation triggers an exception.
+     *
+     * @param ret     the method's original return value. May be null if the method triggers an exception.
+     * @param context the value returned by {@link #beforeMethod}.
+     * @return the method's actual return value.
+     */
+    Object afterMethod(EnhancedInstance objInst, Method method, Object[] allArguments, Class<?>[] argumentsTypes,
+                       Object ret, Object context) throws Throwable;
+
+    /**
+     * called when occur exception.
+     *
+     * @param t       the exception occur.
+     * @param context the value returned by {@link #beforeMethod}.
+     */
+    void handleMethodException(EnhancedInstance objInst, Method method, Object[] allArguments,
+                               Class<?>[] argumentsTypes, Throwable t, Object context);
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.v3;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import org.apache.skywalking.apm.agent.core.logging.api.ILog;
+import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+
+/**
+ * The static metadata of one method woven by the v3 advice. Every site is registered once when its class is
+ * transformed, and the inlined advice only carries the int id of it. The reflective {@link Method} and its parameter
+ * types are resolved at the first intercepted invocation, and shared by all the later ones.
+ */
+public final class MethodSite {
+    private static final ILog LOGGER = LogManager.getLogger(MethodSite.class);
+
+    private static final Object LOCK = new Object();
+
+    private static volatile MethodSite[] SITES = new MethodSite[64];
+
+    private static int SITE_COUNT = 0;
+
+    private final Object interceptor;
+
+    private final String methodName;
+
+    private final String[] parameterTypeNames;
+
+    private volatile Method method;
+
+    private Class<?>[] parameterTypes;
+
+    MethodSite(Object interceptor, String methodName, String[] parameterTypeNames) {
+        this.interceptor = interceptor;
+        this.methodName = methodName;
+        this.parameterTypeNames = parameterTypeNames;
+    }
+
+    /**
+     * @return the id of the registered site, which is used by the inlined advice to find it back.
+     */
+    static int register(MethodSite site) {
+        synchronized (LOCK) {
+            MethodSite[] sites = SITES;
+            if (SITE_COUNT == sites.length) {
+                sites = Arrays.copyOf(sites, sites.length << 1);
+            }
+            sites[SITE_COUNT] = site;
+            // republish the array, the volatile write makes the new site visible to the readers.
+            SITES = sites;
+            return SITE_COUNT++;
+        }
+    }
+
+    public static MethodSite get(int id) {
+        return SITES[id];
+    }
+
+    public boolean shouldIntercept(EnhancedInstance objInst) {
+        try {
+            return ((InstanceMethodsAroundInterceptorV3) interceptor).shouldIntercept(objInst);
+        } catch (Throwable t) {
+            LOGGER.error(t, "method[{}] should intercept check failure", methodName);
+            return false;
+        }
+    }
+
+    public boolean shouldIntercept(Class<?> clazz) {
+        try {
+            return ((StaticMethodsAroundInterceptorV3) interceptor).shouldIntercept(clazz);
+        } catch (Throwable t) {
+            LOGGER.error(t, "class[{}] should intercept check failure of static method[{}]", clazz, methodName);
+            return false;
+        }
+    }
+
+    public Invocation beforeMethod(EnhancedInstance objInst, Class<?> clazz, Object[] allArguments) {
+        Method method = resolve(clazz);
+        if (method == null) {
+            return null;
+        }
+        Invocation invocation = new Invocation(allArguments);
+        try {
+            invocation.context = ((InstanceMethodsAroundInterceptorV3) interceptor).beforeMethod(
+                objInst, method, allArguments, parameterTypes);
+        } catch (Throwable t) {
+            LOGGER.error(t, "class[{}] before method[{}] intercept failure", clazz, methodName);
+        }
+        return invocation;
+    }
+
+    public Invocation beforeMethod(Class<?> clazz, Object[] allArguments) {
+        Method method = resolve(clazz);
+        if (method == null) {
+            return null;
+        }
+        Invocation invocation = new Invocation(allArguments);
+        try {
+            invocation.context = ((StaticMethodsAroundInterceptorV3) interceptor).beforeMethod(
+                clazz, method, allArguments, parameterTypes);
+        } catch (Throwable t) {
+            LOGGER.error(t, "class[{}] before static method[{}] intercept failure", clazz, methodName);
+        }
+        return invocation;
+    }
+
+    public Object afterMethod(EnhancedInstance objInst, Invocation invocation, Object ret, Throwable thrown) {
+        InstanceMethodsAroundInterceptorV3 aroundInterceptor = (InstanceMethodsAroundInterceptorV3) interceptor;
+        if (thrown != null) {
+            try {
+                aroundInterceptor.handleMethodException(
+                    objInst, method, invocation.allArguments, parameterTypes, thrown, invocation.context);
+            } catch (Throwable t) {
+                LOGGER.error(t, "class[{}] handle method[{}] exception failure", method.getDeclaringClass(), methodName);
+            }
+        }
+        try {
+            return aroundInterceptor.afterMethod(
+                objInst, method, invocation.allArguments, parameterTypes, ret, invocation.context);
+        } catch (Throwable t) {
+            LOGGER.error(t, "class[{}] after method[{}] intercept failure", method.getDeclaringClass(), methodName);
+            return ret;
+        }
+    }
+
+    public Object afterMethod(Class<?> clazz, Invocation invocation, Object ret, Throwable thrown) {
+        StaticMethodsAroundInterceptorV3 aroundInterceptor = (StaticMethodsAroundInterceptorV3) interceptor;
+        if (thrown != null) {
+            try {
+                aroundInterceptor.handleMethodException(
+                    clazz, method, invocation.allArguments, parameterTypes, thrown, invocation.context);
+            } catch (Throwable t) {
+                LOGGER.error(t, "class[{}] handle static method[{}] exception failure", clazz, methodName);
+            }
+        }
+        try {
+            return aroundInterceptor.afterMethod(
+                clazz, method, invocation.allArguments, parameterTypes, ret, invocation.context);
+        } catch (Throwable t) {
+            LOGGER.error(t, "class[{}] after static method[{}] intercept failure", clazz, methodName);
+            return ret;
+        }
+    }
+
+    private Method resolve(Class<?> clazz) {
+        Method resolved = method;
+        if (resolved != null) {
+            return resolved;
+        }
+        for (Method declaredMethod : clazz.getDeclaredMethods()) {
+            if (!declaredMethod.getName().equals(methodName)) {
+                continue;
+            }
+            Class<?>[] types = declaredMethod.getParameterTypes();
+            if (types.length != parameterTypeNames.length) {
+                continue;
+            }
+            boolean matched = true;
+            for (int i = 0; i < types.length && matched; i++) {
+                matched = types[i].getName().equals(parameterTypeNames[i]);
+            }
+            if (matched) {
+                parameterTypes = types;
+                // the volatile write publishes the parameter types as well.
+                method = declaredMethod;
+                return declaredMethod;
+            }
+        }
+        LOGGER.warn("class[{}] can't resolve the intercepted method[{}]", clazz, methodName);
+        return null;
+    }
+
+    /**
+     * The state of one intercepted invocation, passed from the enter advice to the exit advice. It is only created when
+     * the interceptor accepts the invocation.
+     */
+    public static final class Invocation {
+        private final Object[] allArguments;
+
+        private Object context;
+
+        private Invocation(Object[] allArguments) {
+            this.allArguments = allArguments;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.v3;
+
+import java.util.HashMap;
+import java.util.Map;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.description.type.TypeList;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import net.bytebuddy.implementation.bytecode.constant.IntegerConstant;
+
+/**
+ * Resolves {@link MethodSiteId} of every method matched by one intercept point. The {@link MethodSite} is registered
+ * at the first resolution of the method, the enter and exit advices share it.
+ */
+class MethodSiteBinder implements Advice.OffsetMapping {
+    private final Object interceptor;
+
+    private final Map<String, Integer> siteIds = new HashMap<>();
+
+    MethodSiteBinder(Object interceptor) {
+        this.interceptor = interceptor;
+    }
+
+    @Override
+    public synchronized Target resolve(TypeDescription instrumentedType, MethodDescription instrumentedMethod,
+                                       Assigner assigner, Advice.ArgumentHandler argumentHandler, Sort sort) {
+        String key = instrumentedMethod.getInternalName() + instrumentedMethod.getDescriptor();
+        Integer siteId = siteIds.get(key);
+        if (siteId == null) {
+            TypeList parameterTypes = instrumentedMethod.getParameters().asTypeList().asErasures();
+            String[] parameterTypeNames = new String[parameterTypes.size()];
+            for (int i = 0; i < parameterTypeNames.length; i++) {
+                parameterTypeNames[i] = parameterTypes.get(i).getName();
+            }
+            siteId = MethodSite.register(
+                new MethodSite(interceptor, instrumentedMethod.getInternalName(), parameterTypeNames));
+            siteIds.put(key, siteId);
+        }
+        return new Target.ForStackManipulation(IntegerConstant.forValue(siteId));
+    }
+}
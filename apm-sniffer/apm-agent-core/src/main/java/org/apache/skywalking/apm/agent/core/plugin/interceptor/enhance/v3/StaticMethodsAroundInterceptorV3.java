@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.v3;
+
+import java.lang.reflect.Method;
+
+/**
+ * The v3 static method's interceptor interface, see {@link InstanceMethodsAroundInterceptorV3} for the invocation
+ * order. The given method and argument types are resolved once per site and shared, don't modify them.
+ */
+public interface StaticMethodsAroundInterceptorV3 {
+    /**
+     * called before everything else, without any allocation.
+     *
+     * @return false, if this invocation should not be intercepted at all.
+     */
+    boolean shouldIntercept(Class<?> clazz);
+
+    /**
+     * called before target method invocation.
+     *
+     * @return the context propagated to {@link #afterMethod} and {@link #handleMethodException}, could be null.
+     */
+    Object beforeMethod(Class<?> clazz, Method method, Object[] allArguments, Class<?>[] parameterTypes);
+
+    /**
+     * called after target method invocation. Even method's invocation triggers an exception.
+     *
+     * @param ret     the method's original return value.
+     * @param context the value returned by {@link #beforeMethod}.
+     * @return the method's actual return value.
+     */
+    Object afterMethod(Class<?> clazz, Method method, Object[] allArguments, Class<?>[] parameterTypes, Object ret,
+                       Object context);
+
+    /**
+     * called when occur exception.
+     *
+     * @param t       the exception occur.
+     * @param context the value returned by {@link #beforeMethod}.
+     */
+    void handleMethodException(Class<?> clazz, Method method, Object[] allArguments, Class<?>[] parameterTypes,
+                               Throwable t, Object context);
+}
@@ -18,12 +18,9 @@
 
 package org.apache.skywalking.apm.agent.core.plugin.match;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.Set;
 
 import net.bytebuddy.description.type.TypeDescription;
-import net.bytebuddy.description.type.TypeList;
 import net.bytebuddy.matcher.ElementMatcher;
 
 import static net.bytebuddy.matcher.ElementMatchers.hasSuperType;
@@ -64,36 +61,23 @@ public class HierarchyMatch implements IndirectMatch {
 
     @Override
     public boolean isMatch(TypeDescription typeDescription) {
-        List<String> parentTypes = new ArrayList<String>(Arrays.asList(this.parentTypes));
-
-        TypeList.Generic implInterfaces = typeDescription.getInterfaces();
-        for (TypeDescription.Generic implInterface : implInterfaces) {
-            matchHierarchyClass(implInterface, parentTypes);
-        }
-
-        if (typeDescription.getSuperClass() != null) {
-            matchHierarchyClass(typeDescription.getSuperClass(), parentTypes);
-        }
-
-        return parentTypes.size() == 0;
-
+        return isMatch(SuperTypeNames.resolve(typeDescription));
     }
 
-    private void matchHierarchyClass(TypeDescription.Generic clazz, List<String> parentTypes) {
-        parentTypes.remove(clazz.asRawType().getTypeName());
-        if (parentTypes.size() == 0) {
-            return;
-        }
-
-        for (TypeDescription.Generic generic : clazz.getInterfaces()) {
-            matchHierarchyClass(generic, parentTypes);
-        }
-
-        TypeDescription.Generic superClazz = clazz.getSuperClass();
-        if (superClazz != null && !clazz.getTypeName().equals("java.lang.Object")) {
-            matchHierarchyClass(superClazz, parentTypes);
+    /**
+     * @param superTypeNames all super classes and interfaces of the type, resolved by {@link SuperTypeNames}
+     */
+    public boolean isMatch(Set<String> superTypeNames) {
+        for (String parentType : parentTypes) {
+            if (!superTypeNames.contains(parentType)) {
+                return false;
+            }
         }
+        return true;
+    }
 
+    public String[] getParentTypes() {
+        return parentTypes;
     }
 
     public static IndirectMatch byHierarchyMatch(String... parentTypes) {
@@ -18,6 +18,7 @@
 
 package org.apache.skywalking.apm.agent.core.plugin.match;
 
+import java.util.regex.Pattern;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 
@@ -28,12 +29,17 @@ import static net.bytebuddy.matcher.ElementMatchers.nameMatches;
  */
 public class RegexMatch implements IndirectMatch {
     private String[] regexExpressions;
+    private Pattern[] patterns;
 
     private RegexMatch(String... regexExpressions) {
         if (regexExpressions == null || regexExpressions.length == 0) {
             throw new IllegalArgumentException("annotations is null");
         }
         this.regexExpressions = regexExpressions;
+        this.patterns = new Pattern[regexExpressions.length];
+        for (int i = 0; i < regexExpressions.length; i++) {
+            this.patterns[i] = Pattern.compile(regexExpressions[i]);
+        }
     }
 
     @Override
@@ -51,14 +57,17 @@ public class RegexMatch implements IndirectMatch {
 
     @Override
     public boolean isMatch(TypeDescription typeDescription) {
-        boolean isMatch = false;
-        for (String matchExpression : regexExpressions) {
-            isMatch = typeDescription.getTypeName().matches(matchExpression);
-            if (isMatch) {
-                break;
+        final String typeName = typeDescription.getTypeName();
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(typeName).matches()) {
+                return true;
             }
         }
-        return isMatch;
+        return false;
+    }
+
+    public String[] getRegexExpressions() {
+        return regexExpressions;
     }
 
     public static RegexMatch byRegexMatch(String... regexExpressions) {
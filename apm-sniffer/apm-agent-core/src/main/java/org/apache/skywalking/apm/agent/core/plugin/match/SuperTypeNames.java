@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.match;
+
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Set;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+
+/**
+ * Resolve the names of all super classes and interfaces of a type, not including the type itself.
+ *
+ * The type matcher and the transformer of a class receive the same {@link TypeDescription}, so the names resolved for
+ * the last type are kept per thread, then the hierarchy is walked once for all the {@link HierarchyMatch}es.
+ */
+public class SuperTypeNames {
+    private static final ThreadLocal<SuperTypeNames> LAST_RESOLVED = new ThreadLocal<SuperTypeNames>();
+
+    private final WeakReference<TypeDescription> type;
+    private final Set<String> names;
+
+    private SuperTypeNames(TypeDescription type, Set<String> names) {
+        this.type = new WeakReference<TypeDescription>(type);
+        this.names = names;
+    }
+
+    public static Set<String> resolve(TypeDescription typeDescription) {
+        final SuperTypeNames last = LAST_RESOLVED.get();
+        if (last != null && last.type.get() == typeDescription) {
+            return last.names;
+        }
+
+        final Set<String> names = new HashSet<String>();
+        collect(typeDescription, names);
+        LAST_RESOLVED.set(new SuperTypeNames(typeDescription, names));
+        return names;
+    }
+
+    private static void collect(TypeDefinition type, Set<String> names) {
+        for (TypeDescription.Generic implInterface : type.getInterfaces()) {
+            // the super types of a visited type are collected already
+            if (names.add(implInterface.asErasure().getTypeName())) {
+                collect(implInterface, names);
+            }
+        }
+
+        final TypeDescription.Generic superClass = type.getSuperClass();
+        if (superClass != null && names.add(superClass.asErasure().getTypeName())) {
+            collect(superClass, names);
+        }
+    }
+}
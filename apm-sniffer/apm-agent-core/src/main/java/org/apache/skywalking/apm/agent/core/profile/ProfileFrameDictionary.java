@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.profile;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per profile task frame dictionary. Every distinct stack frame gets a sequential id when first seen, so the dumped
+ * stacks are kept as id arrays, and the code signature of a frame is built only once for the whole task.
+ */
+public class ProfileFrameDictionary {
+
+    private final Map<StackTraceElement, Integer> frameIds = new HashMap<>();
+    private final List<String> codeSignatures = new ArrayList<>();
+
+    /**
+     * @return the id of the frame, assigned a new one if the frame is not in the dictionary yet
+     */
+    public synchronized int intern(StackTraceElement element) {
+        Integer id = frameIds.get(element);
+        if (id == null) {
+            id = codeSignatures.size();
+            codeSignatures.add(buildStackElementCodeSignature(element));
+            frameIds.put(element, id);
+        }
+        return id;
+    }
+
+    /**
+     * @return code sign of the frame id
+     */
+    public synchronized String codeSignature(int id) {
+        return codeSignatures.get(id);
+    }
+
+    /**
+     * @return the count of the interned frames
+     */
+    public synchronized int size() {
+        return codeSignatures.size();
+    }
+
+    /**
+     * build thread stack element code signature
+     *
+     * @return code sign: className.methodName:lineNumber
+     */
+    static String buildStackElementCodeSignature(StackTraceElement element) {
+        return element.getClassName() + "." + element.getMethodName() + ":" + element.getLineNumber();
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.profile;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+
+/**
+ * Encode the snapshots dumped in batch, see {@link Config.Profile#BATCH_DUMP}, into the compact messages of
+ * {@link ProfileSnapshotSender#COLLECT_COMPACT_METHOD}. The message is in the protobuf wire format, a sequence of the
+ * records below,
+ * <pre>
+ * 1: task id (string), the task of the following records, always the first record of a message
+ * 2: frames { 1: first frame id (int32), 2: code signatures (repeated string) }
+ * 3: snapshot { 1: segment id (string), 2: sequence (int32), 3: time (int64),
+ *               4: count of the bottom frames same as the previous snapshot of the segment (int32),
+ *               5: ids of the rest frames (packed int32) }
+ * </pre>
+ * The frames of a task are sent only once, before the first snapshot referring them, and every snapshot only carries
+ * the frames different from the previous one of the same segment, so the receiver has to keep the state of the task.
+ * The encoder should be {@link #reset()} when the messages may be lost, to send the frames and the full stacks again.
+ * <p>
+ * A message is limited to the max bytes, unless a single record exceeds it.
+ */
+public class ProfileSnapshotEncoder {
+    static final int TASK_ID = 1;
+    static final int FRAMES = 2;
+    static final int FRAMES_FIRST_ID = 1;
+    static final int FRAMES_CODE_SIGNATURE = 2;
+    static final int SNAPSHOT = 3;
+    static final int SNAPSHOT_SEGMENT_ID = 1;
+    static final int SNAPSHOT_SEQUENCE = 2;
+    static final int SNAPSHOT_TIME = 3;
+    static final int SNAPSHOT_KEPT_FRAMES = 4;
+    static final int SNAPSHOT_FRAME_IDS = 5;
+
+    private final int maxMessageBytes;
+
+    // state of the current task, the old task is dropped once the snapshots of a new task come
+    private String taskId;
+    private int sentFrameCount;
+    private final Map<String, int[]> lastFrameIds = new HashMap<>();
+
+    // message in building
+    private final List<byte[]> messages = new ArrayList<>();
+    private final ByteArrayOutputStream message = new ByteArrayOutputStream();
+    private String messageTaskId;
+
+    public ProfileSnapshotEncoder(int maxMessageBytes) {
+        this.maxMessageBytes = maxMessageBytes;
+    }
+
+    /**
+     * @param snapshots dumped in batch, which have the frame ids
+     * @return the encoded messages
+     */
+    public List<byte[]> encode(List<TracingThreadSnapshot> snapshots) {
+        messages.clear();
+        for (TracingThreadSnapshot snapshot : snapshots) {
+            if (!snapshot.getTaskId().equals(taskId)) {
+                taskId = snapshot.getTaskId();
+                sentFrameCount = 0;
+                lastFrameIds.clear();
+            }
+            final int[] frameIds = snapshot.getFrameIds();
+            final ProfileFrameDictionary frameDictionary = snapshot.getFrameDictionary();
+
+            int maxFrameId = -1;
+            for (int frameId : frameIds) {
+                maxFrameId = Math.max(maxFrameId, frameId);
+            }
+            if (maxFrameId >= sentFrameCount) {
+                appendFrames(frameDictionary, maxFrameId + 1);
+            }
+
+            final int[] previous = lastFrameIds.put(snapshot.getTraceSegmentId(), frameIds);
+            int keptFrames = 0;
+            if (previous != null) {
+                final int sameLength = Math.min(previous.length, frameIds.length);
+                while (keptFrames < sameLength && previous[keptFrames] == frameIds[keptFrames]) {
+                    keptFrames++;
+                }
+            }
+            appendSnapshot(snapshot, frameIds, keptFrames);
+        }
+        flushMessage();
+        return new ArrayList<>(messages);
+    }
+
+    /**
+     * Forget all the sent frames and stacks.
+     */
+    public void reset() {
+        taskId = null;
+        sentFrameCount = 0;
+        lastFrameIds.clear();
+    }
+
+    private void appendFrames(ProfileFrameDictionary frameDictionary, int frameCount) {
+        // split the frames to keep the message size, reserved some bytes for the task id and the first id
+        final int maxFramesBytes = maxMessageBytes - CodedOutputStream.computeStringSize(TASK_ID, taskId) - 16;
+        while (sentFrameCount < frameCount) {
+            final int firstId = sentFrameCount;
+            int framesBytes = CodedOutputStream.computeInt32Size(FRAMES_FIRST_ID, firstId);
+            final List<String> codeSignatures = new ArrayList<>();
+            while (sentFrameCount < frameCount) {
+                final String codeSignature = frameDictionary.codeSignature(sentFrameCount);
+                final int size = CodedOutputStream.computeStringSize(FRAMES_CODE_SIGNATURE, codeSignature);
+                if (!codeSignatures.isEmpty() && framesBytes + size > maxFramesBytes) {
+                    break;
+                }
+                codeSignatures.add(codeSignature);
+                framesBytes += size;
+                sentFrameCount++;
+            }
+
+            final byte[] record = new byte[CodedOutputStream.computeUInt32SizeNoTag(framesBytes) + framesBytes
+                + CodedOutputStream.computeTagSize(FRAMES)];
+            final CodedOutputStream output = CodedOutputStream.newInstance(record);
+            try {
+                output.writeTag(FRAMES, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeUInt32NoTag(framesBytes);
+                output.writeInt32(FRAMES_FIRST_ID, firstId);
+                for (String codeSignature : codeSignatures) {
+                    output.writeString(FRAMES_CODE_SIGNATURE, codeSignature);
+                }
+                output.checkNoSpaceLeft();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            appendRecord(record);
+        }
+    }
+
+    private void appendSnapshot(TracingThreadSnapshot snapshot, int[] frameIds, int keptFrames) {
+        int frameIdsBytes = 0;
+        for (int i = keptFrames; i < frameIds.length; i++) {
+            frameIdsBytes += CodedOutputStream.computeInt32SizeNoTag(frameIds[i]);
+        }
+        int snapshotBytes = CodedOutputStream.computeStringSize(SNAPSHOT_SEGMENT_ID, snapshot.getTraceSegmentId())
+            + CodedOutputStream.computeInt32Size(SNAPSHOT_SEQUENCE, snapshot.getSequence())
+            + CodedOutputStream.computeInt64Size(SNAPSHOT_TIME, snapshot.getTime())
+            + CodedOutputStream.computeInt32Size(SNAPSHOT_KEPT_FRAMES, keptFrames);
+        if (frameIdsBytes > 0) {
+            snapshotBytes += CodedOutputStream.computeTagSize(SNAPSHOT_FRAME_IDS)
+                + CodedOutputStream.computeUInt32SizeNoTag(frameIdsBytes) + frameIdsBytes;
+        }
+
+        final byte[] record = new byte[CodedOutputStream.computeTagSize(SNAPSHOT)
+            + CodedOutputStream.computeUInt32SizeNoTag(snapshotBytes) + snapshotBytes];
+        final CodedOutputStream output = CodedOutputStream.newInstance(record);
+        try {
+            output.writeTag(SNAPSHOT, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(snapshotBytes);
+            output.writeString(SNAPSHOT_SEGMENT_ID, snapshot.getTraceSegmentId());
+            output.writeInt32(SNAPSHOT_SEQUENCE, snapshot.getSequence());
+            output.writeInt64(SNAPSHOT_TIME, snapshot.getTime());
+            output.writeInt32(SNAPSHOT_KEPT_FRAMES, keptFrames);
+            if (frameIdsBytes > 0) {
+                output.writeTag(SNAPSHOT_FRAME_IDS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeUInt32NoTag(frameIdsBytes);
+                for (int i = keptFrames; i < frameIds.length; i++) {
+                    output.writeInt32NoTag(frameIds[i]);
+                }
+            }
+            output.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        appendRecord(record);
+    }
+
+    private void appendRecord(byte[] record) {
+        if (message.size() > 0 && (!taskId.equals(messageTaskId) || message.size() + record.length > maxMessageBytes)) {
+            flushMessage();
+        }
+        if (message.size() == 0) {
+            final byte[] taskRecord = new byte[CodedOutputStream.computeStringSize(TASK_ID, taskId)];
+            final CodedOutputStream output = CodedOutputStream.newInstance(taskRecord);
+            try {
+                output.writeString(TASK_ID, taskId);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            message.write(taskRecord, 0, taskRecord.length);
+            messageTaskId = taskId;
+        }
+        message.write(record, 0, record.length);
+    }
+
+    private void flushMessage() {
+        if (message.size() > 0) {
+            messages.add(message.toByteArray());
+            message.reset();
+            messageTaskId = null;
+        }
+    }
+}
@@ -18,19 +18,26 @@
 
 package org.apache.skywalking.apm.agent.core.profile;
 
+import io.grpc.CallOptions;
 import io.grpc.Channel;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.stub.ClientCalls;
 import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.apache.skywalking.apm.agent.core.boot.BootService;
 import org.apache.skywalking.apm.agent.core.boot.DefaultImplementor;
 import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
+import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.logging.api.ILog;
 import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
 import org.apache.skywalking.apm.agent.core.remote.GRPCChannelListener;
 import org.apache.skywalking.apm.agent.core.remote.GRPCChannelManager;
 import org.apache.skywalking.apm.agent.core.remote.GRPCChannelStatus;
 import org.apache.skywalking.apm.agent.core.remote.GRPCStreamServiceStatus;
+import org.apache.skywalking.apm.agent.core.remote.SerializedMessageMarshaller;
 import org.apache.skywalking.apm.network.common.v3.Commands;
 import org.apache.skywalking.apm.network.language.profile.v3.ProfileTaskGrpc;
 import org.apache.skywalking.apm.network.language.profile.v3.ThreadSnapshot;
@@ -38,7 +45,10 @@ import org.apache.skywalking.apm.network.language.profile.v3.ThreadSnapshot;
 import static org.apache.skywalking.apm.agent.core.conf.Config.Collector.GRPC_UPSTREAM_TIMEOUT;
 
 /**
- * send segment snapshot
+ * send segment snapshot. If {@link Config.Profile#SNAPSHOT_COMPACT_ENCODING} is enabled, the snapshots dumped in batch
+ * are encoded by {@link ProfileSnapshotEncoder}, and sent through {@link #COLLECT_COMPACT_METHOD}. Once the backend
+ * doesn't implement it, all the snapshots are sent as {@link ThreadSnapshot}s, and the method isn't tried again after
+ * reconnecting.
  */
 @DefaultImplementor
 public class ProfileSnapshotSender implements BootService, GRPCChannelListener {
@@ -46,8 +56,25 @@ public class ProfileSnapshotSender implements BootService, GRPCChannelListener {
 
     private volatile GRPCChannelStatus status = GRPCChannelStatus.DISCONNECT;
 
+    /**
+     * The client streaming method of the compact snapshot messages, in the same service as {@link
+     * ProfileTaskGrpc#getCollectSnapshotMethod()}.
+     */
+    static final MethodDescriptor<byte[], Commands> COLLECT_COMPACT_METHOD =
+        SerializedMessageMarshaller.serializedMethodOf(ProfileTaskGrpc.getCollectSnapshotMethod())
+                                   .toBuilder()
+                                   .setFullMethodName(MethodDescriptor.generateFullMethodName(
+                                       ProfileTaskGrpc.SERVICE_NAME, "collectCompactSnapshot"))
+                                   .build();
+
     private volatile ProfileTaskGrpc.ProfileTaskStub profileTaskStub;
 
+    private volatile Channel channel;
+    // the frames and the stacks sent in the current connection
+    private volatile ProfileSnapshotEncoder encoder;
+    // kept across the reconnections, the backends of the same cluster are expected to be the same version
+    private volatile boolean compactUnsupported;
+
     @Override
     public void prepare() throws Throwable {
         ServiceManager.INSTANCE.findService(GRPCChannelManager.class).addChannelListener(this);
@@ -61,56 +88,144 @@ public class ProfileSnapshotSender implements BootService, GRPCChannelListener {
     @Override
     public void statusChanged(final GRPCChannelStatus status) {
         if (GRPCChannelStatus.CONNECTED.equals(status)) {
-            Channel channel = ServiceManager.INSTANCE.findService(GRPCChannelManager.class).getChannel();
-            profileTaskStub = ProfileTaskGrpc.newStub(channel);
+            connected(ServiceManager.INSTANCE.findService(GRPCChannelManager.class).getChannel());
         } else {
             profileTaskStub = null;
+            this.channel = null;
         }
         this.status = status;
     }
 
+    void connected(final Channel channel) {
+        profileTaskStub = ProfileTaskGrpc.newStub(channel);
+        this.channel = channel;
+        // the new connection may reach another backend, which has none of the frames or the stacks
+        encoder = new ProfileSnapshotEncoder(Config.Profile.SNAPSHOT_MESSAGE_MAX_BYTES);
+    }
+
     public void send(List<TracingThreadSnapshot> buffer) {
-        if (status == GRPCChannelStatus.CONNECTED) {
-            try {
-                final GRPCStreamServiceStatus status = new GRPCStreamServiceStatus(false);
-                StreamObserver<ThreadSnapshot> snapshotStreamObserver = profileTaskStub.withDeadlineAfter(
-                    GRPC_UPSTREAM_TIMEOUT, TimeUnit.SECONDS
-                ).collectSnapshot(
-                    new StreamObserver<Commands>() {
-                        @Override
-                        public void onNext(
-                            Commands commands) {
-                        }
+        if (status != GRPCChannelStatus.CONNECTED) {
+            return;
+        }
+        if (!Config.Profile.SNAPSHOT_COMPACT_ENCODING || compactUnsupported) {
+            sendSnapshots(buffer);
+            return;
+        }
+
+        final List<TracingThreadSnapshot> snapshots = new ArrayList<>(buffer.size());
+        final List<TracingThreadSnapshot> compactSnapshots = new ArrayList<>(buffer.size());
+        for (TracingThreadSnapshot snapshot : buffer) {
+            if (snapshot.getFrameIds() != null) {
+                compactSnapshots.add(snapshot);
+            } else {
+                snapshots.add(snapshot);
+            }
+        }
+        if (!compactSnapshots.isEmpty() && !sendCompactSnapshots(compactSnapshots)) {
+            // fallback to the uncompressed snapshots
+            snapshots.addAll(compactSnapshots);
+        }
+        if (!snapshots.isEmpty()) {
+            sendSnapshots(snapshots);
+        }
+    }
+
+    /**
+     * @return false if the backend doesn't support the compact snapshots
+     */
+    private boolean sendCompactSnapshots(List<TracingThreadSnapshot> snapshots) {
+        final ProfileSnapshotEncoder encoder = this.encoder;
+        try {
+            final List<byte[]> messages = encoder.encode(snapshots);
+            final GRPCStreamServiceStatus status = new GRPCStreamServiceStatus(false);
+            StreamObserver<byte[]> messageStreamObserver = ClientCalls.asyncClientStreamingCall(
+                channel.newCall(
+                    COLLECT_COMPACT_METHOD,
+                    CallOptions.DEFAULT.withDeadlineAfter(GRPC_UPSTREAM_TIMEOUT, TimeUnit.SECONDS)
+                ),
+                new StreamObserver<Commands>() {
+                    @Override
+                    public void onNext(Commands commands) {
+                    }
 
-                        @Override
-                        public void onError(
-                            Throwable throwable) {
-                            status.finished();
+                    @Override
+                    public void onError(Throwable throwable) {
+                        // the receiver may lose the frames or the stacks, send them again
+                        encoder.reset();
+                        if (Status.fromThrowable(throwable).getCode() == Status.Code.UNIMPLEMENTED) {
+                            LOGGER.warn("Backend doesn't support the compact profile snapshots, fallback to the uncompressed.");
+                            compactUnsupported = true;
+                        } else {
                             if (LOGGER.isErrorEnable()) {
                                 LOGGER.error(
                                     throwable,
-                                    "Send profile segment snapshot to collector fail with a grpc internal exception."
+                                    "Send compact profile snapshots to collector fail with a grpc internal exception."
                                 );
                             }
                             ServiceManager.INSTANCE.findService(GRPCChannelManager.class).reportError(throwable);
                         }
+                        status.finished();
+                    }
 
-                        @Override
-                        public void onCompleted() {
-                            status.finished();
-                        }
+                    @Override
+                    public void onCompleted() {
+                        status.finished();
                     }
-                );
-                for (TracingThreadSnapshot snapshot : buffer) {
-                    final ThreadSnapshot transformSnapshot = snapshot.transform();
-                    snapshotStreamObserver.onNext(transformSnapshot);
                 }
+            );
+            for (byte[] message : messages) {
+                messageStreamObserver.onNext(message);
+            }
+
+            messageStreamObserver.onCompleted();
+            status.wait4Finish();
+        } catch (Throwable t) {
+            encoder.reset();
+            LOGGER.error(t, "Send compact profile snapshots to backend fail.");
+        }
+        return !compactUnsupported;
+    }
+
+    private void sendSnapshots(List<TracingThreadSnapshot> buffer) {
+        try {
+            final GRPCStreamServiceStatus status = new GRPCStreamServiceStatus(false);
+            StreamObserver<ThreadSnapshot> snapshotStreamObserver = profileTaskStub.withDeadlineAfter(
+                GRPC_UPSTREAM_TIMEOUT, TimeUnit.SECONDS
+            ).collectSnapshot(
+                new StreamObserver<Commands>() {
+                    @Override
+                    public void onNext(
+                        Commands commands) {
+                    }
+
+                    @Override
+                    public void onError(
+                        Throwable throwable) {
+                        status.finished();
+                        if (LOGGER.isErrorEnable()) {
+                            LOGGER.error(
+                                throwable,
+                                "Send profile segment snapshot to collector fail with a grpc internal exception."
+                            );
+                        }
+                        ServiceManager.INSTANCE.findService(GRPCChannelManager.class).reportError(throwable);
+                    }
 
-                snapshotStreamObserver.onCompleted();
-                status.wait4Finish();
-            } catch (Throwable t) {
-                LOGGER.error(t, "Send profile segment snapshot to backend fail.");
+                    @Override
+                    public void onCompleted() {
+                        status.finished();
+                    }
+                }
+            );
+            for (TracingThreadSnapshot snapshot : buffer) {
+                final ThreadSnapshot transformSnapshot = snapshot.transform();
+                snapshotStreamObserver.onNext(transformSnapshot);
             }
+
+            snapshotStreamObserver.onCompleted();
+            status.wait4Finish();
+        } catch (Throwable t) {
+            LOGGER.error(t, "Send profile segment snapshot to backend fail.");
         }
     }
 
@@ -23,6 +23,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
 import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.context.TracingContext;
 
@@ -46,6 +47,9 @@ public class ProfileTaskExecutionContext {
     // total started profiling tracing context count
     private final AtomicInteger totalStartedProfilingCount = new AtomicInteger(0);
 
+    // frames dumped in batch of this task
+    private final ProfileFrameDictionary frameDictionary = new ProfileFrameDictionary();
+
     public ProfileTaskExecutionContext(ProfileTask task) {
         this.task = task;
         profilingSegmentSlots = new AtomicReferenceArray<>(Config.Profile.MAX_PARALLEL);
@@ -65,6 +69,16 @@ public class ProfileTaskExecutionContext {
         if (profilingFuture != null) {
             profilingFuture.cancel(true);
         }
+
+        // send the pending repeated snapshots of the threads still in profiling
+        final ProfileTaskChannelService channelService = ServiceManager.INSTANCE.findService(
+            ProfileTaskChannelService.class);
+        for (int slot = 0; slot < profilingSegmentSlots.length(); slot++) {
+            ThreadProfiler profiler = profilingSegmentSlots.get(slot);
+            if (profiler != null) {
+                profiler.flushRepeatedSnapshot(channelService);
+            }
+        }
     }
 
     /**
@@ -72,9 +86,7 @@ public class ProfileTaskExecutionContext {
      *
      * @return is add profile success
      */
-    public ProfileStatusReference attemptProfiling(TracingContext tracingContext,
-                                                   String traceSegmentId,
-                                                   String firstSpanOPName) {
+    public ProfileStatusReference attemptProfiling(TracingContext tracingContext, String firstSpanOPName) {
         // check has available slot
         final int usingSlotCount = currentProfilingCount.get();
         if (usingSlotCount >= Config.Profile.MAX_PARALLEL) {
@@ -97,7 +109,7 @@ public class ProfileTaskExecutionContext {
         }
 
         final ThreadProfiler threadProfiler = new ThreadProfiler(
-            tracingContext, traceSegmentId, Thread.currentThread(), this);
+            tracingContext, tracingContext.getSegmentId(), Thread.currentThread(), this);
         int slotLength = profilingSegmentSlots.length();
         for (int slot = 0; slot < slotLength; slot++) {
             if (profilingSegmentSlots.compareAndSet(slot, null, threadProfiler)) {
@@ -110,7 +122,7 @@ public class ProfileTaskExecutionContext {
     /**
      * profiling recheck
      */
-    public void profilingRecheck(TracingContext tracingContext, String traceSegmentId, String firstSpanOPName) {
+    public void profilingRecheck(TracingContext tracingContext, String firstSpanOPName) {
         // if started, keep profiling
         if (tracingContext.profileStatus().isBeingWatched()) {
             return;
@@ -118,7 +130,7 @@ public class ProfileTaskExecutionContext {
 
         // update profiling status
         tracingContext.profileStatus()
-                      .updateStatus(attemptProfiling(tracingContext, traceSegmentId, firstSpanOPName).get());
+                      .updateStatus(attemptProfiling(tracingContext, firstSpanOPName).get());
     }
 
     /**
@@ -144,6 +156,10 @@ public class ProfileTaskExecutionContext {
         return task;
     }
 
+    public ProfileFrameDictionary getFrameDictionary() {
+        return frameDictionary;
+    }
+
     public AtomicReferenceArray<ThreadProfiler> threadProfilerSlots() {
         return profilingSegmentSlots;
     }
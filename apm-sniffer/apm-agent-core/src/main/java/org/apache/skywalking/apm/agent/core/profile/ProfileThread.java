@@ -19,9 +19,13 @@
 package org.apache.skywalking.apm.agent.core.profile;
 
 import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
+import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.logging.api.ILog;
 import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
@@ -66,6 +70,10 @@ public class ProfileThread implements Runnable {
     private void profiling(ProfileTaskExecutionContext executionContext) throws InterruptedException {
 
         int maxSleepPeriod = executionContext.getTask().getThreadDumpPeriod();
+        final boolean batchDump = Config.Profile.BATCH_DUMP;
+        final ThreadMXBean threadMXBean = batchDump ? ManagementFactory.getThreadMXBean() : null;
+        final ThreadProfiler[] batchProfilers = new ThreadProfiler[executionContext.threadProfilerSlots().length()];
+        final long[] batchThreadIds = new long[batchProfilers.length];
 
         // run loop when current thread still running
         long currentLoopStartTime = -1;
@@ -75,6 +83,7 @@ public class ProfileThread implements Runnable {
             // each all slot
             AtomicReferenceArray<ThreadProfiler> profilers = executionContext.threadProfilerSlots();
             int profilerCount = profilers.length();
+            int batchCount = 0;
             for (int slot = 0; slot < profilerCount; slot++) {
                 ThreadProfiler currentProfiler = profilers.get(slot);
                 if (currentProfiler == null) {
@@ -89,6 +98,12 @@ public class ProfileThread implements Runnable {
                         break;
 
                     case PROFILING:
+                        if (batchDump) {
+                            // dump all the profiling threads together below
+                            batchProfilers[batchCount] = currentProfiler;
+                            batchThreadIds[batchCount++] = currentProfiler.profilingThread().getId();
+                            break;
+                        }
                         // dump stack
                         TracingThreadSnapshot snapshot = currentProfiler.buildSnapshot();
                         if (snapshot != null) {
@@ -102,6 +117,10 @@ public class ProfileThread implements Runnable {
                 }
             }
 
+            if (batchCount > 0) {
+                dumpInBatch(executionContext, threadMXBean, batchProfilers, batchThreadIds, batchCount);
+            }
+
             // sleep to next period
             // if out of period, sleep one period
             long needToSleep = (currentLoopStartTime + maxSleepPeriod) - System.currentTimeMillis();
@@ -110,4 +129,37 @@ public class ProfileThread implements Runnable {
         }
     }
 
+    /**
+     * dump the stacks of the profiling threads by one {@link ThreadMXBean#getThreadInfo(long[], int)} call, instead of
+     * one safepoint for each thread
+     */
+    private void dumpInBatch(ProfileTaskExecutionContext executionContext, ThreadMXBean threadMXBean,
+                             ThreadProfiler[] profilers, long[] threadIds, int count) {
+        long[] dumpThreadIds = threadIds;
+        if (count < threadIds.length) {
+            dumpThreadIds = new long[count];
+            System.arraycopy(threadIds, 0, dumpThreadIds, 0, count);
+        }
+
+        ThreadInfo[] threadInfos;
+        try {
+            threadInfos = threadMXBean.getThreadInfo(dumpThreadIds, Config.Profile.DUMP_MAX_STACK_DEPTH);
+        } catch (Exception e) {
+            // dump error ignore and make these profilers stop
+            threadInfos = new ThreadInfo[count];
+        }
+        long currentTime = System.currentTimeMillis();
+
+        for (int i = 0; i < count; i++) {
+            ThreadProfiler profiler = profilers[i];
+            profilers[i] = null;
+            // thread info is null when the thread is not alive
+            StackTraceElement[] stackTrace = threadInfos[i] == null ? null : threadInfos[i].getStackTrace();
+            if (!profiler.buildSnapshots(stackTrace, currentTime, profileTaskChannelService)) {
+                // tell execution context current tracing thread dump failed, stop it
+                executionContext.stopTracingProfile(profiler.tracingContext());
+            }
+        }
+    }
+
 }
@@ -20,7 +20,9 @@ package org.apache.skywalking.apm.agent.core.profile;
 
 import com.google.common.base.Objects;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
 import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.context.TracingContext;
 
@@ -44,6 +46,14 @@ public class ThreadProfiler {
     // thread dump sequence
     private int dumpSequence = 0;
 
+    // frame ids of the last sent snapshot and the reusable buffer for the current dump, used in batch dump
+    private int[] lastFrameIds;
+    private int[] frameIdBuffer;
+    // the dump time of the latest stack identical to the last sent snapshot, -1 if there isn't
+    private long lastRepeatedDumpTime = -1;
+    // no more snapshot after stopped, as the pending repeated snapshot has been sent
+    private boolean stopped;
+
     public ThreadProfiler(TracingContext tracingContext, String traceSegmentId, Thread profilingThread,
         ProfileTaskExecutionContext executionContext) {
         this.tracingContext = tracingContext;
@@ -71,10 +81,31 @@ public class ThreadProfiler {
     }
 
     /**
-     * Stop profiling status
+     * Stop profiling status, and send the pending repeated snapshot
      */
     public void stopProfiling() {
+        stopProfiling(ServiceManager.INSTANCE.findService(ProfileTaskChannelService.class));
+    }
+
+    synchronized void stopProfiling(ProfileTaskChannelService channelService) {
         this.tracingContext.profileStatus().updateStatus(ProfileStatus.STOPPED);
+        flushRepeatedSnapshot(channelService);
+        stopped = true;
+    }
+
+    /**
+     * Send the last one of the stacks identical to the last sent snapshot, to keep the time range of the repeated
+     * stack, as the stack may not change until the end of the profiling.
+     */
+    synchronized void flushRepeatedSnapshot(ProfileTaskChannelService channelService) {
+        if (lastRepeatedDumpTime < 0 || channelService == null) {
+            return;
+        }
+        channelService.addProfilingSnapshot(new TracingThreadSnapshot(
+            executionContext.getTask().getTaskId(), traceSegmentId, dumpSequence++, lastRepeatedDumpTime,
+            lastFrameIds, executionContext.getFrameDictionary()
+        ));
+        lastRepeatedDumpTime = -1;
     }
 
     /**
@@ -119,13 +150,68 @@ public class ThreadProfiler {
         return new TracingThreadSnapshot(taskId, traceSegmentId, dumpSequence++, currentTime, stackList);
     }
 
+    /**
+     * Build snapshots from the stack dumped in batch, see {@link Config.Profile#BATCH_DUMP}. The frames are interned
+     * into the frame dictionary of the task. The stacks identical to the last sent one are not sent, only the last
+     * one of them is sent once the stack changes or the profiling stops, to keep the time range of the repeated
+     * stack. Synchronized with {@link #stopProfiling()}, which may be called by the profiled thread.
+     *
+     * @param stackTrace dumped stack of the profiling thread, null if the thread has been terminated
+     * @return false if dump snapshot error, should stop it
+     */
+    public synchronized boolean buildSnapshots(StackTraceElement[] stackTrace, long dumpTime,
+                                               ProfileTaskChannelService channelService) {
+        if (stopped) {
+            return true;
+        }
+        if (!isProfilingContinuable()) {
+            return false;
+        }
+
+        // stack depth is zero, means thread is already run finished
+        if (stackTrace == null || stackTrace.length == 0) {
+            return false;
+        }
+
+        // if is first dump, check is can start profiling
+        if (dumpSequence == 0 && (!executionContext.isStartProfileable())) {
+            return false;
+        }
+
+        int dumpElementCount = Math.min(stackTrace.length, Config.Profile.DUMP_MAX_STACK_DEPTH);
+        if (frameIdBuffer == null || frameIdBuffer.length < dumpElementCount) {
+            frameIdBuffer = new int[dumpElementCount];
+        }
+
+        // use inverted order, because thread dump is start with bottom
+        final ProfileFrameDictionary frameDictionary = executionContext.getFrameDictionary();
+        boolean repeated = lastFrameIds != null && lastFrameIds.length == dumpElementCount;
+        for (int i = dumpElementCount - 1, index = 0; i >= 0; i--, index++) {
+            int frameId = frameDictionary.intern(stackTrace[i]);
+            frameIdBuffer[index] = frameId;
+            repeated = repeated && lastFrameIds[index] == frameId;
+        }
+
+        if (repeated) {
+            lastRepeatedDumpTime = dumpTime;
+            return true;
+        }
+
+        flushRepeatedSnapshot(channelService);
+        String taskId = executionContext.getTask().getTaskId();
+        lastFrameIds = Arrays.copyOf(frameIdBuffer, dumpElementCount);
+        channelService.addProfilingSnapshot(new TracingThreadSnapshot(
+            taskId, traceSegmentId, dumpSequence++, dumpTime, lastFrameIds, frameDictionary));
+        return true;
+    }
+
     /**
      * build thread stack element code signature
      *
      * @return code sign: className.methodName:lineNumber
      */
     private String buildStackElementCodeSignature(StackTraceElement element) {
-        return element.getClassName() + "." + element.getMethodName() + ":" + element.getLineNumber();
+        return ProfileFrameDictionary.buildStackElementCodeSignature(element);
     }
 
     /**
@@ -145,6 +231,10 @@ public class ThreadProfiler {
         return System.currentTimeMillis() - profilingStartTime < profilingMaxTimeMills;
     }
 
+    public Thread profilingThread() {
+        return profilingThread;
+    }
+
     public TracingContext tracingContext() {
         return tracingContext;
     }
@@ -32,6 +32,9 @@ public class TracingThreadSnapshot {
     private final int sequence;
     private final long time;
     private final List<String> stackList;
+    // or the frame ids in the dictionary of the task, when dumped in batch
+    private final int[] frameIds;
+    private final ProfileFrameDictionary frameDictionary;
 
     public TracingThreadSnapshot(String taskId,
                                  String traceSegmentId,
@@ -43,6 +46,23 @@ public class TracingThreadSnapshot {
         this.sequence = sequence;
         this.time = time;
         this.stackList = stackList;
+        this.frameIds = null;
+        this.frameDictionary = null;
+    }
+
+    public TracingThreadSnapshot(String taskId,
+                                 String traceSegmentId,
+                                 int sequence,
+                                 long time,
+                                 int[] frameIds,
+                                 ProfileFrameDictionary frameDictionary) {
+        this.taskId = taskId;
+        this.traceSegmentId = traceSegmentId;
+        this.sequence = sequence;
+        this.time = time;
+        this.stackList = null;
+        this.frameIds = frameIds;
+        this.frameDictionary = frameDictionary;
     }
 
     /**
@@ -60,12 +80,45 @@ public class TracingThreadSnapshot {
         builder.setSequence(sequence);
         // snapshot stack
         final ThreadStack.Builder stackBuilder = ThreadStack.newBuilder();
-        for (String codeSign : stackList) {
-            stackBuilder.addCodeSignatures(codeSign);
+        if (frameIds != null) {
+            for (int frameId : frameIds) {
+                stackBuilder.addCodeSignatures(frameDictionary.codeSignature(frameId));
+            }
+        } else {
+            for (String codeSign : stackList) {
+                stackBuilder.addCodeSignatures(codeSign);
+            }
         }
         builder.setStack(stackBuilder);
 
         return builder.build();
     }
 
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public String getTraceSegmentId() {
+        return traceSegmentId;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the frame ids, from the bottom of the stack, or null if the stack is kept as code signatures
+     */
+    public int[] getFrameIds() {
+        return frameIds;
+    }
+
+    public ProfileFrameDictionary getFrameDictionary() {
+        return frameDictionary;
+    }
+
 }
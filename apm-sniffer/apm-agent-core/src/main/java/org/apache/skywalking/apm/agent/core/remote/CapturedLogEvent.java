@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.remote;
+
+import java.util.Objects;
+import java.util.function.Function;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.context.ContextManager;
+import org.apache.skywalking.apm.agent.core.context.util.ThrowableTransformer;
+import org.apache.skywalking.apm.network.common.v3.KeyStringValuePair;
+import org.apache.skywalking.apm.network.logging.v3.LogData;
+import org.apache.skywalking.apm.network.logging.v3.LogDataBody;
+import org.apache.skywalking.apm.network.logging.v3.LogTags;
+import org.apache.skywalking.apm.network.logging.v3.TextLog;
+import org.apache.skywalking.apm.network.logging.v3.TraceContext;
+
+/**
+ * The raw fields of one log event, captured on the logging thread and transformed into {@link LogData} later by the
+ * consumer thread of {@link LogReportServiceClient}. Only references and the trace context IDs are copied when
+ * capturing, the text rendering, the argument and exception stringification and the protobuf building are all
+ * deferred, so the captured arguments and source must not be mutated after the logging call, as with any
+ * asynchronous appender.
+ *
+ * Obtain one by {@link #capture(long, String, String, String)} and hand it to {@link
+ * LogReportServiceClient#produce(CapturedLogEvent)}. The events are not pooled, a short-lived event is cheaper to
+ * allocate than to share through a pool among the logging threads.
+ */
+public final class CapturedLogEvent {
+    private static final int MAX_EXCEPTION_LENGTH = 2048;
+
+    private final long timestamp;
+    private final String level;
+    private final String logger;
+    private final String thread;
+    private final String traceId;
+    private final String segmentId;
+    private final int spanId;
+    private Object[] arguments;
+    private Throwable thrown;
+    private Object source;
+    private Function<Object, String> renderer;
+
+    private CapturedLogEvent(final long timestamp, final String level, final String logger, final String thread,
+                             final String traceId, final String segmentId, final int spanId) {
+        this.timestamp = timestamp;
+        this.level = level;
+        this.logger = logger;
+        this.thread = thread;
+        this.traceId = traceId;
+        this.segmentId = segmentId;
+        this.spanId = spanId;
+    }
+
+    /**
+     * Create an event with the trace context of the current thread.
+     */
+    public static CapturedLogEvent capture(final long timestamp, final String level, final String logger,
+                                           final String thread) {
+        final int spanId = ContextManager.getSpanId();
+        if (spanId == -1) {
+            return new CapturedLogEvent(timestamp, level, logger, thread, null, null, -1);
+        }
+        return new CapturedLogEvent(
+            timestamp, level, logger, thread, ContextManager.getGlobalTraceId(), ContextManager.getSegmentId(), spanId);
+    }
+
+    /**
+     * Arguments reported as the {@code argument.i} tags.
+     */
+    public CapturedLogEvent arguments(final Object[] arguments) {
+        this.arguments = arguments;
+        return this;
+    }
+
+    /**
+     * Throwable reported as the {@code exception} tag.
+     */
+    public CapturedLogEvent thrown(final Throwable thrown) {
+        this.thrown = thrown;
+        return this;
+    }
+
+    /**
+     * Already rendered body text.
+     */
+    public CapturedLogEvent text(final String text) {
+        return text(text, String::valueOf);
+    }
+
+    /**
+     * Body text rendered from the given source by the consumer thread. The renderer must be thread-safe.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CapturedLogEvent text(final T source, final Function<? super T, String> renderer) {
+        this.source = source;
+        this.renderer = (Function<Object, String>) renderer;
+        return this;
+    }
+
+    LogData transform() {
+        final LogTags.Builder logTags = LogTags.newBuilder()
+            .addData(KeyStringValuePair.newBuilder().setKey("level").setValue(level).build())
+            .addData(KeyStringValuePair.newBuilder().setKey("logger").setValue(logger).build())
+            .addData(KeyStringValuePair.newBuilder().setKey("thread").setValue(thread).build());
+        if (arguments != null) {
+            for (int i = 0; i < arguments.length; i++) {
+                logTags.addData(KeyStringValuePair.newBuilder()
+                                                  .setKey("argument." + i)
+                                                  .setValue(stringify(arguments[i])).build());
+            }
+        }
+        if (thrown != null) {
+            logTags.addData(KeyStringValuePair.newBuilder()
+                                              .setKey("exception")
+                                              .setValue(ThrowableTransformer.INSTANCE.convert2String(
+                                                  thrown, MAX_EXCEPTION_LENGTH))
+                                              .build());
+        }
+        final String text = renderer == null ? "" : render();
+        final LogData.Builder builder = LogData.newBuilder()
+            .setTimestamp(timestamp)
+            .setService(Config.Agent.SERVICE_NAME)
+            .setServiceInstance(Config.Agent.INSTANCE_NAME)
+            .setTags(logTags.build())
+            .setBody(LogDataBody.newBuilder()
+                                .setType(LogDataBody.ContentCase.TEXT.name())
+                                .setText(TextLog.newBuilder().setText(text).build())
+                                .build());
+        if (spanId != -1) {
+            builder.setTraceContext(TraceContext.newBuilder()
+                                                .setTraceId(traceId)
+                                                .setSpanId(spanId)
+                                                .setTraceSegmentId(segmentId)
+                                                .build());
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the string of the argument, or a placeholder if its {@code toString} throws, then the rest of the log is
+     * still reported.
+     */
+    private static String stringify(final Object argument) {
+        try {
+            return Objects.toString(argument);
+        } catch (Throwable t) {
+            return placeholder(t);
+        }
+    }
+
+    private String render() {
+        try {
+            return renderer.apply(source);
+        } catch (Throwable t) {
+            return placeholder(t);
+        }
+    }
+
+    private static String placeholder(final Throwable t) {
+        return "[failed to stringify: " + t.getClass().getName() + "]";
+    }
+}
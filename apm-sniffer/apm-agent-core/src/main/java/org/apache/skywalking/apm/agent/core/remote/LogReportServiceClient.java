@@ -18,8 +18,12 @@
 
 package org.apache.skywalking.apm.agent.core.remote;
 
+import io.grpc.CallOptions;
 import io.grpc.Channel;
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.ClientCalls;
 import io.grpc.stub.StreamObserver;
+import java.util.Collections;
 import java.util.List;
 
 import java.util.Objects;
@@ -37,6 +41,7 @@ import org.apache.skywalking.apm.agent.core.util.CollectionUtil;
 import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
+import org.apache.skywalking.apm.commons.datacarrier.partition.ProducerStripedPartitioner;
 import org.apache.skywalking.apm.network.common.v3.Commands;
 import org.apache.skywalking.apm.network.logging.v3.LogData;
 import org.apache.skywalking.apm.network.logging.v3.LogReportServiceGrpc;
@@ -44,11 +49,19 @@ import org.apache.skywalking.apm.network.logging.v3.LogReportServiceGrpc;
 @DefaultImplementor
 public class LogReportServiceClient implements BootService, GRPCChannelListener, IConsumer<LogData> {
     private static final ILog LOGGER = LogManager.getLogger(LogReportServiceClient.class);
+    /**
+     * The same method as {@link LogReportServiceGrpc#getCollectMethod()}, sending the serialized logs as they are, so
+     * the spilled logs are replayed without parsing them.
+     */
+    private static final MethodDescriptor<byte[], Commands> COLLECT_SERIALIZED_METHOD =
+        SerializedMessageMarshaller.serializedMethodOf(LogReportServiceGrpc.getCollectMethod());
 
     private volatile DataCarrier<LogData> carrier;
+    private volatile DataCarrier<CapturedLogEvent> capturedCarrier;
     private volatile GRPCChannelStatus status;
 
-    private volatile LogReportServiceGrpc.LogReportServiceStub logReportServiceStub;
+    private volatile Channel channel;
+    private volatile SpillQueue spillQueue;
 
     @Override
     public void prepare() throws Throwable {
@@ -60,9 +73,15 @@ public class LogReportServiceClient implements BootService, GRPCChannelListener,
         carrier = new DataCarrier<>("gRPC-log", "gRPC-log",
                                     Config.Buffer.CHANNEL_SIZE,
                                     Config.Buffer.BUFFER_SIZE,
-                                    BufferStrategy.IF_POSSIBLE
+                                    BufferStrategy.IF_POSSIBLE,
+                                    Config.Buffer.TYPE
         );
-        carrier.consume(this, 1);
+        carrier.setSignalWatermark(Config.Buffer.SIGNAL_WATERMARK);
+        if (Config.Buffer.STRIPED_PARTITION) {
+            carrier.setPartitioner(new ProducerStripedPartitioner<>());
+        }
+        spillQueue = SpillQueue.create("log");
+        carrier.consume(this, 1, Config.Buffer.MAX_LINGER);
     }
 
     @Override
@@ -78,6 +97,45 @@ public class LogReportServiceClient implements BootService, GRPCChannelListener,
         }
     }
 
+    /**
+     * Produce a captured log event, which is transformed into {@link LogData} by a dedicated consumer thread, started at
+     * the first captured event, then produced to the same carrier as the other logs.
+     */
+    public void produce(CapturedLogEvent event) {
+        if (Objects.isNull(event)) {
+            return;
+        }
+        if (!capturedCarrier().produce(event)) {
+            if (LOGGER.isDebugEnable()) {
+                LOGGER.debug("One log has been abandoned, cause by buffer is full.");
+            }
+        }
+    }
+
+    private DataCarrier<CapturedLogEvent> capturedCarrier() {
+        DataCarrier<CapturedLogEvent> capturedCarrier = this.capturedCarrier;
+        if (capturedCarrier == null) {
+            synchronized (this) {
+                capturedCarrier = this.capturedCarrier;
+                if (capturedCarrier == null) {
+                    capturedCarrier = new DataCarrier<>("gRPC-log-captured", "gRPC-log-captured",
+                                                        Config.Buffer.CHANNEL_SIZE,
+                                                        Config.Buffer.BUFFER_SIZE,
+                                                        BufferStrategy.IF_POSSIBLE,
+                                                        Config.Buffer.TYPE
+                    );
+                    capturedCarrier.setSignalWatermark(Config.Buffer.SIGNAL_WATERMARK);
+                    if (Config.Buffer.STRIPED_PARTITION) {
+                        capturedCarrier.setPartitioner(new ProducerStripedPartitioner<>());
+                    }
+                    capturedCarrier.consume(new CapturedLogConsumer(), 1, Config.Buffer.MAX_LINGER);
+                    this.capturedCarrier = capturedCarrier;
+                }
+            }
+        }
+        return capturedCarrier;
+    }
+
     @Override
     public void init(final Properties properties) {
 
@@ -90,42 +148,107 @@ public class LogReportServiceClient implements BootService, GRPCChannelListener,
         }
 
         if (GRPCChannelStatus.CONNECTED.equals(status)) {
-            GRPCStreamServiceStatus status = new GRPCStreamServiceStatus(false);
-
-            StreamObserver<LogData> logDataStreamObserver = logReportServiceStub
-                .withDeadlineAfter(Collector.GRPC_UPSTREAM_TIMEOUT, TimeUnit.SECONDS)
-                .collect(
-                new StreamObserver<Commands>() {
-                    @Override
-                    public void onNext(final Commands commands) {
+            send(dataList, poll());
+        } else {
+            spill(dataList);
+        }
+    }
 
-                    }
+    /**
+     * Replay the spilled logs, when there is no new log.
+     */
+    @Override
+    public void nothingToConsume() {
+        final SpillQueue spillQueue = this.spillQueue;
+        if (GRPCChannelStatus.CONNECTED.equals(status) && spillQueue != null && !spillQueue.isEmpty()) {
+            final List<byte[]> replayed = poll();
+            if (!replayed.isEmpty()) {
+                send(Collections.emptyList(), replayed);
+            }
+        }
+    }
 
-                    @Override
-                    public void onError(final Throwable throwable) {
-                        status.finished();
-                        LOGGER.error(throwable, "Try to send {} log data to collector, with unexpected exception.",
-                                     dataList.size()
-                        );
-                        ServiceManager.INSTANCE
-                            .findService(GRPCChannelManager.class)
-                            .reportError(throwable);
-                    }
+    private List<byte[]> poll() {
+        final SpillQueue spillQueue = this.spillQueue;
+        if (spillQueue == null) {
+            return Collections.emptyList();
+        }
+        return spillQueue.poll(Config.Spill.REPLAY_RATE);
+    }
 
-                    @Override
-                    public void onCompleted() {
-                        status.finished();
-                    }
-                });
+    /**
+     * Offer the replayed logs back to the spill queue, as they are polled before the stream is acknowledged.
+     */
+    private void respill(final List<byte[]> replayed) {
+        final SpillQueue spillQueue = this.spillQueue;
+        if (spillQueue == null) {
+            return;
+        }
+        for (final byte[] serializedLogData : replayed) {
+            if (!spillQueue.offer(serializedLogData) && LOGGER.isDebugEnable()) {
+                LOGGER.debug("One log has been abandoned, cause by failing to spill.");
+            }
+        }
+    }
 
-            for (final LogData logData : dataList) {
-                logDataStreamObserver.onNext(logData);
+    private void spill(final List<LogData> dataList) {
+        final SpillQueue spillQueue = this.spillQueue;
+        if (spillQueue == null) {
+            return;
+        }
+        for (final LogData logData : dataList) {
+            if (!spillQueue.offer(logData.toByteArray()) && LOGGER.isDebugEnable()) {
+                LOGGER.debug("One log has been abandoned, cause by failing to spill.");
             }
-            logDataStreamObserver.onCompleted();
-            status.wait4Finish();
         }
     }
 
+    /**
+     * Send the replayed logs as they are, followed by the new logs, in one stream.
+     */
+    private void send(final List<LogData> dataList, final List<byte[]> replayed) {
+        GRPCStreamServiceStatus status = new GRPCStreamServiceStatus(false);
+
+        StreamObserver<byte[]> logDataStreamObserver = ClientCalls.asyncClientStreamingCall(
+            channel.newCall(
+                COLLECT_SERIALIZED_METHOD,
+                CallOptions.DEFAULT.withDeadlineAfter(Collector.GRPC_UPSTREAM_TIMEOUT, TimeUnit.SECONDS)
+                                   .withMaxOutboundMessageSize(Log.MAX_MESSAGE_SIZE)
+            ),
+            new StreamObserver<Commands>() {
+                @Override
+                public void onNext(final Commands commands) {
+
+                }
+
+                @Override
+                public void onError(final Throwable throwable) {
+                    respill(replayed);
+                    status.finished();
+                    LOGGER.error(throwable, "Try to send {} log data to collector, with unexpected exception.",
+                                 replayed.size() + dataList.size()
+                    );
+                    ServiceManager.INSTANCE
+                        .findService(GRPCChannelManager.class)
+                        .reportError(throwable);
+                }
+
+                @Override
+                public void onCompleted() {
+                    status.finished();
+                }
+            });
+
+        for (final byte[] serializedLogData : replayed) {
+            logDataStreamObserver.onNext(serializedLogData);
+        }
+        for (final LogData logData : dataList) {
+            logDataStreamObserver.onNext(logData.toByteArray());
+        }
+        logDataStreamObserver.onCompleted();
+        status.wait4Finish();
+    }
+
     @Override
     public void onError(final List<LogData> data, final Throwable t) {
         LOGGER.error(t, "Try to consume {} log data to sender, with unexpected exception.", data.size());
@@ -139,9 +262,7 @@ public class LogReportServiceClient implements BootService, GRPCChannelListener,
     @Override
     public void statusChanged(GRPCChannelStatus status) {
         if (GRPCChannelStatus.CONNECTED.equals(status)) {
-            Channel channel = ServiceManager.INSTANCE.findService(GRPCChannelManager.class).getChannel();
-            logReportServiceStub = LogReportServiceGrpc.newStub(channel)
-                                                       .withMaxOutboundMessageSize(Log.MAX_MESSAGE_SIZE);
+            channel = ServiceManager.INSTANCE.findService(GRPCChannelManager.class).getChannel();
         }
         this.status = status;
     }
@@ -149,5 +270,47 @@ public class LogReportServiceClient implements BootService, GRPCChannelListener,
     @Override
     public void shutdown() {
         carrier.shutdownConsumers();
+        final DataCarrier<CapturedLogEvent> capturedCarrier = this.capturedCarrier;
+        if (capturedCarrier != null) {
+            capturedCarrier.shutdownConsumers();
+        }
+        if (spillQueue != null) {
+            spillQueue.close();
+        }
+    }
+
+    /**
+     * Transforms the captured events of one batch and produces them by {@link #produce(LogData)}, then they are sent
+     * by the only sender thread of the logs.
+     */
+    private class CapturedLogConsumer implements IConsumer<CapturedLogEvent> {
+        @Override
+        public void init(final Properties properties) {
+
+        }
+
+        @Override
+        public void consume(final List<CapturedLogEvent> data) {
+            for (final CapturedLogEvent event : data) {
+                final LogData logData;
+                try {
+                    logData = event.transform();
+                } catch (Throwable t) {
+                    LOGGER.warn("Abandon a captured log, which fails to transform, {}", t.getMessage());
+                    continue;
+                }
+                produce(logData);
+            }
+        }
+
+        @Override
+        public void onError(final List<CapturedLogEvent> data, final Throwable t) {
+            LOGGER.error(t, "Try to consume {} captured log to sender, with unexpected exception.", data.size());
+        }
+
+        @Override
+        public void onExit() {
+
+        }
     }
 }
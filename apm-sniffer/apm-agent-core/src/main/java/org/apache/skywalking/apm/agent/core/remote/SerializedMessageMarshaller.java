@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.remote;
+
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Pass the pre-serialized request message to gRPC without copy. Only used for the requests, never parses.
+ */
+public class SerializedMessageMarshaller implements MethodDescriptor.Marshaller<byte[]> {
+    private static final SerializedMessageMarshaller INSTANCE = new SerializedMessageMarshaller();
+
+    /**
+     * @return the same method as the given one, whose requests are the serialized messages.
+     */
+    public static <R> MethodDescriptor<byte[], R> serializedMethodOf(MethodDescriptor<?, R> method) {
+        return method.toBuilder(INSTANCE, method.getResponseMarshaller()).build();
+    }
+
+    @Override
+    public InputStream stream(final byte[] value) {
+        return new SerializedMessageStream(value);
+    }
+
+    @Override
+    public byte[] parse(final InputStream stream) {
+        throw new UnsupportedOperationException("Serialized message is only for the requests.");
+    }
+
+    private static class SerializedMessageStream extends ByteArrayInputStream implements KnownLength, Drainable {
+        private SerializedMessageStream(final byte[] message) {
+            super(message);
+        }
+
+        @Override
+        public int drainTo(final OutputStream target) throws IOException {
+            int length = count - pos;
+            target.write(buf, pos, length);
+            pos = count;
+            return length;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.remote;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.apache.skywalking.apm.agent.core.boot.AgentPackagePath;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.logging.api.ILog;
+import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
+import org.apache.skywalking.apm.util.StringUtil;
+
+/**
+ * A size-capped, append-only queue of serialized records on the local disk, for the senders to keep the data while the
+ * gRPC channel is disconnected, and replay at a rate limit after reconnected.
+ * <p>
+ * The queue is a list of memory-mapped files of {@link Config.Spill#SEGMENT_SIZE}, named by their sequence. Every
+ * record is written as [length][CRC32][bytes], and the length is negated once the record is polled, so the polled
+ * records are not replayed again after the agent restarts. A zero length means the end of the file, and a record with
+ * the wrong CRC, which is torn by a crash, ends the file too. When the total size exceeds {@link Config.Spill#MAX_SIZE},
+ * the oldest file is deleted.
+ */
+public class SpillQueue {
+    private static final ILog LOGGER = LogManager.getLogger(SpillQueue.class);
+    private static final String FILE_SUFFIX = ".spill";
+    private static final int HEADER_SIZE = 8;
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegmentCount;
+    private final int replayRate;
+    private final CRC32 crc32 = new CRC32();
+    /**
+     * From the oldest to the latest, the last one is appended.
+     */
+    private final LinkedList<Segment> segments = new LinkedList<>();
+    private long nextSequence;
+    private long droppedCount;
+    private double replayPermits;
+    private long lastRefillTime;
+    private boolean closed;
+
+    public SpillQueue(File directory, long maxSize, int segmentSize, int replayRate) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegmentCount = (int) Math.max(2, maxSize / segmentSize);
+        this.replayRate = replayRate;
+        this.replayPermits = replayRate;
+        this.lastRefillTime = System.nanoTime();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Fail to create spill directory " + directory);
+        }
+        recover();
+    }
+
+    /**
+     * Create the queue of the sender under {@link Config.Spill#DIR}.
+     *
+     * @return null if spill is disabled, or the directory is not available.
+     */
+    public static SpillQueue create(String name) {
+        if (!Config.Spill.ENABLE) {
+            return null;
+        }
+        try {
+            if (StringUtil.isEmpty(Config.Spill.DIR)) {
+                Config.Spill.DIR = AgentPackagePath.getPath() + "/spill";
+            }
+            return new SpillQueue(
+                new File(Config.Spill.DIR, name), Config.Spill.MAX_SIZE, Config.Spill.SEGMENT_SIZE,
+                Config.Spill.REPLAY_RATE
+            );
+        } catch (Exception e) {
+            LOGGER.error(e, "Fail to create spill queue {}, the data will be abandoned while disconnected.", name);
+            return null;
+        }
+    }
+
+    private void recover() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            long sequence;
+            try {
+                sequence = Long.parseLong(file.getName().substring(0, file.getName().length() - FILE_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            if (file.length() != segmentSize) {
+                // Created in another segment size, which can't be counted against the max size.
+                LOGGER.warn("Spill file {} doesn't match the segment size {}, deleted.", file, segmentSize);
+                if (!file.delete()) {
+                    LOGGER.warn("Fail to delete spill file {}.", file);
+                }
+                continue;
+            }
+            Segment segment = new Segment(file);
+            segment.recover();
+            if (segment.isEmpty()) {
+                segment.delete();
+            } else {
+                segment.sealed = true;
+                segments.add(segment);
+            }
+        }
+    }
+
+    /**
+     * @return false if the record is empty or larger than a spill file, or fails to write, or the queue is closed.
+     */
+    public synchronized boolean offer(byte[] record) {
+        if (closed || record.length == 0 || record.length + HEADER_SIZE > segmentSize) {
+            return false;
+        }
+        try {
+            Segment last = segments.peekLast();
+            if (last == null || last.sealed || !last.hasRoom(record.length)) {
+                if (last != null) {
+                    last.sealed = true;
+                }
+                last = new Segment(new File(directory, String.format("%020d%s", nextSequence++, FILE_SUFFIX)));
+                segments.add(last);
+                while (segments.size() > maxSegmentCount) {
+                    Segment oldest = segments.removeFirst();
+                    droppedCount += oldest.pendingCount;
+                    oldest.delete();
+                }
+            }
+            last.append(record);
+            return true;
+        } catch (IOException e) {
+            LOGGER.error(e, "Fail to spill record into {}.", directory);
+            return false;
+        }
+    }
+
+    /**
+     * Poll the oldest records, no more than the replay rate allows.
+     *
+     * @return the polled records, which are not replayed again.
+     */
+    public synchronized List<byte[]> poll(int max) {
+        refillReplayPermits();
+        int count = (int) Math.min(max, replayPermits);
+        if (count <= 0 || segments.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<byte[]> records = new ArrayList<>(Math.min(count, 64));
+        while (records.size() < count && !segments.isEmpty()) {
+            Segment first = segments.getFirst();
+            byte[] record = first.next();
+            if (record != null) {
+                records.add(record);
+                continue;
+            }
+            if (!first.sealed) {
+                break;
+            }
+            segments.removeFirst();
+            first.delete();
+        }
+        replayPermits -= records.size();
+        return records;
+    }
+
+    private void refillReplayPermits() {
+        long now = System.nanoTime();
+        replayPermits = Math.min(replayRate, replayPermits + (now - lastRefillTime) * replayRate / 1e9);
+        lastRefillTime = now;
+    }
+
+    public synchronized boolean isEmpty() {
+        for (Segment segment : segments) {
+            if (!segment.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of records not polled yet.
+     */
+    public synchronized long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.pendingCount;
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of records deleted with the oldest files before polled.
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Flush the mapped files. The records are kept for the next start, and no more records are accepted.
+     */
+    public synchronized void close() {
+        closed = true;
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        segments.clear();
+    }
+
+    /**
+     * One memory-mapped spill file. The mapping is released by GC after deleted, as the JDK provides no public way to
+     * unmap.
+     */
+    private class Segment {
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private int readPosition;
+        private int pendingCount;
+        private boolean sealed;
+
+        private Segment(File file) throws IOException {
+            this.file = file;
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                randomAccessFile.setLength(segmentSize);
+                this.buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            }
+        }
+
+        private void recover() {
+            int position = 0;
+            readPosition = -1;
+            while (position + HEADER_SIZE <= segmentSize) {
+                int length = buffer.getInt(position);
+                int size = Math.abs(length);
+                if (length == 0 || position + HEADER_SIZE + size > segmentSize) {
+                    break;
+                }
+                if (length > 0) {
+                    byte[] record = read(position, size);
+                    if ((int) crc(record) != buffer.getInt(position + 4)) {
+                        LOGGER.warn("Spill file {} has a broken record at {}, the rest is ignored.", file, position);
+                        break;
+                    }
+                    if (readPosition < 0) {
+                        readPosition = position;
+                    }
+                    pendingCount++;
+                }
+                position += HEADER_SIZE + size;
+            }
+            writePosition = position;
+            if (readPosition < 0) {
+                readPosition = writePosition;
+            }
+        }
+
+        private boolean hasRoom(int recordLength) {
+            return writePosition + HEADER_SIZE + recordLength <= segmentSize;
+        }
+
+        private void append(byte[] record) {
+            ByteBuffer target = buffer.duplicate();
+            target.position(writePosition + 4);
+            target.putInt((int) crc(record));
+            target.put(record);
+            // The length is written at last, as the mark of a complete record.
+            buffer.putInt(writePosition, record.length);
+            writePosition += HEADER_SIZE + record.length;
+            pendingCount++;
+        }
+
+        private byte[] next() {
+            while (readPosition < writePosition) {
+                int length = buffer.getInt(readPosition);
+                int position = readPosition;
+                readPosition += HEADER_SIZE + Math.abs(length);
+                if (length > 0) {
+                    buffer.putInt(position, -length);
+                    pendingCount--;
+                    return read(position, length);
+                }
+            }
+            return null;
+        }
+
+        private byte[] read(int position, int length) {
+            byte[] record = new byte[length];
+            ByteBuffer source = buffer.duplicate();
+            source.position(position + HEADER_SIZE);
+            source.get(record);
+            return record;
+        }
+
+        private boolean isEmpty() {
+            return pendingCount == 0;
+        }
+
+        private void delete() {
+            if (!file.delete()) {
+                LOGGER.warn("Fail to delete spill file {}.", file);
+            }
+        }
+    }
+
+    private long crc(byte[] record) {
+        crc32.reset();
+        crc32.update(record, 0, record.length);
+        return crc32.getValue();
+    }
+}
@@ -18,11 +18,21 @@
 
 package org.apache.skywalking.apm.agent.core.remote;
 
+import io.grpc.CallOptions;
 import io.grpc.Channel;
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ClientResponseObserver;
 import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.skywalking.apm.agent.core.boot.BootService;
 import org.apache.skywalking.apm.agent.core.boot.DefaultImplementor;
 import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
@@ -31,28 +41,49 @@ import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.context.TracingContext;
 import org.apache.skywalking.apm.agent.core.context.TracingContextListener;
 import org.apache.skywalking.apm.agent.core.context.trace.TraceSegment;
+import org.apache.skywalking.apm.agent.core.context.trace.TraceSegmentSerializer;
 import org.apache.skywalking.apm.agent.core.logging.api.ILog;
 import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
 import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
+import org.apache.skywalking.apm.commons.datacarrier.partition.ProducerStripedPartitioner;
 import org.apache.skywalking.apm.network.common.v3.Commands;
-import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
 import org.apache.skywalking.apm.network.language.agent.v3.TraceSegmentReportServiceGrpc;
 
 import static org.apache.skywalking.apm.agent.core.conf.Config.Buffer.BUFFER_SIZE;
 import static org.apache.skywalking.apm.agent.core.conf.Config.Buffer.CHANNEL_SIZE;
+import static org.apache.skywalking.apm.agent.core.conf.Config.Buffer.MAX_LINGER;
+import static org.apache.skywalking.apm.agent.core.conf.Config.Buffer.SIGNAL_WATERMARK;
+import static org.apache.skywalking.apm.agent.core.conf.Config.Buffer.STRIPED_PARTITION;
+import static org.apache.skywalking.apm.agent.core.conf.Config.Buffer.TYPE;
 import static org.apache.skywalking.apm.agent.core.remote.GRPCChannelStatus.CONNECTED;
 
 @DefaultImplementor
 public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSegment>, TracingContextListener, GRPCChannelListener {
     private static final ILog LOGGER = LogManager.getLogger(TraceSegmentServiceClient.class);
+    /**
+     * The same method as {@link TraceSegmentReportServiceGrpc#getCollectMethod()}, sending the segments serialized by
+     * {@link TraceSegmentSerializer} as they are.
+     */
+    private static final MethodDescriptor<byte[], Commands> COLLECT_SERIALIZED_METHOD =
+        SerializedMessageMarshaller.serializedMethodOf(TraceSegmentReportServiceGrpc.getCollectMethod());
 
     private long lastLogTime;
-    private long segmentUplinkedCounter;
-    private long segmentAbandonedCounter;
+    private long lastLoggedUplinkedCount;
+    private long lastLoggedAbandonedCount;
+    private final AtomicLong segmentInFlightCounter = new AtomicLong();
+    private final AtomicLong segmentUplinkedCounter = new AtomicLong();
+    private final AtomicLong segmentAbandonedCounter = new AtomicLong();
+    private final AtomicLong segmentSpilledCounter = new AtomicLong();
+    /**
+     * The permits of the streams which are sending or waiting for the acknowledgement from the backend.
+     */
+    private final Semaphore upstreamPermits = new Semaphore(Math.max(1, Config.Collector.GRPC_UPSTREAM_CONCURRENCY));
     private volatile DataCarrier<TraceSegment> carrier;
-    private volatile TraceSegmentReportServiceGrpc.TraceSegmentReportServiceStub serviceStub;
+    private volatile Channel channel;
+    private volatile SpillQueue spillQueue;
+    private final TraceSegmentSerializer serializer = new TraceSegmentSerializer();
     private volatile GRPCChannelStatus status = GRPCChannelStatus.DISCONNECT;
 
     @Override
@@ -63,10 +94,13 @@ public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSe
     @Override
     public void boot() {
         lastLogTime = System.currentTimeMillis();
-        segmentUplinkedCounter = 0;
-        segmentAbandonedCounter = 0;
-        carrier = new DataCarrier<>(CHANNEL_SIZE, BUFFER_SIZE, BufferStrategy.IF_POSSIBLE);
-        carrier.consume(this, 1);
+        carrier = new DataCarrier<>(CHANNEL_SIZE, BUFFER_SIZE, BufferStrategy.IF_POSSIBLE, TYPE);
+        carrier.setSignalWatermark(SIGNAL_WATERMARK);
+        if (STRIPED_PARTITION) {
+            carrier.setPartitioner(new ProducerStripedPartitioner<>());
+        }
+        spillQueue = SpillQueue.create("segment");
+        carrier.consume(this, 1, MAX_LINGER);
     }
 
     @Override
@@ -78,6 +112,9 @@ public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSe
     public void shutdown() {
         TracingContext.ListenerManager.remove(this);
         carrier.shutdownConsumers();
+        if (spillQueue != null) {
+            spillQueue.close();
+        }
     }
 
     @Override
@@ -85,76 +122,219 @@ public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSe
 
     }
 
+    /**
+     * Send the segments in a new stream, without waiting for the acknowledgement. The segments are serialized on this
+     * consumer thread before the stream is opened, and written when the stream is ready, while the previous streams are in flight, up to {@link
+     * Config.Collector#GRPC_UPSTREAM_CONCURRENCY}. The spilled segments are replayed in the same stream.
+     */
     @Override
     public void consume(List<TraceSegment> data) {
         if (CONNECTED.equals(status)) {
-            final GRPCStreamServiceStatus status = new GRPCStreamServiceStatus(false);
-            StreamObserver<SegmentObject> upstreamSegmentStreamObserver = serviceStub.withDeadlineAfter(
-                Config.Collector.GRPC_UPSTREAM_TIMEOUT, TimeUnit.SECONDS
-            ).collect(new StreamObserver<Commands>() {
-                @Override
-                public void onNext(Commands commands) {
-                    ServiceManager.INSTANCE.findService(CommandService.class)
-                                           .receiveCommand(commands);
-                }
+            if (!acquireUpstream()) {
+                LOGGER.warn(
+                    "{} trace segments can't be sent, cause by no stream acknowledged by collector in {} seconds.",
+                    data.size(), Config.Collector.GRPC_UPSTREAM_TIMEOUT
+                );
+                spill(data);
+            } else {
+                send(data, poll());
+            }
+        } else {
+            spill(data);
+        }
 
-                @Override
-                public void onError(
-                    Throwable throwable) {
-                    status.finished();
-                    if (LOGGER.isErrorEnable()) {
-                        LOGGER.error(
-                            throwable,
-                            "Send UpstreamSegment to collector fail with a grpc internal exception."
-                        );
-                    }
-                    ServiceManager.INSTANCE
-                        .findService(GRPCChannelManager.class)
-                        .reportError(throwable);
-                }
+        printUplinkStatus();
+    }
 
-                @Override
-                public void onCompleted() {
-                    status.finished();
-                }
-            });
+    /**
+     * Replay the spilled segments, when there is no new segment.
+     */
+    @Override
+    public void nothingToConsume() {
+        final SpillQueue spillQueue = this.spillQueue;
+        if (!CONNECTED.equals(status) || spillQueue == null || spillQueue.isEmpty()) {
+            return;
+        }
+        if (upstreamPermits.tryAcquire()) {
+            List<byte[]> replayed = poll();
+            if (replayed.isEmpty()) {
+                upstreamPermits.release();
+            } else {
+                send(Collections.emptyList(), replayed);
+            }
+        }
+        printUplinkStatus();
+    }
+
+    private List<byte[]> poll() {
+        final SpillQueue spillQueue = this.spillQueue;
+        if (spillQueue == null) {
+            return Collections.emptyList();
+        }
+        return spillQueue.poll(Config.Spill.REPLAY_RATE);
+    }
+
+    private void spill(List<TraceSegment> data) {
+        final SpillQueue spillQueue = this.spillQueue;
+        if (spillQueue == null) {
+            segmentAbandonedCounter.addAndGet(data.size());
+            return;
+        }
+        for (byte[] serializedSegment : serialize(data)) {
+            if (spillQueue.offer(serializedSegment)) {
+                segmentSpilledCounter.incrementAndGet();
+            } else {
+                segmentAbandonedCounter.incrementAndGet();
+            }
+        }
+    }
 
+    /**
+     * Serialize the segments one by one. The segment failing to serialize is abandoned, and the others are kept.
+     */
+    private List<byte[]> serialize(List<TraceSegment> data) {
+        final List<byte[]> serializedSegments = new ArrayList<>(data.size());
+        for (TraceSegment segment : data) {
             try {
-                for (TraceSegment segment : data) {
-                    SegmentObject upstreamSegment = segment.transform();
-                    upstreamSegmentStreamObserver.onNext(upstreamSegment);
-                }
+                serializedSegments.add(serializer.serialize(segment));
             } catch (Throwable t) {
-                LOGGER.error(t, "Transform and send UpstreamSegment to collector fail.");
+                segmentAbandonedCounter.incrementAndGet();
+                LOGGER.error(t, "Serialize UpstreamSegment fail, the segment has been abandoned.");
             }
+        }
+        return serializedSegments;
+    }
 
-            upstreamSegmentStreamObserver.onCompleted();
+    /**
+     * Offer the replayed records back to the spill queue, as they are polled before the stream is acknowledged.
+     *
+     * @return the number of the records spilled again.
+     */
+    private int respill(List<byte[]> replayed) {
+        final SpillQueue spillQueue = this.spillQueue;
+        if (spillQueue == null) {
+            return 0;
+        }
+        int respilled = 0;
+        for (byte[] record : replayed) {
+            if (spillQueue.offer(record)) {
+                respilled++;
+            }
+        }
+        return respilled;
+    }
 
-            status.wait4Finish();
-            segmentUplinkedCounter += data.size();
-        } else {
-            segmentAbandonedCounter += data.size();
+    private boolean acquireUpstream() {
+        try {
+            return upstreamPermits.tryAcquire(Config.Collector.GRPC_UPSTREAM_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
+    }
 
-        printUplinkStatus();
+    private void send(List<TraceSegment> data, List<byte[]> replayed) {
+        final List<byte[]> serializedSegments = serialize(data);
+        final int segmentCount = replayed.size() + serializedSegments.size();
+        if (segmentCount == 0) {
+            upstreamPermits.release();
+            return;
+        }
+        final SegmentUpstream upstream = new SegmentUpstream(segmentCount, replayed);
+        segmentInFlightCounter.addAndGet(segmentCount);
+        final StreamObserver<byte[]> upstreamSegmentStreamObserver;
+        try {
+            upstreamSegmentStreamObserver = ClientCalls.asyncClientStreamingCall(
+                channel.newCall(
+                    COLLECT_SERIALIZED_METHOD,
+                    CallOptions.DEFAULT.withDeadlineAfter(Config.Collector.GRPC_UPSTREAM_TIMEOUT, TimeUnit.SECONDS)
+                ), upstream);
+        } catch (Throwable t) {
+            upstream.onError(t);
+            return;
+        }
+
+        final long readyTimeout = TimeUnit.SECONDS.toMillis(Config.Collector.GRPC_UPSTREAM_TIMEOUT);
+        try {
+            for (int i = 0; i < segmentCount; i++) {
+                byte[] serializedSegment = i < replayed.size()
+                    ? replayed.get(i) : serializedSegments.get(i - replayed.size());
+                if (!upstream.awaitReady(readyTimeout)) {
+                    break;
+                }
+                upstreamSegmentStreamObserver.onNext(serializedSegment);
+                upstream.sentCount++;
+            }
+        } catch (Throwable t) {
+            LOGGER.error(t, "Send UpstreamSegment to collector fail.");
+        }
+
+        if (!upstream.isFinished() && upstream.sentCount < segmentCount) {
+            // The stream is not ready in time, which means the collector can't take more.
+            upstream.requestStream.cancel("Collector is not ready in " + readyTimeout + "ms.", null);
+        } else {
+            upstreamSegmentStreamObserver.onCompleted();
+        }
     }
 
     private void printUplinkStatus() {
         long currentTimeMillis = System.currentTimeMillis();
         if (currentTimeMillis - lastLogTime > 30 * 1000) {
             lastLogTime = currentTimeMillis;
-            if (segmentUplinkedCounter > 0) {
-                LOGGER.debug("{} trace segments have been sent to collector.", segmentUplinkedCounter);
-                segmentUplinkedCounter = 0;
+            long uplinkedCount = segmentUplinkedCounter.get();
+            if (uplinkedCount > lastLoggedUplinkedCount) {
+                LOGGER.debug(
+                    "{} trace segments have been sent to collector, {} in flight.",
+                    uplinkedCount - lastLoggedUplinkedCount, segmentInFlightCounter.get()
+                );
+                lastLoggedUplinkedCount = uplinkedCount;
+            }
+            long abandonedCount = segmentAbandonedCounter.get();
+            if (abandonedCount > lastLoggedAbandonedCount) {
+                LOGGER.debug(
+                    "{} trace segments have been abandoned, cause by no available channel.",
+                    abandonedCount - lastLoggedAbandonedCount
+                );
+                lastLoggedAbandonedCount = abandonedCount;
             }
-            if (segmentAbandonedCounter > 0) {
+            if (spillQueue != null && spillQueue.size() > 0) {
                 LOGGER.debug(
-                    "{} trace segments have been abandoned, cause by no available channel.", segmentAbandonedCounter);
-                segmentAbandonedCounter = 0;
+                    "{} trace segments have been spilled, {} to be replayed.", segmentSpilledCounter.get(),
+                    spillQueue.size()
+                );
             }
         }
     }
 
+    /**
+     * @return the number of the segments sent but not acknowledged by the collector yet.
+     */
+    public long getSegmentInFlightCount() {
+        return segmentInFlightCounter.get();
+    }
+
+    /**
+     * @return the total number of the segments acknowledged by the collector.
+     */
+    public long getSegmentUplinkedCount() {
+        return segmentUplinkedCounter.get();
+    }
+
+    /**
+     * @return the total number of the segments spilled to the local disk, while the collector is not available.
+     */
+    public long getSegmentSpilledCount() {
+        return segmentSpilledCounter.get();
+    }
+
+    /**
+     * @return the total number of the segments abandoned, because of no available channel, or the collector failed to
+     * receive them.
+     */
+    public long getSegmentAbandonedCount() {
+        return segmentAbandonedCounter.get();
+    }
+
     @Override
     public void onError(List<TraceSegment> data, Throwable t) {
         LOGGER.error(t, "Try to send {} trace segments to collector, with unexpected exception.", data.size());
@@ -180,9 +360,105 @@ public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSe
     @Override
     public void statusChanged(GRPCChannelStatus status) {
         if (CONNECTED.equals(status)) {
-            Channel channel = ServiceManager.INSTANCE.findService(GRPCChannelManager.class).getChannel();
-            serviceStub = TraceSegmentReportServiceGrpc.newStub(channel);
+            channel = ServiceManager.INSTANCE.findService(GRPCChannelManager.class).getChannel();
         }
         this.status = status;
     }
+
+    /**
+     * One stream of segments, in flight until the collector acknowledges or fails it. Holds one of the {@link
+     * #upstreamPermits}.
+     */
+    private class SegmentUpstream implements ClientResponseObserver<byte[], Commands> {
+        private final int segmentCount;
+        /**
+         * The records polled from the spill queue, which are spilled again if the stream fails.
+         */
+        private final List<byte[]> replayed;
+        /**
+         * Only accessed by the consumer thread.
+         */
+        private int sentCount;
+        private ClientCallStreamObserver<byte[]> requestStream;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        private SegmentUpstream(final int segmentCount, final List<byte[]> replayed) {
+            this.segmentCount = segmentCount;
+            this.replayed = replayed;
+        }
+
+        @Override
+        public void beforeStart(final ClientCallStreamObserver<byte[]> requestStream) {
+            this.requestStream = requestStream;
+            requestStream.setOnReadyHandler(() -> {
+                synchronized (this) {
+                    notifyAll();
+                }
+            });
+        }
+
+        /**
+         * Wait until the transport could take more messages without buffering them.
+         *
+         * @return false if the stream is finished, or still not ready after the timeout.
+         */
+        private synchronized boolean awaitReady(final long timeoutMillis) throws InterruptedException {
+            final long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (!finished.get() && !requestStream.isReady()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+            return !finished.get();
+        }
+
+        private boolean isFinished() {
+            return finished.get();
+        }
+
+        @Override
+        public void onNext(Commands commands) {
+            ServiceManager.INSTANCE.findService(CommandService.class)
+                                   .receiveCommand(commands);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (!finish()) {
+                return;
+            }
+            segmentAbandonedCounter.addAndGet(segmentCount - respill(replayed));
+            if (LOGGER.isErrorEnable()) {
+                LOGGER.error(
+                    throwable,
+                    "Send UpstreamSegment to collector fail with a grpc internal exception."
+                );
+            }
+            ServiceManager.INSTANCE
+                .findService(GRPCChannelManager.class)
+                .reportError(throwable);
+        }
+
+        @Override
+        public void onCompleted() {
+            if (!finish()) {
+                return;
+            }
+            segmentUplinkedCounter.addAndGet(segmentCount);
+        }
+
+        private boolean finish() {
+            if (!finished.compareAndSet(false, true)) {
+                return false;
+            }
+            segmentInFlightCounter.addAndGet(-segmentCount);
+            upstreamPermits.release();
+            synchronized (this) {
+                notifyAll();
+            }
+            return true;
+        }
+    }
 }
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.sampling;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The <code>AdaptiveSampler</code> samples the traces by the token buckets of the operation names of their first
+ * spans, refilled by {@link #rebalance()} every second.
+ * <p>
+ * The target rate is shared in the max-min fair way, every bucket called in the last second gets its demand, or an equal
+ * share of the rest at most. So the hot endpoints can't starve the rare ones, and the unused share goes to the busy
+ * ones. The idle buckets share what is left, up to one token each. Every new bucket has a token, the first trace of a
+ * new endpoint is always sampled.
+ * <p>
+ * The buckets are bounded by the max endpoints, the names beyond share one overflow bucket, until the least recently
+ * used buckets are evicted by {@link #rebalance()}.
+ */
+class AdaptiveSampler {
+    /**
+     * The tokens are counted in thousandths, to share the rate less than one per second.
+     */
+    private static final long TOKEN = 1000;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Bucket overflow = new Bucket();
+    private final AtomicInteger forcedCount = new AtomicInteger();
+    private volatile int targetRate;
+    private volatile int maxEndpoints;
+
+    AdaptiveSampler(int targetRate, int maxEndpoints) {
+        this.targetRate = targetRate;
+        this.maxEndpoints = maxEndpoints;
+    }
+
+    /**
+     * @return true if a token of the bucket of the operation name is taken.
+     */
+    boolean trySampling(String operationName) {
+        Bucket bucket = buckets.get(operationName);
+        if (bucket == null) {
+            bucket = buckets.size() < maxEndpoints
+                ? buckets.computeIfAbsent(operationName, name -> new Bucket())
+                : overflow;
+        }
+        return bucket.tryAcquire();
+    }
+
+    /**
+     * The forced traces, propagated from the upstream, are deducted from the target rate of the next second.
+     */
+    void forceSampled() {
+        forcedCount.incrementAndGet();
+    }
+
+    void setTargetRate(int targetRate) {
+        this.targetRate = targetRate;
+    }
+
+    void setMaxEndpoints(int maxEndpoints) {
+        this.maxEndpoints = maxEndpoints;
+    }
+
+    int getBucketCount() {
+        return buckets.size();
+    }
+
+    /**
+     * Share the target rate of the next second by the demands of the last second, and evict the least recently used
+     * buckets when the buckets are full.
+     */
+    void rebalance() {
+        final List<Bucket> all = new ArrayList<>(buckets.size() + 1);
+        all.addAll(buckets.values());
+        all.add(overflow);
+        for (Bucket bucket : all) {
+            bucket.collect();
+        }
+        all.sort(Comparator.comparingLong(bucket -> bucket.lastDemand));
+
+        long remaining = Math.max(targetRate - forcedCount.getAndSet(0), 0) * TOKEN;
+        int idleCount = 0;
+        while (idleCount < all.size() && all.get(idleCount).lastDemand == 0) {
+            idleCount++;
+        }
+        for (int i = idleCount; i < all.size(); i++) {
+            final Bucket bucket = all.get(i);
+            final long rate = Math.min(bucket.lastDemand * TOKEN, remaining / (all.size() - i));
+            bucket.refill(rate);
+            remaining -= rate;
+        }
+        // The idle ones share the rest, one token at most, to sample the rare endpoints.
+        for (int i = 0; i < idleCount; i++) {
+            all.get(i).refill(Math.min(TOKEN, remaining / idleCount));
+        }
+
+        evict();
+    }
+
+    /**
+     * Evict the idle buckets, from the longest idle ones, to leave a tenth of the max endpoints for the new names.
+     */
+    private void evict() {
+        final int max = maxEndpoints;
+        if (buckets.size() < max) {
+            return;
+        }
+        final List<Map.Entry<String, Bucket>> idle = new ArrayList<>();
+        for (Map.Entry<String, Bucket> entry : buckets.entrySet()) {
+            if (entry.getValue().idleSeconds > 0) {
+                idle.add(entry);
+            }
+        }
+        idle.sort(Comparator.comparingInt(entry -> -entry.getValue().idleSeconds));
+        int evicting = buckets.size() - max * 9 / 10;
+        for (int i = 0; i < idle.size() && evicting > 0; i++, evicting--) {
+            buckets.remove(idle.get(i).getKey(), idle.get(i).getValue());
+        }
+    }
+
+    private static class Bucket {
+        private final AtomicLong tokens = new AtomicLong(TOKEN);
+        private final LongAdder demand = new LongAdder();
+        /**
+         * Updated by {@link #rebalance()} only.
+         */
+        private long lastDemand;
+        private int idleSeconds;
+
+        private boolean tryAcquire() {
+            demand.increment();
+            long current;
+            do {
+                current = tokens.get();
+                if (current < TOKEN) {
+                    return false;
+                }
+            }
+            while (!tokens.compareAndSet(current, current - TOKEN));
+            return true;
+        }
+
+        private void collect() {
+            lastDemand = demand.sumThenReset();
+            idleSeconds = lastDemand == 0 ? idleSeconds + 1 : 0;
+        }
+
+        /**
+         * Add the tokens of the rate, up to one second, or one token, in the bucket.
+         */
+        private void refill(long rate) {
+            final long capacity = Math.max(rate, TOKEN);
+            long current;
+            do {
+                current = tokens.get();
+                if (current >= capacity) {
+                    return;
+                }
+            }
+            while (!tokens.compareAndSet(current, Math.min(current + rate, capacity)));
+        }
+    }
+}
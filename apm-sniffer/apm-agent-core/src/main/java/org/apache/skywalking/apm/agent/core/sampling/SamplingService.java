@@ -29,6 +29,7 @@ import org.apache.skywalking.apm.agent.core.boot.DefaultNamedThreadFactory;
 import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
 import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.conf.dynamic.ConfigurationDiscoveryService;
+import org.apache.skywalking.apm.agent.core.conf.dynamic.watcher.AdaptiveSamplingRateWatcher;
 import org.apache.skywalking.apm.agent.core.conf.dynamic.watcher.SamplingRateWatcher;
 import org.apache.skywalking.apm.agent.core.context.trace.TraceSegment;
 import org.apache.skywalking.apm.agent.core.logging.api.ILog;
@@ -41,6 +42,9 @@ import org.apache.skywalking.apm.util.RunnableWithExceptionProtection;
  * send all of them to collector, if SAMPLING is on.
  * <p>
  * By default, SAMPLING is on, and  {@link Config.Agent#SAMPLE_N_PER_3_SECS }
+ * <p>
+ * If {@link Config.Agent#ADAPTIVE_SAMPLING_TARGET_RATE} is positive, the {@link AdaptiveSampler} samples by the
+ * operation names instead.
  */
 @DefaultImplementor
 public class SamplingService implements BootService {
@@ -52,6 +56,11 @@ public class SamplingService implements BootService {
 
     private SamplingRateWatcher samplingRateWatcher;
 
+    private volatile AdaptiveSampler adaptiveSampler;
+    private volatile ScheduledFuture<?> rebalanceFuture;
+
+    private AdaptiveSamplingRateWatcher adaptiveSamplingRateWatcher;
+
     @Override
     public void prepare() {
     }
@@ -59,10 +68,14 @@ public class SamplingService implements BootService {
     @Override
     public void boot() {
         samplingRateWatcher = new SamplingRateWatcher("agent.sample_n_per_3_secs", this);
-        ServiceManager.INSTANCE.findService(ConfigurationDiscoveryService.class)
-                               .registerAgentConfigChangeWatcher(samplingRateWatcher);
+        adaptiveSamplingRateWatcher = new AdaptiveSamplingRateWatcher("agent.adaptive_sampling_target_rate", this);
+        ConfigurationDiscoveryService configurationDiscoveryService = ServiceManager.INSTANCE.findService(
+            ConfigurationDiscoveryService.class);
+        configurationDiscoveryService.registerAgentConfigChangeWatcher(samplingRateWatcher);
+        configurationDiscoveryService.registerAgentConfigChangeWatcher(adaptiveSamplingRateWatcher);
 
         handleSamplingRateChanged();
+        handleAdaptiveSamplingRateChanged();
     }
 
     @Override
@@ -75,6 +88,9 @@ public class SamplingService implements BootService {
         if (scheduledFuture != null) {
             scheduledFuture.cancel(true);
         }
+        if (rebalanceFuture != null) {
+            rebalanceFuture.cancel(true);
+        }
     }
 
     /**
@@ -85,6 +101,10 @@ public class SamplingService implements BootService {
      * @return true if should sample this trace segment. When sampling mechanism is on, return true if sample limited is not reached.
      */
     public boolean trySampling(String operationName) {
+        final AdaptiveSampler sampler = adaptiveSampler;
+        if (sampler != null) {
+            return sampler.trySampling(operationName);
+        }
         if (on) {
             int factor = samplingFactorHolder.get();
             if (factor < samplingRateWatcher.getSamplingRate()) {
@@ -101,6 +121,10 @@ public class SamplingService implements BootService {
      * sampled, the trace beginning at local, has less chance to be sampled.
      */
     public void forceSampled() {
+        final AdaptiveSampler sampler = adaptiveSampler;
+        if (sampler != null) {
+            sampler.forceSampled();
+        }
         if (on) {
             samplingFactorHolder.incrementAndGet();
         }
@@ -136,4 +160,29 @@ public class SamplingService implements BootService {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Handle the adaptive samplingRate changed.
+     */
+    public synchronized void handleAdaptiveSamplingRateChanged() {
+        final int targetRate = adaptiveSamplingRateWatcher.getSamplingRate();
+        if (targetRate > 0) {
+            if (adaptiveSampler == null) {
+                AdaptiveSampler sampler = new AdaptiveSampler(targetRate, Config.Agent.ADAPTIVE_SAMPLING_MAX_ENDPOINTS);
+                ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor(
+                    new DefaultNamedThreadFactory("AdaptiveSamplingService"));
+                rebalanceFuture = service.scheduleAtFixedRate(new RunnableWithExceptionProtection(
+                    sampler::rebalance, t -> LOGGER.error("unexpected exception.", t)), 1, 1, TimeUnit.SECONDS);
+                adaptiveSampler = sampler;
+            } else {
+                adaptiveSampler.setTargetRate(targetRate);
+            }
+            LOGGER.debug("Agent adaptive sampling mechanism started. Sample {} traces per second.", targetRate);
+        } else if (adaptiveSampler != null) {
+            if (rebalanceFuture != null) {
+                rebalanceFuture.cancel(true);
+            }
+            adaptiveSampler = null;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.sampling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.skywalking.apm.agent.core.boot.BootService;
+import org.apache.skywalking.apm.agent.core.boot.DefaultImplementor;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.context.ContextSnapshot;
+import org.apache.skywalking.apm.agent.core.context.ids.DistributedTraceId;
+import org.apache.skywalking.apm.agent.core.context.trace.TraceSegment;
+import org.apache.skywalking.apm.agent.core.logging.api.ILog;
+import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
+
+/**
+ * The <code>TailSamplingService</code> decides whether to keep the finished {@link TraceSegment}s recorded without
+ * being sampled by {@link SamplingService}, if {@link Config.TailSampling#ACTIVE} is true.
+ * <p>
+ * The segments not interesting by themselves are held in a buffer bounded by {@link Config.TailSampling#BUFFER_SIZE}
+ * and {@link Config.TailSampling#HOLD_TIME}, and released once another segment of the same trace is kept in this
+ * process, such as a failed segment in the async thread. Otherwise, they are dropped silently. The kept traces are
+ * remembered for the hold time too, to keep their segments finished later. The sampled flag is propagated by {@link
+ * ContextSnapshot}, so the segments continued from a kept context in other threads are kept by themselves.
+ * <p>
+ * The state is held per trace, and {@link #decide(TraceSegment, boolean)} only locks the trace of the finished segment.
+ * The expired traces are dropped by one of the deciding threads, which never waits for another.
+ */
+@DefaultImplementor
+public class TailSamplingService implements BootService {
+    private static final ILog LOGGER = LogManager.getLogger(TailSamplingService.class);
+
+    /**
+     * The max count of the traces remembered, held or kept.
+     */
+    private static final int MAX_TRACES = 4096;
+
+    private final ConcurrentHashMap<DistributedTraceId, TraceEntry> traces = new ConcurrentHashMap<>();
+    /**
+     * The traces in the order of creation, to expire from the oldest.
+     */
+    private final ConcurrentLinkedQueue<TraceEntry> traceOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger traceCount = new AtomicInteger();
+    private final AtomicLong heldSize = new AtomicLong();
+    private final ReentrantLock expireLock = new ReentrantLock();
+
+    private final AtomicLong keptCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    @Override
+    public void prepare() {
+    }
+
+    @Override
+    public void boot() {
+        if (isActive()) {
+            LOGGER.info(
+                "Tail sampling is active, keep the segments lasting {}ms or longer, or in error status.",
+                Config.TailSampling.SLOW_THRESHOLD
+            );
+        }
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    @Override
+    public void shutdown() {
+        expireLock.lock();
+        try {
+            TraceEntry entry;
+            while ((entry = traceOrder.poll()) != null) {
+                remove(entry, false);
+            }
+        } finally {
+            expireLock.unlock();
+        }
+    }
+
+    public boolean isActive() {
+        return Config.TailSampling.ACTIVE;
+    }
+
+    /**
+     * @return true if the segment should be kept by itself, as it is slow or in error status.
+     */
+    public boolean isInteresting(TraceSegment segment, long durationMillis) {
+        return durationMillis >= Config.TailSampling.SLOW_THRESHOLD || segment.isErrorOccurred();
+    }
+
+    /**
+     * Decide whether to keep the finished segment.
+     *
+     * @param segment the finished segment.
+     * @param keep    true if the segment is sampled already, or interesting by itself.
+     * @return the segments to report, the finished one with the held ones of the same trace, or empty if the finished
+     * one is held.
+     */
+    public List<TraceSegment> decide(TraceSegment segment, boolean keep) {
+        final long now = System.currentTimeMillis();
+        final DistributedTraceId traceId = segment.getRelatedGlobalTrace();
+        List<TraceSegment> result;
+        while (true) {
+            TraceEntry entry = traces.get(traceId);
+            if (entry == null) {
+                final TraceEntry created = new TraceEntry(traceId, now);
+                entry = traces.putIfAbsent(traceId, created);
+                if (entry == null) {
+                    entry = created;
+                    traceOrder.offer(created);
+                    traceCount.incrementAndGet();
+                }
+            }
+            synchronized (entry) {
+                if (entry.removed) {
+                    // expired concurrently, retry with a new one
+                    continue;
+                }
+                result = entry.decide(segment, keep);
+                break;
+            }
+        }
+        expire(now);
+        return result;
+    }
+
+    /**
+     * Drop the traces over the size limits or the hold time, from the oldest. Skipped if another thread is expiring.
+     */
+    private void expire(long now) {
+        if (!expireLock.tryLock()) {
+            return;
+        }
+        try {
+            TraceEntry oldest;
+            while ((oldest = traceOrder.peek()) != null) {
+                if (heldSize.get() <= Config.TailSampling.BUFFER_SIZE
+                    && traceCount.get() <= MAX_TRACES
+                    && now - oldest.createTime < Config.TailSampling.HOLD_TIME) {
+                    break;
+                }
+                traceOrder.poll();
+                remove(oldest, true);
+            }
+        } finally {
+            expireLock.unlock();
+        }
+    }
+
+    private void remove(TraceEntry entry, boolean countDropped) {
+        synchronized (entry) {
+            entry.removed = true;
+            if (entry.heldSegments != null) {
+                heldSize.addAndGet(-entry.heldSize);
+                if (countDropped) {
+                    droppedCount.addAndGet(entry.heldSegments.size());
+                }
+                entry.heldSegments = null;
+                entry.heldSize = 0;
+            }
+        }
+        traces.remove(entry.traceId, entry);
+        traceCount.decrementAndGet();
+    }
+
+    /**
+     * @return the estimated size of the held segments in bytes.
+     */
+    public long getHeldSize() {
+        return heldSize.get();
+    }
+
+    /**
+     * @return the count of the kept segments, which are reported.
+     */
+    public long getKeptCount() {
+        return keptCount.get();
+    }
+
+    /**
+     * @return the count of the dropped segments, which are never reported.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * The state of one trace, guarded by itself.
+     */
+    private class TraceEntry {
+        private final DistributedTraceId traceId;
+        private final long createTime;
+        private List<TraceSegment> heldSegments;
+        private long heldSize;
+        private boolean kept;
+        private boolean removed;
+
+        private TraceEntry(DistributedTraceId traceId, long createTime) {
+            this.traceId = traceId;
+            this.createTime = createTime;
+        }
+
+        private List<TraceSegment> decide(TraceSegment segment, boolean keep) {
+            if (!keep && !kept) {
+                final long size = segment.estimateSize();
+                if (heldSegments == null) {
+                    heldSegments = new ArrayList<>(2);
+                }
+                heldSegments.add(segment);
+                heldSize += size;
+                TailSamplingService.this.heldSize.addAndGet(size);
+                return Collections.emptyList();
+            }
+
+            kept = true;
+            if (heldSegments == null) {
+                keptCount.incrementAndGet();
+                return Collections.singletonList(segment);
+            }
+            final List<TraceSegment> segments = heldSegments;
+            segments.add(segment);
+            TailSamplingService.this.heldSize.addAndGet(-heldSize);
+            heldSegments = null;
+            heldSize = 0;
+            keptCount.addAndGet(segments.size());
+            return segments;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.skywalking.apm.agent.core.logging.api.ILog;
+import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
+
+/**
+ * The compiled form of the expressions of {@link CustomizeExpression}, such as {@code arg[0].user.id}, {@code
+ * arg[1].['key']}, {@code arg[2].[0]}, {@code returnedObj.getName()}. An expression is parsed once into a chain of
+ * accessors, and evaluated against the arguments array or the returned object directly. The fields and methods are
+ * accessed through {@link MethodHandle}s cached per receiver class in every accessor.
+ */
+public class CompiledExpression {
+    private static final ILog LOGGER = LogManager.getLogger(CompiledExpression.class);
+
+    private static final String RETURNED_OBJ = "returnedObj";
+
+    private static final Pattern ARGUMENT = Pattern.compile("arg\\[(\\d+)]");
+
+    private static final String NULL = "null";
+
+    private static final int RETURN_ROOT = -1;
+
+    private static final int UNKNOWN_ROOT = -2;
+
+    private static final int MAX_CACHED_EXPRESSIONS = 1024;
+
+    private static final Map<String, CompiledExpression> EXPRESSIONS = new ConcurrentHashMap<>();
+
+    private final String expression;
+
+    private final String rootName;
+
+    /**
+     * The index of the argument as the root, or {@link #RETURN_ROOT} / {@link #UNKNOWN_ROOT}.
+     */
+    private final int rootIndex;
+
+    private final Accessor[] accessors;
+
+    private CompiledExpression(String expression) {
+        this.expression = expression;
+        String[] es = expression.split("\\.");
+        this.rootName = es[0];
+        Matcher matcher = ARGUMENT.matcher(rootName);
+        if (matcher.matches()) {
+            this.rootIndex = Integer.parseInt(matcher.group(1));
+        } else if (RETURNED_OBJ.equals(rootName)) {
+            this.rootIndex = RETURN_ROOT;
+        } else {
+            this.rootIndex = UNKNOWN_ROOT;
+        }
+        this.accessors = new Accessor[es.length - 1];
+        for (int i = 1; i < es.length; i++) {
+            accessors[i - 1] = new Accessor(es[i]);
+        }
+    }
+
+    /**
+     * @return the compiled expression, shared by all the callers of the same expression.
+     */
+    public static CompiledExpression compile(String expression) {
+        CompiledExpression compiled = EXPRESSIONS.get(expression);
+        if (compiled == null) {
+            compiled = new CompiledExpression(expression);
+            if (EXPRESSIONS.size() < MAX_CACHED_EXPRESSIONS) {
+                EXPRESSIONS.putIfAbsent(expression, compiled);
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * @return true, if the expression reads the returned object.
+     */
+    public boolean isReturnExpression() {
+        return rootIndex == RETURN_ROOT;
+    }
+
+    /**
+     * @return the name of the root, such as {@code arg[0]} or {@code returnedObj}.
+     */
+    public String getRootName() {
+        return rootName;
+    }
+
+    /**
+     * Evaluate the expression by its root, the argument of the index, or the returned object.
+     *
+     * @return the string value of the expression, "null" if any part of the path is absent.
+     */
+    public String evaluate(Object[] allArguments, Object ret) {
+        Object root;
+        if (rootIndex == RETURN_ROOT) {
+            root = ret;
+        } else if (rootIndex >= 0 && allArguments != null && rootIndex < allArguments.length) {
+            root = allArguments[rootIndex];
+        } else {
+            root = null;
+        }
+        return evaluateFrom(root);
+    }
+
+    /**
+     * Evaluate the path of the expression from the given root object.
+     */
+    public String evaluateFrom(Object root) {
+        if (root == null) {
+            return NULL;
+        }
+        try {
+            Object o = root;
+            for (Accessor accessor : accessors) {
+                o = accessor.access(o);
+                if (o == null) {
+                    return NULL;
+                }
+            }
+            return String.valueOf(o);
+        } catch (Throwable t) {
+            LOGGER.debug("parse expression error, expression is {}, exception is {}", expression, t.getMessage());
+        }
+        return NULL;
+    }
+
+    /**
+     * One part of the expression. As the expression is typeless, how to access is decided by the type of the receiver,
+     * the same as {@link CustomizeExpression} did.
+     */
+    private static class Accessor {
+        private static final int MAX_CACHED_CLASSES = 16;
+
+        private static final MethodHandle NOT_FOUND = MethodHandles.constant(Object.class, null);
+
+        private final String expression;
+
+        private final String mapKey;
+
+        private final int index;
+
+        private final String memberName;
+
+        private final boolean isMethod;
+
+        /**
+         * The handle of the last receiver class, checked before the bounded cache of the others.
+         */
+        private volatile ResolvedHandle last;
+
+        private final Map<Class<?>, MethodHandle> handles = new LinkedHashMap<Class<?>, MethodHandle>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Class<?>, MethodHandle> eldest) {
+                return size() > MAX_CACHED_CLASSES;
+            }
+        };
+
+        private Accessor(String expression) {
+            this.expression = expression;
+            this.mapKey = expression.replace("['", "").replace("']", "");
+            this.index = parseIndex(expression.replace("[", "").replace("]", ""));
+            this.isMethod = expression.contains("()");
+            this.memberName = isMethod ? expression.replace("()", "") : expression;
+        }
+
+        private static int parseIndex(String index) {
+            try {
+                return Integer.parseInt(index);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        private Object access(Object o) throws Throwable {
+            if (o instanceof Map) {
+                return ((Map) o).get(mapKey);
+            } else if (o instanceof List) {
+                checkIndex();
+                List l = (List) o;
+                return l.size() > index ? l.get(index) : null;
+            } else if (o.getClass().isArray()) {
+                checkIndex();
+                return Array.getLength(o) > index ? Array.get(o, index) : null;
+            } else {
+                return (Object) handleOf(o.getClass()).invokeExact(o);
+            }
+        }
+
+        private void checkIndex() {
+            if (index < 0) {
+                throw new IllegalArgumentException("illegal index " + expression);
+            }
+        }
+
+        private MethodHandle handleOf(Class<?> clazz) {
+            ResolvedHandle resolved = last;
+            if (resolved != null && resolved.clazz == clazz) {
+                return resolved.handle;
+            }
+            MethodHandle handle;
+            synchronized (handles) {
+                handle = handles.get(clazz);
+                if (handle == null) {
+                    handle = resolve(clazz);
+                    handles.put(clazz, handle);
+                }
+            }
+            last = new ResolvedHandle(clazz, handle);
+            return handle;
+        }
+
+        private MethodHandle resolve(Class<?> clazz) {
+            try {
+                MethodHandle handle;
+                if (isMethod) {
+                    Method m = clazz.getMethod(memberName);
+                    m.setAccessible(true);
+                    handle = MethodHandles.lookup().unreflect(m);
+                } else {
+                    handle = MethodHandles.lookup().unreflectGetter(findField(clazz));
+                }
+                return handle.asType(MethodType.methodType(Object.class, Object.class));
+            } catch (Exception e) {
+                LOGGER.debug("matcher default error, expression is {}, class is {}, exception is {}", expression, clazz, e.getMessage());
+            }
+            return MethodHandles.dropArguments(NOT_FOUND, 0, Object.class);
+        }
+
+        private Field findField(Class<?> clazz) throws NoSuchFieldException {
+            for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+                try {
+                    Field f = c.getDeclaredField(memberName);
+                    f.setAccessible(true);
+                    return f;
+                } catch (NoSuchFieldException ignored) {
+                }
+            }
+            throw new NoSuchFieldException(memberName);
+        }
+    }
+
+    private static class ResolvedHandle {
+        private final Class<?> clazz;
+
+        private final MethodHandle handle;
+
+        private ResolvedHandle(Class<?> clazz, MethodHandle handle) {
+            this.clazz = clazz;
+            this.handle = handle;
+        }
+    }
+}
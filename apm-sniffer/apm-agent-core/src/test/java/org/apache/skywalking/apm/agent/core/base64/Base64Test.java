@@ -20,6 +20,7 @@ package org.apache.skywalking.apm.agent.core.base64;
 
 import static org.junit.Assert.assertEquals;
 
+import java.nio.charset.StandardCharsets;
 import org.junit.Test;
 
 public class Base64Test {
@@ -33,4 +34,35 @@ public class Base64Test {
     public void testEncode() {
         assertEquals(Base64.encode("SkyWalking"), "U2t5V2Fsa2luZw==");
     }
+
+    @Test
+    public void testEncodeIntoChars() {
+        String[] texts = {"", "a", "ab", "abc", "SkyWalking", "/api/\u00e9\u4e2d\u6587", "\ud83d\ude00-emoji", "lone\ud83d"};
+        for (String text : texts) {
+            char[] target = new char[Base64.encodedLength(text) + 2];
+            int end = Base64.encode(text, target, 1);
+            assertEquals(Base64.encode(text), new String(target, 1, end - 1));
+            assertEquals(Base64.encodedLength(text), end - 1);
+        }
+    }
+
+    @Test
+    public void testDecodeRange() {
+        String text = "-U2t5V2Fsa2luZw==-U2t5V2Fsa2luZw-";
+        byte[] target = new byte[Base64.decodedMaxLength(16)];
+        int length = Base64.decode(text, 1, 17, target);
+        assertEquals("SkyWalking", new String(target, 0, length, StandardCharsets.UTF_8));
+        length = Base64.decode(text, 18, 32, target);
+        assertEquals("SkyWalking", new String(target, 0, length, StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeIllegalCharacter() {
+        Base64.decode("U2t5-2Fs", 0, 8, new byte[6]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeIllegalPadding() {
+        Base64.decode("U2t5V===", 0, 8, new byte[6]);
+    }
 }
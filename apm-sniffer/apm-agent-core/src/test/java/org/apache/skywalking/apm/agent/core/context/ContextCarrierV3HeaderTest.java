@@ -20,8 +20,10 @@ package org.apache.skywalking.apm.agent.core.context;
 
 import java.util.ArrayList;
 import java.util.List;
+import org.apache.skywalking.apm.agent.core.base64.Base64;
 import org.apache.skywalking.apm.agent.core.context.ids.DistributedTraceId;
 import org.apache.skywalking.apm.agent.core.context.ids.PropagatedTraceId;
+import org.apache.skywalking.apm.util.StringUtil;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -162,4 +164,43 @@ public class ContextCarrierV3HeaderTest {
         Assert.assertEquals(contextCarrier.getCorrelationContext(), contextCarrier2.getCorrelationContext());
         Assert.assertEquals(contextCarrier.getExtensionContext(), contextCarrier2.getExtensionContext());
     }
+
+    @Test
+    public void testSerializeNonAsciiV3Header() {
+        ContextCarrier contextCarrier = new ContextCarrier();
+        contextCarrier.setTraceSegmentId("1.2.3");
+        contextCarrier.setTraceId("3.4.5");
+        contextCarrier.setSpanId(12345);
+        contextCarrier.setParentService("\u670d\u52a1");
+        contextCarrier.setParentServiceInstance("instance\ud83d\ude00");
+        contextCarrier.setAddressUsedAtClient("127.0.0.1:8080");
+        contextCarrier.setParentEndpoint("/app/\u00e9");
+
+        String header = contextCarrier.serialize(ContextCarrier.HeaderVersion.v3);
+        Assert.assertEquals(StringUtil.join(
+            '-', "1", Base64.encode("3.4.5"), Base64.encode("1.2.3"), "12345", Base64.encode("\u670d\u52a1"),
+            Base64.encode("instance\ud83d\ude00"), Base64.encode("/app/\u00e9"), Base64.encode("127.0.0.1:8080")
+        ), header);
+
+        ContextCarrier deserialized = new ContextCarrier().deserialize(header, ContextCarrier.HeaderVersion.v3);
+        Assert.assertEquals(12345, deserialized.getSpanId());
+        Assert.assertEquals("\u670d\u52a1", deserialized.getParentService());
+        Assert.assertEquals("instance\ud83d\ude00", deserialized.getParentServiceInstance());
+        Assert.assertEquals("/app/\u00e9", deserialized.getParentEndpoint());
+        Assert.assertEquals("127.0.0.1:8080", deserialized.getAddressUsedAtClient());
+    }
+
+    @Test
+    public void testDeserializeMalformedV3Header() {
+        String[] headers = {
+            "1-My40LjU=-MS4yLjM=-4-c2VydmljZQ==-aW5zdGFuY2U=-L2FwcA==",
+            "1-My40LjU=-MS4yLjM=-x-c2VydmljZQ==-aW5zdGFuY2U=-L2FwcA==-MTI3LjAuMC4xOjgwODA=",
+            "1-My40LjU=-MS4yLjM=-99999999999-c2VydmljZQ==-aW5zdGFuY2U=-L2FwcA==-MTI3LjAuMC4xOjgwODA=",
+            "1-My40LjU=-MS4yLjM=-4-c2VydmljZQ==-aW5zdGFuY2U=-L2FwcA==-MTI3LjAuMC4xOjgwODA=-"
+        };
+        for (String header : headers) {
+            ContextCarrier contextCarrier = new ContextCarrier().deserialize(header, ContextCarrier.HeaderVersion.v3);
+            Assert.assertFalse(header, contextCarrier.isValid());
+        }
+    }
 }
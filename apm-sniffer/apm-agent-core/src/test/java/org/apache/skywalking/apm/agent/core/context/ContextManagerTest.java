@@ -30,6 +30,7 @@ import org.apache.skywalking.apm.agent.core.context.trace.LogDataEntity;
 import org.apache.skywalking.apm.agent.core.context.trace.SpanLayer;
 import org.apache.skywalking.apm.agent.core.context.trace.TraceSegment;
 import org.apache.skywalking.apm.agent.core.context.trace.TraceSegmentRef;
+import org.apache.skywalking.apm.agent.core.context.trace.TraceSegmentSerializer;
 import org.apache.skywalking.apm.agent.core.context.util.AbstractTracingSpanHelper;
 import org.apache.skywalking.apm.agent.core.context.util.SegmentHelper;
 import org.apache.skywalking.apm.agent.core.context.util.SpanHelper;
@@ -54,6 +55,7 @@ import org.junit.runner.RunWith;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -284,4 +286,59 @@ public class ContextManagerTest {
         assertThat(values.get(2).getValue(), is("exception"));
         assertTrue(values.get(2).getValue().length() <= 4000);
     }
+
+    @Test
+    public void testSerialize() throws InvalidProtocolBufferException {
+        ContextCarrier contextCarrier = new ContextCarrier().deserialize(
+            "1-My40LjU=-MS4yLjM=-3-c2VydmljZQ==-aW5zdGFuY2U=-L2FwcA==-MTI3LjAuMC4xOjgwODA=",
+            ContextCarrier.HeaderVersion.v3
+        );
+
+        AbstractSpan entrySpan = ContextManager.createEntrySpan("/testEntry", contextCarrier);
+        entrySpan.setComponent(ComponentsDefine.TOMCAT);
+        Tags.HTTP.METHOD.set(entrySpan, "GET");
+        Tags.URL.set(entrySpan, "127.0.0.1:8080");
+        SpanLayer.asHttp(entrySpan);
+
+        AbstractSpan localSpan = ContextManager.createLocalSpan("/testLocal\u4e2d\u6587");
+        localSpan.tag(Tags.ofKey("emptyValue"), "");
+        localSpan.skipAnalysis();
+        ContextManager.stopSpan();
+
+        AbstractSpan exitSpan = ContextManager.createExitSpan("/textExitSpan", new ContextCarrier(), "127.0.0.1:12800");
+        exitSpan.log(new RuntimeException("exception"));
+        exitSpan.setComponent(ComponentsDefine.HTTPCLIENT);
+        SpanLayer.asHttp(exitSpan);
+        ContextManager.stopSpan();
+
+        ContextManager.stopSpan();
+
+        TraceSegment actualSegment = tracingData.getTraceSegments().get(0);
+        byte[] serialized = new TraceSegmentSerializer().serialize(actualSegment);
+
+        assertArrayEquals(actualSegment.transform().toByteArray(), serialized);
+        assertThat(SegmentObject.parseFrom(serialized).getSpansCount(), is(3));
+    }
+
+    @Test
+    public void testSerializeCompactIds() throws InvalidProtocolBufferException {
+        Config.Agent.COMPACT_GLOBAL_ID = true;
+        try {
+            AbstractSpan entrySpan = ContextManager.createEntrySpan("/testEntry", null);
+            entrySpan.setComponent(ComponentsDefine.TOMCAT);
+            ContextManager.createExitSpan("/textExitSpan", "127.0.0.1:12800");
+            ContextManager.stopSpan();
+            ContextManager.stopSpan();
+        } finally {
+            Config.Agent.COMPACT_GLOBAL_ID = false;
+        }
+
+        TraceSegment actualSegment = tracingData.getTraceSegments().get(0);
+        byte[] serialized = new TraceSegmentSerializer().serialize(actualSegment);
+
+        SegmentObject segmentObject = SegmentObject.parseFrom(serialized);
+        assertThat(segmentObject.getTraceId().matches("[0-9a-f]{32}"), is(true));
+        assertThat(segmentObject.getTraceSegmentId().matches("[0-9a-f]{32}"), is(true));
+        assertArrayEquals(actualSegment.transform().toByteArray(), serialized);
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.apm.agent.core.base64.Base64;
+import org.apache.skywalking.apm.util.StringUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare the sw8 header encoding and decoding of {@link ContextCarrier} with the split and {@link
+ * Base64#encode(String)} based implementation it replaced, kept here as the legacy methods.
+ * <p>
+ * Run {@link #main(String[])} to report ns/op with B/op from the GC profiler.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, warmups = 1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class SW8HeaderBenchmark {
+    private ContextCarrier carrier;
+    private String header;
+
+    @Setup
+    public void setup() {
+        carrier = new ContextCarrier();
+        carrier.setTraceId("c4a1e7f06b4d4c2b9d0a3e5f7a8b9c0d.87.16347652314250001");
+        carrier.setTraceSegmentId("c4a1e7f06b4d4c2b9d0a3e5f7a8b9c0d.87.16347652314250002");
+        carrier.setSpanId(3);
+        carrier.setParentService("order-service");
+        carrier.setParentServiceInstance("a3f5c1e2d4b64b9a8c7d6e5f4a3b2c1d@10.0.12.34");
+        carrier.setParentEndpoint("{GET}/api/orders/{id}");
+        carrier.setAddressUsedAtClient("10.0.12.35:8080");
+        header = carrier.serialize(ContextCarrier.HeaderVersion.v3);
+    }
+
+    @Benchmark
+    public String encode() {
+        return carrier.serialize(ContextCarrier.HeaderVersion.v3);
+    }
+
+    @Benchmark
+    public String legacyEncode() {
+        return StringUtil.join(
+            '-',
+            "1",
+            Base64.encode(carrier.getTraceId()),
+            Base64.encode(carrier.getTraceSegmentId()),
+            carrier.getSpanId() + "",
+            Base64.encode(carrier.getParentService()),
+            Base64.encode(carrier.getParentServiceInstance()),
+            Base64.encode(carrier.getParentEndpoint()),
+            Base64.encode(carrier.getAddressUsedAtClient())
+        );
+    }
+
+    @Benchmark
+    public ContextCarrier decode() {
+        return new ContextCarrier().deserialize(header, ContextCarrier.HeaderVersion.v3);
+    }
+
+    @Benchmark
+    public ContextCarrier legacyDecode() {
+        ContextCarrier decoded = new ContextCarrier();
+        String[] parts = header.split("-", 8);
+        if (parts.length == 8) {
+            decoded.setTraceId(Base64.decode2UTFString(parts[1]));
+            decoded.setTraceSegmentId(Base64.decode2UTFString(parts[2]));
+            decoded.setSpanId(Integer.parseInt(parts[3]));
+            decoded.setParentService(Base64.decode2UTFString(parts[4]));
+            decoded.setParentServiceInstance(Base64.decode2UTFString(parts[5]));
+            decoded.setParentEndpoint(Base64.decode2UTFString(parts[6]));
+            decoded.setAddressUsedAtClient(Base64.decode2UTFString(parts[7]));
+        }
+        return decoded;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder().include(SW8HeaderBenchmark.class.getSimpleName())
+                                          .addProfiler(GCProfiler.class)
+                                          .build();
+        new Runner(opt).run();
+    }
+}
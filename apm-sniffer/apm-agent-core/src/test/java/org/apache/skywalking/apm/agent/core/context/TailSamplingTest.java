@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.context.trace.AbstractSpan;
+import org.apache.skywalking.apm.agent.core.sampling.SamplingService;
+import org.apache.skywalking.apm.agent.core.sampling.TailSamplingService;
+import org.apache.skywalking.apm.agent.core.test.tools.AgentServiceRule;
+import org.apache.skywalking.apm.agent.core.test.tools.SegmentStorage;
+import org.apache.skywalking.apm.agent.core.test.tools.SegmentStoragePoint;
+import org.apache.skywalking.apm.agent.core.test.tools.TracingSegmentRunner;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.reflect.Whitebox;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(TracingSegmentRunner.class)
+public class TailSamplingTest {
+
+    @SegmentStoragePoint
+    private SegmentStorage tracingData;
+
+    @Rule
+    public AgentServiceRule agentServiceRule = new AgentServiceRule();
+
+    private TailSamplingService tailSamplingService;
+
+    @BeforeClass
+    public static void beforeClass() {
+        Config.Agent.KEEP_TRACING = true;
+        Config.Agent.SAMPLE_N_PER_3_SECS = 1;
+        Config.TailSampling.ACTIVE = true;
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        Config.Agent.KEEP_TRACING = false;
+        Config.Agent.SAMPLE_N_PER_3_SECS = -1;
+        Config.TailSampling.ACTIVE = false;
+        ServiceManager.INSTANCE.shutdown();
+    }
+
+    @Before
+    public void setUp() {
+        // Exhaust the head sampling, without being reset.
+        SamplingService samplingService = ServiceManager.INSTANCE.findService(SamplingService.class);
+        ScheduledFuture<?> resetTask = Whitebox.getInternalState(samplingService, "scheduledFuture");
+        resetTask.cancel(true);
+        Whitebox.setInternalState(samplingService, "samplingFactorHolder", new AtomicInteger(1));
+
+        tailSamplingService = ServiceManager.INSTANCE.findService(TailSamplingService.class);
+    }
+
+    @Test
+    public void testDropFastTrace() {
+        ContextManager.createEntrySpan("/fast", null);
+        ContextCarrier carrier = new ContextCarrier();
+        ContextManager.createExitSpan("/fast/exit", carrier, "127.0.0.1:8080");
+        ContextManager.stopSpan();
+        ContextManager.stopSpan();
+
+        assertThat(tracingData.getTraceSegments().size(), is(0));
+        assertThat(tracingData.getIgnoredTracerContexts().size(), is(0));
+        assertThat(tailSamplingService.getHeldSize() > 0, is(true));
+        assertThat(carrier.serialize(ContextCarrier.HeaderVersion.v3).startsWith("0-"), is(true));
+    }
+
+    @Test
+    public void testKeepErrorTrace() {
+        AbstractSpan span = ContextManager.createEntrySpan("/error", null);
+        span.errorOccurred();
+        ContextManager.stopSpan();
+
+        assertThat(tracingData.getTraceSegments().size(), is(1));
+    }
+
+    @Test
+    public void testKeepSlowTrace() {
+        Config.TailSampling.SLOW_THRESHOLD = 0;
+        try {
+            ContextManager.createEntrySpan("/slow", null);
+            ContextManager.stopSpan();
+        } finally {
+            Config.TailSampling.SLOW_THRESHOLD = 1000;
+        }
+
+        assertThat(tracingData.getTraceSegments().size(), is(1));
+    }
+
+    @Test
+    public void testKeepSampledUpstream() {
+        ContextCarrier carrier = new ContextCarrier().deserialize(
+            "1-My40LjU=-MS4yLjM=-3-c2VydmljZQ==-aW5zdGFuY2U=-L2FwcA==-MTI3LjAuMC4xOjgwODA=",
+            ContextCarrier.HeaderVersion.v3
+        );
+        ContextManager.createEntrySpan("/sampled", carrier);
+        ContextManager.stopSpan();
+
+        ContextCarrier unsampled = new ContextCarrier().deserialize(
+            "0-My40LjY=-MS4yLjQ=-3-c2VydmljZQ==-aW5zdGFuY2U=-L2FwcA==-MTI3LjAuMC4xOjgwODA=",
+            ContextCarrier.HeaderVersion.v3
+        );
+        assertThat(unsampled.isValid(), is(true));
+        ContextManager.createEntrySpan("/unsampled", unsampled);
+        ContextManager.stopSpan();
+
+        assertThat(tracingData.getTraceSegments().size(), is(1));
+        assertThat(tracingData.getTraceSegments().get(0).getRelatedGlobalTrace().getId(), is("3.4.5"));
+    }
+
+    @Test
+    public void testKeepSampledParentThread() {
+        ContextCarrier carrier = new ContextCarrier().deserialize(
+            "1-My40Ljc=-MS4yLjU=-3-c2VydmljZQ==-aW5zdGFuY2U=-L2FwcA==-MTI3LjAuMC4xOjgwODA=",
+            ContextCarrier.HeaderVersion.v3
+        );
+        ContextManager.createEntrySpan("/sampled", carrier);
+        ContextSnapshot snapshot = ContextManager.capture();
+        assertThat(snapshot.isSampled(), is(true));
+        ContextManager.stopSpan();
+
+        // The fast segment in the async thread is kept, as the parent thread keeps the trace.
+        ContextManager.createLocalSpan("/async");
+        ContextManager.continued(snapshot);
+        ContextManager.stopSpan();
+
+        assertThat(tracingData.getTraceSegments().size(), is(2));
+    }
+
+    @Test
+    public void testReleaseHeldSegmentsOfKeptTrace() {
+        ContextManager.createEntrySpan("/parent", null);
+        ContextSnapshot snapshot = ContextManager.capture();
+        ContextManager.stopSpan();
+        assertThat(tracingData.getTraceSegments().size(), is(0));
+
+        AbstractSpan span = ContextManager.createLocalSpan("/async");
+        ContextManager.continued(snapshot);
+        span.errorOccurred();
+        ContextManager.stopSpan();
+
+        assertThat(tracingData.getTraceSegments().size(), is(2));
+        assertThat(tailSamplingService.getHeldSize(), is(0L));
+
+        // The segment finished later of the kept trace is kept too.
+        ContextManager.createLocalSpan("/async/later");
+        ContextManager.continued(snapshot);
+        ContextManager.stopSpan();
+        assertThat(tracingData.getTraceSegments().size(), is(3));
+    }
+
+    @Test
+    public void testDropHeldSegmentsOverBufferSize() {
+        long dropped = tailSamplingService.getDroppedCount();
+        Config.TailSampling.BUFFER_SIZE = 0;
+        try {
+            ContextManager.createEntrySpan("/fast", null);
+            ContextManager.stopSpan();
+        } finally {
+            Config.TailSampling.BUFFER_SIZE = 10 * 1024 * 1024;
+        }
+
+        assertThat(tailSamplingService.getDroppedCount(), is(dropped + 1));
+        assertThat(tailSamplingService.getHeldSize(), is(0L));
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.context.tag.StringTag;
+import org.apache.skywalking.apm.agent.core.context.trace.AbstractSpan;
+import org.apache.skywalking.apm.agent.core.context.trace.SpanLayer;
+import org.apache.skywalking.apm.agent.core.context.trace.TraceSegment;
+import org.apache.skywalking.apm.agent.core.context.trace.TraceSegmentSerializer;
+import org.apache.skywalking.apm.agent.core.logging.core.LogLevel;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.apache.skywalking.apm.network.trace.component.ComponentsDefine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The end-to-end cost of tracing a request in the agent core, from {@link ContextManager#createEntrySpan} to the
+ * finished {@link TraceSegment} produced into the DataCarrier of the TraceSegmentServiceClient, and serialized by
+ * {@link TraceSegmentSerializer}, as what the consumer thread does before sending.
+ * <p>
+ * Run {@link #main(String[])} to report ns/op with B/op from the GC profiler. Filter the scenarios by JMH options, such
+ * as `-p spanDepth=10`.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, warmups = 1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class TracingLifecycleBenchmark {
+    private static final String PEER = "127.0.0.1:8080";
+
+    /**
+     * The count of spans in the segment, including the entry span and the exit span.
+     */
+    @Param({"2", "10", "50"})
+    private int spanDepth;
+
+    /**
+     * The count of tags of each span.
+     */
+    @Param({"0", "5"})
+    private int tagCount;
+
+    /**
+     * {@link Config.Agent#SAMPLE_N_PER_3_SECS}, non-positive means sampling off.
+     */
+    @Param({"-1", "1"})
+    private int sampleNPer3Secs;
+
+    /**
+     * {@link Config.Agent#COMPACT_GLOBAL_ID}.
+     */
+    @Param({"false", "true"})
+    private boolean compactGlobalId;
+
+    private StringTag[] tags;
+    private Map<String, String> event;
+    private TracingContextListener transformer;
+    private TraceSegment finishedSegment;
+    private final TraceSegmentSerializer serializer = new TraceSegmentSerializer();
+    private volatile byte[] lastSerializedSegment;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Config.Agent.SERVICE_NAME = "benchmark";
+        Config.Agent.SAMPLE_N_PER_3_SECS = sampleNPer3Secs;
+        Config.Agent.COMPACT_GLOBAL_ID = compactGlobalId;
+        // No backend in the benchmark, keep tracing as if connected.
+        Config.Agent.KEEP_TRACING = true;
+        // Abandoned segments are logged in debug level, keep the console out of the measurement.
+        Config.Logging.LEVEL = LogLevel.ERROR;
+        Config.Agent.SPAN_LIMIT_PER_SEGMENT = Math.max(Config.Agent.SPAN_LIMIT_PER_SEGMENT, spanDepth);
+        ServiceManager.INSTANCE.boot();
+
+        tags = new StringTag[tagCount];
+        for (int i = 0; i < tagCount; i++) {
+            tags[i] = new StringTag("benchmark.tag." + i);
+        }
+        event = Collections.singletonMap("event", "benchmark");
+
+        transformer = segment -> {
+            finishedSegment = segment;
+            lastSerializedSegment = serializer.serialize(segment);
+        };
+        TracingContext.ListenerManager.add(transformer);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        TracingContext.ListenerManager.remove(transformer);
+        ServiceManager.INSTANCE.shutdown();
+    }
+
+    /**
+     * Entry span, nested local spans, and an exit span injecting the context into the carrier.
+     */
+    @Benchmark
+    public void syncSpans(Blackhole bh) {
+        AbstractSpan entrySpan = entry("/benchmark/endpoint");
+        nested(bh, spanDepth - 2);
+        ContextManager.stopSpan(entrySpan);
+    }
+
+    /**
+     * The same as {@link #syncSpans(Blackhole)}, but the exit span is finished asynchronously after the entry span is
+     * stopped.
+     */
+    @Benchmark
+    public void asyncSpans(Blackhole bh) {
+        AbstractSpan entrySpan = entry("/benchmark/endpoint");
+        for (int i = 0; i < spanDepth - 2; i++) {
+            tag(ContextManager.createLocalSpan("/benchmark/local"));
+        }
+        AbstractSpan exitSpan = exit(bh);
+        exitSpan.prepareForAsync();
+        ContextManager.stopSpan(exitSpan);
+        for (int i = 0; i < spanDepth - 2; i++) {
+            ContextManager.stopSpan();
+        }
+        ContextManager.stopSpan(entrySpan);
+        exitSpan.asyncFinish();
+    }
+
+    /**
+     * The operation name of the first span matches {@link Config.Agent#IGNORE_SUFFIX}, so the whole context is
+     * ignored.
+     */
+    @Benchmark
+    public void ignoredContext(Blackhole bh) {
+        AbstractSpan entrySpan = entry("/benchmark/logo.jpg");
+        nested(bh, spanDepth - 2);
+        ContextManager.stopSpan(entrySpan);
+    }
+
+    /**
+     * Only the transformation of the last finished segment into {@link SegmentObject} and its bytes, the way of sending
+     * before {@link TraceSegmentSerializer}.
+     */
+    @Benchmark
+    public byte[] transformSegment() {
+        if (finishedSegment == null) {
+            syncSpans(null);
+        }
+        return finishedSegment.transform().toByteArray();
+    }
+
+    /**
+     * Only the serialization of the last finished segment, which is the cost of the DataCarrier consumer thread before
+     * sending.
+     */
+    @Benchmark
+    public byte[] serializeSegment() {
+        if (finishedSegment == null) {
+            syncSpans(null);
+        }
+        return serializer.serialize(finishedSegment);
+    }
+
+    private AbstractSpan entry(String operationName) {
+        AbstractSpan entrySpan = ContextManager.createEntrySpan(operationName, null);
+        entrySpan.setComponent(ComponentsDefine.TOMCAT);
+        SpanLayer.asHttp(entrySpan);
+        entrySpan.log(System.currentTimeMillis(), event);
+        return tag(entrySpan);
+    }
+
+    private void nested(Blackhole bh, int localSpans) {
+        if (localSpans > 0) {
+            AbstractSpan localSpan = tag(ContextManager.createLocalSpan("/benchmark/local"));
+            nested(bh, localSpans - 1);
+            ContextManager.stopSpan(localSpan);
+        } else {
+            ContextManager.stopSpan(exit(bh));
+        }
+    }
+
+    private AbstractSpan exit(Blackhole bh) {
+        ContextCarrier carrier = new ContextCarrier();
+        AbstractSpan exitSpan = ContextManager.createExitSpan("/benchmark/exit", carrier, PEER);
+        exitSpan.setComponent(ComponentsDefine.HTTPCLIENT);
+        SpanLayer.asHttp(exitSpan);
+        CarrierItem next = carrier.items();
+        while (next.hasNext()) {
+            next = next.next();
+            if (bh != null) {
+                bh.consume(next.getHeadValue());
+            }
+        }
+        return tag(exitSpan);
+    }
+
+    private AbstractSpan tag(AbstractSpan span) {
+        for (StringTag tag : tags) {
+            tag.set(span, "value");
+        }
+        return span;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder().include(TracingLifecycleBenchmark.class.getSimpleName())
+                                          .addProfiler(GCProfiler.class)
+                                          .build();
+        new Runner(opt).run();
+    }
+}
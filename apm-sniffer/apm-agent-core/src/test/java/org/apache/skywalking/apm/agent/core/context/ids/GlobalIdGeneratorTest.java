@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.ids;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class GlobalIdGeneratorTest {
+    @After
+    public void tearDown() {
+        Config.Agent.COMPACT_GLOBAL_ID = false;
+    }
+
+    @Test
+    public void testGenerate() {
+        GlobalId id = GlobalIdGenerator.generateId();
+
+        assertThat(id.isCompact(), is(false));
+        assertThat(id.toString().split("\\.").length, is(3));
+    }
+
+    @Test
+    public void testGenerateCompact() {
+        Config.Agent.COMPACT_GLOBAL_ID = true;
+
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 20000; i++) {
+            GlobalId id = GlobalIdGenerator.generateId();
+            assertThat(id.isCompact(), is(true));
+
+            byte[] written = new byte[GlobalId.COMPACT_LENGTH + 1];
+            assertThat(id.writeTo(written, 1), is(GlobalId.COMPACT_LENGTH + 1));
+            String text = id.toString();
+            assertThat(text.matches("[0-9a-f]{32}"), is(true));
+            assertThat(new String(written, 1, GlobalId.COMPACT_LENGTH, StandardCharsets.US_ASCII), is(text));
+            assertThat(ids.add(text), is(true));
+        }
+    }
+
+    @Test
+    public void testCompactTraceId() {
+        Config.Agent.COMPACT_GLOBAL_ID = true;
+
+        NewDistributedTraceId traceId = new NewDistributedTraceId();
+        PropagatedTraceId propagatedTraceId = new PropagatedTraceId(traceId.getId());
+
+        assertThat(traceId.getGlobalId().isCompact(), is(true));
+        assertThat(propagatedTraceId.getGlobalId() == null, is(true));
+        assertThat(propagatedTraceId.equals(traceId), is(true));
+        assertThat(propagatedTraceId.hashCode(), is(traceId.hashCode()));
+    }
+}
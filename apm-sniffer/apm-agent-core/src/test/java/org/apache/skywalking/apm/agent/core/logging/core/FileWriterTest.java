@@ -27,10 +27,13 @@ import org.apache.skywalking.apm.agent.core.conf.Constants;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.UUID;
 import java.util.regex.Pattern;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class FileWriterTest {
 
@@ -73,6 +76,20 @@ public class FileWriterTest {
         assertEquals(3, pathArr.length);
     }
 
+    @Test
+    public void testWriteUtf8() throws IOException, InterruptedException {
+        FileWriter writer = FileWriter.get();
+        writer.write(new StringBuilder("h\u00e9llo \u4f60\u597d \ud83d\ude00 \ud83d"));
+        Thread.sleep(2000L);
+
+        final String expected = "h\u00e9llo \u4f60\u597d \ud83d\ude00 ?" + Constants.LINE_SEPARATOR;
+        boolean found = false;
+        for (File file : new File(Config.Logging.DIR).listFiles()) {
+            found |= new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).endsWith(expected);
+        }
+        assertTrue(found);
+    }
+
     @AfterClass
     public static void clear() {
         Config.Logging.MAX_FILE_SIZE = 300 * 1024 * 1024;
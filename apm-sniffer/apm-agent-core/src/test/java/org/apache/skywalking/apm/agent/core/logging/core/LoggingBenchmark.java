@@ -42,6 +42,16 @@ public class LoggingBenchmark {
         }
     };
 
+    private static final PatternLogger PATTERN_REUSABLE_LOGGER = new PatternLogger(LoggingBenchmark.class, PatternLogger.DEFAULT_PATTERN) {
+        private final StringBuilder output = new StringBuilder();
+
+        @Override
+        protected void logger(LogLevel level, String message, Throwable e) {
+            output.setLength(0);
+            format(level, message, e, output);
+        }
+    };
+
     @Benchmark
     @Fork(value = 1, warmups = 1)
     @OutputTimeUnit(TimeUnit.NANOSECONDS)
@@ -58,6 +68,22 @@ public class LoggingBenchmark {
         PATTERN_LOGGER.info("Hello World");
     }
 
+    @Benchmark
+    @Fork(value = 1, warmups = 1)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @BenchmarkMode(Mode.SampleTime)
+    public void patternLoggerWithParams() {
+        PATTERN_LOGGER.info("Hello {}, {}", "World", 1);
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 1)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @BenchmarkMode(Mode.SampleTime)
+    public void patternLoggerWithParamsReusable() {
+        PATTERN_REUSABLE_LOGGER.info("Hello {}, {}", "World", 1);
+    }
+
     public static void main(String[] args) throws Exception {
         org.openjdk.jmh.Main.main(args);
     }
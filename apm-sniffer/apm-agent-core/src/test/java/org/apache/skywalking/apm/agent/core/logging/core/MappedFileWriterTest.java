@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.logging.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.conf.Constants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MappedFileWriterTest {
+
+    private static final String LINE = "0123456789";
+    private static final int LINE_SIZE = LINE.length() + Constants.LINE_SEPARATOR.length();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws IOException {
+        Config.Logging.DIR = temporaryFolder.newFolder().getCanonicalPath();
+        Config.Logging.MAX_FILE_SIZE = LINE_SIZE * 5 + 5;
+        Config.Logging.MAX_HISTORY_FILES = 2;
+    }
+
+    @After
+    public void tearDown() {
+        Config.Logging.DIR = "";
+        Config.Logging.MAX_FILE_SIZE = 300 * 1024 * 1024;
+        Config.Logging.MAX_HISTORY_FILES = -1;
+        Config.Logging.COMPRESS_HISTORY_FILES = false;
+    }
+
+    @Test
+    public void testRollAtByteSize() throws IOException {
+        MappedFileWriter writer = new MappedFileWriter();
+        for (int i = 0; i < 20; i++) {
+            writer.write(LINE);
+        }
+        writer.close();
+
+        // 3 files rolled, the oldest one is expired
+        String[] names = logFileNames();
+        assertEquals(3, names.length);
+        assertEquals(Config.Logging.FILE_NAME, names[0]);
+        for (String name : names) {
+            assertEquals(lines(5), read(new File(Config.Logging.DIR, name)));
+        }
+    }
+
+    @Test
+    public void testSplitLargeLog() throws IOException {
+        Config.Logging.MAX_HISTORY_FILES = -1;
+        MappedFileWriter writer = new MappedFileWriter();
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            log.append(LINE);
+        }
+        writer.write(log);
+        writer.close();
+
+        String[] names = logFileNames();
+        assertEquals(2, names.length);
+        String content = read(new File(Config.Logging.DIR, names[1])) + read(new File(Config.Logging.DIR, names[0]));
+        assertEquals(log + Constants.LINE_SEPARATOR, content);
+        assertEquals(Config.Logging.MAX_FILE_SIZE, new File(Config.Logging.DIR, names[1]).length());
+    }
+
+    @Test
+    public void testAppendAfterCrash() throws IOException {
+        MappedFileWriter crashedWriter = new MappedFileWriter();
+        crashedWriter.write(LINE);
+        crashedWriter.write(LINE);
+        crashedWriter.writeRecords();
+        File logFile = new File(Config.Logging.DIR, Config.Logging.FILE_NAME);
+        // not truncated yet
+        assertEquals(Config.Logging.MAX_FILE_SIZE, logFile.length());
+
+        MappedFileWriter writer = new MappedFileWriter();
+        writer.write(LINE);
+        writer.close();
+        assertEquals(lines(3), read(logFile));
+    }
+
+    @Test
+    public void testAppendAfterClose() throws IOException {
+        File logFile = new File(Config.Logging.DIR, Config.Logging.FILE_NAME);
+        try (FileOutputStream output = new FileOutputStream(logFile)) {
+            // the end is taken from the file size, rather than scanned over the zeros
+            output.write(new byte[] {'a', 0, 0});
+        }
+
+        MappedFileWriter writer = new MappedFileWriter();
+        writer.write(LINE);
+        writer.close();
+        assertEquals("a\0\0" + lines(1), read(logFile));
+    }
+
+    @Test
+    public void testCompressHistoryFiles() throws IOException, InterruptedException {
+        Config.Logging.COMPRESS_HISTORY_FILES = true;
+        MappedFileWriter writer = new MappedFileWriter();
+        for (int i = 0; i < 12; i++) {
+            writer.write(LINE);
+        }
+        writer.close();
+
+        String[] names = logFileNames();
+        for (int i = 0; i < 100 && !(names.length == 3 && names[1].endsWith(".gz") && names[2].endsWith(".gz")); i++) {
+            Thread.sleep(50);
+            names = logFileNames();
+        }
+        assertArrayEquals(new String[] {Config.Logging.FILE_NAME}, Arrays.copyOf(names, 1));
+        assertEquals(3, names.length);
+        assertEquals(lines(2), read(new File(Config.Logging.DIR, names[0])));
+        for (int i = 1; i < names.length; i++) {
+            assertTrue(names[i].endsWith(".gz"));
+            try (InputStream input = new GZIPInputStream(new FileInputStream(new File(Config.Logging.DIR, names[i])))) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                byte[] buffer = new byte[1024];
+                int size;
+                while ((size = input.read(buffer)) != -1) {
+                    output.write(buffer, 0, size);
+                }
+                assertEquals(lines(5), new String(output.toByteArray(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * @return the current log file, then the history files, the latest first
+     */
+    private static String[] logFileNames() {
+        String[] names = new File(Config.Logging.DIR).list();
+        Arrays.sort(names, (o1, o2) -> {
+            if (o1.equals(Config.Logging.FILE_NAME) || o2.equals(Config.Logging.FILE_NAME)) {
+                return o1.equals(Config.Logging.FILE_NAME) ? -1 : 1;
+            }
+            return MappedFileWriter.HISTORY_ORDER.compare(o2.replace(".gz", ""), o1.replace(".gz", ""));
+        });
+        return names;
+    }
+
+    private static String lines(int count) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            lines.append(LINE).append(Constants.LINE_SEPARATOR);
+        }
+        return lines.toString();
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -153,6 +153,23 @@ public class PatternLoggerTest {
         Assert.assertThat(strings.get(0), StringContains.containsString("logmsg: %%%%%%!@#$%^&*() %{this is message} \\ \n\t \t\n %msg"));
     }
 
+    @Test
+    public void testReplaceParam() {
+        final List<String> strings = Lists.newArrayList();
+        PatternLogger logger = new PatternLogger(PatternLoggerTest.class, "%timestamp %msg") {
+            @Override
+            protected void logger(LogLevel level, String message, Throwable e) {
+                strings.add(format(level, message, e));
+            }
+        };
+        logger.info("{} and {}", "{}", "x");
+        logger.info("a {} b {}", 1);
+        logger.info("{}{}", null, 'c');
+        Assert.assertTrue(strings.get(0).matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}:\\d{3} \\{} and x"));
+        Assert.assertThat(strings.get(1), StringContains.containsString(" a 1 b {}"));
+        Assert.assertThat(strings.get(2), StringContains.containsString(" nullc"));
+    }
+
     @Test
     public void testLogFormat() {
         final List<String> strings = Lists.newArrayList();
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.meter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
+import org.apache.skywalking.apm.agent.core.test.tools.AgentServiceRule;
+import org.apache.skywalking.apm.network.language.agent.v3.Label;
+import org.apache.skywalking.apm.network.language.agent.v3.MeterBucketValue;
+import org.apache.skywalking.apm.network.language.agent.v3.MeterData;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+public class ExponentialHistogramTest {
+    @Rule
+    public AgentServiceRule agentServiceRule = new AgentServiceRule();
+
+    @AfterClass
+    public static void afterClass() {
+        ServiceManager.INSTANCE.shutdown();
+    }
+
+    @After
+    public void after() {
+        final MeterService meterService = ServiceManager.INSTANCE.findService(MeterService.class);
+        ((ConcurrentHashMap<MeterId, BaseMeter>) Whitebox.getInternalState(meterService, "meterMap")).clear();
+    }
+
+    @Test
+    public void testBuckets() {
+        final ExponentialHistogram histogram = MeterFactory.exponentialHistogram("test")
+                                                           .exponents(0, 2)
+                                                           .subBucketBits(1)
+                                                           .build();
+        Assert.assertArrayEquals(
+            new double[] {0, 1, 1.5, 2, 3, 4, 6}, histogram.getBucketBounds(), 0.0);
+
+        Assert.assertEquals(-1, histogram.findBucket(-1));
+        Assert.assertEquals(-1, histogram.findBucket(Double.NaN));
+        Assert.assertEquals(0, histogram.findBucket(0));
+        Assert.assertEquals(0, histogram.findBucket(-0.0));
+        Assert.assertEquals(0, histogram.findBucket(0.99));
+        Assert.assertEquals(1, histogram.findBucket(1));
+        Assert.assertEquals(2, histogram.findBucket(1.5));
+        Assert.assertEquals(3, histogram.findBucket(2.9));
+        Assert.assertEquals(4, histogram.findBucket(3));
+        Assert.assertEquals(6, histogram.findBucket(7.9));
+        Assert.assertEquals(6, histogram.findBucket(100));
+        Assert.assertEquals(6, histogram.findBucket(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void testSameBucketAsBinarySearch() {
+        final ExponentialHistogram histogram = MeterFactory.exponentialHistogram("test").highResolution().build();
+        final double[] bounds = histogram.getBucketBounds();
+        Assert.assertEquals(1 + 21 * 32, bounds.length);
+
+        for (double value = 0; value < bounds[bounds.length - 1]; value = value * 1.01 + 0.003) {
+            int expected = Arrays.binarySearch(bounds, value);
+            if (expected < 0) {
+                expected = -expected - 2;
+            }
+            Assert.assertEquals("value " + value, expected, histogram.findBucket(value));
+            // the relative error of the high resolution mode
+            if (expected > 0 && expected < bounds.length - 1) {
+                Assert.assertTrue((bounds[expected + 1] - bounds[expected]) / bounds[expected] <= 1d / 32);
+            }
+        }
+    }
+
+    @Test
+    public void testTransform() {
+        final List<Label> labels = Arrays.asList(Label.newBuilder().setName("k1").setValue("v1").build());
+        final ExponentialHistogram histogram = MeterFactory.exponentialHistogram("test")
+                                                           .exponents(0, 1)
+                                                           .subBucketBits(0)
+                                                           .tag("k1", "v1")
+                                                           .build();
+        histogram.addValue(0.5);
+        histogram.addValue(1);
+        histogram.addValue(3);
+        histogram.addValue(9);
+        HistogramTest.verifyHistogram(
+            "test", labels, Arrays.asList(0d, 1d, 2d), Arrays.asList(1L, 1L, 2L), histogram.transform());
+
+        histogram.addValue(-1);
+        histogram.addValue(1.9);
+        HistogramTest.verifyHistogram(
+            "test", labels, Arrays.asList(0d, 1d, 2d), Arrays.asList(1L, 2L, 2L), histogram.transform());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        final ExponentialHistogram histogram = new ExponentialHistogram(
+            new MeterId("test", MeterType.HISTOGRAM, Collections.emptyList()), 0, 10, 3, 4);
+        final int threadCount = 8;
+        final int valuesPerThread = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            final Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int v = 0; v < valuesPerThread; v++) {
+                    histogram.addValue(v % 1000);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        final MeterData.Builder data = histogram.transform();
+        long total = 0;
+        for (MeterBucketValue value : data.getHistogram().getValuesList()) {
+            total += value.getCount();
+        }
+        Assert.assertEquals(threadCount * valuesPerThread, total);
+        // zero is the only value in the first bucket
+        Assert.assertEquals(threadCount * valuesPerThread / 1000, data.getHistogram().getValues(0).getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalSubBucketBits() {
+        MeterFactory.exponentialHistogram("test").subBucketBits(ExponentialHistogram.MAX_SUB_BUCKET_BITS + 1).build();
+    }
+}
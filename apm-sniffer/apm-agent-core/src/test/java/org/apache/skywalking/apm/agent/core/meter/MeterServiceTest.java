@@ -18,16 +18,19 @@
 
 package org.apache.skywalking.apm.agent.core.meter;
 
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import io.grpc.testing.GrpcServerRule;
 import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
 import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.remote.GRPCChannelStatus;
+import org.apache.skywalking.apm.agent.core.remote.SpillQueue;
 import org.apache.skywalking.apm.agent.core.test.tools.AgentServiceRule;
 import org.apache.skywalking.apm.agent.core.test.tools.TracingSegmentRunner;
 import org.apache.skywalking.apm.network.common.v3.Commands;
 import org.apache.skywalking.apm.network.language.agent.v3.MeterBucketValue;
 import org.apache.skywalking.apm.network.language.agent.v3.MeterData;
+import org.apache.skywalking.apm.network.language.agent.v3.MeterDataCollection;
 import org.apache.skywalking.apm.network.language.agent.v3.MeterHistogram;
 import org.apache.skywalking.apm.network.language.agent.v3.MeterReportServiceGrpc;
 import org.apache.skywalking.apm.network.language.agent.v3.MeterSingleValue;
@@ -37,9 +40,11 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.powermock.reflect.Whitebox;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -59,8 +64,12 @@ public class MeterServiceTest {
     @Rule
     public GrpcServerRule grpcServerRule = new GrpcServerRule().directExecutor();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private MeterService registryService = new MeterService();
     private List<MeterData> upstreamMeters;
+    private List<MeterDataCollection> upstreamCollections;
 
     private MeterSender sender = new MeterSender();
 
@@ -86,6 +95,29 @@ public class MeterServiceTest {
         }
     };
 
+    private MeterReportServiceGrpc.MeterReportServiceImplBase batchServiceImplBase = new MeterReportServiceGrpc.MeterReportServiceImplBase() {
+        @Override
+        public StreamObserver<MeterDataCollection> collectBatch(final StreamObserver<Commands> responseObserver) {
+            return new StreamObserver<MeterDataCollection>() {
+                @Override
+                public void onNext(MeterDataCollection value) {
+                    upstreamCollections.add(value);
+                    upstreamMeters.addAll(value.getMeterDataList());
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+
+                @Override
+                public void onCompleted() {
+                    responseObserver.onNext(Commands.getDefaultInstance());
+                    responseObserver.onCompleted();
+                }
+            };
+        }
+    };
+
     @BeforeClass
     public static void beforeClass() {
         Config.Meter.ACTIVE = true;
@@ -104,13 +136,13 @@ public class MeterServiceTest {
         spy(sender);
         spy(registryService);
 
-        Whitebox.setInternalState(
-            sender, "meterReportServiceStub", MeterReportServiceGrpc.newStub(grpcServerRule.getChannel()));
+        Whitebox.setInternalState(sender, "channel", grpcServerRule.getChannel());
         Whitebox.setInternalState(sender, "status", GRPCChannelStatus.CONNECTED);
 
         Whitebox.setInternalState(registryService, "sender", sender);
 
         upstreamMeters = new ArrayList<>();
+        upstreamCollections = new ArrayList<>();
     }
 
     @Test
@@ -151,6 +183,208 @@ public class MeterServiceTest {
         }
     }
 
+    @Test
+    public void testReportUpdatedOnly() {
+        grpcServerRule.getServiceRegistry().addService(serviceImplBase);
+        final Map<MeterId, BaseMeter> map = Whitebox.getInternalState(registryService, "meterMap");
+        map.clear();
+
+        Config.Meter.REPORT_UPDATED_ONLY = true;
+        try {
+            final MeterId counterId = new MeterId("test1", MeterType.COUNTER, Arrays.asList(new MeterTag("k1", "v1")));
+            final Counter counter = new Counter(counterId, CounterMode.INCREMENT);
+            registryService.register(counter);
+            final MeterId histogramId = new MeterId("test2", MeterType.HISTOGRAM, Arrays.asList(new MeterTag("k1", "v1")));
+            final Histogram histogram = new Histogram(histogramId, Arrays.asList(2d));
+            registryService.register(histogram);
+            final MeterId gaugeId = new MeterId("test3", MeterType.GAUGE, Arrays.asList(new MeterTag("k1", "v1")));
+            registryService.register(new Gauge(gaugeId, () -> 1d));
+
+            // new meters are reported at least once
+            registryService.run();
+            assertThat(upstreamMeters.size(), is(3));
+
+            // only the gauge is reported without any change
+            upstreamMeters.clear();
+            registryService.run();
+            assertThat(upstreamMeters.size(), is(1));
+            assertThat(upstreamMeters.get(0).getSingleValue().getName(), is("test3"));
+            assertThat(upstreamMeters.get(0).getService(), is("testService"));
+
+            upstreamMeters.clear();
+            counter.increment(3);
+            registryService.run();
+            assertThat(upstreamMeters.size(), is(2));
+
+            upstreamMeters.clear();
+            histogram.addValue(3);
+            registryService.run();
+            assertThat(upstreamMeters.size(), is(2));
+        } finally {
+            Config.Meter.REPORT_UPDATED_ONLY = false;
+        }
+    }
+
+    @Test
+    public void testReportInBatch() {
+        grpcServerRule.getServiceRegistry().addService(batchServiceImplBase);
+        final Map<MeterId, BaseMeter> map = Whitebox.getInternalState(registryService, "meterMap");
+        map.clear();
+
+        Config.Meter.MAX_BATCH_SIZE = 2;
+        try {
+            for (int i = 0; i < 5; i++) {
+                final MeterId counterId = new MeterId("test_" + i, MeterType.COUNTER, Arrays.asList(new MeterTag("k1", "v1")));
+                registryService.register(new Counter(counterId, CounterMode.INCREMENT));
+            }
+            registryService.run();
+
+            assertThat(upstreamCollections.size(), is(3));
+            assertThat(upstreamMeters.size(), is(5));
+            final long timestamp = upstreamCollections.get(0).getMeterData(0).getTimestamp();
+            for (MeterDataCollection collection : upstreamCollections) {
+                // every collection starts with the service info
+                assertThat(collection.getMeterData(0).getService(), is("testService"));
+                assertThat(collection.getMeterData(0).getServiceInstance(), is("testServiceInstance"));
+                assertThat(collection.getMeterData(0).getTimestamp(), is(timestamp));
+            }
+            assertThat(upstreamCollections.get(0).getMeterData(1).getService(), is(""));
+        } finally {
+            Config.Meter.MAX_BATCH_SIZE = 0;
+        }
+    }
+
+    @Test
+    public void testBatchFallback() {
+        // the backend only implements the collect method
+        grpcServerRule.getServiceRegistry().addService(serviceImplBase);
+        final Map<MeterId, BaseMeter> map = Whitebox.getInternalState(registryService, "meterMap");
+        map.clear();
+
+        Config.Meter.MAX_BATCH_SIZE = 2;
+        try {
+            final MeterId counterId = new MeterId("test1", MeterType.COUNTER, Arrays.asList(new MeterTag("k1", "v1")));
+            final Counter counter = new Counter(counterId, CounterMode.INCREMENT);
+            counter.increment(2);
+            registryService.register(counter);
+
+            // the same period is sent again one by one
+            registryService.run();
+            assertThat(upstreamMeters.size(), is(1));
+            isSameWithCounter(upstreamMeters.get(0), true, counterId, 2);
+            assertThat(Whitebox.getInternalState(sender, "batchUnsupported"), is(true));
+
+            registryService.run();
+            assertThat(upstreamMeters.size(), is(2));
+            isSameWithCounter(upstreamMeters.get(1), true, counterId, 2);
+        } finally {
+            Config.Meter.MAX_BATCH_SIZE = 0;
+        }
+    }
+
+    @Test
+    public void testSpillAndReplay() throws IOException {
+        grpcServerRule.getServiceRegistry().addService(serviceImplBase);
+        registerSpilledCounters(3);
+
+        // the meters of the spilled period are sent in their own stream, led by the service info
+        registryService.run();
+        assertThat(upstreamMeters.size(), is(6));
+        assertThat(upstreamMeters.get(3).getService(), is("testService"));
+        assertThat(upstreamMeters.get(3).getSingleValue().getValue(), is(1d));
+        assertThat(upstreamMeters.get(4).getService(), is(""));
+        assertThat(Whitebox.<SpillQueue>getInternalState(sender, "spillQueue").isEmpty(), is(true));
+    }
+
+    @Test
+    public void testSpillFailedReport() throws IOException {
+        // the backend fails the report of the meters
+        grpcServerRule.getServiceRegistry().addService(new MeterReportServiceGrpc.MeterReportServiceImplBase() {
+            @Override
+            public StreamObserver<MeterData> collect(final StreamObserver<Commands> responseObserver) {
+                return new StreamObserver<MeterData>() {
+                    @Override
+                    public void onNext(MeterData value) {
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        responseObserver.onError(Status.INTERNAL.asRuntimeException());
+                    }
+                };
+            }
+        });
+        final SpillQueue spillQueue = new SpillQueue(temporaryFolder.getRoot(), 1024 * 1024, 64 * 1024, 1000);
+        Whitebox.setInternalState(sender, "spillQueue", spillQueue);
+        final Map<MeterId, BaseMeter> map = Whitebox.getInternalState(registryService, "meterMap");
+        map.clear();
+
+        Config.Meter.REPORT_UPDATED_ONLY = true;
+        try {
+            final MeterId counterId = new MeterId("test1", MeterType.COUNTER, Arrays.asList(new MeterTag("k1", "v1")));
+            final Counter counter = new Counter(counterId, CounterMode.INCREMENT);
+            counter.increment(2);
+            registryService.register(counter);
+
+            registryService.run();
+            assertThat(spillQueue.isEmpty(), is(false));
+
+            // the counter isn't updated anymore, but its spilled value is replayed
+            grpcServerRule.getServiceRegistry().addService(serviceImplBase);
+            registryService.run();
+            assertThat(upstreamMeters.size(), is(1));
+            isSameWithCounter(upstreamMeters.get(0), true, counterId, 2);
+            assertThat(spillQueue.isEmpty(), is(true));
+        } finally {
+            Config.Meter.REPORT_UPDATED_ONLY = false;
+        }
+    }
+
+    @Test
+    public void testSpillAndReplayInBatch() throws IOException {
+        grpcServerRule.getServiceRegistry().addService(batchServiceImplBase);
+        Config.Meter.MAX_BATCH_SIZE = 2;
+        try {
+            registerSpilledCounters(3);
+
+            registryService.run();
+            // 2 collections of the current period, and 2 of the spilled one
+            assertThat(upstreamCollections.size(), is(4));
+            assertThat(upstreamMeters.size(), is(6));
+            for (MeterDataCollection collection : upstreamCollections) {
+                assertThat(collection.getMeterData(0).getService(), is("testService"));
+            }
+        } finally {
+            Config.Meter.MAX_BATCH_SIZE = 0;
+        }
+    }
+
+    /**
+     * Register the counters, and spill their values while disconnected, then connect again.
+     */
+    private void registerSpilledCounters(int count) throws IOException {
+        Whitebox.setInternalState(
+            sender, "spillQueue", new SpillQueue(temporaryFolder.getRoot(), 1024 * 1024, 64 * 1024, 1000));
+        final Map<MeterId, BaseMeter> map = Whitebox.getInternalState(registryService, "meterMap");
+        map.clear();
+        for (int i = 0; i < count; i++) {
+            final MeterId counterId = new MeterId("test_" + i, MeterType.COUNTER, Arrays.asList(new MeterTag("k1", "v1")));
+            final Counter counter = new Counter(counterId, CounterMode.INCREMENT);
+            counter.increment(1);
+            registryService.register(counter);
+        }
+
+        Whitebox.setInternalState(sender, "status", GRPCChannelStatus.DISCONNECT);
+        registryService.run();
+        assertThat(upstreamMeters.size(), is(0));
+        assertThat(Whitebox.<SpillQueue>getInternalState(sender, "spillQueue").isEmpty(), is(false));
+        Whitebox.setInternalState(sender, "status", GRPCChannelStatus.CONNECTED);
+    }
+
     @Test
     public void testMeterSizeAndShutdown() throws Throwable {
         final Map<MeterId, BaseMeter> map = Whitebox.getInternalState(registryService, "meterMap");
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin;
+
+import java.io.Closeable;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.ConstructorInterceptPoint;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.InstanceMethodsInterceptPoint;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.ClassInstanceMethodsEnhancePluginDefine;
+import org.apache.skywalking.apm.agent.core.plugin.match.ClassMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.MatchTestAnnotation;
+import org.apache.skywalking.apm.agent.core.plugin.match.logical.LogicalMatchOperation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.apache.skywalking.apm.agent.core.plugin.match.ClassAnnotationMatch.byClassAnnotationMatch;
+import static org.apache.skywalking.apm.agent.core.plugin.match.HierarchyMatch.byHierarchyMatch;
+import static org.apache.skywalking.apm.agent.core.plugin.match.MultiClassNameMatch.byMultiClassMatch;
+import static org.apache.skywalking.apm.agent.core.plugin.match.NameMatch.byName;
+import static org.apache.skywalking.apm.agent.core.plugin.match.PrefixMatch.nameStartsWith;
+import static org.apache.skywalking.apm.agent.core.plugin.match.RegexMatch.byRegexMatch;
+
+public class PluginFinderTest {
+    private final TestPluginDefine nameMatch = new TestPluginDefine(byName(TestCallable.class.getName()));
+    private final TestPluginDefine hierarchyMatch = new TestPluginDefine(
+        byHierarchyMatch(Callable.class.getName(), Closeable.class.getName()));
+    private final TestPluginDefine superClassMatch = new TestPluginDefine(
+        byHierarchyMatch(AbstractTestCallable.class.getName()));
+    private final TestPluginDefine annotationMatch = new TestPluginDefine(
+        byClassAnnotationMatch(MatchTestAnnotation.class.getName()));
+    private final TestPluginDefine classNamesMatch = new TestPluginDefine(
+        byMultiClassMatch(TestCallable.class.getName(), TestInterface.class.getName()));
+    private final TestPluginDefine prefixMatch = new TestPluginDefine(nameStartsWith(TestInterface.class.getName()));
+    private final TestPluginDefine regexMatch = new TestPluginDefine(byRegexMatch(".*TestCall.*"));
+    private final TestPluginDefine logicalMatch = new TestPluginDefine(LogicalMatchOperation.and(
+        byRegexMatch(".*Test.*"), byHierarchyMatch(Serializable.class.getName())));
+
+    private final PluginFinder finder = new PluginFinder(Arrays.asList(
+        logicalMatch, regexMatch, prefixMatch, classNamesMatch, annotationMatch, superClassMatch, hierarchyMatch,
+        nameMatch
+    ));
+
+    @Test
+    public void testFind() {
+        Assert.assertEquals(
+            Arrays.asList(
+                nameMatch, logicalMatch, regexMatch, classNamesMatch, annotationMatch, superClassMatch, hierarchyMatch),
+            finder.find(TypeDescription.ForLoadedType.of(TestCallable.class))
+        );
+        Assert.assertEquals(
+            Arrays.asList(prefixMatch, classNamesMatch, annotationMatch),
+            finder.find(TypeDescription.ForLoadedType.of(TestInterface.class))
+        );
+        Assert.assertEquals(
+            Arrays.asList(regexMatch),
+            finder.find(TypeDescription.ForLoadedType.of(AbstractTestCallable.class))
+        );
+        Assert.assertEquals(
+            new ArrayList<AbstractClassEnhancePluginDefine>(),
+            finder.find(TypeDescription.ForLoadedType.of(Object.class))
+        );
+    }
+
+    @Test
+    public void testBuildMatch() {
+        final ElementMatcher<? super TypeDescription> matcher = finder.buildMatch();
+        Assert.assertTrue(matcher.matches(TypeDescription.ForLoadedType.of(TestCallable.class)));
+        Assert.assertTrue(matcher.matches(TypeDescription.ForLoadedType.of(AbstractTestCallable.class)));
+        // the prefix and class names matches accept the interfaces
+        Assert.assertTrue(matcher.matches(TypeDescription.ForLoadedType.of(TestInterface.class)));
+        Assert.assertFalse(matcher.matches(TypeDescription.ForLoadedType.of(Object.class)));
+
+        // the hierarchy and annotation matches never accept the interfaces
+        final PluginFinder classOnlyFinder = new PluginFinder(Arrays.asList(
+            new TestPluginDefine(byHierarchyMatch(Callable.class.getName())),
+            new TestPluginDefine(byClassAnnotationMatch(MatchTestAnnotation.class.getName()))
+        ));
+        Assert.assertTrue(
+            classOnlyFinder.buildMatch().matches(TypeDescription.ForLoadedType.of(AbstractTestCallable.class)));
+        Assert.assertFalse(
+            classOnlyFinder.buildMatch().matches(TypeDescription.ForLoadedType.of(TestInterface.class)));
+    }
+
+    @Test
+    public void testMatchedByNameOnly() {
+        Assert.assertFalse(finder.isMatchedByNameOnly());
+        Assert.assertTrue(
+            new PluginFinder(Arrays.asList(nameMatch, classNamesMatch, prefixMatch, regexMatch)).isMatchedByNameOnly());
+        Assert.assertFalse(new PluginFinder(Arrays.asList(nameMatch, annotationMatch)).isMatchedByNameOnly());
+        Assert.assertFalse(new PluginFinder(Arrays.asList(regexMatch, logicalMatch)).isMatchedByNameOnly());
+    }
+
+    @MatchTestAnnotation
+    public interface TestInterface extends Callable<Object> {
+    }
+
+    public abstract static class AbstractTestCallable implements Callable<Object> {
+    }
+
+    @MatchTestAnnotation
+    public static class TestCallable extends AbstractTestCallable implements Closeable, Serializable {
+        @Override
+        public Object call() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class TestPluginDefine extends ClassInstanceMethodsEnhancePluginDefine {
+        private final ClassMatch match;
+
+        private TestPluginDefine(ClassMatch match) {
+            this.match = match;
+        }
+
+        @Override
+        protected ClassMatch enhanceClass() {
+            return match;
+        }
+
+        @Override
+        public ConstructorInterceptPoint[] getConstructorsInterceptPoints() {
+            return new ConstructorInterceptPoint[0];
+        }
+
+        @Override
+        public InstanceMethodsInterceptPoint[] getInstanceMethodsInterceptPoints() {
+            return new InstanceMethodsInterceptPoint[0];
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.bytebuddy;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.description.type.TypeDescription;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PersistentClassCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testArchive() throws Exception {
+        final File archive = new File(folder.getRoot(), "class-cache/class-cache.archive");
+        final byte[] bytes = "class bytes".getBytes(StandardCharsets.UTF_8);
+        final long digest = PersistentClassCache.digest("a/b/C", bytes);
+        Assert.assertNotEquals(digest, PersistentClassCache.digest("a/b/D", bytes));
+        Assert.assertNotEquals(digest, PersistentClassCache.digest("a/b/C", "class bytez".getBytes(StandardCharsets.UTF_8)));
+
+        PersistentClassCache cache = new PersistentClassCache(archive, 1L);
+        Assert.assertFalse(cache.isUnenhanced(digest, bytes.length));
+        cache.markUnenhanced(digest, bytes.length);
+        Assert.assertTrue(cache.isUnenhanced(digest, bytes.length));
+        cache.flush();
+        Assert.assertTrue(archive.exists());
+
+        // reopen and merge more classes
+        cache = new PersistentClassCache(archive, 1L);
+        Assert.assertTrue(cache.isUnenhanced(digest, bytes.length));
+        Assert.assertFalse(cache.isUnenhanced(digest, bytes.length + 1));
+        for (int i = 0; i < 100; i++) {
+            cache.markUnenhanced(PersistentClassCache.digest("Class" + i, bytes), bytes.length);
+        }
+        cache.flush();
+
+        cache = new PersistentClassCache(archive, 1L);
+        Assert.assertTrue(cache.isUnenhanced(digest, bytes.length));
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(cache.isUnenhanced(PersistentClassCache.digest("Class" + i, bytes), bytes.length));
+        }
+        Assert.assertEquals(12 * 101 + 20, archive.length());
+
+        // the archive of the other agent version or plugins is ignored
+        cache = new PersistentClassCache(archive, 2L);
+        Assert.assertFalse(cache.isUnenhanced(digest, bytes.length));
+    }
+
+    @Test
+    public void testSkipUnenhancedClasses() throws Exception {
+        final File archive = new File(folder.getRoot(), "class-cache.archive");
+        final long fingerprint = CacheableTransformerDecorator.fingerprint(Arrays.asList("a", "b"));
+        Assert.assertNotEquals(fingerprint, CacheableTransformerDecorator.fingerprint(Arrays.asList("a", "c")));
+
+        final byte[] plain = new byte[] {1, 2, 3};
+        final byte[] enhanced = new byte[] {4, 5, 6};
+        final byte[] transformed = new byte[] {7, 8, 9};
+
+        ResettableClassFileTransformer delegate = mock(ResettableClassFileTransformer.class);
+        PersistentClassCache cache = new PersistentClassCache(archive, fingerprint);
+        CacheableTransformerDecorator decorator = new CacheableTransformerDecorator(cache, true);
+        AgentBuilder.Listener listener = decorator.getListener();
+        when(delegate.transform(any(), anyString(), any(), any(), eq(enhanced))).thenReturn(transformed);
+        when(delegate.transform(any(), eq("Plain"), any(), any(), any())).thenAnswer(invocation -> {
+            listener.onIgnored(mock(TypeDescription.class), null, null, false);
+            return null;
+        });
+        when(delegate.transform(any(), eq("Failed"), any(), any(), any())).thenAnswer(invocation -> {
+            listener.onError("Failed", null, null, false, new IllegalStateException());
+            return null;
+        });
+        ResettableClassFileTransformer transformer = decorator.decorate(delegate);
+        Assert.assertNull(transformer.transform(null, "Plain", null, null, plain));
+        Assert.assertArrayEquals(transformed, transformer.transform(null, "Enhanced", null, null, enhanced));
+        Assert.assertNull(transformer.transform(null, "Failed", null, null, plain));
+        cache.flush();
+
+        // after restart
+        delegate = mock(ResettableClassFileTransformer.class);
+        when(delegate.transform(any(), anyString(), any(), any(), eq(enhanced))).thenReturn(transformed);
+        cache = new PersistentClassCache(archive, fingerprint);
+        transformer = new CacheableTransformerDecorator(cache, true).decorate(delegate);
+        Assert.assertNull(transformer.transform(null, "Plain", null, null, plain));
+        Assert.assertArrayEquals(transformed, transformer.transform(null, "Enhanced", null, null, enhanced));
+        verify(delegate, times(0)).transform(any(), eq("Plain"), any(), any(), any());
+        verify(delegate, times(1)).transform(any(), eq("Enhanced"), any(), any(), any());
+
+        // the failed class is not archived
+        Assert.assertNull(transformer.transform(null, "Failed", null, null, plain));
+        verify(delegate, times(1)).transform(any(), eq("Failed"), any(), any(), any());
+
+        // the other class with the same name is transformed
+        Assert.assertNull(transformer.transform(null, "Plain", null, null, new byte[] {1, 2, 4}));
+        verify(delegate, times(1)).transform(any(), eq("Plain"), any(), any(), any());
+    }
+
+    @Test
+    public void testArchiveOnlySelfContainedClassesOfHierarchyMatches() throws Exception {
+        final File archive = new File(folder.getRoot(), "class-cache.archive");
+        final byte[] plain = new byte[] {1, 2, 3};
+        final byte[] dependent = new byte[] {4, 5, 6};
+
+        ResettableClassFileTransformer delegate = mock(ResettableClassFileTransformer.class);
+        PersistentClassCache cache = new PersistentClassCache(archive, 1L);
+        CacheableTransformerDecorator decorator = new CacheableTransformerDecorator(cache, false);
+        AgentBuilder.Listener listener = decorator.getListener();
+        when(delegate.transform(any(), eq("Plain"), any(), any(), any())).thenAnswer(invocation -> {
+            listener.onIgnored(TypeDescription.ForLoadedType.of(ArrayList.class), null, null, false);
+            return null;
+        });
+        // a super type out of the JDK may be changed by upgrading its jar
+        when(delegate.transform(any(), eq("Dependent"), any(), any(), any())).thenAnswer(invocation -> {
+            listener.onIgnored(TypeDescription.ForLoadedType.of(Dependent.class), null, null, false);
+            return null;
+        });
+        ResettableClassFileTransformer transformer = decorator.decorate(delegate);
+        Assert.assertNull(transformer.transform(null, "Plain", null, null, plain));
+        Assert.assertNull(transformer.transform(null, "Dependent", null, null, dependent));
+
+        Assert.assertNull(transformer.transform(null, "Plain", null, null, plain));
+        Assert.assertNull(transformer.transform(null, "Dependent", null, null, dependent));
+        verify(delegate, times(1)).transform(any(), eq("Plain"), any(), any(), any());
+        verify(delegate, times(2)).transform(any(), eq("Dependent"), any(), any(), any());
+    }
+
+    private static class Dependent extends PersistentClassCache {
+        private Dependent(File archive) {
+            super(archive, 1L);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.v3;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.apache.skywalking.apm.agent.core.plugin.EnhanceContext;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.ConstructorInterceptPoint;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.EnhancedInstance;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.v3.InstanceMethodsInterceptV3Point;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.v3.StaticMethodsInterceptV3Point;
+import org.apache.skywalking.apm.agent.core.plugin.match.ClassMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.NameMatch;
+import org.junit.Before;
+import org.junit.Test;
+
+import static net.bytebuddy.matcher.ElementMatchers.any;
+import static net.bytebuddy.matcher.ElementMatchers.named;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ClassEnhancePluginDefineV3Test {
+    private static final List<String> EVENTS = new ArrayList<>();
+
+    private static final List<Class<?>[]> ARGUMENTS_TYPES = new ArrayList<>();
+
+    private static volatile boolean ACTIVE;
+
+    private Class<?> enhancedClass;
+
+    @Before
+    public void setUp() {
+        EVENTS.clear();
+        ARGUMENTS_TYPES.clear();
+        ACTIVE = false;
+        enhancedClass = new TestPluginDefine().define(
+            TypeDescription.ForLoadedType.of(AdviceTarget.class), new ByteBuddy().redefine(AdviceTarget.class),
+            getClass().getClassLoader(), new EnhanceContext()
+        ).make().load(getClass().getClassLoader(), ClassLoadingStrategy.Default.CHILD_FIRST).getLoaded();
+    }
+
+    @Test
+    public void testInactiveSiteIsUntouched() throws Exception {
+        Object target = enhancedClass.newInstance();
+        assertThat(target, instanceOf(EnhancedInstance.class));
+
+        assertEquals("hello sky", enhancedClass.getMethod("greet", String.class).invoke(target, "sky"));
+        assertEquals(3, enhancedClass.getMethod("add", int.class, int.class).invoke(target, 1, 2));
+        assertEquals(42L, enhancedClass.getMethod("twice", long.class).invoke(null, 21L));
+        assertTrue(EVENTS.isEmpty());
+    }
+
+    @Test
+    public void testInstanceMethods() throws Exception {
+        ACTIVE = true;
+        Object target = enhancedClass.newInstance();
+        Method greet = enhancedClass.getMethod("greet", String.class);
+
+        assertEquals("hello sky!", greet.invoke(target, "sky"));
+        assertEquals("hello walking!", greet.invoke(target, "walking"));
+        assertEquals(3, enhancedClass.getMethod("add", int.class, int.class).invoke(target, 1, 2));
+
+        assertThat(EVENTS.toString(), is(
+            "[before greet [sky], after greet context-greet, before greet [walking], after greet context-greet, "
+                + "before add [1, 2], after add context-add]"));
+        assertArrayEquals(new Class<?>[] {String.class}, ARGUMENTS_TYPES.get(0));
+        // the method metadata is resolved once per site.
+        assertSame(ARGUMENTS_TYPES.get(0), ARGUMENTS_TYPES.get(1));
+    }
+
+    @Test
+    public void testInstanceMethodException() throws Exception {
+        ACTIVE = true;
+        Object target = enhancedClass.newInstance();
+        try {
+            enhancedClass.getMethod("fail").invoke(target);
+            fail();
+        } catch (InvocationTargetException e) {
+            assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        }
+        assertThat(EVENTS.toString(), is("[before fail [], exception fail failed, after fail context-fail]"));
+    }
+
+    @Test
+    public void testStaticMethod() throws Exception {
+        ACTIVE = true;
+        assertEquals(43L, enhancedClass.getMethod("twice", long.class).invoke(null, 21L));
+        assertThat(EVENTS.toString(), is("[before static twice [21], after static twice]"));
+    }
+
+    public static class InstanceInterceptor implements InstanceMethodsAroundInterceptorV3 {
+        @Override
+        public boolean shouldIntercept(EnhancedInstance objInst) {
+            return ACTIVE;
+        }
+
+        @Override
+        public Object beforeMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                   Class<?>[] argumentsTypes) {
+            EVENTS.add("before " + method.getName() + " " + Arrays.toString(allArguments));
+            ARGUMENTS_TYPES.add(argumentsTypes);
+            return "context-" + method.getName();
+        }
+
+        @Override
+        public Object afterMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                  Class<?>[] argumentsTypes, Object ret, Object context) {
+            EVENTS.add("after " + method.getName() + " " + context);
+            return ret instanceof String ? ret + "!" : ret;
+        }
+
+        @Override
+        public void handleMethodException(EnhancedInstance objInst, Method method, Object[] allArguments,
+                                          Class<?>[] argumentsTypes, Throwable t, Object context) {
+            EVENTS.add("exception " + method.getName() + " " + t.getMessage());
+        }
+    }
+
+    public static class StaticInterceptor implements StaticMethodsAroundInterceptorV3 {
+        @Override
+        public boolean shouldIntercept(Class<?> clazz) {
+            return ACTIVE;
+        }
+
+        @Override
+        public Object beforeMethod(Class<?> clazz, Method method, Object[] allArguments, Class<?>[] parameterTypes) {
+            EVENTS.add("before static " + method.getName() + " " + Arrays.toString(allArguments));
+            return null;
+        }
+
+        @Override
+        public Object afterMethod(Class<?> clazz, Method method, Object[] allArguments, Class<?>[] parameterTypes,
+                                  Object ret, Object context) {
+            EVENTS.add("after static " + method.getName());
+            return (Long) ret + 1;
+        }
+
+        @Override
+        public void handleMethodException(Class<?> clazz, Method method, Object[] allArguments,
+                                          Class<?>[] parameterTypes, Throwable t, Object context) {
+            EVENTS.add("exception static " + method.getName());
+        }
+    }
+
+    private static class TestPluginDefine extends ClassEnhancePluginDefineV3 {
+        @Override
+        protected ClassMatch enhanceClass() {
+            return NameMatch.byName(AdviceTarget.class.getName());
+        }
+
+        @Override
+        public ConstructorInterceptPoint[] getConstructorsInterceptPoints() {
+            return null;
+        }
+
+        @Override
+        public InstanceMethodsInterceptV3Point[] getInstanceMethodsInterceptV3Points() {
+            return new InstanceMethodsInterceptV3Point[] {
+                new InstanceMethodsInterceptV3Point() {
+                    @Override
+                    public ElementMatcher<MethodDescription> getMethodsMatcher() {
+                        return any();
+                    }
+
+                    @Override
+                    public String getMethodsInterceptorV3() {
+                        return InstanceInterceptor.class.getName();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public StaticMethodsInterceptV3Point[] getStaticMethodsInterceptV3Points() {
+            return new StaticMethodsInterceptV3Point[] {
+                new StaticMethodsInterceptV3Point() {
+                    @Override
+                    public ElementMatcher<MethodDescription> getMethodsMatcher() {
+                        return named("twice");
+                    }
+
+                    @Override
+                    public String getMethodsInterceptorV3() {
+                        return StaticInterceptor.class.getName();
+                    }
+                }
+            };
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import static org.apache.skywalking.apm.agent.core.plugin.match.ClassAnnotationMatch.byClassAnnotationMatch;
+import static org.apache.skywalking.apm.agent.core.plugin.match.HierarchyMatch.byHierarchyMatch;
 import static org.apache.skywalking.apm.agent.core.plugin.match.RegexMatch.byRegexMatch;
 
 public class MatchTest {
@@ -54,6 +55,17 @@ public class MatchTest {
         Assert.assertTrue(classAnnotationMatch.isMatch(typeDefinition));
     }
 
+    @Test
+    public void testHierarchyMatch() {
+        IndirectMatch match = byHierarchyMatch(TestService.class.getName(), Runnable.class.getName());
+        Assert.assertTrue(match.isMatch(TypeDescription.ForLoadedType.of(TestRunnableService.class)));
+        Assert.assertFalse(match.isMatch(TypeDescription.ForLoadedType.of(TestService.class)));
+
+        match = byHierarchyMatch(Runnable.class.getName());
+        Assert.assertTrue(match.isMatch(TypeDescription.ForLoadedType.of(TestSubRunnableService.class)));
+        Assert.assertFalse(match.isMatch(TypeDescription.ForLoadedType.of(TestDao.class)));
+    }
+
     @Test
     public void testLogicalMatchOperation() {
         IndirectMatch match = LogicalMatchOperation.and(
@@ -81,4 +93,14 @@ public class MatchTest {
     public static class TestRepository {
 
     }
+
+    public static class TestRunnableService extends TestService implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    public static class TestSubRunnableService extends TestRunnableService {
+
+    }
 }  
\ No newline at end of file
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.profile;
+
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.skywalking.apm.network.common.v3.Commands;
+import org.apache.skywalking.apm.network.language.profile.v3.ProfileTaskGrpc;
+import org.apache.skywalking.apm.network.language.profile.v3.ThreadSnapshot;
+import org.apache.skywalking.apm.network.language.profile.v3.ThreadStack;
+
+/**
+ * Stand-in backend of the profile snapshots, decodes the compact snapshot messages back to {@link ThreadSnapshot}s.
+ */
+public class CompactSnapshotReceiver {
+
+    private final List<ThreadSnapshot> snapshots = new ArrayList<>();
+    private final List<Integer> compactMessageSizes = new ArrayList<>();
+    private int compactRequestCount;
+
+    private final Map<String, List<String>> taskFrames = new HashMap<>();
+    private final Map<String, List<String>> segmentStacks = new HashMap<>();
+
+    /**
+     * @param supportCompact false to act as the backend without the compact snapshot method, answering UNIMPLEMENTED
+     */
+    public ServerServiceDefinition bindService(boolean supportCompact) {
+        final ServerServiceDefinition standard = new ProfileTaskGrpc.ProfileTaskImplBase() {
+            @Override
+            public StreamObserver<ThreadSnapshot> collectSnapshot(StreamObserver<Commands> responseObserver) {
+                return new ReceiveObserver<ThreadSnapshot>(responseObserver) {
+                    @Override
+                    public void onNext(ThreadSnapshot snapshot) {
+                        snapshots.add(snapshot);
+                    }
+                };
+            }
+        }.bindService();
+        final MethodDescriptor<byte[], Commands> compactMethod = ProfileSnapshotSender.COLLECT_COMPACT_METHOD
+            .toBuilder(new BytesMarshaller(), ProfileSnapshotSender.COLLECT_COMPACT_METHOD.getResponseMarshaller())
+            .build();
+        final ServerServiceDefinition.Builder builder = ServerServiceDefinition.builder(ProfileTaskGrpc.SERVICE_NAME);
+        for (ServerMethodDefinition<?, ?> method : standard.getMethods()) {
+            builder.addMethod(method);
+        }
+        if (!supportCompact) {
+            builder.addMethod(compactMethod, ServerCalls.asyncClientStreamingCall(responseObserver -> {
+                compactRequestCount++;
+                responseObserver.onError(Status.UNIMPLEMENTED.asRuntimeException());
+                return new ReceiveObserver<byte[]>(responseObserver) {
+                    @Override
+                    public void onNext(byte[] message) {
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+                };
+            }));
+            return builder.build();
+        }
+        builder.addMethod(compactMethod, ServerCalls.asyncClientStreamingCall(
+            responseObserver -> new ReceiveObserver<byte[]>(responseObserver) {
+                @Override
+                public void onNext(byte[] message) {
+                    compactMessageSizes.add(message.length);
+                    try {
+                        decode(message);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }));
+        return builder.build();
+    }
+
+    public List<ThreadSnapshot> getSnapshots() {
+        return snapshots;
+    }
+
+    public List<Integer> getCompactMessageSizes() {
+        return compactMessageSizes;
+    }
+
+    public int getCompactRequestCount() {
+        return compactRequestCount;
+    }
+
+    public int getFrameCount(String taskId) {
+        return taskFrames.get(taskId).size();
+    }
+
+    private void decode(byte[] message) throws IOException {
+        final CodedInputStream input = CodedInputStream.newInstance(message);
+        String taskId = null;
+        while (!input.isAtEnd()) {
+            switch (WireFormat.getTagFieldNumber(input.readTag())) {
+                case ProfileSnapshotEncoder.TASK_ID:
+                    taskId = input.readString();
+                    taskFrames.putIfAbsent(taskId, new ArrayList<>());
+                    break;
+                case ProfileSnapshotEncoder.FRAMES:
+                    decodeFrames(input, taskFrames.get(taskId));
+                    break;
+                case ProfileSnapshotEncoder.SNAPSHOT:
+                    decodeSnapshot(input, taskId);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown record");
+            }
+        }
+    }
+
+    private void decodeFrames(CodedInputStream input, List<String> frames) throws IOException {
+        final int limit = input.pushLimit(input.readRawVarint32());
+        int frameId = 0;
+        while (!input.isAtEnd()) {
+            final int tag = input.readTag();
+            if (WireFormat.getTagFieldNumber(tag) == ProfileSnapshotEncoder.FRAMES_FIRST_ID) {
+                frameId = input.readInt32();
+                continue;
+            }
+            final String codeSignature = input.readString();
+            while (frames.size() <= frameId) {
+                frames.add(null);
+            }
+            frames.set(frameId++, codeSignature);
+        }
+        input.popLimit(limit);
+    }
+
+    private void decodeSnapshot(CodedInputStream input, String taskId) throws IOException {
+        final int limit = input.pushLimit(input.readRawVarint32());
+        final ThreadSnapshot.Builder builder = ThreadSnapshot.newBuilder().setTaskId(taskId);
+        int keptFrames = 0;
+        final List<String> newFrames = new ArrayList<>();
+        while (!input.isAtEnd()) {
+            final int tag = input.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case ProfileSnapshotEncoder.SNAPSHOT_SEGMENT_ID:
+                    builder.setTraceSegmentId(input.readString());
+                    break;
+                case ProfileSnapshotEncoder.SNAPSHOT_SEQUENCE:
+                    builder.setSequence(input.readInt32());
+                    break;
+                case ProfileSnapshotEncoder.SNAPSHOT_TIME:
+                    builder.setTime(input.readInt64());
+                    break;
+                case ProfileSnapshotEncoder.SNAPSHOT_KEPT_FRAMES:
+                    keptFrames = input.readInt32();
+                    break;
+                case ProfileSnapshotEncoder.SNAPSHOT_FRAME_IDS:
+                    final int idsLimit = input.pushLimit(input.readRawVarint32());
+                    while (!input.isAtEnd()) {
+                        newFrames.add(taskFrames.get(taskId).get(input.readInt32()));
+                    }
+                    input.popLimit(idsLimit);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown snapshot field");
+            }
+        }
+        input.popLimit(limit);
+
+        final String segmentKey = taskId + "/" + builder.getTraceSegmentId();
+        final List<String> previous = segmentStacks.get(segmentKey);
+        final List<String> stack = new ArrayList<>();
+        if (keptFrames > 0) {
+            stack.addAll(previous.subList(0, keptFrames));
+        }
+        stack.addAll(newFrames);
+        segmentStacks.put(segmentKey, stack);
+        snapshots.add(builder.setStack(ThreadStack.newBuilder().addAllCodeSignatures(stack)).build());
+    }
+
+    private abstract static class ReceiveObserver<T> implements StreamObserver<T> {
+        private final StreamObserver<Commands> responseObserver;
+
+        private ReceiveObserver(StreamObserver<Commands> responseObserver) {
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onCompleted() {
+            responseObserver.onNext(Commands.getDefaultInstance());
+            responseObserver.onCompleted();
+        }
+    }
+
+    private static class BytesMarshaller implements MethodDescriptor.Marshaller<byte[]> {
+        @Override
+        public InputStream stream(byte[] value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public byte[] parse(InputStream stream) {
+            try {
+                return ByteStreams.toByteArray(stream);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
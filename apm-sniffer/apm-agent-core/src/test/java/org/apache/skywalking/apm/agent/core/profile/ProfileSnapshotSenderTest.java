@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.profile;
+
+import io.grpc.testing.GrpcServerRule;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.remote.GRPCChannelStatus;
+import org.apache.skywalking.apm.network.language.profile.v3.ThreadSnapshot;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ProfileSnapshotSenderTest {
+
+    @Rule
+    public GrpcServerRule grpcServerRule = new GrpcServerRule().directExecutor();
+
+    private final CompactSnapshotReceiver receiver = new CompactSnapshotReceiver();
+    private final ProfileSnapshotSender sender = new ProfileSnapshotSender();
+    private final ProfileFrameDictionary frameDictionary = new ProfileFrameDictionary();
+
+    @Before
+    public void setUp() {
+        sender.connected(grpcServerRule.getChannel());
+        Whitebox.setInternalState(sender, "status", GRPCChannelStatus.CONNECTED);
+    }
+
+    @Test
+    public void testSendCompactSnapshots() {
+        grpcServerRule.getServiceRegistry().addService(receiver.bindService(true));
+        Config.Profile.SNAPSHOT_COMPACT_ENCODING = true;
+        try {
+            final List<TracingThreadSnapshot> first = Arrays.asList(
+                snapshot("segment-1", 0, "Main.main", "Service.handle"),
+                snapshot("segment-2", 0, "Main.main", "Service.handle", "Dao.query"),
+                snapshot("segment-1", 1, "Main.main", "Service.handle", "Dao.query"),
+                new TracingThreadSnapshot("task", "segment-3", 0, 1, Arrays.asList("Main.main:1", "Job.run:1"))
+            );
+            sender.send(first);
+
+            final List<TracingThreadSnapshot> second = Arrays.asList(
+                snapshot("segment-1", 2, "Main.main", "Service.handle", "Dao.query"),
+                snapshot("segment-2", 1, "Main.main", "Service.handle", "Cache.get")
+            );
+            sender.send(second);
+
+            // the snapshots without frame ids are sent uncompressed
+            assertThat(receiver.getSnapshots().size(), is(6));
+            assertThat(receiver.getSnapshots().get(3), is(first.get(3).transform()));
+            assertSnapshots(receiver.getSnapshots().subList(0, 3), first.subList(0, 3));
+            assertSnapshots(receiver.getSnapshots().subList(4, 6), second);
+
+            // the frames are sent only once, and the repeated frames are not sent again
+            assertThat(receiver.getFrameCount("task"), is(4));
+            assertThat(receiver.getCompactMessageSizes().size(), is(2));
+            int uncompressedSize = 0;
+            for (TracingThreadSnapshot snapshot : second) {
+                uncompressedSize += snapshot.transform().getSerializedSize();
+            }
+            assertThat(receiver.getCompactMessageSizes().get(1) < uncompressedSize / 2, is(true));
+        } finally {
+            Config.Profile.SNAPSHOT_COMPACT_ENCODING = false;
+        }
+    }
+
+    @Test
+    public void testSplitCompactMessages() {
+        grpcServerRule.getServiceRegistry().addService(receiver.bindService(true));
+        Whitebox.setInternalState(sender, "encoder", new ProfileSnapshotEncoder(128));
+        Config.Profile.SNAPSHOT_COMPACT_ENCODING = true;
+        try {
+            final List<TracingThreadSnapshot> snapshots = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                snapshots.add(snapshot("segment-" + (i % 3), i / 3, "Main.main", "Service.handle" + i, "Dao.query" + i));
+            }
+            sender.send(snapshots);
+
+            assertThat(receiver.getCompactMessageSizes().size() > 1, is(true));
+            for (int size : receiver.getCompactMessageSizes()) {
+                assertThat(size <= 128, is(true));
+            }
+            assertSnapshots(receiver.getSnapshots(), snapshots);
+        } finally {
+            Config.Profile.SNAPSHOT_COMPACT_ENCODING = false;
+        }
+    }
+
+    @Test
+    public void testFallbackWhenCompactUnsupported() {
+        grpcServerRule.getServiceRegistry().addService(receiver.bindService(false));
+        Config.Profile.SNAPSHOT_COMPACT_ENCODING = true;
+        try {
+            final List<TracingThreadSnapshot> snapshots = Arrays.asList(
+                snapshot("segment-1", 0, "Main.main", "Service.handle"),
+                snapshot("segment-1", 1, "Main.main", "Service.handle", "Dao.query")
+            );
+            sender.send(snapshots);
+            sender.send(snapshots);
+
+            assertThat(receiver.getCompactMessageSizes().size(), is(0));
+            assertThat(Whitebox.<Boolean>getInternalState(sender, "compactUnsupported"), is(true));
+            assertSnapshots(receiver.getSnapshots().subList(0, 2), snapshots);
+            assertSnapshots(receiver.getSnapshots().subList(2, 4), snapshots);
+
+            // the compact method isn't tried again after reconnecting
+            sender.connected(grpcServerRule.getChannel());
+            sender.send(snapshots);
+            assertThat(receiver.getCompactRequestCount(), is(1));
+            assertSnapshots(receiver.getSnapshots().subList(4, 6), snapshots);
+        } finally {
+            Config.Profile.SNAPSHOT_COMPACT_ENCODING = false;
+        }
+    }
+
+    private TracingThreadSnapshot snapshot(String segmentId, int sequence, String... methods) {
+        final int[] frameIds = new int[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            final int dot = methods[i].indexOf('.');
+            frameIds[i] = frameDictionary.intern(new StackTraceElement(
+                methods[i].substring(0, dot), methods[i].substring(dot + 1), null, 1));
+        }
+        return new TracingThreadSnapshot("task", segmentId, sequence, sequence * 10L, frameIds, frameDictionary);
+    }
+
+    private void assertSnapshots(List<ThreadSnapshot> received, List<TracingThreadSnapshot> sent) {
+        assertThat(received.size(), is(sent.size()));
+        for (int i = 0; i < sent.size(); i++) {
+            assertThat(received.get(i), is(sent.get(i).transform()));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.profile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import org.apache.skywalking.apm.agent.core.context.TracingContext;
+import org.apache.skywalking.apm.network.language.profile.v3.ThreadSnapshot;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.powermock.reflect.Whitebox;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ThreadProfilerTest {
+
+    private static final StackTraceElement MAIN = new StackTraceElement("a.Main", "main", "Main.java", 10);
+    private static final StackTraceElement SERVICE = new StackTraceElement("a.Service", "handle", "Service.java", 20);
+    private static final StackTraceElement DAO = new StackTraceElement("a.Dao", "query", "Dao.java", 30);
+
+    private ProfileTaskExecutionContext executionContext;
+    private ThreadProfiler profiler;
+    private ProfileTaskChannelService channelService;
+
+    @Before
+    public void setUp() {
+        ProfileTask task = new ProfileTask();
+        task.setTaskId("task");
+        task.setMaxSamplingCount(5);
+        executionContext = new ProfileTaskExecutionContext(task);
+
+        TracingContext tracingContext = Mockito.mock(TracingContext.class);
+        Mockito.when(tracingContext.profileStatus()).thenReturn(ProfileStatusReference.createWithPending());
+        profiler = new ThreadProfiler(tracingContext, "segment", Thread.currentThread(), executionContext);
+        profiler.startProfilingIfNeed();
+
+        channelService = new ProfileTaskChannelService();
+    }
+
+    @Test
+    public void testSkipRepeatedStacks() {
+        StackTraceElement[] serviceStack = {SERVICE, MAIN};
+        StackTraceElement[] daoStack = {DAO, SERVICE, MAIN};
+
+        assertThat(profiler.buildSnapshots(serviceStack, 1, channelService), is(true));
+        assertThat(profiler.buildSnapshots(serviceStack, 2, channelService), is(true));
+        assertThat(profiler.buildSnapshots(serviceStack, 3, channelService), is(true));
+        assertThat(profiler.buildSnapshots(daoStack, 4, channelService), is(true));
+        assertThat(profiler.buildSnapshots(daoStack, 5, channelService), is(true));
+        assertThat(profiler.buildSnapshots(serviceStack, 6, channelService), is(true));
+
+        List<ThreadSnapshot> snapshots = drain();
+        assertThat(snapshots.size(), is(5));
+        long[] times = {1, 3, 4, 5, 6};
+        int[] depths = {2, 2, 3, 3, 2};
+        for (int i = 0; i < snapshots.size(); i++) {
+            ThreadSnapshot snapshot = snapshots.get(i);
+            assertThat(snapshot.getTaskId(), is("task"));
+            assertThat(snapshot.getTraceSegmentId(), is("segment"));
+            assertThat(snapshot.getSequence(), is(i));
+            assertThat(snapshot.getTime(), is(times[i]));
+            assertThat(snapshot.getStack().getCodeSignaturesCount(), is(depths[i]));
+            assertThat(snapshot.getStack().getCodeSignatures(0), is("a.Main.main:10"));
+        }
+        assertThat(snapshots.get(2).getStack().getCodeSignatures(2), is("a.Dao.query:30"));
+
+        // each distinct frame is interned once for the task
+        assertThat(executionContext.getFrameDictionary().size(), is(3));
+    }
+
+    @Test
+    public void testSendRepeatedStackWhenStopped() {
+        StackTraceElement[] serviceStack = {SERVICE, MAIN};
+
+        assertThat(profiler.buildSnapshots(serviceStack, 1, channelService), is(true));
+        assertThat(profiler.buildSnapshots(serviceStack, 2, channelService), is(true));
+        assertThat(profiler.buildSnapshots(serviceStack, 3, channelService), is(true));
+        assertThat(drain().size(), is(1));
+
+        // the thread is stuck in one stack until the end, the last dump time is kept
+        profiler.stopProfiling(channelService);
+        List<ThreadSnapshot> snapshots = drain();
+        assertThat(snapshots.size(), is(1));
+        assertThat(snapshots.get(0).getSequence(), is(1));
+        assertThat(snapshots.get(0).getTime(), is(3L));
+
+        assertThat(profiler.buildSnapshots(serviceStack, 4, channelService), is(true));
+        profiler.stopProfiling(channelService);
+        assertThat(drain().size(), is(0));
+    }
+
+    @Test
+    public void testStopWhenThreadFinished() {
+        assertThat(profiler.buildSnapshots(null, 1, channelService), is(false));
+        assertThat(profiler.buildSnapshots(new StackTraceElement[0], 2, channelService), is(false));
+        assertThat(drain().size(), is(0));
+    }
+
+    @Test
+    public void testFrameDictionary() {
+        ProfileFrameDictionary dictionary = new ProfileFrameDictionary();
+        assertThat(dictionary.intern(MAIN), is(0));
+        assertThat(dictionary.intern(SERVICE), is(1));
+        assertThat(dictionary.intern(new StackTraceElement("a.Main", "main", "Main.java", 10)), is(0));
+        assertThat(dictionary.codeSignature(1), is("a.Service.handle:20"));
+        assertThat(dictionary.size(), is(2));
+    }
+
+    private List<ThreadSnapshot> drain() {
+        BlockingQueue<TracingThreadSnapshot> queue = Whitebox.getInternalState(channelService, "snapshotQueue");
+        List<ThreadSnapshot> snapshots = new ArrayList<>();
+        TracingThreadSnapshot snapshot;
+        while ((snapshot = queue.poll()) != null) {
+            snapshots.add(snapshot.transform());
+        }
+        return snapshots;
+    }
+}
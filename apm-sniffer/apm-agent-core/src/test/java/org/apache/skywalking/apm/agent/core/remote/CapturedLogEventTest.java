@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.remote;
+
+import org.apache.skywalking.apm.network.logging.v3.LogData;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class CapturedLogEventTest {
+
+    @Test
+    public void testTransform() {
+        final StringBuilder source = new StringBuilder("hello");
+        final CapturedLogEvent event = CapturedLogEvent.capture(100L, "INFO", "logger", "main")
+                                                       .arguments(new Object[] {1, null})
+                                                       .thrown(new IllegalStateException("failure"))
+                                                       .text(source, s -> s + " world");
+        final LogData logData = event.transform();
+
+        assertThat(logData.getTimestamp(), is(100L));
+        assertThat(logData.getBody().getText().getText(), is("hello world"));
+        assertThat(logData.getTags().getDataCount(), is(6));
+        assertThat(logData.getTags().getData(0).getValue(), is("INFO"));
+        assertThat(logData.getTags().getData(3).getKey(), is("argument.0"));
+        assertThat(logData.getTags().getData(3).getValue(), is("1"));
+        assertThat(logData.getTags().getData(4).getValue(), is("null"));
+        assertThat(logData.getTags().getData(5).getKey(), is("exception"));
+        assertThat(logData.getTags().getData(5).getValue().contains("failure"), is(true));
+        // Out of a trace, no trace context is reported.
+        assertThat(logData.hasTraceContext(), is(false));
+    }
+
+    @Test
+    public void testTransformWithBrokenArgument() {
+        final Object broken = new Object() {
+            @Override
+            public String toString() {
+                throw new IllegalStateException("broken");
+            }
+        };
+        final LogData logData = CapturedLogEvent.capture(300L, "ERROR", "logger", "main")
+                                                .arguments(new Object[] {broken, 2})
+                                                .text("source", s -> {
+                                                    throw new IllegalArgumentException("unrendered");
+                                                })
+                                                .transform();
+
+        // The broken argument and text are replaced, the rest of the log is kept.
+        assertThat(logData.getTags().getDataCount(), is(5));
+        assertThat(logData.getTags().getData(3).getValue(), is(
+            "[failed to stringify: java.lang.IllegalStateException]"));
+        assertThat(logData.getTags().getData(4).getValue(), is("2"));
+        assertThat(logData.getBody().getText().getText(), is(
+            "[failed to stringify: java.lang.IllegalArgumentException]"));
+    }
+
+    @Test
+    public void testTransformWithoutText() {
+        final LogData logData = CapturedLogEvent.capture(200L, "WARN", "logger", "main").transform();
+
+        assertThat(logData.getTimestamp(), is(200L));
+        assertThat(logData.getBody().getText().getText(), is(""));
+        assertThat(logData.getTags().getDataCount(), is(3));
+        assertThat(logData.getTags().getData(0).getValue(), is("WARN"));
+    }
+}
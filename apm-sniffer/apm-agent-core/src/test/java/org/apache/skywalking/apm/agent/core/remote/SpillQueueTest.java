@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.remote;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class SpillQueueTest {
+    private static final int SEGMENT_SIZE = 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testOfferAndPoll() throws IOException {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 4 * SEGMENT_SIZE, SEGMENT_SIZE, 1000);
+        for (int i = 0; i < 100; i++) {
+            assertThat(queue.offer(record(i)), is(true));
+        }
+        assertThat(queue.size(), is(100L));
+        // 100 records of 8 bytes header and 9 bytes body don't fit in one file.
+        assertThat(folder.getRoot().listFiles().length > 1, is(true));
+
+        List<byte[]> records = queue.poll(60);
+        assertThat(records.size(), is(60));
+        for (int i = 0; i < 60; i++) {
+            assertThat(new String(records.get(i), StandardCharsets.UTF_8), is(text(i)));
+        }
+        records = queue.poll(100);
+        assertThat(records.size(), is(40));
+        assertThat(new String(records.get(39), StandardCharsets.UTF_8), is(text(99)));
+        assertThat(queue.isEmpty(), is(true));
+        // The consumed files are deleted, except the one in writing.
+        assertThat(folder.getRoot().listFiles().length, is(1));
+    }
+
+    @Test
+    public void testRejectLargeRecord() throws IOException {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 4 * SEGMENT_SIZE, SEGMENT_SIZE, 1000);
+        assertThat(queue.offer(new byte[SEGMENT_SIZE]), is(false));
+        assertThat(queue.offer(new byte[0]), is(false));
+        assertThat(queue.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testRejectAfterClose() throws IOException {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 4 * SEGMENT_SIZE, SEGMENT_SIZE, 1000);
+        assertThat(queue.offer(record(0)), is(true));
+        queue.close();
+        assertThat(queue.offer(record(1)), is(false));
+        assertThat(queue.isEmpty(), is(true));
+
+        // The record offered before closing is kept for the next start.
+        queue = new SpillQueue(folder.getRoot(), 4 * SEGMENT_SIZE, SEGMENT_SIZE, 1000);
+        assertThat(queue.size(), is(1L));
+    }
+
+    @Test
+    public void testDropOldestWhenFull() throws IOException {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 2 * SEGMENT_SIZE, SEGMENT_SIZE, 1000);
+        byte[] record = new byte[SEGMENT_SIZE / 2];
+        for (int i = 0; i < 6; i++) {
+            record[0] = (byte) i;
+            assertThat(queue.offer(record.clone()), is(true));
+        }
+        // One record per file, two files at most.
+        assertThat(queue.getDroppedCount(), is(4L));
+        List<byte[]> records = queue.poll(10);
+        assertThat(records.size(), is(2));
+        assertThat((int) records.get(0)[0], is(4));
+        assertThat((int) records.get(1)[0], is(5));
+    }
+
+    @Test
+    public void testRecoverAfterRestart() throws IOException {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 4 * SEGMENT_SIZE, SEGMENT_SIZE, 1000);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(record(i));
+        }
+        assertThat(queue.poll(3).size(), is(3));
+        queue.close();
+
+        SpillQueue recovered = new SpillQueue(folder.getRoot(), 4 * SEGMENT_SIZE, SEGMENT_SIZE, 1000);
+        assertThat(recovered.size(), is(7L));
+        List<byte[]> records = recovered.poll(10);
+        assertThat(records.size(), is(7));
+        assertThat(new String(records.get(0), StandardCharsets.UTF_8), is(text(3)));
+
+        recovered.offer(record(10));
+        assertThat(new String(recovered.poll(10).get(0), StandardCharsets.UTF_8), is(text(10)));
+    }
+
+    @Test
+    public void testDeleteFileOfOtherSegmentSize() throws IOException {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 4 * SEGMENT_SIZE, SEGMENT_SIZE, 1000);
+        queue.offer(record(0));
+        queue.close();
+
+        SpillQueue resized = new SpillQueue(folder.getRoot(), 8 * SEGMENT_SIZE, 2 * SEGMENT_SIZE, 1000);
+        assertThat(resized.isEmpty(), is(true));
+        assertThat(folder.getRoot().listFiles().length, is(0));
+    }
+
+    @Test
+    public void testIgnoreBrokenRecord() throws IOException {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 4 * SEGMENT_SIZE, SEGMENT_SIZE, 1000);
+        for (int i = 0; i < 3; i++) {
+            queue.offer(record(i));
+        }
+        queue.close();
+
+        // Break the body of the second record, as torn by a crash.
+        File file = folder.getRoot().listFiles()[0];
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(8 + record(0).length + 8);
+            randomAccessFile.write('x');
+        }
+
+        SpillQueue recovered = new SpillQueue(folder.getRoot(), 4 * SEGMENT_SIZE, SEGMENT_SIZE, 1000);
+        List<byte[]> records = recovered.poll(10);
+        assertThat(records.size(), is(1));
+        assertThat(new String(records.get(0), StandardCharsets.UTF_8), is(text(0)));
+    }
+
+    @Test
+    public void testReplayRate() throws IOException, InterruptedException {
+        SpillQueue queue = new SpillQueue(folder.getRoot(), 4 * SEGMENT_SIZE, SEGMENT_SIZE, 10);
+        for (int i = 0; i < 30; i++) {
+            queue.offer(record(i));
+        }
+        assertThat(queue.poll(100).size(), is(10));
+        assertThat(queue.poll(100).size(), is(0));
+        Thread.sleep(300);
+        int replayed = queue.poll(100).size();
+        assertThat(replayed >= 2 && replayed <= 10, is(true));
+    }
+
+    private static String text(int i) {
+        return String.format("record-%02d", i);
+    }
+
+    private static byte[] record(int i) {
+        return text(i).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -19,8 +19,10 @@
 package org.apache.skywalking.apm.agent.core.remote;
 
 import com.google.protobuf.InvalidProtocolBufferException;
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import io.grpc.testing.GrpcServerRule;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
@@ -29,6 +31,8 @@ import org.apache.skywalking.apm.agent.core.context.ContextManager;
 import org.apache.skywalking.apm.agent.core.context.tag.Tags;
 import org.apache.skywalking.apm.agent.core.context.trace.AbstractSpan;
 import org.apache.skywalking.apm.agent.core.context.trace.SpanLayer;
+import org.apache.skywalking.apm.agent.core.context.trace.TraceSegment;
+import org.apache.skywalking.apm.agent.core.context.trace.TraceSegmentSerializer;
 import org.apache.skywalking.apm.agent.core.test.tools.AgentServiceRule;
 import org.apache.skywalking.apm.agent.core.test.tools.SegmentStorage;
 import org.apache.skywalking.apm.agent.core.test.tools.SegmentStoragePoint;
@@ -44,11 +48,13 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.powermock.reflect.Whitebox;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.spy;
 
 @RunWith(TracingSegmentRunner.class)
@@ -60,6 +66,9 @@ public class TraceSegmentServiceClientTest {
     @Rule
     public GrpcServerRule grpcServerRule = new GrpcServerRule().directExecutor();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @SegmentStoragePoint
     private SegmentStorage storage;
 
@@ -105,7 +114,7 @@ public class TraceSegmentServiceClientTest {
         spy(serviceClient);
 
         Whitebox.setInternalState(
-            serviceClient, "serviceStub", TraceSegmentReportServiceGrpc.newStub(grpcServerRule.getChannel()));
+            serviceClient, "channel", grpcServerRule.getChannel());
         Whitebox.setInternalState(serviceClient, "status", GRPCChannelStatus.CONNECTED);
 
         upstreamSegments = new ArrayList<>();
@@ -133,6 +142,140 @@ public class TraceSegmentServiceClientTest {
         assertThat(spanObject.getSpanType(), is(SpanType.Entry));
         assertThat(spanObject.getSpanId(), is(0));
         assertThat(spanObject.getParentSpanId(), is(-1));
+
+        assertThat(serviceClient.getSegmentUplinkedCount(), is(1L));
+        assertThat(serviceClient.getSegmentInFlightCount(), is(0L));
+    }
+
+    @Test
+    public void testSendTraceSegmentsInConcurrentStreams() {
+        final List<StreamObserver<Commands>> pendingResponses = new ArrayList<>();
+        grpcServerRule.getServiceRegistry().addService(new TraceSegmentReportServiceGrpc.TraceSegmentReportServiceImplBase() {
+            @Override
+            public StreamObserver<SegmentObject> collect(final StreamObserver<Commands> responseObserver) {
+                return new StreamObserver<SegmentObject>() {
+                    @Override
+                    public void onNext(SegmentObject value) {
+                        upstreamSegments.add(value);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        // Acknowledge later, keep the stream in flight.
+                        pendingResponses.add(responseObserver);
+                    }
+                };
+            }
+        });
+
+        AbstractSpan firstEntrySpan = ContextManager.createEntrySpan("/testFirstEntry", null);
+        ContextManager.stopSpan(firstEntrySpan);
+
+        serviceClient.consume(storage.getTraceSegments());
+        serviceClient.consume(storage.getTraceSegments());
+
+        assertThat(upstreamSegments.size(), is(2));
+        assertThat(pendingResponses.size(), is(2));
+        assertThat(serviceClient.getSegmentInFlightCount(), is(2L));
+        assertThat(serviceClient.getSegmentUplinkedCount(), is(0L));
+
+        for (StreamObserver<Commands> responseObserver : pendingResponses) {
+            responseObserver.onNext(Commands.getDefaultInstance());
+            responseObserver.onCompleted();
+        }
+        assertThat(serviceClient.getSegmentInFlightCount(), is(0L));
+        assertThat(serviceClient.getSegmentUplinkedCount(), is(2L));
+    }
+
+    @Test
+    public void testSpillAndReplayTraceSegments() throws IOException {
+        grpcServerRule.getServiceRegistry().addService(serviceImplBase);
+        Whitebox.setInternalState(
+            serviceClient, "spillQueue", new SpillQueue(temporaryFolder.getRoot(), 1024 * 1024, 64 * 1024, 100));
+
+        AbstractSpan firstEntrySpan = ContextManager.createEntrySpan("/testFirstEntry", null);
+        ContextManager.stopSpan(firstEntrySpan);
+
+        Whitebox.setInternalState(serviceClient, "status", GRPCChannelStatus.DISCONNECT);
+        serviceClient.consume(storage.getTraceSegments());
+        assertThat(serviceClient.getSegmentSpilledCount(), is(1L));
+        assertThat(serviceClient.getSegmentAbandonedCount(), is(0L));
+        assertThat(upstreamSegments.size(), is(0));
+
+        Whitebox.setInternalState(serviceClient, "status", GRPCChannelStatus.CONNECTED);
+        serviceClient.nothingToConsume();
+        assertThat(upstreamSegments.size(), is(1));
+        assertThat(upstreamSegments.get(0).getSpans(0).getOperationName(), is("/testFirstEntry"));
+        assertThat(serviceClient.getSegmentUplinkedCount(), is(1L));
+
+        serviceClient.nothingToConsume();
+        assertThat(upstreamSegments.size(), is(1));
+    }
+
+    @Test
+    public void testRespillReplayedTraceSegmentsOnError() throws IOException {
+        grpcServerRule.getServiceRegistry().addService(new TraceSegmentReportServiceGrpc.TraceSegmentReportServiceImplBase() {
+            @Override
+            public StreamObserver<SegmentObject> collect(final StreamObserver<Commands> responseObserver) {
+                return new StreamObserver<SegmentObject>() {
+                    @Override
+                    public void onNext(SegmentObject value) {
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+                    }
+                };
+            }
+        });
+        final SpillQueue spillQueue = new SpillQueue(temporaryFolder.getRoot(), 1024 * 1024, 64 * 1024, 100);
+        Whitebox.setInternalState(serviceClient, "spillQueue", spillQueue);
+
+        AbstractSpan firstEntrySpan = ContextManager.createEntrySpan("/testFirstEntry", null);
+        ContextManager.stopSpan(firstEntrySpan);
+
+        Whitebox.setInternalState(serviceClient, "status", GRPCChannelStatus.DISCONNECT);
+        serviceClient.consume(storage.getTraceSegments());
+        assertThat(spillQueue.size(), is(1L));
+
+        Whitebox.setInternalState(serviceClient, "status", GRPCChannelStatus.CONNECTED);
+        serviceClient.nothingToConsume();
+        // The replayed segment is not acknowledged, then spilled again.
+        assertThat(spillQueue.size(), is(1L));
+        assertThat(serviceClient.getSegmentAbandonedCount(), is(0L));
+        assertThat(serviceClient.getSegmentInFlightCount(), is(0L));
+    }
+
+    @Test
+    public void testSkipTraceSegmentFailingToSerialize() {
+        grpcServerRule.getServiceRegistry().addService(serviceImplBase);
+
+        AbstractSpan firstEntrySpan = ContextManager.createEntrySpan("/testFirstEntry", null);
+        ContextManager.stopSpan(firstEntrySpan);
+        AbstractSpan secondEntrySpan = ContextManager.createEntrySpan("/testSecondEntry", null);
+        ContextManager.stopSpan(secondEntrySpan);
+
+        final List<TraceSegment> segments = storage.getTraceSegments();
+        final TraceSegmentSerializer serializer = spy(new TraceSegmentSerializer());
+        doThrow(new IllegalStateException("broken segment")).when(serializer).serialize(segments.get(0));
+        Whitebox.setInternalState(serviceClient, "serializer", serializer);
+
+        serviceClient.consume(segments);
+
+        assertThat(upstreamSegments.size(), is(1));
+        assertThat(upstreamSegments.get(0).getSpans(0).getOperationName(), is("/testSecondEntry"));
+        assertThat(serviceClient.getSegmentAbandonedCount(), is(1L));
+        assertThat(serviceClient.getSegmentUplinkedCount(), is(1L));
+        assertThat(serviceClient.getSegmentInFlightCount(), is(0L));
     }
 
     @Test
@@ -149,6 +292,8 @@ public class TraceSegmentServiceClientTest {
         serviceClient.consume(storage.getTraceSegments());
 
         assertThat(upstreamSegments.size(), is(0));
+        assertThat(serviceClient.getSegmentAbandonedCount(), is(1L));
+        assertThat(serviceClient.getSegmentInFlightCount(), is(0L));
 
         boolean reconnect = Whitebox.getInternalState(
             ServiceManager.INSTANCE.findService(GRPCChannelManager.class), "reconnect");
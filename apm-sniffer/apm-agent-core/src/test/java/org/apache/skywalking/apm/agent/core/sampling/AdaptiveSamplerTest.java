@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.sampling;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class AdaptiveSamplerTest {
+
+    @Test
+    public void testSampleFirstTraceOfEveryEndpoint() {
+        AdaptiveSampler sampler = new AdaptiveSampler(10, 100);
+
+        assertThat(sampler.trySampling("/a"), is(true));
+        assertThat(sampler.trySampling("/a"), is(false));
+        assertThat(sampler.trySampling("/b"), is(true));
+        assertThat(sampler.trySampling("/b"), is(false));
+    }
+
+    @Test
+    public void testHotEndpointNotStarveRareOne() {
+        AdaptiveSampler sampler = new AdaptiveSampler(10, 100);
+        for (int second = 0; second < 5; second++) {
+            int hotSampled = sample(sampler, "/health", 1000);
+            int rareSampled = sample(sampler, "/rare", 2);
+            if (second > 0) {
+                // The rare one gets its demand, the hot one gets the rest.
+                assertThat(rareSampled, is(2));
+                assertThat(hotSampled, is(8));
+            }
+            sampler.rebalance();
+        }
+    }
+
+    @Test
+    public void testDeductForcedTraces() {
+        AdaptiveSampler sampler = new AdaptiveSampler(10, 100);
+        sample(sampler, "/a", 100);
+        for (int i = 0; i < 6; i++) {
+            sampler.forceSampled();
+        }
+        sampler.rebalance();
+
+        assertThat(sample(sampler, "/a", 100), is(4));
+    }
+
+    @Test
+    public void testShareRateLessThanOnePerSecond() {
+        AdaptiveSampler sampler = new AdaptiveSampler(1, 100);
+        int sampled = 0;
+        for (int second = 0; second < 10; second++) {
+            sampled += sample(sampler, "/a", 100) + sample(sampler, "/b", 100);
+            sampler.rebalance();
+        }
+        // One per second, and the first tokens of the new buckets.
+        assertThat(sampled <= 10 + 2, is(true));
+        assertThat(sampled >= 9, is(true));
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsedEndpoints() {
+        AdaptiveSampler sampler = new AdaptiveSampler(100, 10);
+        for (int i = 0; i < 10; i++) {
+            sampler.trySampling("/old/" + i);
+        }
+        assertThat(sampler.getBucketCount(), is(10));
+
+        // The new names share the overflow bucket when full.
+        assertThat(sampler.trySampling("/new"), is(true));
+        assertThat(sampler.trySampling("/new2"), is(false));
+        assertThat(sampler.getBucketCount(), is(10));
+
+        sampler.rebalance();
+        for (int i = 0; i < 5; i++) {
+            sampler.trySampling("/old/" + i);
+        }
+        sampler.rebalance();
+
+        // The buckets idle for two seconds are evicted first, leaving a tenth for the new names.
+        assertThat(sampler.getBucketCount(), is(9));
+        for (int i = 0; i < 5; i++) {
+            sampler.trySampling("/old/" + i);
+        }
+        assertThat(sampler.trySampling("/new"), is(true));
+        assertThat(sampler.getBucketCount(), is(10));
+    }
+
+    private static int sample(AdaptiveSampler sampler, String operationName, int count) {
+        int sampled = 0;
+        for (int i = 0; i < count; i++) {
+            if (sampler.trySampling(operationName)) {
+                sampled++;
+            }
+        }
+        return sampled;
+    }
+}
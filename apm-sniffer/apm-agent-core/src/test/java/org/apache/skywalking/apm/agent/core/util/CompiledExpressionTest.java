@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.util;
+
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompiledExpressionTest {
+
+    @Test
+    public void testEvaluateArguments() {
+        Object[] allArguments = new Object[] {
+            new Account("sw", new Profile("p1")),
+            Collections.singletonMap("k", "v"),
+            new int[] {7, 8}
+        };
+        Assert.assertEquals("sw", CompiledExpression.compile("arg[0].name").evaluate(allArguments, null));
+        Assert.assertEquals("p1", CompiledExpression.compile("arg[0].profile.getId()").evaluate(allArguments, null));
+        Assert.assertEquals("v", CompiledExpression.compile("arg[1].['k']").evaluate(allArguments, null));
+        Assert.assertEquals("8", CompiledExpression.compile("arg[2].[1]").evaluate(allArguments, null));
+        Assert.assertEquals("null", CompiledExpression.compile("arg[2].[5]").evaluate(allArguments, null));
+        Assert.assertEquals("null", CompiledExpression.compile("arg[3]").evaluate(allArguments, null));
+        Assert.assertEquals("null", CompiledExpression.compile("arg[0].missing").evaluate(allArguments, null));
+        Assert.assertEquals("null", CompiledExpression.compile("arg[2].['k']").evaluate(allArguments, null));
+        Assert.assertEquals("null", CompiledExpression.compile("unknown.name").evaluate(allArguments, null));
+    }
+
+    @Test
+    public void testEvaluateReturnedObject() {
+        CompiledExpression expression = CompiledExpression.compile("returnedObj.profile.id");
+        Assert.assertTrue(expression.isReturnExpression());
+        Assert.assertFalse(CompiledExpression.compile("arg[0].profile.id").isReturnExpression());
+        Assert.assertEquals("p2", expression.evaluate(null, new Account("sw", new Profile("p2"))));
+        Assert.assertEquals("null", expression.evaluate(null, null));
+    }
+
+    @Test
+    public void testReceiversOfDifferentClasses() {
+        CompiledExpression expression = CompiledExpression.compile("arg[0].name");
+        Assert.assertSame(expression, CompiledExpression.compile("arg[0].name"));
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("sw", expression.evaluate(new Object[] {new Account("sw", null)}, null));
+            // the field declared by the super class.
+            Assert.assertEquals("vip", expression.evaluate(new Object[] {new VipAccount("vip")}, null));
+            Assert.assertEquals("null", expression.evaluate(new Object[] {"no field"}, null));
+        }
+    }
+
+    static class Account {
+        private final String name;
+
+        private final Profile profile;
+
+        Account(String name, Profile profile) {
+            this.name = name;
+            this.profile = profile;
+        }
+    }
+
+    static class VipAccount extends Account {
+        VipAccount(String name) {
+            super(name, null);
+        }
+    }
+
+    static class Profile {
+        private final String id;
+
+        Profile(String id) {
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+    }
+}
@@ -116,7 +116,10 @@ public class SkyWalkingAgent {
 
         if (Config.Agent.IS_CACHE_ENHANCED_CLASS) {
             try {
-                agentBuilder = agentBuilder.with(new CacheableTransformerDecorator(Config.Agent.CLASS_CACHE_MODE));
+                CacheableTransformerDecorator decorator = new CacheableTransformerDecorator(
+                        Config.Agent.CLASS_CACHE_MODE, pluginFinder.getMatchDescriptions(),
+                        pluginFinder.isMatchedByNameOnly());
+                agentBuilder = agentBuilder.with(decorator).with(decorator.getListener());
                 LOGGER.info("SkyWalking agent class cache [{}] activated.", Config.Agent.CLASS_CACHE_MODE);
             } catch (Exception e) {
                 LOGGER.error(e, "SkyWalking agent can't active class cache.");
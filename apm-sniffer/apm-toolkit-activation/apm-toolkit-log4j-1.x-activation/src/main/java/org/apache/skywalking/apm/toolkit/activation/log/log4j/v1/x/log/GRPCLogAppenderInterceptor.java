@@ -29,6 +29,7 @@ import org.apache.skywalking.apm.agent.core.context.util.ThrowableTransformer;
 import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.EnhancedInstance;
 import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.InstanceMethodsAroundInterceptor;
 import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.MethodInterceptResult;
+import org.apache.skywalking.apm.agent.core.remote.CapturedLogEvent;
 import org.apache.skywalking.apm.agent.core.remote.LogReportServiceClient;
 import org.apache.skywalking.apm.network.common.v3.KeyStringValuePair;
 import org.apache.skywalking.apm.network.logging.v3.LogData;
@@ -36,6 +37,7 @@ import org.apache.skywalking.apm.network.logging.v3.LogDataBody;
 import org.apache.skywalking.apm.network.logging.v3.LogTags;
 import org.apache.skywalking.apm.network.logging.v3.TextLog;
 import org.apache.skywalking.apm.network.logging.v3.TraceContext;
+import org.apache.skywalking.apm.toolkit.logging.common.log.ToolkitConfig;
 
 public class GRPCLogAppenderInterceptor implements InstanceMethodsAroundInterceptor {
 
@@ -51,7 +53,12 @@ public class GRPCLogAppenderInterceptor implements InstanceMethodsAroundIntercep
             }
         }
         LoggingEvent event = (LoggingEvent) allArguments[0];
-        if (Objects.nonNull(event)) {
+        if (Objects.isNull(event)) {
+            return;
+        }
+        if (ToolkitConfig.Plugin.Toolkit.Log.DEFERRED_TRANSFORM) {
+            client.produce(capture((AppenderSkeleton) objInst, event));
+        } else {
             client.produce(transform((AppenderSkeleton) objInst, event));
         }
     }
@@ -104,6 +111,23 @@ public class GRPCLogAppenderInterceptor implements InstanceMethodsAroundIntercep
                         .build()).build();
     }
 
+    /**
+     * captures the raw fields of {@link LoggingEvent}, the {@link LogData} is built by the reporter thread. The layout
+     * still formats on the logging thread, as a log4j layout is not thread-safe.
+     *
+     * @param appender the real {@link AppenderSkeleton appender}
+     * @param event {@link LoggingEvent}
+     * @return {@link CapturedLogEvent} with the trace context of the current thread
+     */
+    private CapturedLogEvent capture(final AppenderSkeleton appender, final LoggingEvent event) {
+        final CapturedLogEvent captured = CapturedLogEvent.capture(
+            event.getTimeStamp(), event.getLevel().toString(), event.getLoggerName(), event.getThreadName());
+        if (appender.getLayout() != null) {
+            return captured.text(appender.getLayout().format(event));
+        }
+        return captured.text(event, e -> transformLogText(appender, e));
+    }
+
     private String transformLogText(final AppenderSkeleton appender, final LoggingEvent event) {
         if (appender.getLayout() != null) {
             return appender.getLayout().format(event);
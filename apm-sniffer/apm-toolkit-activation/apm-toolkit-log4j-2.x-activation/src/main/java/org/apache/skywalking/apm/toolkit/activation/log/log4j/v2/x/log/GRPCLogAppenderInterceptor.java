@@ -23,6 +23,7 @@ import java.util.Objects;
 import java.util.Optional;
 import org.apache.logging.log4j.core.LogEvent;
 import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
 import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
 import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.context.ContextManager;
@@ -30,6 +31,7 @@ import org.apache.skywalking.apm.agent.core.context.util.ThrowableTransformer;
 import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.EnhancedInstance;
 import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.InstanceMethodsAroundInterceptor;
 import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.MethodInterceptResult;
+import org.apache.skywalking.apm.agent.core.remote.CapturedLogEvent;
 import org.apache.skywalking.apm.agent.core.remote.LogReportServiceClient;
 import org.apache.skywalking.apm.network.common.v3.KeyStringValuePair;
 import org.apache.skywalking.apm.network.logging.v3.LogData;
@@ -53,7 +55,12 @@ public class GRPCLogAppenderInterceptor implements InstanceMethodsAroundIntercep
             }
         }
         LogEvent event = (LogEvent) allArguments[0];
-        if (Objects.nonNull(event)) {
+        if (Objects.isNull(event)) {
+            return;
+        }
+        if (ToolkitConfig.Plugin.Toolkit.Log.DEFERRED_TRANSFORM) {
+            client.produce(capture((AbstractAppender) objInst, event));
+        } else {
             client.produce(transform((AbstractAppender) objInst, event));
         }
     }
@@ -116,6 +123,28 @@ public class GRPCLogAppenderInterceptor implements InstanceMethodsAroundIntercep
                 .build()).build();
     }
 
+    /**
+     * captures the raw fields of {@link LogEvent}, the {@link LogData} is built by the reporter thread. The formatting
+     * is only deferred for {@link Log4jLogEvent}, the mutable events are reused by the logger after this call.
+     *
+     * @param appender the real {@link AbstractAppender appender}
+     * @param event {@link LogEvent}
+     * @return {@link CapturedLogEvent} with the trace context of the current thread
+     */
+    private CapturedLogEvent capture(final AbstractAppender appender, final LogEvent event) {
+        final CapturedLogEvent captured = CapturedLogEvent.capture(
+            event.getTimeMillis(), event.getLevel().toString(), event.getLoggerName(), event.getThreadName());
+        if (!ToolkitConfig.Plugin.Toolkit.Log.TRANSMIT_FORMATTED) {
+            return captured.arguments(event.getMessage().getParameters())
+                           .thrown(event.getThrown())
+                           .text(event.getMessage().getFormat());
+        }
+        if (event instanceof Log4jLogEvent) {
+            return captured.text(event, e -> transformLogText(appender, e));
+        }
+        return captured.text(transformLogText(appender, event));
+    }
+
     private String transformLogText(final AbstractAppender appender, final LogEvent event) {
         if (ToolkitConfig.Plugin.Toolkit.Log.TRANSMIT_FORMATTED) {
             if (appender.getLayout() != null) {
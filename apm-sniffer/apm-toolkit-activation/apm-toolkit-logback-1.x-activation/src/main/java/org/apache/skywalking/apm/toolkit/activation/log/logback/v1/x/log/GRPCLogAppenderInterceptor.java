@@ -32,6 +32,7 @@ import org.apache.skywalking.apm.agent.core.context.util.ThrowableTransformer;
 import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.EnhancedInstance;
 import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.InstanceMethodsAroundInterceptor;
 import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.MethodInterceptResult;
+import org.apache.skywalking.apm.agent.core.remote.CapturedLogEvent;
 import org.apache.skywalking.apm.agent.core.remote.LogReportServiceClient;
 import org.apache.skywalking.apm.network.common.v3.KeyStringValuePair;
 import org.apache.skywalking.apm.network.logging.v3.LogData;
@@ -56,7 +57,12 @@ public class GRPCLogAppenderInterceptor implements InstanceMethodsAroundIntercep
             }
         }
         ILoggingEvent event = (ILoggingEvent) allArguments[0];
-        if (Objects.nonNull(event)) {
+        if (Objects.isNull(event)) {
+            return;
+        }
+        if (ToolkitConfig.Plugin.Toolkit.Log.DEFERRED_TRANSFORM) {
+            client.produce(capture((OutputStreamAppender<ILoggingEvent>) objInst, event));
+        } else {
             client.produce(transform((OutputStreamAppender<ILoggingEvent>) objInst, event));
         }
     }
@@ -120,6 +126,28 @@ public class GRPCLogAppenderInterceptor implements InstanceMethodsAroundIntercep
                         .build()).build();
     }
 
+    /**
+     * captures the raw fields of {@link ILoggingEvent}, the {@link LogData} is built by the reporter thread. The event
+     * is prepared for deferred processing before the encoding is left to the reporter thread.
+     *
+     * @param appender the real {@link OutputStreamAppender appender}
+     * @param event {@link ILoggingEvent}
+     * @return {@link CapturedLogEvent} with the trace context of the current thread
+     */
+    private CapturedLogEvent capture(final OutputStreamAppender<ILoggingEvent> appender, final ILoggingEvent event) {
+        final CapturedLogEvent captured = CapturedLogEvent.capture(
+            event.getTimeStamp(), event.getLevel().toString(), event.getLoggerName(), event.getThreadName());
+        if (!ToolkitConfig.Plugin.Toolkit.Log.TRANSMIT_FORMATTED) {
+            final IThrowableProxy throwableProxy = event.getThrowableProxy();
+            return captured.arguments(event.getArgumentArray())
+                           .thrown(throwableProxy instanceof ThrowableProxy
+                                       ? ((ThrowableProxy) throwableProxy).getThrowable() : null)
+                           .text(event.getMessage());
+        }
+        event.prepareForDeferredProcessing();
+        return captured.text(event, e -> transformLogText(appender, e));
+    }
+
     private String transformLogText(final OutputStreamAppender<ILoggingEvent> appender, final ILoggingEvent event) {
         if (ToolkitConfig.Plugin.Toolkit.Log.TRANSMIT_FORMATTED) {
             return new String(appender.getEncoder().encode(event));
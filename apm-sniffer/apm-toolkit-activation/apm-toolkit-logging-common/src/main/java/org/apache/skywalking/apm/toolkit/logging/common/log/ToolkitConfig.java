@@ -30,6 +30,12 @@ public class ToolkitConfig {
                  * Whether or not to transmit logged data as formatted or un-formatted.
                  */
                 public static boolean TRANSMIT_FORMATTED = true;
+
+                /**
+                 * Whether or not to only capture the raw fields of a log event on the logging thread, and leave the
+                 * formatting and the LogData building to the reporter thread.
+                 */
+                public static boolean DEFERRED_TRANSFORM = false;
             }
         }
     }
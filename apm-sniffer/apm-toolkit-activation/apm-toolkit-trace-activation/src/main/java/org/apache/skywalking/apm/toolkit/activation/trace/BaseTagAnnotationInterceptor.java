@@ -19,54 +19,25 @@
 package org.apache.skywalking.apm.toolkit.activation.trace;
 
 import org.apache.skywalking.apm.agent.core.context.ContextManager;
-import org.apache.skywalking.apm.agent.core.context.trace.AbstractSpan;
-import org.apache.skywalking.apm.agent.core.util.CustomizeExpression;
-import org.apache.skywalking.apm.toolkit.activation.util.TagUtil;
-import org.apache.skywalking.apm.toolkit.trace.Tag;
-import org.apache.skywalking.apm.toolkit.trace.Tags;
+import org.apache.skywalking.apm.toolkit.activation.util.TraceMethodMetadata;
 
 import java.lang.reflect.Method;
-import java.util.Map;
 
 public class BaseTagAnnotationInterceptor {
     void beforeMethod(Method method, Object[] allArguments) {
         if (!ContextManager.isActive()) {
             return;
         }
-        final AbstractSpan activeSpan = ContextManager.activeSpan();
-        final Map<String, Object> context = CustomizeExpression.evaluationContext(allArguments);
-
-        final Tags tags = method.getAnnotation(Tags.class);
-        if (tags != null && tags.value().length > 0) {
-            for (final Tag tag : tags.value()) {
-                if (!TagUtil.isReturnTag(tag.value())) {
-                    TagUtil.tagSpan(activeSpan, context, tag);
-                }
-            }
-        }
-        final Tag tag = method.getAnnotation(Tag.class);
-        if (tag != null && !TagUtil.isReturnTag(tag.value())) {
-            TagUtil.tagSpan(activeSpan, context, tag);
-        }
+        TraceMethodMetadata.of(method).tagArguments(ContextManager.activeSpan(), allArguments);
     }
 
     void afterMethod(Method method, Object ret) {
         if (ret == null || !ContextManager.isActive()) {
             return;
         }
-        final AbstractSpan localSpan = ContextManager.activeSpan();
-        final Map<String, Object> context = CustomizeExpression.evaluationReturnContext(ret);
-        final Tags tags = method.getAnnotation(Tags.class);
-        if (tags != null && tags.value().length > 0) {
-            for (final Tag tag : tags.value()) {
-                if (TagUtil.isReturnTag(tag.value())) {
-                    TagUtil.tagSpan(localSpan, context, tag);
-                }
-            }
-        }
-        final Tag tag = method.getAnnotation(Tag.class);
-        if (tag != null && TagUtil.isReturnTag(tag.value())) {
-            TagUtil.tagSpan(localSpan, context, tag);
+        final TraceMethodMetadata metadata = TraceMethodMetadata.of(method);
+        if (metadata.hasReturnTags()) {
+            metadata.tagReturn(ContextManager.activeSpan(), ret);
         }
     }
 
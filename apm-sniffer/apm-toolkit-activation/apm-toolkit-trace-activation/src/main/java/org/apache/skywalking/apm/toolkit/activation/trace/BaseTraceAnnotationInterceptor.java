@@ -20,41 +20,15 @@ package org.apache.skywalking.apm.toolkit.activation.trace;
 
 import org.apache.skywalking.apm.agent.core.context.ContextManager;
 import org.apache.skywalking.apm.agent.core.context.trace.AbstractSpan;
-import org.apache.skywalking.apm.agent.core.util.CustomizeExpression;
-import org.apache.skywalking.apm.agent.core.util.MethodUtil;
-import org.apache.skywalking.apm.toolkit.activation.ToolkitPluginConfig;
-import org.apache.skywalking.apm.toolkit.activation.util.TagUtil;
-import org.apache.skywalking.apm.toolkit.trace.Tag;
-import org.apache.skywalking.apm.toolkit.trace.Tags;
-import org.apache.skywalking.apm.toolkit.trace.Trace;
+import org.apache.skywalking.apm.toolkit.activation.util.TraceMethodMetadata;
 
 import java.lang.reflect.Method;
-import java.util.Map;
 
 public class BaseTraceAnnotationInterceptor {
     void beforeMethod(Method method, Object[] allArguments) {
-        Trace trace = method.getAnnotation(Trace.class);
-        String operationName = trace.operationName();
-        if (operationName.length() == 0 || ToolkitPluginConfig.Plugin.Toolkit.USE_QUALIFIED_NAME_AS_OPERATION_NAME) {
-            operationName = MethodUtil.generateOperationName(method);
-        }
-
-        final AbstractSpan localSpan = ContextManager.createLocalSpan(operationName);
-
-        final Map<String, Object> context = CustomizeExpression.evaluationContext(allArguments);
-
-        final org.apache.skywalking.apm.toolkit.trace.Tags tags = method.getAnnotation(Tags.class);
-        if (tags != null && tags.value().length > 0) {
-            for (final Tag tag : tags.value()) {
-                if (!TagUtil.isReturnTag(tag.value())) {
-                    TagUtil.tagSpan(localSpan, context, tag);
-                }
-            }
-        }
-        final Tag tag = method.getAnnotation(Tag.class);
-        if (tag != null && !TagUtil.isReturnTag(tag.value())) {
-            TagUtil.tagSpan(localSpan, context, tag);
-        }
+        final TraceMethodMetadata metadata = TraceMethodMetadata.of(method);
+        final AbstractSpan localSpan = ContextManager.createLocalSpan(metadata.getOperationName());
+        metadata.tagArguments(localSpan, allArguments);
     }
 
     void afterMethod(Method method, Object ret) {
@@ -62,19 +36,9 @@ public class BaseTraceAnnotationInterceptor {
             if (ret == null) {
                 return;
             }
-            final AbstractSpan localSpan = ContextManager.activeSpan();
-            final Map<String, Object> context = CustomizeExpression.evaluationReturnContext(ret);
-            final Tags tags = method.getAnnotation(Tags.class);
-            if (tags != null && tags.value().length > 0) {
-                for (final Tag tag : tags.value()) {
-                    if (TagUtil.isReturnTag(tag.value())) {
-                        TagUtil.tagSpan(localSpan, context, tag);
-                    }
-                }
-            }
-            final Tag tag = method.getAnnotation(Tag.class);
-            if (tag != null && TagUtil.isReturnTag(tag.value())) {
-                TagUtil.tagSpan(localSpan, context, tag);
+            final TraceMethodMetadata metadata = TraceMethodMetadata.of(method);
+            if (metadata.hasReturnTags()) {
+                metadata.tagReturn(ContextManager.activeSpan(), ret);
             }
         } finally {
             ContextManager.stopSpan();
@@ -22,6 +22,7 @@ import java.util.Map;
 
 import org.apache.skywalking.apm.agent.core.context.tag.StringTag;
 import org.apache.skywalking.apm.agent.core.context.trace.AbstractSpan;
+import org.apache.skywalking.apm.agent.core.util.CompiledExpression;
 import org.apache.skywalking.apm.agent.core.util.CustomizeExpression;
 import org.apache.skywalking.apm.toolkit.trace.Tag;
 
@@ -31,8 +32,14 @@ public class TagUtil {
         new StringTag(tag.key()).set(span, CustomizeExpression.parseExpression(tag.value(), context));
     }
 
+    /**
+     * Tag the span by the value of the compiled tag expression, evaluated against the arguments or the returned object.
+     */
+    public static void tagSpan(final AbstractSpan span, final Tag tag, final Object[] allArguments, final Object ret) {
+        new StringTag(tag.key()).set(span, CompiledExpression.compile(tag.value()).evaluate(allArguments, ret));
+    }
+
     public static Boolean isReturnTag(String expression) {
-        String[] es = expression.split("\\.");
-        return "returnedObj".equals(es[0]);
+        return CompiledExpression.compile(expression).isReturnExpression();
     }
 }
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.toolkit.activation.util;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.skywalking.apm.agent.core.context.tag.StringTag;
+import org.apache.skywalking.apm.agent.core.context.trace.AbstractSpan;
+import org.apache.skywalking.apm.agent.core.util.CompiledExpression;
+import org.apache.skywalking.apm.agent.core.util.MethodUtil;
+import org.apache.skywalking.apm.toolkit.activation.ToolkitPluginConfig;
+import org.apache.skywalking.apm.toolkit.trace.Tag;
+import org.apache.skywalking.apm.toolkit.trace.Tags;
+import org.apache.skywalking.apm.toolkit.trace.Trace;
+
+/**
+ * The interception metadata of a method annotated by {@link Trace}, {@link Tag} or {@link Tags}, including the
+ * operation name and the compiled tags, split into the tags of the arguments and of the returned object. It is
+ * resolved at the first interception of the method, and looked up once per invocation after that.
+ */
+public class TraceMethodMetadata {
+    /**
+     * The metadata is held by the declaring class of the method, so it is collected together with the class, and
+     * doesn't keep the class loader of a redeployed application alive.
+     */
+    private static final ClassValue<ConcurrentHashMap<Method, TraceMethodMetadata>> METADATA =
+        new ClassValue<ConcurrentHashMap<Method, TraceMethodMetadata>>() {
+            @Override
+            protected ConcurrentHashMap<Method, TraceMethodMetadata> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+
+    private static final TagExpression[] NO_TAGS = new TagExpression[0];
+
+    /**
+     * The operation name of the local span, null if the method is not annotated by {@link Trace}.
+     */
+    private final String operationName;
+
+    private final TagExpression[] argumentTags;
+
+    private final TagExpression[] returnTags;
+
+    private TraceMethodMetadata(Method method) {
+        Trace trace = method.getAnnotation(Trace.class);
+        if (trace == null) {
+            operationName = null;
+        } else if (trace.operationName().length() == 0
+            || ToolkitPluginConfig.Plugin.Toolkit.USE_QUALIFIED_NAME_AS_OPERATION_NAME) {
+            operationName = MethodUtil.generateOperationName(method);
+        } else {
+            operationName = trace.operationName();
+        }
+
+        List<TagExpression> arguments = new ArrayList<>();
+        List<TagExpression> returns = new ArrayList<>();
+        Tags tags = method.getAnnotation(Tags.class);
+        if (tags != null) {
+            for (Tag tag : tags.value()) {
+                add(tag, arguments, returns);
+            }
+        }
+        Tag tag = method.getAnnotation(Tag.class);
+        if (tag != null) {
+            add(tag, arguments, returns);
+        }
+        argumentTags = arguments.isEmpty() ? NO_TAGS : arguments.toArray(NO_TAGS);
+        returnTags = returns.isEmpty() ? NO_TAGS : returns.toArray(NO_TAGS);
+    }
+
+    private static void add(Tag tag, List<TagExpression> arguments, List<TagExpression> returns) {
+        TagExpression expression = new TagExpression(tag);
+        if (expression.expression.isReturnExpression()) {
+            returns.add(expression);
+        } else {
+            arguments.add(expression);
+        }
+    }
+
+    public static TraceMethodMetadata of(Method method) {
+        ConcurrentHashMap<Method, TraceMethodMetadata> methods = METADATA.get(method.getDeclaringClass());
+        TraceMethodMetadata metadata = methods.get(method);
+        if (metadata == null) {
+            metadata = new TraceMethodMetadata(method);
+            TraceMethodMetadata previous = methods.putIfAbsent(method, metadata);
+            if (previous != null) {
+                metadata = previous;
+            }
+        }
+        return metadata;
+    }
+
+    public String getOperationName() {
+        return operationName;
+    }
+
+    public boolean hasReturnTags() {
+        return returnTags.length > 0;
+    }
+
+    /**
+     * Tag the span by the tags evaluated against the arguments.
+     */
+    public void tagArguments(AbstractSpan span, Object[] allArguments) {
+        for (TagExpression tag : argumentTags) {
+            tag.tagSpan(span, allArguments, null);
+        }
+    }
+
+    /**
+     * Tag the span by the tags evaluated against the returned object.
+     */
+    public void tagReturn(AbstractSpan span, Object ret) {
+        for (TagExpression tag : returnTags) {
+            tag.tagSpan(span, null, ret);
+        }
+    }
+
+    private static class TagExpression {
+        private final StringTag tag;
+
+        private final CompiledExpression expression;
+
+        private TagExpression(Tag tag) {
+            this.tag = new StringTag(tag.key());
+            this.expression = CompiledExpression.compile(tag.value());
+        }
+
+        private void tagSpan(AbstractSpan span, Object[] allArguments, Object ret) {
+            tag.set(span, expression.evaluate(allArguments, ret));
+        }
+    }
+}
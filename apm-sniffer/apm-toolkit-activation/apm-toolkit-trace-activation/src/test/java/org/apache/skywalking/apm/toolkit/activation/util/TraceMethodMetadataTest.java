@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.toolkit.activation.util;
+
+import java.lang.reflect.Method;
+import org.apache.skywalking.apm.toolkit.trace.Tag;
+import org.apache.skywalking.apm.toolkit.trace.Tags;
+import org.apache.skywalking.apm.toolkit.trace.Trace;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TraceMethodMetadataTest {
+
+    @Test
+    public void testMetadataResolvedOnce() throws Exception {
+        Method method = TraceMethodMetadataTest.class.getDeclaredMethod("traced", String.class);
+        TraceMethodMetadata metadata = TraceMethodMetadata.of(method);
+        assertSame(metadata, TraceMethodMetadata.of(method));
+        assertEquals("testOperation", metadata.getOperationName());
+        assertTrue(metadata.hasReturnTags());
+    }
+
+    @Test
+    public void testTagOnlyMethod() throws Exception {
+        TraceMethodMetadata metadata = TraceMethodMetadata.of(
+            TraceMethodMetadataTest.class.getDeclaredMethod("tagged", String.class));
+        assertNull(metadata.getOperationName());
+        assertFalse(metadata.hasReturnTags());
+    }
+
+    @Trace(operationName = "testOperation")
+    @Tags({
+        @Tag(key = "key", value = "arg[0]"),
+        @Tag(key = "result", value = "returnedObj")
+    })
+    private String traced(String key) {
+        return key;
+    }
+
+    @Tag(key = "key", value = "arg[0]")
+    private String tagged(String key) {
+        return key;
+    }
+}
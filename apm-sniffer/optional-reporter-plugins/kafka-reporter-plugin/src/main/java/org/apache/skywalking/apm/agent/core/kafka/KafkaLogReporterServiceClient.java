@@ -18,7 +18,7 @@
 package org.apache.skywalking.apm.agent.core.kafka;
 
 import java.util.List;
-import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.utils.Bytes;
 import org.apache.skywalking.apm.agent.core.boot.OverrideImplementor;
@@ -31,13 +31,21 @@ import org.apache.skywalking.apm.network.logging.v3.LogData;
 public class KafkaLogReporterServiceClient extends LogReportServiceClient implements KafkaConnectionStatusListener {
 
     private String topic;
-    private KafkaProducer<String, Bytes> producer;
+    private volatile Producer<String, Bytes> producer;
+    private KafkaReportCounter counter;
 
     @Override
     public void prepare() {
         KafkaProducerManager producerManager = ServiceManager.INSTANCE.findService(KafkaProducerManager.class);
         producerManager.addListener(this);
         topic = producerManager.formatTopicNameThenRegister(KafkaReporterPluginConfig.Plugin.Kafka.TOPIC_LOGGING);
+        counter = new KafkaReportCounter(topic);
+    }
+
+    @Override
+    public void onComplete() throws Throwable {
+        super.onComplete();
+        counter.registerMeters();
     }
 
     @Override
@@ -47,13 +55,20 @@ public class KafkaLogReporterServiceClient extends LogReportServiceClient implem
 
     @Override
     public void consume(final List<LogData> dataList) {
-        if (producer == null || CollectionUtil.isEmpty(dataList)) {
+        if (CollectionUtil.isEmpty(dataList)) {
             return;
         }
-
-        for (LogData data : dataList) {
-            producer.send(new ProducerRecord<>(topic, data.getService(), Bytes.wrap(data.toByteArray())));
+        final Producer<String, Bytes> producer = this.producer;
+        if (producer == null) {
+            counter.drop(dataList.size());
+        } else {
+            for (LogData data : dataList) {
+                byte[] bytes = data.toByteArray();
+                producer.send(
+                    new ProducerRecord<>(topic, data.getService(), Bytes.wrap(bytes)), counter.callback(1, bytes.length));
+            }
         }
+        counter.printStatus();
     }
 
     @Override
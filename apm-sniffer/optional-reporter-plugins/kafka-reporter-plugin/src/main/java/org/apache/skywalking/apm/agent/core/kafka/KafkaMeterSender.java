@@ -20,7 +20,7 @@ package org.apache.skywalking.apm.agent.core.kafka;
 
 import java.util.Map;
 
-import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.utils.Bytes;
 import org.apache.skywalking.apm.agent.core.boot.OverrideImplementor;
@@ -42,22 +42,33 @@ public class KafkaMeterSender extends MeterSender implements KafkaConnectionStat
     private static final ILog LOGGER = LogManager.getLogger(KafkaTraceSegmentServiceClient.class);
 
     private String topic;
-    private KafkaProducer<String, Bytes> producer;
+    private volatile Producer<String, Bytes> producer;
+    private KafkaReportCounter counter;
 
     @Override
     public void prepare() {
         KafkaProducerManager producerManager = ServiceManager.INSTANCE.findService(KafkaProducerManager.class);
         producerManager.addListener(this);
         topic = producerManager.formatTopicNameThenRegister(KafkaReporterPluginConfig.Plugin.Kafka.TOPIC_METER);
+        counter = new KafkaReportCounter(topic);
     }
 
     @Override
     public void boot() {
     }
 
+    @Override
+    public void onComplete() {
+        super.onComplete();
+        counter.registerMeters();
+    }
+
     @Override
     public void send(Map<MeterId, BaseMeter> meterMap, MeterService meterService) {
+        final Producer<String, Bytes> producer = this.producer;
         if (producer == null) {
+            counter.drop(meterMap.size());
+            counter.printStatus();
             return;
         }
         MeterDataCollection.Builder builder = MeterDataCollection.newBuilder();
@@ -67,10 +78,14 @@ public class KafkaMeterSender extends MeterSender implements KafkaConnectionStat
             }
             builder.addMeterData(meterData);
         });
+        byte[] bytes = builder.build().toByteArray();
         producer.send(
-            new ProducerRecord<>(topic, Config.Agent.INSTANCE_NAME, Bytes.wrap(builder.build().toByteArray())));
+            new ProducerRecord<>(topic, Config.Agent.INSTANCE_NAME, Bytes.wrap(bytes)),
+            counter.callback(builder.getMeterDataCount(), bytes.length)
+        );
 
         producer.flush();
+        counter.printStatus();
     }
 
     @Override
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.kafka;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.skywalking.apm.agent.core.logging.api.ILog;
+import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
+import org.apache.skywalking.apm.agent.core.meter.MeterFactory;
+
+/**
+ * The throughput and drop counters of the reports to one Kafka topic. A record could carry several items, such as the
+ * segments packed into one collection record. The counters are reported as the agent meters once {@link
+ * #registerMeters()} is called.
+ */
+public class KafkaReportCounter {
+    private static final ILog LOGGER = LogManager.getLogger(KafkaReportCounter.class);
+
+    private final String topic;
+
+    private final AtomicLong sentRecords = new AtomicLong();
+
+    private final AtomicLong sentItems = new AtomicLong();
+
+    private final AtomicLong sentBytes = new AtomicLong();
+
+    private final AtomicLong droppedItems = new AtomicLong();
+
+    private long lastLoggedDroppedItems = 0;
+
+    public KafkaReportCounter(String topic) {
+        this.topic = topic;
+    }
+
+    /**
+     * Register the counters as the gauges of the agent meters, tagged by the topic.
+     */
+    public void registerMeters() {
+        registerMeter("kafka_reporter_sent_records", sentRecords);
+        registerMeter("kafka_reporter_sent_items", sentItems);
+        registerMeter("kafka_reporter_sent_bytes", sentBytes);
+        registerMeter("kafka_reporter_dropped_items", droppedItems);
+    }
+
+    private void registerMeter(final String name, final AtomicLong value) {
+        MeterFactory.gauge(name, () -> (double) value.get()).tag("topic", topic).build();
+    }
+
+    /**
+     * @return the callback of a record carrying the given items, which counts it as sent or dropped by the result.
+     */
+    public Callback callback(final int items, final int bytes) {
+        return (metadata, e) -> {
+            if (e == null) {
+                sentRecords.incrementAndGet();
+                sentItems.addAndGet(items);
+                sentBytes.addAndGet(bytes);
+            } else {
+                droppedItems.addAndGet(items);
+                LOGGER.error(e, "Failed to report {} items to Kafka topic {}.", items, topic);
+            }
+        };
+    }
+
+    /**
+     * Count the items dropped before sending, such as no producer is connected.
+     */
+    public void drop(int items) {
+        droppedItems.addAndGet(items);
+    }
+
+    /**
+     * Log the items dropped since the last call.
+     */
+    public synchronized void printStatus() {
+        long dropped = droppedItems.get();
+        if (dropped > lastLoggedDroppedItems) {
+            LOGGER.warn(
+                "{} items to Kafka topic {} have been dropped, {} items in {} records ({} bytes) sent in total.",
+                dropped - lastLoggedDroppedItems, topic, sentItems.get(), sentRecords.get(), sentBytes.get()
+            );
+            lastLoggedDroppedItems = dropped;
+        }
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public long getSentRecords() {
+        return sentRecords.get();
+    }
+
+    public long getSentItems() {
+        return sentItems.get();
+    }
+
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    public long getDroppedItems() {
+        return droppedItems.get();
+    }
+}
@@ -38,6 +38,11 @@ public class KafkaReporterPluginConfig {
 
             public static String TOPIC_SEGMENT = "skywalking-segments";
 
+            /**
+             * The topic of the SegmentCollection records, used only when {@link #SEGMENT_BATCH_MAX_BYTES} is set.
+             */
+            public static String TOPIC_SEGMENT_BATCH = "skywalking-segment-batches";
+
             public static String TOPIC_MANAGEMENT = "skywalking-managements";
 
             public static String TOPIC_METER = "skywalking-meters";
@@ -63,6 +68,13 @@ public class KafkaReporterPluginConfig {
              * Timeout period of reading topics from the Kafka server, the unit is second.
              */
             public static int GET_TOPIC_TIMEOUT = 10;
+
+            /**
+             * The max bytes of a record packing the segments as a SegmentCollection, sent to {@link
+             * #TOPIC_SEGMENT_BATCH} rather than {@link #TOPIC_SEGMENT}. 0 means sending one SegmentObject record per
+             * segment to {@link #TOPIC_SEGMENT}, which is the format the Kafka fetcher of OAP reads.
+             */
+            public static int SEGMENT_BATCH_MAX_BYTES = 0;
         }
     }
 }
@@ -19,9 +19,8 @@
 package org.apache.skywalking.apm.agent.core.kafka;
 
 import java.util.List;
-import java.util.Objects;
 import java.util.Properties;
-import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.utils.Bytes;
 import org.apache.skywalking.apm.agent.core.boot.BootService;
@@ -30,26 +29,41 @@ import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
 import org.apache.skywalking.apm.agent.core.context.TracingContext;
 import org.apache.skywalking.apm.agent.core.context.TracingContextListener;
 import org.apache.skywalking.apm.agent.core.context.trace.TraceSegment;
+import org.apache.skywalking.apm.agent.core.context.trace.TraceSegmentSerializer;
 import org.apache.skywalking.apm.agent.core.logging.api.ILog;
 import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
 import org.apache.skywalking.apm.agent.core.remote.TraceSegmentServiceClient;
 import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
-import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.apache.skywalking.apm.commons.datacarrier.partition.ProducerStripedPartitioner;
 
 import static org.apache.skywalking.apm.agent.core.conf.Config.Buffer.BUFFER_SIZE;
 import static org.apache.skywalking.apm.agent.core.conf.Config.Buffer.CHANNEL_SIZE;
+import static org.apache.skywalking.apm.agent.core.conf.Config.Buffer.MAX_LINGER;
+import static org.apache.skywalking.apm.agent.core.conf.Config.Buffer.SIGNAL_WATERMARK;
+import static org.apache.skywalking.apm.agent.core.conf.Config.Buffer.STRIPED_PARTITION;
+import static org.apache.skywalking.apm.agent.core.conf.Config.Buffer.TYPE;
 
 /**
- * A tracing segment data reporter.
+ * A tracing segment data reporter. The segments are keyed by their trace IDs, so the segments of one trace go to the
+ * same partition. When {@link KafkaReporterPluginConfig.Plugin.Kafka#SEGMENT_BATCH_MAX_BYTES} is set, the segments are
+ * packed into {@link org.apache.skywalking.apm.network.language.agent.v3.SegmentCollection} records bounded by the
+ * bytes, and sent to {@link KafkaReporterPluginConfig.Plugin.Kafka#TOPIC_SEGMENT_BATCH} instead, as the Kafka fetcher
+ * of OAP reads one SegmentObject per record of the segment topic.
  */
 @OverrideImplementor(TraceSegmentServiceClient.class)
 public class KafkaTraceSegmentServiceClient implements BootService, IConsumer<TraceSegment>, TracingContextListener, KafkaConnectionStatusListener {
     private static final ILog LOGGER = LogManager.getLogger(KafkaTraceSegmentServiceClient.class);
 
     private String topic;
-    private KafkaProducer<String, Bytes> producer;
+    private volatile Producer<String, Bytes> producer;
+    private final TraceSegmentSerializer serializer = new TraceSegmentSerializer();
+    private KafkaReportCounter counter;
+    // null unless the segments are sent in batch
+    private String batchTopic;
+    private KafkaReportCounter batchCounter;
+    private final SegmentCollectionBuffer buffer = new SegmentCollectionBuffer();
 
     private volatile DataCarrier<TraceSegment> carrier;
 
@@ -58,17 +72,28 @@ public class KafkaTraceSegmentServiceClient implements BootService, IConsumer<Tr
         KafkaProducerManager producerManager = ServiceManager.INSTANCE.findService(KafkaProducerManager.class);
         producerManager.addListener(this);
         topic = producerManager.formatTopicNameThenRegister(KafkaReporterPluginConfig.Plugin.Kafka.TOPIC_SEGMENT);
+        counter = new KafkaReportCounter(topic);
+        if (KafkaReporterPluginConfig.Plugin.Kafka.SEGMENT_BATCH_MAX_BYTES > 0) {
+            batchTopic = producerManager.formatTopicNameThenRegister(
+                KafkaReporterPluginConfig.Plugin.Kafka.TOPIC_SEGMENT_BATCH);
+            batchCounter = new KafkaReportCounter(batchTopic);
+        }
     }
 
     @Override
     public void boot() {
-        carrier = new DataCarrier<>(CHANNEL_SIZE, BUFFER_SIZE, BufferStrategy.IF_POSSIBLE);
-        carrier.consume(this, 1);
+        carrier = new DataCarrier<>(CHANNEL_SIZE, BUFFER_SIZE, BufferStrategy.IF_POSSIBLE, TYPE);
+        carrier.setSignalWatermark(SIGNAL_WATERMARK);
+        if (STRIPED_PARTITION) {
+            carrier.setPartitioner(new ProducerStripedPartitioner<>());
+        }
+        carrier.consume(this, 1, MAX_LINGER);
     }
 
     @Override
     public void onComplete() {
         TracingContext.ListenerManager.add(this);
+        getCounter().registerMeters();
     }
 
     @Override
@@ -84,26 +109,59 @@ public class KafkaTraceSegmentServiceClient implements BootService, IConsumer<Tr
 
     @Override
     public void consume(final List<TraceSegment> data) {
+        final Producer<String, Bytes> producer = this.producer;
+        final KafkaReportCounter counter = getCounter();
         if (producer == null) {
+            counter.drop(data.size());
+            counter.printStatus();
             return;
         }
-        data.forEach(traceSegment -> {
-            SegmentObject upstreamSegment = traceSegment.transform();
-            ProducerRecord<String, Bytes> record = new ProducerRecord<>(
-                topic,
-                upstreamSegment.getTraceSegmentId(),
-                Bytes.wrap(upstreamSegment.toByteArray())
-            );
-            producer.send(record, (m, e) -> {
-                if (Objects.nonNull(e)) {
-                    LOGGER.error("Failed to report TraceSegment.", e);
-                }
-            });
-        });
+        if (batchTopic != null) {
+            sendInBatch(producer, data);
+        } else {
+            for (TraceSegment traceSegment : data) {
+                byte[] segment = serializer.serialize(traceSegment);
+                producer.send(
+                    new ProducerRecord<>(topic, traceSegment.getRelatedGlobalTrace().getId(), Bytes.wrap(segment)),
+                    counter.callback(1, segment.length)
+                );
+            }
+        }
+        counter.printStatus();
+    }
+
+    /**
+     * Pack the segments into collection records, a record is sent once the next segment would exceed the max bytes, a
+     * segment larger than that is sent in a record alone. The records are keyed by the trace ID of their first segment,
+     * and the partitions are picked by the partitioner of the producer.
+     */
+    private void sendInBatch(final Producer<String, Bytes> producer, final List<TraceSegment> data) {
+        for (TraceSegment traceSegment : data) {
+            final byte[] segment = serializer.serialize(traceSegment);
+            if (!buffer.isEmpty() && buffer.size() + SegmentCollectionBuffer.packedSize(segment)
+                > KafkaReporterPluginConfig.Plugin.Kafka.SEGMENT_BATCH_MAX_BYTES) {
+                send(producer);
+            }
+            buffer.append(traceSegment.getRelatedGlobalTrace().getId(), segment);
+        }
+        if (!buffer.isEmpty()) {
+            send(producer);
+        }
+    }
+
+    private void send(final Producer<String, Bytes> producer) {
+        final int count = buffer.count();
+        final String key = buffer.key();
+        final byte[] collection = buffer.drain();
+        producer.send(
+            new ProducerRecord<>(batchTopic, key, Bytes.wrap(collection)),
+            batchCounter.callback(count, collection.length)
+        );
     }
 
     @Override
     public void onError(final List<TraceSegment> data, final Throwable t) {
+        getCounter().drop(data.size());
         LOGGER.error(t, "Try to send {} trace segments to collector, with unexpected exception.", data.size());
     }
 
@@ -125,6 +183,10 @@ public class KafkaTraceSegmentServiceClient implements BootService, IConsumer<Tr
         carrier.produce(traceSegment);
     }
 
+    KafkaReportCounter getCounter() {
+        return batchTopic == null ? counter : batchCounter;
+    }
+
     @Override
     public void onStatusChanged(KafkaConnectionStatus status) {
         if (status == KafkaConnectionStatus.CONNECTED) {
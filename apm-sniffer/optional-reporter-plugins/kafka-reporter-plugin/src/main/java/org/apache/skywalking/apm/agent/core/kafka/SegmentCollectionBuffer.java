@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.kafka;
+
+import java.util.Arrays;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentCollection;
+
+/**
+ * Packs the serialized segments into the wire format of {@link SegmentCollection}, each segment as a length delimited
+ * field 1. The backing array is reused across the records, only the packed bytes are copied out for every record.
+ */
+class SegmentCollectionBuffer {
+    /**
+     * Field 1, wire type length delimited.
+     */
+    private static final byte SEGMENTS_TAG = (1 << 3) | 2;
+
+    private byte[] buffer = new byte[4096];
+
+    private int size;
+
+    private int count;
+
+    /**
+     * The trace ID of the first segment, as the key of the record.
+     */
+    private String key;
+
+    /**
+     * @return the size of the segment packed as an element of the collection.
+     */
+    static int packedSize(byte[] segment) {
+        return 1 + varintSize(segment.length) + segment.length;
+    }
+
+    void append(String traceId, byte[] segment) {
+        int packedSize = packedSize(segment);
+        if (buffer.length - size < packedSize) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + packedSize));
+        }
+        if (count == 0) {
+            key = traceId;
+        }
+        buffer[size++] = SEGMENTS_TAG;
+        int length = segment.length;
+        while ((length & ~0x7F) != 0) {
+            buffer[size++] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        buffer[size++] = (byte) length;
+        System.arraycopy(segment, 0, buffer, size, segment.length);
+        size += segment.length;
+        count++;
+    }
+
+    /**
+     * @return the packed collection, and reset the buffer for the next record.
+     */
+    byte[] drain() {
+        byte[] collection = Arrays.copyOf(buffer, size);
+        size = 0;
+        count = 0;
+        key = null;
+        return collection;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int count() {
+        return count;
+    }
+
+    String key() {
+        return key;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.kafka;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.BytesSerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.skywalking.apm.agent.core.context.trace.TraceSegment;
+import org.apache.skywalking.apm.agent.core.meter.AbstractBuilder;
+import org.apache.skywalking.apm.agent.core.meter.BaseMeter;
+import org.apache.skywalking.apm.agent.core.meter.Gauge;
+import org.apache.skywalking.apm.agent.core.meter.MeterId;
+import org.apache.skywalking.apm.agent.core.meter.MeterService;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentCollection;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class KafkaTraceSegmentServiceClientTest {
+    private static final String TOPIC = "skywalking-segments";
+
+    private static final String BATCH_TOPIC = "skywalking-segment-batches";
+
+    private static final int PARTITIONS = 2;
+
+    private MockProducer<String, Bytes> producer;
+
+    private KafkaTraceSegmentServiceClient client;
+
+    @Before
+    public void setUp() {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions.add(new PartitionInfo(TOPIC, i, node, new Node[] {node}, new Node[] {node}));
+            partitions.add(new PartitionInfo(BATCH_TOPIC, i, node, new Node[] {node}, new Node[] {node}));
+        }
+        Cluster cluster = new Cluster(
+            "cluster", Collections.singletonList(node), partitions, Collections.emptySet(), Collections.emptySet());
+        producer = new MockProducer<>(
+            cluster, true, new DefaultPartitioner(), new StringSerializer(), new BytesSerializer());
+
+        client = new KafkaTraceSegmentServiceClient();
+        Whitebox.setInternalState(client, "topic", TOPIC);
+        Whitebox.setInternalState(client, "counter", new KafkaReportCounter(TOPIC));
+        Whitebox.setInternalState(client, "producer", producer);
+    }
+
+    @After
+    public void tearDown() {
+        KafkaReporterPluginConfig.Plugin.Kafka.SEGMENT_BATCH_MAX_BYTES = 0;
+        Whitebox.setInternalState(AbstractBuilder.class, "METER_SERVICE", (Object) null);
+    }
+
+    @Test
+    public void testSendPerSegment() throws Exception {
+        List<TraceSegment> segments = segments(3);
+        client.consume(segments);
+
+        List<ProducerRecord<String, Bytes>> records = producer.history();
+        assertEquals(3, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            ProducerRecord<String, Bytes> record = records.get(i);
+            String traceId = segments.get(i).getRelatedGlobalTrace().getId();
+            assertEquals(traceId, record.key());
+            assertEquals(traceId, SegmentObject.parseFrom(record.value().get()).getTraceId());
+        }
+        assertEquals(3, client.getCounter().getSentRecords());
+        assertEquals(3, client.getCounter().getSentItems());
+    }
+
+    @Test
+    public void testSendInBatchToBatchTopic() throws Exception {
+        enableBatch(1024 * 1024);
+        client.consume(segments(20));
+
+        List<ProducerRecord<String, Bytes>> records = producer.history();
+        assertEquals(1, records.size());
+        ProducerRecord<String, Bytes> record = records.get(0);
+        assertEquals(BATCH_TOPIC, record.topic());
+        // the partition is picked by the partitioner of the producer
+        assertNull(record.partition());
+        SegmentCollection collection = SegmentCollection.parseFrom(record.value().get());
+        assertEquals(20, collection.getSegmentsCount());
+        assertEquals(collection.getSegments(0).getTraceId(), record.key());
+        assertEquals(1, client.getCounter().getSentRecords());
+        assertEquals(20, client.getCounter().getSentItems());
+    }
+
+    @Test
+    public void testBatchBoundedByBytes() throws Exception {
+        enableBatch(1);
+        client.consume(segments(5));
+
+        List<ProducerRecord<String, Bytes>> records = producer.history();
+        assertEquals(5, records.size());
+        for (ProducerRecord<String, Bytes> record : records) {
+            assertEquals(1, SegmentCollection.parseFrom(record.value().get()).getSegmentsCount());
+        }
+    }
+
+    @Test
+    public void testDropWithoutProducer() {
+        Whitebox.setInternalState(client, "producer", (Object) null);
+        client.consume(segments(4));
+
+        assertEquals(4, client.getCounter().getDroppedItems());
+        assertEquals(0, client.getCounter().getSentItems());
+    }
+
+    @Test
+    public void testReportCounterAsMeters() {
+        MeterService meterService = new MeterService();
+        Whitebox.setInternalState(AbstractBuilder.class, "METER_SERVICE", meterService);
+        client.getCounter().registerMeters();
+        client.consume(segments(2));
+        Whitebox.setInternalState(client, "producer", (Object) null);
+        client.consume(segments(3));
+
+        Map<MeterId, BaseMeter> meters = Whitebox.getInternalState(meterService, "meterMap");
+        assertEquals(4, meters.size());
+        for (BaseMeter meter : meters.values()) {
+            assertEquals(TOPIC, meter.getId().getTags().get(0).getValue());
+            double value = ((Gauge) meter).get();
+            if (meter.getName().equals("kafka_reporter_sent_items")) {
+                assertEquals(2, value, 0);
+            } else if (meter.getName().equals("kafka_reporter_dropped_items")) {
+                assertEquals(3, value, 0);
+            }
+        }
+    }
+
+    private void enableBatch(int maxBytes) {
+        KafkaReporterPluginConfig.Plugin.Kafka.SEGMENT_BATCH_MAX_BYTES = maxBytes;
+        Whitebox.setInternalState(client, "batchTopic", BATCH_TOPIC);
+        Whitebox.setInternalState(client, "batchCounter", new KafkaReportCounter(BATCH_TOPIC));
+    }
+
+    private static List<TraceSegment> segments(int count) {
+        TraceSegment[] segments = new TraceSegment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new TraceSegment();
+        }
+        return Arrays.asList(segments);
+    }
+}